@@ -0,0 +1,477 @@
+package videoclub.datastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of JDBC connections to the SQLite database. <br>
+ *
+ * Connections are borrowed per call through {@link #acquire()} and handed back by closing the returned
+ * {@link Lease}, so that concurrent requests can each work on their own connection instead of taking turns
+ * on a single shared one. <br>
+ *
+ * Every connection keeps a bounded cache of the statements compiled on it (see {@link Lease#prepare(String)}).
+ * @author Ioannis Baraklilis
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * Creates the physical connections that the pool hands out.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        /**
+         * @return A new connection to the database.
+         * @throws SQLException If a database access error occurs.
+         */
+        Connection create() throws SQLException;
+    }
+
+    private final String name; // The name of the pool, used in log messages and statistics.
+    private final ConnectionFactory connectionFactory; // Creates new connections when the pool needs to grow.
+    private final int minSize; // The number of connections kept open even when idle.
+    private final int maxSize; // The maximum number of connections that may be open at the same time.
+    private final long acquireTimeoutNanos; // How long a caller waits for a connection before giving up.
+    private final int statementCacheSize; // How many compiled statements each connection keeps.
+    private final SlowQueryLog slowQueryLog; // Times the statements executed on the connections.
+
+    private final ReentrantLock lock = new ReentrantLock(); // Guards the state of the pool.
+    private final Condition connectionReleased = lock.newCondition(); // Signalled whenever a connection is handed back.
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>(); // Open connections not borrowed by anyone.
+    private int openConnections; // Number of open connections (idle and borrowed).
+    private int waitingThreads; // Number of threads currently waiting for a connection.
+    private boolean closed;
+
+    // Usage counters, reported through statistics().
+    private long acquisitions;
+    private long saturatedAcquisitions;
+    private long timeouts;
+    private long totalWaitNanos;
+    private int peakBorrowed;
+
+    /**
+     * Creates a connection pool and opens the minimum number of connections.
+     * @param name The name of the pool, used in log messages and statistics.
+     * @param connectionFactory Creates new connections when the pool needs to grow.
+     * @param minSize The number of connections kept open even when idle.
+     * @param maxSize The maximum number of connections that may be open at the same time.
+     * @param acquireTimeout How long a caller waits for a connection before giving up.
+     * @param statementCacheSize How many compiled statements each connection keeps.
+     * @throws SQLException If a database access error occurs while opening the initial connections.
+     * @throws IllegalArgumentException If the size limits are inconsistent.
+     */
+    public ConnectionPool(String name, ConnectionFactory connectionFactory, int minSize, int maxSize, Duration acquireTimeout,
+                          int statementCacheSize) throws SQLException {
+        this(name, connectionFactory, minSize, maxSize, acquireTimeout, statementCacheSize, SlowQueryLog.disabled());
+    }
+
+    /**
+     * Creates a connection pool and opens the minimum number of connections.
+     * @param name The name of the pool, used in log messages and statistics.
+     * @param connectionFactory Creates new connections when the pool needs to grow.
+     * @param minSize The number of connections kept open even when idle.
+     * @param maxSize The maximum number of connections that may be open at the same time.
+     * @param acquireTimeout How long a caller waits for a connection before giving up.
+     * @param statementCacheSize How many compiled statements each connection keeps.
+     * @param slowQueryLog Times the statements executed on the connections.
+     * @throws SQLException If a database access error occurs while opening the initial connections.
+     * @throws IllegalArgumentException If the size limits are inconsistent.
+     */
+    public ConnectionPool(String name, ConnectionFactory connectionFactory, int minSize, int maxSize, Duration acquireTimeout,
+                          int statementCacheSize, SlowQueryLog slowQueryLog) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize){
+            throw new IllegalArgumentException("Invalid pool size limits: min = " + minSize + ", max = " + maxSize + ".");
+        }
+
+        this.name = name;
+        this.connectionFactory = connectionFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.statementCacheSize = statementCacheSize;
+        this.slowQueryLog = slowQueryLog;
+
+        // Open the connections that are always kept around.
+        for (int i = 0; i < minSize; i++) {
+            idleConnections.push(new PooledConnection(connectionFactory.create()));
+            openConnections++;
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none is idle and the pool has not reached its maximum size.
+     * If the pool is saturated, the caller waits until a connection is handed back or the acquire timeout expires.
+     * @return The lease of the borrowed connection. Closing it returns the connection to the pool.
+     * @throws SQLTimeoutException If no connection became available within the acquire timeout.
+     * @throws SQLException If a database access error occurs or the pool is closed.
+     */
+    public Lease acquire() throws SQLException {
+        long acquireStart = System.nanoTime();
+        boolean openNew = false;
+        PooledConnection connection = null;
+
+        lock.lock();
+        try {
+            acquisitions++;
+
+            if (idleConnections.isEmpty() && openConnections >= maxSize){
+                // Every connection is in use: wait for one to be handed back.
+                saturatedAcquisitions++;
+                waitingThreads++;
+                long waitStart = System.nanoTime();
+                long remainingNanos = acquireTimeoutNanos;
+                try {
+                    while (!closed && idleConnections.isEmpty() && openConnections >= maxSize){
+                        if (remainingNanos <= 0){
+                            timeouts++;
+                            logger.warn("Connection pool '{}' exhausted: no connection became available within {} ms. {}",
+                                    name, TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos), statisticsLocked());
+                            throw new SQLTimeoutException("Timed out waiting for a connection from pool '" + name + "'.");
+                        }
+                        remainingNanos = connectionReleased.awaitNanos(remainingNanos);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a connection from pool '" + name + "'.", e);
+                } finally {
+                    waitingThreads--;
+                    totalWaitNanos += System.nanoTime() - waitStart;
+                }
+            }
+
+            if (closed){
+                throw new SQLException("Connection pool '" + name + "' is closed.");
+            }
+
+            if (idleConnections.isEmpty()){
+                // Reserve a slot for the new connection; it is opened outside the lock.
+                openNew = true;
+                openConnections++;
+            } else {
+                connection = idleConnections.pop();
+            }
+
+            peakBorrowed = Math.max(peakBorrowed, openConnections - idleConnections.size());
+        } finally {
+            lock.unlock();
+        }
+
+        if (openNew){
+            try {
+                connection = new PooledConnection(connectionFactory.create());
+            } catch (SQLException | RuntimeException e) {
+                discard(null);
+                throw e;
+            }
+        }
+
+        return new Lease(connection, System.nanoTime() - acquireStart);
+    }
+
+    /**
+     * Hands a borrowed connection back to the pool. Connections that were closed in the meantime are discarded.
+     * @param connection The connection being handed back.
+     */
+    private void release(PooledConnection connection) {
+        boolean usable;
+        try {
+            usable = !connection.connection.isClosed();
+        } catch (SQLException e) {
+            usable = false;
+        }
+
+        if (!usable){
+            discard(connection);
+            return;
+        }
+
+        boolean closeConnection = false;
+        lock.lock();
+        try {
+            if (closed){
+                openConnections--;
+                closeConnection = true;
+            } else {
+                idleConnections.push(connection);
+                connectionReleased.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (closeConnection){
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Removes a connection from the pool's accounting (and closes it if given), freeing its slot for a new one.
+     * @param connection The connection to be discarded. May be null if it was never opened.
+     */
+    private void discard(PooledConnection connection) {
+        lock.lock();
+        try {
+            openConnections--;
+            connectionReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (connection != null){
+            closeQuietly(connection);
+        }
+    }
+
+    private void closeQuietly(PooledConnection connection) {
+        try {
+            connection.connection.close(); // Also closes the statements compiled on it.
+        } catch (SQLException e) {
+            logger.debug("Failed to close a connection of pool '{}'.", name, e);
+        }
+    }
+
+    /**
+     * @return A snapshot of the pool's current state and usage counters.
+     */
+    public Statistics statistics() {
+        lock.lock();
+        try {
+            return statisticsLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Statistics statisticsLocked() {
+        return new Statistics(name, minSize, maxSize, openConnections, openConnections - idleConnections.size(),
+                idleConnections.size(), waitingThreads, peakBorrowed, acquisitions, saturatedAcquisitions, timeouts,
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos));
+    }
+
+    /**
+     * Closes all idle connections. Borrowed connections are closed as soon as they are handed back.
+     */
+    @Override
+    public void close() {
+        Deque<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayDeque<>(idleConnections);
+            openConnections -= idleConnections.size();
+            idleConnections.clear();
+            connectionReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        toClose.forEach(this::closeQuietly);
+    }
+
+    /**
+     * A connection borrowed from the pool. Closing the lease hands the connection back.
+     */
+    public final class Lease implements AutoCloseable {
+        private final PooledConnection connection;
+        private final long waitNanos; // How long the borrower waited for the connection.
+        private boolean released;
+
+        private Lease(PooledConnection connection, long waitNanos) {
+            this.connection = connection;
+            this.waitNanos = waitNanos;
+        }
+
+        /**
+         * @return How long the borrower waited for the connection, including the time to open it.
+         */
+        public long waitNanos() {
+            return waitNanos;
+        }
+
+        /**
+         * @return The log that times the statements executed on the connection.
+         */
+        SlowQueryLog slowQueryLog() {
+            return slowQueryLog;
+        }
+
+        /**
+         * @return The borrowed connection. It must not be closed by the caller.
+         */
+        public Connection connection() {
+            return connection.connection;
+        }
+
+        /**
+         * Returns the compiled statement of the SQL template, compiling it only the first time it is used on this
+         * connection. The statement is shared by all callers that borrow this connection and must not be closed;
+         * its parameters have to be set again before every execution.
+         * @param sql The SQL template.
+         * @return The compiled statement.
+         * @throws SQLException If a database access error occurs or the SQL is invalid.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            return connection.prepare(sql);
+        }
+
+        /**
+         * Hands the connection back to the pool.
+         */
+        @Override
+        public void close() {
+            if (!released){
+                released = true;
+                release(connection);
+            }
+        }
+    }
+
+    /**
+     * An open connection of the pool together with the statements compiled on it.
+     */
+    private final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements; // Compiled statements by SQL template, least recently used first.
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= statementCacheSize){
+                        return false;
+                    }
+
+                    try {
+                        eldest.getValue().close();
+                    } catch (SQLException e) {
+                        logger.debug("Failed to close an evicted statement of pool '{}'.", name, e);
+                    }
+                    return true;
+                }
+            };
+        }
+
+        private PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()){
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    /**
+     * A snapshot of the state of a connection pool, used to watch for saturation.
+     */
+    public static final class Statistics {
+        private final String name;
+        private final int minSize;
+        private final int maxSize;
+        private final int open;
+        private final int borrowed;
+        private final int idle;
+        private final int waiting;
+        private final int peakBorrowed;
+        private final long acquisitions;
+        private final long saturatedAcquisitions;
+        private final long timeouts;
+        private final long totalWaitMillis;
+
+        Statistics(String name, int minSize, int maxSize, int open, int borrowed, int idle, int waiting, int peakBorrowed,
+                   long acquisitions, long saturatedAcquisitions, long timeouts, long totalWaitMillis) {
+            this.name = name;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.open = open;
+            this.borrowed = borrowed;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.peakBorrowed = peakBorrowed;
+            this.acquisitions = acquisitions;
+            this.saturatedAcquisitions = saturatedAcquisitions;
+            this.timeouts = timeouts;
+            this.totalWaitMillis = totalWaitMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /** @return The number of open connections, idle and borrowed. */
+        public int getOpen() {
+            return open;
+        }
+
+        /** @return The number of connections currently borrowed. */
+        public int getBorrowed() {
+            return borrowed;
+        }
+
+        /** @return The number of open connections not borrowed by anyone. */
+        public int getIdle() {
+            return idle;
+        }
+
+        /** @return The number of threads currently waiting for a connection. */
+        public int getWaiting() {
+            return waiting;
+        }
+
+        /** @return The highest number of connections that were borrowed at the same time. */
+        public int getPeakBorrowed() {
+            return peakBorrowed;
+        }
+
+        /** @return The total number of connections borrowed. */
+        public long getAcquisitions() {
+            return acquisitions;
+        }
+
+        /** @return The number of acquisitions that found every connection in use and had to wait. */
+        public long getSaturatedAcquisitions() {
+            return saturatedAcquisitions;
+        }
+
+        /** @return The number of acquisitions that gave up waiting. */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /** @return The total time spent waiting for a connection, in milliseconds. */
+        public long getTotalWaitMillis() {
+            return totalWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s: open = %d, borrowed = %d, idle = %d, waiting = %d, max = %d, peak borrowed = %d, " +
+                            "acquisitions = %d, saturated = %d, timeouts = %d, total wait = %d ms]",
+                    name, open, borrowed, idle, waiting, maxSize, peakBorrowed, acquisitions, saturatedAcquisitions,
+                    timeouts, totalWaitMillis);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package videoclub.datastore;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a query row by row, mapping each row to an object only when it is requested. <br>
+ *
+ * SQLite steps through the rows of a query on demand, so only the row under the cursor is held in memory, instead of
+ * the whole result. The cursor keeps its connection borrowed until it is closed; it closes itself once the last row
+ * has been read, but a cursor that is abandoned early must be closed by the caller (e.g. with try-with-resources on
+ * {@link #stream()}).
+ * @param <T> The type of the objects the rows are mapped to.
+ * @author Ioannis Baraklilis
+ */
+public final class Cursor<T> implements Iterator<T>, AutoCloseable {
+    /**
+     * Maps the current row of the results of a query to an object.
+     * @param <T> The type of the objects the rows are mapped to.
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        /**
+         * @param qResults The results of a query, positioned at the row to be read.
+         * @return The object that the row maps to.
+         * @throws SQLException If a column cannot be read.
+         */
+        T map(ResultSet qResults) throws SQLException;
+    }
+
+    /**
+     * Thrown while iterating, when the next row cannot be read. The {@link SQLException} is its cause.
+     */
+    public static final class CursorException extends RuntimeException {
+        private CursorException(SQLException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    private final ConnectionPool.Lease lease; // The connection the query runs on.
+    private final ResultSet qResults; // The results of the query.
+    private final RowMapper<T> rowMapper; // Maps every row to an object.
+    private boolean hasRow; // Whether the results are positioned at a row that has not been returned yet.
+    private boolean closed;
+
+    private Cursor(ConnectionPool.Lease lease, ResultSet qResults, RowMapper<T> rowMapper) {
+        this.lease = lease;
+        this.qResults = qResults;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * Executes the query on a connection borrowed from the pool and opens a cursor over its results.
+     * @param pool The pool that the connection is borrowed from, until the cursor is closed.
+     * @param query The parameterized sql query to be executed.
+     * @param fetchSize The number of rows the driver is hinted to fetch at a time, or 0 for its default.
+     * @param rowMapper Maps every row to an object.
+     * @param <T> The type of the objects the rows are mapped to.
+     * @return The cursor, positioned before the first row.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static <T> Cursor<T> open(ConnectionPool pool, SqlQuery query, int fetchSize, RowMapper<T> rowMapper) throws SQLException {
+        ConnectionPool.Lease lease = pool.acquire();
+        try {
+            return new Cursor<>(lease, query.executeQuery(lease, fetchSize), rowMapper);
+        } catch (SQLException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return A sequential stream over the remaining rows, that closes the cursor when it is closed.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!hasRow && !closed) {
+            try {
+                hasRow = qResults.next();
+            } catch (SQLException e) {
+                close();
+                throw new CursorException(e);
+            }
+            if (!hasRow) { // The last row has been read, so the connection is not needed anymore.
+                close();
+            }
+        }
+        return hasRow;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasRow = false;
+        try {
+            return rowMapper.map(qResults);
+        } catch (SQLException e) {
+            close();
+            throw new CursorException(e);
+        }
+    }
+
+    /**
+     * Closes the results and hands the connection back to the pool. Closing it again has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        hasRow = false;
+        try {
+            qResults.close();
+        } catch (SQLException ignored) {
+            // The connection is handed back regardless; the statement is reset before its next execution.
+        } finally {
+            lease.close();
+        }
+    }
+}
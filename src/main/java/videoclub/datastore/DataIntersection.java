@@ -3,10 +3,13 @@ package videoclub.datastore;
 import videoclub.datastore.DataPoints.*;
 import videoclub.graphql.server.domain.videoclub.*;
 
-import java.sql.*;
-import java.time.LocalDate;
-import java.time.OffsetDateTime;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * The class that manages the application's data. <br>
@@ -14,12 +17,19 @@ import java.util.ArrayList;
  * It provides methods for objects that handle I/O with the database.
  *
  * It uses an SQLite database and the JDBC api to load, process and save data.
+ * The connections to the database are borrowed per call from a {@link ConnectionPool}. In the WAL storage mode the
+ * reads and the writes are served by separate pools, a pool of read-only connections and a single writer connection.
+ * In the MEMORY storage mode the connections are opened to an in-memory copy of the database file, see
+ * {@link MemoryDatabase}.
  * @author Ioannis Baraklilis
  */
-public class DataIntersection {
-    private Connection dbConnection; // The connection to the SQLite database.
-
-    private Statement queryEndpoint;
+public class DataIntersection implements DataStore {
+    private final ConnectionPool readConnectionPool; // The pool of connections that serve the reads.
+    private final ConnectionPool writeConnectionPool; // The pool of connections that serve the writes.
+    private final boolean compiledSelections; // Whether nested selections are loaded with the root query.
+    private final EntityCaches entityCaches; // The caches of the lookups by id made by the field resolvers.
+    private final MemoryDatabase memoryDatabase; // The in-memory copy of the database file, in the MEMORY storage mode.
+    private final DatabaseExecutor executor; // The threads the calls of the resolvers run on.
 
     // The objects that this class ties together for the sake of organization
     private final ActorData actorIO;
@@ -34,26 +44,180 @@ public class DataIntersection {
     /**
      * Creates a DataIntersection object, establishing a connection with the database located in the argument
      * filepath and initializes the objects handling the IO regarding certain entities.
+     * The default settings are used for everything else.
      *
      * @param db_filepath Filepath of the SQLite database file.
      * @throws SQLException if a database access error occurs or the url is null.
      */
     public DataIntersection(String db_filepath) throws SQLException {
-        dbConnection = DriverManager.getConnection("jdbc:sqlite:" + db_filepath); // Creating connection to the database with the given filepath.
-        queryEndpoint = dbConnection.createStatement();
-        actorIO = new ActorData(queryEndpoint, this);
-        categoryIO = new CategoryData(queryEndpoint, this);
-        customerIO = new CustomerData(queryEndpoint, this);
-        directorIO = new DirectorData(queryEndpoint, this);
-        movieCopyIO = new MovieCopyData(queryEndpoint, this);
-        movieTitleIO = new MovieTitleData(queryEndpoint, this);
-        productionCompanyIO = new ProductionCompanyData(queryEndpoint, this);
-        rentTransactionIO = new RentTransactionData(queryEndpoint, this);
+        this(withFile(db_filepath));
+    }
+
+    /**
+     * Creates a DataIntersection object, setting up a pool of connections to the database described by the settings
+     * and initializes the objects handling the IO regarding certain entities.
+     * The results of the asynchronous calls are completed on the common fork-join pool.
+     *
+     * @param settings The settings of the data store.
+     * @throws SQLException if a database access error occurs or the url is null.
+     */
+    public DataIntersection(DataStoreSettings settings) throws SQLException {
+        this(settings, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a DataIntersection object, setting up a pool of connections to the database described by the settings
+     * and initializes the objects handling the IO regarding certain entities.
+     *
+     * @param settings The settings of the data store.
+     * @param completionExecutor The executor the results of the asynchronous calls are completed on, see
+     *                           {@link DatabaseExecutor}.
+     * @throws SQLException if a database access error occurs or the url is null.
+     */
+    public DataIntersection(DataStoreSettings settings, Executor completionExecutor) throws SQLException {
+        DataStoreSettings.Pool poolSettings = settings.getPool();
+        compiledSelections = settings.isCompiledSelections();
+        DataStoreSettings.Cache cacheSettings = settings.getCache();
+        entityCaches = cacheSettings.isEnabled()
+                ? new EntityCaches(cacheSettings.getMaxSize(), cacheSettings.getTimeToLive())
+                : EntityCaches.disabled();
+        SQLiteConnectionFactory setupConnectionFactory = new SQLiteConnectionFactory(settings, false);
+        setupConnectionFactory.prepareDatabase();
+        memoryDatabase = settings.getStorageMode() == DataStoreSettings.StorageMode.MEMORY
+                ? MemoryDatabase.open(setupConnectionFactory, settings.getFile(), settings.getMemory().getPersistInterval())
+                : null;
+        new SchemaMigrator(setupConnectionFactory).migrate();
+        DataStoreSettings.SlowQueries slowQuerySettings = settings.getSlowQueries();
+        SlowQueryLog slowQueryLog = new SlowQueryLog(slowQuerySettings.isEnabled(), slowQuerySettings.getThreshold(),
+                slowQuerySettings.isExplain());
+
+        if (settings.getStorageMode() == DataStoreSettings.StorageMode.WAL) {
+            // SQLite allows a single writer at a time, so the writes queue up on one connection instead of on the lock.
+            writeConnectionPool = new ConnectionPool("sqlite-writer", new SQLiteConnectionFactory(settings, false),
+                    1, 1, poolSettings.getAcquireTimeout(), poolSettings.getStatementCacheSize(), slowQueryLog);
+            readConnectionPool = new ConnectionPool("sqlite-reader", new SQLiteConnectionFactory(settings, true),
+                    poolSettings.getMinSize(), poolSettings.getMaxSize(), poolSettings.getAcquireTimeout(),
+                    poolSettings.getStatementCacheSize(), slowQueryLog);
+        } else {
+            readConnectionPool = new ConnectionPool("sqlite", new SQLiteConnectionFactory(settings, false),
+                    poolSettings.getMinSize(), poolSettings.getMaxSize(), poolSettings.getAcquireTimeout(),
+                    poolSettings.getStatementCacheSize(), slowQueryLog);
+            writeConnectionPool = readConnectionPool;
+        }
+
+        DataStoreSettings.Executor executorSettings = settings.getExecutor();
+        int connections = poolSettings.getMaxSize() + (writeConnectionPool != readConnectionPool ? 1 : 0);
+        executor = new DatabaseExecutor(executorSettings.getThreads() != null ? executorSettings.getThreads() : connections,
+                executorSettings.getQueueCapacity(), completionExecutor);
+
+        ReferenceDictionary<MovieCopy.Medium> mediums =
+                ReferenceDictionary.load(readConnectionPool, "Medium", MovieCopy.Medium.class);
+        ReferenceDictionary<MovieCopy.MovieFormat> movieFormats =
+                ReferenceDictionary.load(readConnectionPool, "MovieFormat", MovieCopy.MovieFormat.class);
+
+        customerIO = new CustomerData(readConnectionPool, writeConnectionPool, entityCaches, this);
+        if (settings.getCatalog() == DataStoreSettings.Catalog.MEMORY) {
+            InMemoryCatalog catalog = InMemoryCatalog.load(readConnectionPool, mediums, movieFormats);
+            actorIO = new InMemoryActorData(readConnectionPool, entityCaches, catalog, this);
+            categoryIO = new InMemoryCategoryData(readConnectionPool, entityCaches, catalog, this);
+            directorIO = new InMemoryDirectorData(readConnectionPool, entityCaches, catalog, this);
+            movieCopyIO = new InMemoryMovieCopyData(readConnectionPool, writeConnectionPool, settings.getFetchSize(),
+                    mediums, movieFormats, entityCaches, catalog, this);
+            movieTitleIO = new InMemoryMovieTitleData(readConnectionPool, entityCaches, catalog, this);
+            productionCompanyIO = new InMemoryProductionCompanyData(readConnectionPool, entityCaches, catalog, this);
+        } else {
+            actorIO = new ActorData(readConnectionPool, entityCaches, this);
+            categoryIO = new CategoryData(readConnectionPool, entityCaches, this);
+            directorIO = new DirectorData(readConnectionPool, entityCaches, this);
+            movieCopyIO = new MovieCopyData(readConnectionPool, writeConnectionPool, settings.getFetchSize(),
+                    mediums, movieFormats, entityCaches, this);
+            movieTitleIO = new MovieTitleData(readConnectionPool, entityCaches, this);
+            productionCompanyIO = new ProductionCompanyData(readConnectionPool, entityCaches, this);
+        }
+        rentTransactionIO = new RentTransactionData(readConnectionPool, writeConnectionPool, settings.getFetchSize(),
+                entityCaches, this);
+    }
+
+    private static DataStoreSettings withFile(String db_filepath) {
+        DataStoreSettings settings = new DataStoreSettings();
+        settings.setFile(db_filepath);
+        return settings;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> async(DatabaseExecutor.Call<T> call) {
+        return executor.submit(call);
+    }
+
+    /**
+     * @return Whether the root queries should load the relationships selected below them in the same SQL query,
+     *         instead of leaving them to the field resolvers.
+     */
+    @Override
+    public boolean compilesSelections() {
+        return compiledSelections;
+    }
+
+    /**
+     * @return A snapshot of the state of each connection pool, used to watch for saturation.
+     */
+    @Override
+    public List<ConnectionPool.Statistics> connectionPoolStatistics() {
+        List<ConnectionPool.Statistics> statistics = new ArrayList<>();
+        statistics.add(readConnectionPool.statistics());
+        if (writeConnectionPool != readConnectionPool) {
+            statistics.add(writeConnectionPool.statistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * @return A snapshot of the size and the hit, miss and eviction counters of each entity cache.
+     */
+    @Override
+    public List<EntityCache.Statistics> entityCacheStatistics() {
+        return entityCaches.statistics();
+    }
+
+    /**
+     * Adds a listener that is told the name of every table written through the data points, once the write has been
+     * committed, so that the caches kept outside the data store can drop what was read from it.
+     * @param listener The listener, which must not block.
+     */
+    @Override
+    public void addWriteListener(Consumer<String> listener) {
+        entityCaches.addWriteListener(listener);
+    }
+
+    /**
+     * @return A snapshot of the threads and the queue that the calls to the data store run on.
+     */
+    @Override
+    public DatabaseExecutor.Statistics executorStatistics() {
+        return executor.statistics();
+    }
+
+    /**
+     * Closes the connections to the database. In the MEMORY storage mode the in-memory database is copied to the
+     * file once its pool is closed, so that every committed write is persisted.
+     */
+    @Override
+    public void close() {
+        executor.close();
+        // The writer is closed last, so that SQLite checkpoints the write-ahead log when the last connection closes.
+        if (writeConnectionPool != readConnectionPool) {
+            readConnectionPool.close();
+        }
+        writeConnectionPool.close();
+        if (memoryDatabase != null) {
+            memoryDatabase.close();
+        }
     }
 
     /**
      * @return The interface class that handles the Actor data.
      */
+    @Override
     public ActorData aboutActors() {
         return actorIO;
     }
@@ -61,6 +225,7 @@ public class DataIntersection {
     /**
      * @return The interface class that handles the Category data.
      */
+    @Override
     public CategoryData aboutCategories() {
         return categoryIO;
     }
@@ -68,6 +233,7 @@ public class DataIntersection {
     /**
      * @return The interface class that handles the Customer data.
      */
+    @Override
     public CustomerData aboutCustomers() {
         return customerIO;
     }
@@ -75,6 +241,7 @@ public class DataIntersection {
     /**
      * @return The interface class that handles the Director data.
      */
+    @Override
     public DirectorData aboutDirectors() {
         return directorIO;
     }
@@ -82,6 +249,7 @@ public class DataIntersection {
     /**
      * @return The interface class that handles the Movie Copy data.
      */
+    @Override
     public MovieCopyData aboutMovieCopies() {
         return movieCopyIO;
     }
@@ -89,6 +257,7 @@ public class DataIntersection {
     /**
      * @return The interface class that handles the MovieTitle data.
      */
+    @Override
     public MovieTitleData aboutMovieTitles() {
         return movieTitleIO;
     }
@@ -96,6 +265,7 @@ public class DataIntersection {
     /**
      * @return The interface class that handles the Production Company data.
      */
+    @Override
     public ProductionCompanyData aboutProductionCompanies() {
         return productionCompanyIO;
     }
@@ -103,6 +273,7 @@ public class DataIntersection {
     /**
      * @return The interface class that handles the Rent Transaction data.
      */
+    @Override
     public RentTransactionData aboutRentTransactions() {
         return rentTransactionIO;
     }
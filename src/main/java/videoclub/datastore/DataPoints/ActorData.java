@@ -1,13 +1,23 @@
 package videoclub.datastore.DataPoints;
 
+import videoclub.datastore.ConnectionPool;
 import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCache;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.QueryBuilder;
+import videoclub.datastore.SqlQuery;
 import videoclub.graphql.server.domain.videoclub.Actor;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * The class that manages the application's data concerning the Actors. <br>
@@ -16,15 +26,19 @@ import java.util.ArrayList;
  * @author Ioannis Baraklilis
  */
 public class ActorData {
-    private final Statement queryEndpoint; // The object used for executing a static SQL statements.
+    private final ConnectionPool connectionPool; // The pool that connections to the database are borrowed from.
+    private final EntityCache<Integer, Actor[]> actorsOfMovieTitle; // The actors of each movie title, by movie title id.
     private final DataIntersection dataIntersection; // The object that uses this as an interface to other data.
 
     /**
-     * Sets the Statement object as the "endpoint" to interface with the database through queries.
-     * @param queryEndpoint The object used for executing a static SQL statements.
+     * Sets the connection pool as the "endpoint" to interface with the database through queries.
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the relationships loaded are kept in.
+     * @param dataIntersection The object that uses this as an interface to other data.
      */
-    public ActorData(Statement queryEndpoint, DataIntersection dataIntersection) {
-        this.queryEndpoint = queryEndpoint;
+    public ActorData(ConnectionPool connectionPool, EntityCaches entityCaches, DataIntersection dataIntersection) {
+        this.connectionPool = connectionPool;
+        this.actorsOfMovieTitle = entityCaches.create("actorsOfMovieTitle", "Person", "MovieTitleParticipants");
         this.dataIntersection = dataIntersection;
     }
 
@@ -36,35 +50,61 @@ public class ActorData {
      * @throws SQLException If a database access error occurs.
      */
     public Actor[] retrieveActors(Actor actor) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select distinct Person.id, Person.name ")
-                .append("from Person inner join MovieTitleParticipants on Person.id = MovieTitleParticipants.Person_id ")
-                .append("where MovieTitleParticipants.participationRole = \"Actor\" ");
+        return executeActorRetrievalQuery(actorsQuery(actor));
+    }
 
-        if (actor.getId() != null){ // id is provided
-            sqlQuery.append(String.format("and id = %d ", actor.getId()));
-        }
+    /**
+     * Retrieves a number of actors from the database together with their movie titles, with a single query.
+     * The movie titles are set as the preloaded ones of each actor.
+     * @param actor The actor template that will be used for selection, as in {@link #retrieveActors(Actor)}.
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @param relations The relationships loaded together with the movie titles.
+     * @return A list of Actor entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Actor[] retrieveActorsWithMovieTitles(Actor actor, Set<MovieTitle.Field> fields,
+                                                 Set<MovieTitleData.Relation> relations) throws SQLException {
+        SqlQuery sqlQuery = MovieTitleData.withMovieTitles(MovieTitleData.Owner.ACTOR, actorsQuery(actor), fields, relations);
 
-        if (actor.getName() != null){ // Actor's name is provided.
-            sqlQuery.append(String.format("and name = \"%s\" ", actor.getName()));
+        ArrayList<Actor> actors = new ArrayList<>();
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.executeQuery(lease)) {
+            // The columns of the actor are followed by the array of its movie titles.
+            while (qResults.next()) {
+                Actor loaded = new Actor(qResults.getInt(1), qResults.getString(2));
+                loaded.setPreloadedMovieTitles(MovieTitleData.readMovieTitles(qResults.getString(3), fields, relations));
+                actors.add(loaded);
+            }
         }
 
-        return executeActorRetrievalQuery(sqlQuery.toString());
+        return actors.toArray(new Actor[0]);
+    }
+
+    /**
+     * @param actor The actor template, whose null fields match any value.
+     * @return The query of the actors that match the template.
+     */
+    private static SqlQuery actorsQuery(Actor actor) {
+        QueryBuilder sqlQuery = new QueryBuilder("select distinct Person.id, Person.name " +
+                "from Person inner join MovieTitleParticipants on Person.id = MovieTitleParticipants.Person_id " +
+                "where MovieTitleParticipants.participationRole = \"Actor\"").withWhereClause();
+
+        sqlQuery.whereIfPresent("id = ?", actor.getId()) // id is provided
+                .whereIfPresent("name = ?", actor.getName()); // Actor's name is provided.
+
+        return sqlQuery.build();
     }
 
     /**
      * Executes the given query and returns the list of actor object created.
-     * @param query The sql query to be executed.
+     * @param query The parameterized sql query to be executed.
      * @return The list of actor objects retrieved.
      */
-    private Actor[] executeActorRetrievalQuery(String query) throws SQLException {
-        // Asserting synchronization of database accesses.
-        ResultSet qResults;
+    private Actor[] executeActorRetrievalQuery(SqlQuery query) throws SQLException {
         ArrayList<Actor> actors = new ArrayList<>();
-        synchronized (queryEndpoint) {
-            qResults = queryEndpoint.executeQuery(query);
-
-
+        // Each call borrows its own connection, so that the queries of concurrent requests can run in parallel.
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             // Running through the results and constructing Actor objects with the returned data.
             while (qResults.next()) {
                 actors.add(new Actor(qResults.getInt(1), qResults.getString(2)));
@@ -82,19 +122,65 @@ public class ActorData {
      * @throws IllegalArgumentException If there is an error in the MovieTitle object fields.
      */
     public Actor[] retrieveActorsOfMovieTitle(MovieTitle movieTitle) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select distinct Person.id, Person.name ")
-                .append("from Person inner join MovieTitleParticipants on MovieTitleParticipants.Person_id = Person.id ")
-                .append("where MovieTitleParticipants.MovieTitle_id = ").append(movieTitle.getId())
-                .append(" and MovieTitleParticipants.participationRole = \"Actor\""); // We want the actors of this movie. An actor may also be a director.
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitle.getId() == null){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
 
+        SqlQuery sqlQuery = SqlQuery.of("select distinct Person.id, Person.name " +
+                "from Person inner join MovieTitleParticipants on MovieTitleParticipants.Person_id = Person.id " +
+                "where MovieTitleParticipants.MovieTitle_id = ?" +
+                " and MovieTitleParticipants.participationRole = \"Actor\"", // We want the actors of this movie. An actor may also be a director.
+                movieTitle.getId());
 
+        return executeActorRetrievalQuery(sqlQuery);
+    }
+
+    /**
+     * Retrieves the registered actors that starred in each of the movie titles given, with a single query.
+     * @param movieTitleIds The ids of the movie titles which are referenced.
+     * @return The Actor entities of each movie title, by movie title id.
+     *         Every id given has an entry, which is empty if there are none.
+     *         They are cached until the Person or MovieTitleParticipants table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, Actor[]> retrieveActorsOfMovieTitles(Collection<Integer> movieTitleIds) throws SQLException {
         // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
-        if (movieTitle.getId() == null){
+        if (movieTitleIds.stream().anyMatch(Objects::isNull)){
             throw new IllegalArgumentException("The MovieTitleId must not be null.");
         }
 
-        return executeActorRetrievalQuery(sqlQuery.toString());
+        return actorsOfMovieTitle.getAll(movieTitleIds, this::loadActorsOfMovieTitles);
+    }
+
+    /**
+     * Loads the actors of each of the movie titles given from the database, with a single query.
+     * @param movieTitleIds The ids of the movie titles which are referenced.
+     * @return The Actor entities of each movie title, by movie title id.
+     *         Every id given has an entry, which is empty if there are none.
+     */
+    private Map<Integer, Actor[]> loadActorsOfMovieTitles(Collection<Integer> movieTitleIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select distinct MovieTitleParticipants.MovieTitle_id, Person.id, Person.name " +
+                "from Person inner join MovieTitleParticipants on MovieTitleParticipants.Person_id = Person.id " +
+                "where MovieTitleParticipants.participationRole = \"Actor\"").withWhereClause();
+        sqlQuery.whereIn("MovieTitleParticipants.MovieTitle_id", movieTitleIds);
+
+        Map<Integer, List<Actor>> actors = new HashMap<>();
+        movieTitleIds.forEach(movieTitleId -> actors.put(movieTitleId, new ArrayList<>()));
+
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.build().executeQuery(lease)) {
+            // The first column is the movie title the row belongs to, the rest are the same as in the other queries.
+            while (qResults.next()) {
+                actors.get(qResults.getInt(1)).add(new Actor(qResults.getInt(2), qResults.getString(3)));
+            }
+        }
+
+        Map<Integer, Actor[]> actorsByMovieTitle = new HashMap<>();
+        actors.forEach((movieTitleId, ofMovieTitle) ->
+                actorsByMovieTitle.put(movieTitleId, ofMovieTitle.toArray(new Actor[0])));
+        return actorsByMovieTitle;
     }
 
 }
@@ -1,13 +1,23 @@
 package videoclub.datastore.DataPoints;
 
+import videoclub.datastore.ConnectionPool;
 import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCache;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.QueryBuilder;
+import videoclub.datastore.SqlQuery;
 import videoclub.graphql.server.domain.videoclub.Category;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * The class that manages the application's data concerning the Categories. <br>
@@ -16,30 +26,32 @@ import java.util.ArrayList;
  * @author Ioannis Baraklilis
  */
 public class CategoryData {
-    private final Statement queryEndpoint; // The object used for executing a static SQL statements.
+    private final ConnectionPool connectionPool; // The pool that connections to the database are borrowed from.
+    private final EntityCache<Integer, Category[]> categoriesOfMovieTitle; // The categories of each movie title, by movie title id.
     private final DataIntersection dataIntersection; // The object that uses this as an interface to other data.
 
     /**
-     * Sets the Statement object as the "endpoint" to interface with the database through queries.
-     * @param queryEndpoint The object used for executing a static SQL statements.
+     * Sets the connection pool as the "endpoint" to interface with the database through queries.
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the relationships loaded are kept in.
+     * @param dataIntersection The object that uses this as an interface to other data.
      */
-    public CategoryData(Statement queryEndpoint, DataIntersection dataIntersection) {
-        this.queryEndpoint = queryEndpoint;
+    public CategoryData(ConnectionPool connectionPool, EntityCaches entityCaches, DataIntersection dataIntersection) {
+        this.connectionPool = connectionPool;
+        this.categoriesOfMovieTitle = entityCaches.create("categoriesOfMovieTitle", "Category", "inCategory");
         this.dataIntersection = dataIntersection;
     }
 
     /**
      * Executes the given query and returns the list of category object created.
-     * @param query The sql query to be executed.
+     * @param query The parameterized sql query to be executed.
      * @return The list of category objects retrieved.
      */
-    private Category[] executeCategoryRetrievalQuery(String query) throws SQLException {
-        // Asserting synchronization of database accesses.
-        ResultSet qResults;
+    private Category[] executeCategoryRetrievalQuery(SqlQuery query) throws SQLException {
         ArrayList<Category> categories = new ArrayList<>();
-        synchronized (queryEndpoint) {
-            qResults = queryEndpoint.executeQuery(query);
-
+        // Each call borrows its own connection, so that the queries of concurrent requests can run in parallel.
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             // Running through the results and constructing Category objects with the returned data.
             while (qResults.next()) {
                 categories.add(new Category(qResults.getInt(1), qResults.getString(2)));
@@ -57,22 +69,48 @@ public class CategoryData {
      * @throws SQLException If a database access error occurs.
      */
     public Category[] retrieveCategories(Category category) throws SQLException {
-        String sqlQuery = "select Category.id, Category.name " +
-                "from  Category ";
+        return executeCategoryRetrievalQuery(categoriesQuery(category));
+    }
 
-        if (category.getId() == null){ // id not provided
-            if (category.getName() != null){ // Only name is provided.
-                sqlQuery += String.format("where name = '%s'", category.getName());
-            }
-        } else { // id provided.
-            if (category.getName() == null){ // Only id is provided.
-                sqlQuery += String.format("where id = '%d'", category.getId());
-            } else { // Both id and name provided.
-                sqlQuery += String.format("where id = '%d' and name = '%s'", category.getId(), category.getName());
+    /**
+     * Retrieves a number of categories from the database together with their movie titles, with a single query.
+     * The movie titles are set as the preloaded ones of each category.
+     * @param category The category template that will be used for selection, as in {@link #retrieveCategories(Category)}.
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @param relations The relationships loaded together with the movie titles.
+     * @return A list of Category entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Category[] retrieveCategoriesWithMovieTitles(Category category, Set<MovieTitle.Field> fields,
+                                                        Set<MovieTitleData.Relation> relations) throws SQLException {
+        SqlQuery sqlQuery = MovieTitleData.withMovieTitles(MovieTitleData.Owner.CATEGORY, categoriesQuery(category), fields, relations);
+
+        ArrayList<Category> categories = new ArrayList<>();
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.executeQuery(lease)) {
+            // The columns of the category are followed by the array of its movie titles.
+            while (qResults.next()) {
+                Category loaded = new Category(qResults.getInt(1), qResults.getString(2));
+                loaded.setPreloadedMovieTitles(MovieTitleData.readMovieTitles(qResults.getString(3), fields, relations));
+                categories.add(loaded);
             }
         }
 
-        return executeCategoryRetrievalQuery(sqlQuery);
+        return categories.toArray(new Category[0]);
+    }
+
+    /**
+     * @param category The category template, whose null fields match any value.
+     * @return The query of the categories that match the template.
+     */
+    private static SqlQuery categoriesQuery(Category category) {
+        QueryBuilder sqlQuery = new QueryBuilder("select Category.id, Category.name " +
+                "from  Category");
+
+        sqlQuery.whereIfPresent("id = ?", category.getId()) // id provided.
+                .whereIfPresent("name = ?", category.getName()); // name provided.
+
+        return sqlQuery.build();
     }
 
     /**
@@ -88,11 +126,57 @@ public class CategoryData {
             throw new IllegalArgumentException("The MovieTitleId must not be null.");
         }
 
-        String sqlQuery = String.format("select Category.id, Category.name " +
+        SqlQuery sqlQuery = SqlQuery.of("select Category.id, Category.name " +
                 "from Category inner join inCategory on Category.id = inCategory.Category_id " +
-                "where inCategory.MovieTitle_id = %d", movieTitle.getId());
+                "where inCategory.MovieTitle_id = ?", movieTitle.getId());
 
         return executeCategoryRetrievalQuery(sqlQuery);
     }
 
+    /**
+     * Retrieves the categories of each of the movie titles given, with a single query.
+     * @param movieTitleIds The ids of the movie titles which are referenced.
+     * @return The Category entities of each movie title, by movie title id.
+     *         Every id given has an entry, which is empty if there are none.
+     *         They are cached until the Category or inCategory table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, Category[]> retrieveCategoriesOfMovieTitles(Collection<Integer> movieTitleIds) throws SQLException {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitleIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        return categoriesOfMovieTitle.getAll(movieTitleIds, this::loadCategoriesOfMovieTitles);
+    }
+
+    /**
+     * Loads the categories of each of the movie titles given from the database, with a single query.
+     * @param movieTitleIds The ids of the movie titles which are referenced.
+     * @return The Category entities of each movie title, by movie title id.
+     *         Every id given has an entry, which is empty if there are none.
+     */
+    private Map<Integer, Category[]> loadCategoriesOfMovieTitles(Collection<Integer> movieTitleIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select inCategory.MovieTitle_id, Category.id, Category.name " +
+                "from Category inner join inCategory on Category.id = inCategory.Category_id");
+        sqlQuery.whereIn("inCategory.MovieTitle_id", movieTitleIds);
+
+        Map<Integer, List<Category>> categories = new HashMap<>();
+        movieTitleIds.forEach(movieTitleId -> categories.put(movieTitleId, new ArrayList<>()));
+
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.build().executeQuery(lease)) {
+            // The first column is the movie title the row belongs to, the rest are the same as in the other queries.
+            while (qResults.next()) {
+                categories.get(qResults.getInt(1)).add(new Category(qResults.getInt(2), qResults.getString(3)));
+            }
+        }
+
+        Map<Integer, Category[]> categoriesByMovieTitle = new HashMap<>();
+        categories.forEach((movieTitleId, ofMovieTitle) ->
+                categoriesByMovieTitle.put(movieTitleId, ofMovieTitle.toArray(new Category[0])));
+        return categoriesByMovieTitle;
+    }
+
 }
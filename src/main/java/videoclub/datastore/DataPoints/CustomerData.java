@@ -1,15 +1,25 @@
 package videoclub.datastore.DataPoints;
 
+import videoclub.datastore.ConnectionPool;
 import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.QueryBuilder;
+import videoclub.datastore.SqlQuery;
 import videoclub.graphql.server.domain.videoclub.Customer;
 import videoclub.graphql.server.domain.videoclub.RentTransaction;
 import videoclub.graphql.server.domain.videoclub.input.CreateCustomerInput;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * The class that manages the application's data concerning the Customers. <br>
@@ -18,41 +28,86 @@ import java.util.ArrayList;
  * @author Ioannis Baraklilis
  */
 public class CustomerData {
-    private final Statement queryEndpoint; // The object used for executing a static SQL statements.
+    private static final Set<Customer.Field> ALL_FIELDS = EnumSet.allOf(Customer.Field.class);
+
+    private final ConnectionPool connectionPool; // The pool that connections to the database are borrowed from.
+    private final ConnectionPool writeConnectionPool; // The pool that connections for the writes are borrowed from.
+    private final EntityCaches entityCaches; // Told about the writes, so that the caches reading the customers are emptied.
     private final DataIntersection dataIntersection; // The object that uses this as an interface to other data.
 
     /**
-     * Sets the Statement object as the "endpoint" to interface with the database through queries.
-     * @param queryEndpoint The object used for executing a static SQL statements.
+     * Sets the connection pools as the "endpoint" to interface with the database through queries.
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param writeConnectionPool The pool that connections for the writes are borrowed from.
+     * @param entityCaches The caches that are emptied when the customers are written.
+     * @param dataIntersection The object that uses this as an interface to other data.
      */
-    public CustomerData(Statement queryEndpoint, DataIntersection dataIntersection) {
-        this.queryEndpoint = queryEndpoint;
+    public CustomerData(ConnectionPool connectionPool, ConnectionPool writeConnectionPool, EntityCaches entityCaches,
+                        DataIntersection dataIntersection) {
+        this.connectionPool = connectionPool;
+        this.writeConnectionPool = writeConnectionPool;
+        this.entityCaches = entityCaches;
         this.dataIntersection = dataIntersection;
     }
 
     /**
      * Executes the given query and returns the list of customer object created.
-     * @param query The sql query to be executed.
+     * @param query The parameterized sql query to be executed.
      * @return The list of Customers objects retrieved.
      */
-    private Customer[] executeCustomerRetrievalQuery(String query) throws SQLException {
-        // Asserting synchronization of database accesses.
-        ResultSet qResults;
-        ArrayList<Customer> customers = new ArrayList<>();
-        synchronized (queryEndpoint) {
-            qResults = queryEndpoint.executeQuery(query.toString());
+    private Customer[] executeCustomerRetrievalQuery(SqlQuery query) throws SQLException {
+        return executeCustomerRetrievalQuery(query, connectionPool);
+    }
 
+    /**
+     * Executes the given query on a connection of the given pool and returns the list of customer object created.
+     * @param query The parameterized sql query to be executed.
+     * @param pool The pool that the connection is borrowed from.
+     * @return The list of Customers objects retrieved.
+     */
+    private Customer[] executeCustomerRetrievalQuery(SqlQuery query, ConnectionPool pool) throws SQLException {
+        ArrayList<Customer> customers = new ArrayList<>();
+        // Each call borrows its own connection, so that the queries of concurrent requests can run in parallel.
+        try (ConnectionPool.Lease lease = pool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             // Running through the results and constructing Customer objects with the returned data.
             while (qResults.next()) {
-                customers.add(new Customer(qResults.getInt(1), qResults.getString(2),
-                        qResults.getString(3)==null?null:LocalDate.parse(qResults.getString(3)), qResults.getString(4),
-                        qResults.getString(5), qResults.getString(6)));
+                customers.add(readCustomer(qResults, 1));
             }
         }
 
         return customers.toArray(new Customer[0]);
     }
 
+    /**
+     * Constructs a Customer object with the data of the current row of the results.
+     * @param qResults The results of a query, positioned at the row to be read.
+     * @param firstColumn The index of the first of the six customer columns, in the order of the retrieval queries.
+     * @return The customer object created.
+     */
+    private static Customer readCustomer(ResultSet qResults, int firstColumn) throws SQLException {
+        String dateOfBirth = qResults.getString(firstColumn + 2);
+        return new Customer(qResults.getInt(firstColumn), qResults.getString(firstColumn + 1),
+                dateOfBirth == null ? null : LocalDate.parse(dateOfBirth), qResults.getString(firstColumn + 3),
+                qResults.getString(firstColumn + 4), qResults.getString(firstColumn + 5));
+    }
+
+    /**
+     * Builds the select list of the six customer columns, in the order of the retrieval queries.
+     * The columns of the fields that are not requested are selected as null, so that the positions stay the same
+     * while their values are not read from the table.
+     * @param fields The fields of the customers that are requested.
+     * @return The select list.
+     */
+    private static String projection(Set<Customer.Field> fields) {
+        return "Customer.id, " +
+                (fields.contains(Customer.Field.FULL_NAME) ? "Customer.fullName" : "null") + ", " +
+                (fields.contains(Customer.Field.DATE_OF_BIRTH) ? "Customer.dateOfBirth" : "null") + ", " +
+                (fields.contains(Customer.Field.ADDRESS) ? "Customer.address" : "null") + ", " +
+                (fields.contains(Customer.Field.PHONE_NUMBER) ? "Customer.phoneNumber" : "null") + ", " +
+                (fields.contains(Customer.Field.EMAIL) ? "Customer.email" : "null");
+    }
+
     /**
      * Retrieves a number of customers from the database.
      * @param customer The customer template that will be used for selection of the customers loaded from the database.
@@ -61,68 +116,89 @@ public class CustomerData {
      * @throws SQLException If a database access error occurs.
      */
     public Customer[] retrieveCustomers(Customer customer) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select id, fullName, dateOfBirth, address, phoneNumber, email ")
-                .append("from Customer ");
-
-        // Controls whether the final query will retrieve all customers or will filter the results first.
-        boolean getAll = true;
-
-        // Check if it has been given an id filter.
-        if (customer.getId() != null){
-            getAll = false;
-            sqlQuery.append("where id = ").append(customer.getId());
-        }
-
-        // Check if it has been given an fullName filter.
-        if (customer.getFullName() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+        return retrieveCustomers(customer, ALL_FIELDS);
+    }
 
-            sqlQuery.append(" fullName = \"").append(customer.getFullName()).append("\"");
+    /**
+     * Retrieves a number of customers from the database, loading only the fields requested.
+     * @param customer The customer template that will be used for selection of the customers loaded from the database.
+     *              <p>Any object fields that have the value null will be substituted for any value</p>
+     * @param fields The fields of the customers that are loaded, the rest are left to be filled in.
+     * @return A list of Customer entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Customer[] retrieveCustomers(Customer customer, Set<Customer.Field> fields) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select " + projection(fields) + " " +
+                "from Customer");
+
+        // Only the filters that have been given are added to the where condition.
+        sqlQuery.whereIfPresent("id = ?", customer.getId())
+                .whereIfPresent("fullName = ?", customer.getFullName())
+                .whereIfPresent("dateOfBirth = ?", customer.getDateOfBirth())
+                .whereIfPresent("phoneNumber = ?", customer.getPhoneNumber())
+                .whereIfPresent("email = ?", customer.getEmail())
+                .append(" order by Customer.id");
+
+        Customer[] customers = executeCustomerRetrievalQuery(sqlQuery.build());
+        for (Customer retrieved : customers) {
+            retrieved.setLoadedFields(fields);
         }
+        return customers;
+    }
 
-        // Check if it has been given a dateOfBirth filter.
-        if (customer.getDateOfBirth() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
-
-            sqlQuery.append(" dateOfBirth = \"").append(customer.getDateOfBirth()).append("\"");
+    /**
+     * Retrieves a page of the customers that match the template, in the order of their ids, loading only the fields
+     * requested.
+     * @param customer The customer template that will be used for selection of the customers loaded from the database.
+     *              <p>Any object fields that have the value null will be substituted for any value</p>
+     * @param fields The fields of the customers that are loaded, the rest are left to be filled in.
+     * @param afterId The id of the customer after which the page starts. null starts from the first one.
+     * @param limit The maximum number of customers returned.
+     * @return A list of Customer entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Customer[] retrieveCustomersPage(Customer customer, Set<Customer.Field> fields, Integer afterId, int limit) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select " + projection(fields) + " " +
+                "from Customer");
+
+        // Only the filters that have been given are added to the where condition.
+        sqlQuery.whereIfPresent("id = ?", customer.getId())
+                .whereIfPresent("fullName = ?", customer.getFullName())
+                .whereIfPresent("dateOfBirth = ?", customer.getDateOfBirth())
+                .whereIfPresent("phoneNumber = ?", customer.getPhoneNumber())
+                .whereIfPresent("email = ?", customer.getEmail())
+                .whereIfPresent("Customer.id > ?", afterId)
+                .append(" order by Customer.id limit ?", limit);
+
+        Customer[] customers = executeCustomerRetrievalQuery(sqlQuery.build());
+        for (Customer retrieved : customers) {
+            retrieved.setLoadedFields(fields);
         }
+        return customers;
+    }
 
-        // Check if it has been given a phoneNumber filter.
-        if (customer.getPhoneNumber() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
-
-            sqlQuery.append(" phoneNumber = \"").append(customer.getPhoneNumber()).append("\"");
+    /**
+     * Retrieves the customers with the given ids, with all of their fields loaded.
+     * @param customerIds The ids of the customers.
+     * @return The customers found, by id.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, Customer> retrieveCustomersByIds(Collection<Integer> customerIds) throws SQLException {
+        // A customer object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (customerIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The CustomerId must not be null.");
         }
 
-        // Check if it has been given an email filter.
-        if (customer.getEmail() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+        QueryBuilder sqlQuery = new QueryBuilder("select " + projection(ALL_FIELDS) + " " +
+                "from Customer");
+        sqlQuery.whereIn("Customer.id", customerIds);
 
-            sqlQuery.append(" email = \"").append(customer.getEmail()).append("\"");
+        Map<Integer, Customer> customers = new HashMap<>();
+        for (Customer customer : executeCustomerRetrievalQuery(sqlQuery.build())) {
+            customers.put(customer.getId(), customer);
         }
-
-        return executeCustomerRetrievalQuery(sqlQuery.toString());
+        return customers;
     }
 
     /**
@@ -137,13 +213,42 @@ public class CustomerData {
             throw new IllegalArgumentException("The RentTransactionId must not be null.");
         }
 
-        String sqlQuery = "select Customer.id, Customer.fullName, Customer.dateOfBirth, Customer.address, Customer.phoneNumber, Customer.email " +
+        SqlQuery sqlQuery = SqlQuery.of("select Customer.id, Customer.fullName, Customer.dateOfBirth, Customer.address, Customer.phoneNumber, Customer.email " +
                 "from Customer " +
-                "where Customer.id = (select Customer_id from RentTransaction where id = " + rentTransaction.getId() + " )";
+                "where Customer.id = (select Customer_id from RentTransaction where id = ? )", rentTransaction.getId());
 
         return executeCustomerRetrievalQuery(sqlQuery)[0];
     }
 
+    /**
+     * Retrieves the customers involved in each of the transactions given, with a single query.
+     * @param rentTransactionIds The ids of the rent transactions which are referenced.
+     * @return The customer of each rent transaction, by rent transaction id.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, Customer> retrieveCustomersOfTransactions(Collection<Integer> rentTransactionIds) throws SQLException {
+        // A rent transaction object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (rentTransactionIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The RentTransactionId must not be null.");
+        }
+
+        QueryBuilder sqlQuery = new QueryBuilder("select RentTransaction.id, Customer.id, Customer.fullName, Customer.dateOfBirth, Customer.address, Customer.phoneNumber, Customer.email " +
+                "from RentTransaction inner join Customer on Customer.id = RentTransaction.Customer_id");
+        sqlQuery.whereIn("RentTransaction.id", rentTransactionIds);
+
+        Map<Integer, Customer> customers = new HashMap<>();
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.build().executeQuery(lease)) {
+            // The first column is the rent transaction the row belongs to, the rest are the customer's.
+            while (qResults.next()) {
+                customers.put(qResults.getInt(1), readCustomer(qResults, 2));
+            }
+        }
+
+        return customers;
+    }
+
     /**
      * Creates a new customer in the database and returns the corresponding object.
      * @param customerInput The input object.
@@ -154,19 +259,22 @@ public class CustomerData {
     public Customer insertCustomer(CreateCustomerInput customerInput) throws SQLException {
         StringBuilder columns = new StringBuilder();
         StringBuilder values = new StringBuilder();
+        List<Object> parameters = new ArrayList<>(); // The values of the placeholders, in the order of the columns.
 
         // Check if full name was provided.
         if (customerInput.getFullName() == null){
             throw new IllegalArgumentException("Customer full name required.");
         } else {
             columns.append("fullName, ");
-            values.append("'").append(customerInput.getFullName()).append("', ");
+            values.append("?, ");
+            parameters.add(customerInput.getFullName());
         }
 
         // Check if date of birth was provided.
         if (customerInput.getDateOfBirth() != null){
             columns.append("dateOfBirth, ");
-            values.append("'").append(customerInput.getDateOfBirth()).append("', ");
+            values.append("?, ");
+            parameters.add(customerInput.getDateOfBirth());
         }
 
         // Check if address was provided.
@@ -174,7 +282,8 @@ public class CustomerData {
             throw new IllegalArgumentException("Address required.");
         } else {
             columns.append("address, ");
-            values.append("'").append(customerInput.getAddress()).append("', ");
+            values.append("?, ");
+            parameters.add(customerInput.getAddress());
         }
 
         // Check if phone number was provided.
@@ -182,39 +291,30 @@ public class CustomerData {
             throw new IllegalArgumentException("Phone number required.");
         } else {
             columns.append("phoneNumber, ");
-            values.append("'").append(customerInput.getPhoneNumber()).append("', ");
+            values.append("?, ");
+            parameters.add(customerInput.getPhoneNumber());
         }
 
         // Check if email was provided.
         if (customerInput.getEmail() != null){
             columns.append("email, ");
-            values.append("'").append(customerInput.getEmail()).append("', ");
+            values.append("?, ");
+            parameters.add(customerInput.getEmail());
         }
 
         columns.replace(columns.length() - 2, columns.length(), "");
         values.replace(values.length() - 2, values.length(), "");
 
 
-        String query = String.format("insert into Customer ( %s ) %n" +
-                                     "values ( %s )", columns.toString(), values.toString());
-
-        Integer newCustomerId;
-
-        // Making sure there are no synchronization errors.
-        synchronized (queryEndpoint) {
-            queryEndpoint.execute(query);
+        // The inserted row is returned by the insert itself, in the column order of the retrieval queries.
+        SqlQuery query = new SqlQuery(String.format("insert into Customer ( %s ) " +
+                                                    "values ( %s ) " +
+                                                    "returning id, fullName, dateOfBirth, address, phoneNumber, email",
+                                                    columns.toString(), values.toString()), parameters);
 
-            // Query the database for all the valid ids. The one with the greatest value is the one just inserted.
-            String newIdQuery = "select id " +
-                                "from Customer " +
-                                "order by id desc limit 1";
-
-            ResultSet qResults = queryEndpoint.executeQuery(newIdQuery);
-
-            newCustomerId = qResults.getInt(1);
-        }
-        // Searching and returning the new customer object by id.
         // Only one is expected to be returned.
-        return retrieveCustomers(new Customer(newCustomerId, null, null, null, null, null))[0];
+        Customer customer = executeCustomerRetrievalQuery(query, writeConnectionPool)[0];
+        entityCaches.invalidate("Customer");
+        return customer;
     }
 }
@@ -1,13 +1,23 @@
 package videoclub.datastore.DataPoints;
 
+import videoclub.datastore.ConnectionPool;
 import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCache;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.QueryBuilder;
+import videoclub.datastore.SqlQuery;
 import videoclub.graphql.server.domain.videoclub.Director;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 
 /**
@@ -17,31 +27,32 @@ import java.util.ArrayList;
  * @author Ioannis Baraklilis
  */
 public class DirectorData {
-    private final Statement queryEndpoint; // The object used for executing a static SQL statements.
+    private final ConnectionPool connectionPool; // The pool that connections to the database are borrowed from.
+    private final EntityCache<Integer, Director[]> directorsOfMovieTitle; // The directors of each movie title, by movie title id.
     private final DataIntersection dataIntersection; // The object that uses this as an interface to other data.
 
     /**
-     * Sets the Statement object as the "endpoint" to interface with the database through queries.
-     * @param queryEndpoint The object used for executing a static SQL statements.
+     * Sets the connection pool as the "endpoint" to interface with the database through queries.
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the relationships loaded are kept in.
+     * @param dataIntersection The object that uses this as an interface to other data.
      */
-    public DirectorData(Statement queryEndpoint, DataIntersection dataIntersection) {
-        this.queryEndpoint = queryEndpoint;
+    public DirectorData(ConnectionPool connectionPool, EntityCaches entityCaches, DataIntersection dataIntersection) {
+        this.connectionPool = connectionPool;
+        this.directorsOfMovieTitle = entityCaches.create("directorsOfMovieTitle", "Person", "MovieTitleParticipants");
         this.dataIntersection = dataIntersection;
     }
 
     /**
      * Executes the given query and returns the list of director object created.
-     * @param query The sql query to be executed.
+     * @param query The parameterized sql query to be executed.
      * @return The list of director objects retrieved.
      */
-    private Director[] executeDirectorRetrievalQuery(String query) throws SQLException {
-        // Asserting synchronization of database accesses.
-        ResultSet qResults;
+    private Director[] executeDirectorRetrievalQuery(SqlQuery query) throws SQLException {
         ArrayList<Director> directors = new ArrayList<>();
-        synchronized (queryEndpoint) {
-            qResults = queryEndpoint.executeQuery(query);
-
-
+        // Each call borrows its own connection, so that the queries of concurrent requests can run in parallel.
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             // Running through the results and constructing Actor objects with the returned data.
             while (qResults.next()) {
                 directors.add(new Director(qResults.getInt(1), qResults.getString(2)));
@@ -59,21 +70,49 @@ public class DirectorData {
      * @throws SQLException If a database access error occurs.
      */
     public Director[] retrieveDirectors(Director director) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select distinct Person.id, Person.name ")
-                .append("from Person inner join MovieTitleParticipants on Person.id = MovieTitleParticipants.Person_id ")
-                .append("where MovieTitleParticipants.participationRole = \"Director\" ");
+        return executeDirectorRetrievalQuery(directorsQuery(director));
+    }
 
-        if (director.getId() != null){ // id is provided
-            sqlQuery.append(String.format("and id = %d ", director.getId()));
-        }
+    /**
+     * Retrieves a number of directors from the database together with their movie titles, with a single query.
+     * The movie titles are set as the preloaded ones of each director.
+     * @param director The director template that will be used for selection, as in {@link #retrieveDirectors(Director)}.
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @param relations The relationships loaded together with the movie titles.
+     * @return A list of Director entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Director[] retrieveDirectorsWithMovieTitles(Director director, Set<MovieTitle.Field> fields,
+                                                       Set<MovieTitleData.Relation> relations) throws SQLException {
+        SqlQuery sqlQuery = MovieTitleData.withMovieTitles(MovieTitleData.Owner.DIRECTOR, directorsQuery(director), fields, relations);
 
-        if (director.getName() != null){ // Actor's name is provided.
-            sqlQuery.append(String.format("and name = \"%s\" ", director.getName()));
+        ArrayList<Director> directors = new ArrayList<>();
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.executeQuery(lease)) {
+            // The columns of the director are followed by the array of its movie titles.
+            while (qResults.next()) {
+                Director loaded = new Director(qResults.getInt(1), qResults.getString(2));
+                loaded.setPreloadedMovieTitles(MovieTitleData.readMovieTitles(qResults.getString(3), fields, relations));
+                directors.add(loaded);
+            }
         }
 
+        return directors.toArray(new Director[0]);
+    }
 
-        return executeDirectorRetrievalQuery(sqlQuery.toString());
+    /**
+     * @param director The director template, whose null fields match any value.
+     * @return The query of the directors that match the template.
+     */
+    private static SqlQuery directorsQuery(Director director) {
+        QueryBuilder sqlQuery = new QueryBuilder("select distinct Person.id, Person.name " +
+                "from Person inner join MovieTitleParticipants on Person.id = MovieTitleParticipants.Person_id " +
+                "where MovieTitleParticipants.participationRole = \"Director\"").withWhereClause();
+
+        sqlQuery.whereIfPresent("id = ?", director.getId()) // id is provided
+                .whereIfPresent("name = ?", director.getName()); // Director's name is provided.
+
+        return sqlQuery.build();
     }
 
     /**
@@ -89,12 +128,60 @@ public class DirectorData {
             throw new IllegalArgumentException("The DirectorId must not be null.");
         }
 
-        String sqlQuery = "select distinct Person.id, Person.name " +
+        SqlQuery sqlQuery = SqlQuery.of("select distinct Person.id, Person.name " +
                 "from Person inner join MovieTitleParticipants on MovieTitleParticipants.Person_id = Person.id " +
-                "where MovieTitleParticipants.MovieTitle_id = " + movieTitle.getId() +
-                " and MovieTitleParticipants.participationRole = \"Director\""; // We want the directors of this movie. An actor may also be a director.
+                "where MovieTitleParticipants.MovieTitle_id = ?" +
+                " and MovieTitleParticipants.participationRole = \"Director\"", // We want the directors of this movie. An actor may also be a director.
+                movieTitle.getId());
 
         return executeDirectorRetrievalQuery(sqlQuery);
     }
 
+    /**
+     * Retrieves the registered directors that directed each of the movie titles given, with a single query.
+     * @param movieTitleIds The ids of the movie titles which are referenced.
+     * @return The Director entities of each movie title, by movie title id.
+     *         Every id given has an entry, which is empty if there are none.
+     *         They are cached until the Person or MovieTitleParticipants table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, Director[]> retrieveDirectorsOfMovieTitles(Collection<Integer> movieTitleIds) throws SQLException {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitleIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        return directorsOfMovieTitle.getAll(movieTitleIds, this::loadDirectorsOfMovieTitles);
+    }
+
+    /**
+     * Loads the directors of each of the movie titles given from the database, with a single query.
+     * @param movieTitleIds The ids of the movie titles which are referenced.
+     * @return The Director entities of each movie title, by movie title id.
+     *         Every id given has an entry, which is empty if there are none.
+     */
+    private Map<Integer, Director[]> loadDirectorsOfMovieTitles(Collection<Integer> movieTitleIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select distinct MovieTitleParticipants.MovieTitle_id, Person.id, Person.name " +
+                "from Person inner join MovieTitleParticipants on MovieTitleParticipants.Person_id = Person.id " +
+                "where MovieTitleParticipants.participationRole = \"Director\"").withWhereClause();
+        sqlQuery.whereIn("MovieTitleParticipants.MovieTitle_id", movieTitleIds);
+
+        Map<Integer, List<Director>> directors = new HashMap<>();
+        movieTitleIds.forEach(movieTitleId -> directors.put(movieTitleId, new ArrayList<>()));
+
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.build().executeQuery(lease)) {
+            // The first column is the movie title the row belongs to, the rest are the same as in the other queries.
+            while (qResults.next()) {
+                directors.get(qResults.getInt(1)).add(new Director(qResults.getInt(2), qResults.getString(3)));
+            }
+        }
+
+        Map<Integer, Director[]> directorsByMovieTitle = new HashMap<>();
+        directors.forEach((movieTitleId, ofMovieTitle) ->
+                directorsByMovieTitle.put(movieTitleId, ofMovieTitle.toArray(new Director[0])));
+        return directorsByMovieTitle;
+    }
+
 }
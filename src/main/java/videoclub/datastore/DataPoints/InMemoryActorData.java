@@ -0,0 +1,72 @@
+package videoclub.datastore.DataPoints;
+
+import videoclub.datastore.ConnectionPool;
+import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.InMemoryCatalog;
+import videoclub.graphql.server.domain.videoclub.Actor;
+import videoclub.graphql.server.domain.videoclub.MovieTitle;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The class that manages the application's data concerning the Actors, answering the lookups from the
+ * {@link InMemoryCatalog} instead of the database.
+ * @author Ioannis Baraklilis
+ */
+public class InMemoryActorData extends ActorData {
+    private final InMemoryCatalog catalog; // The catalog the lookups are answered from.
+
+    /**
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the relationships loaded are kept in.
+     * @param catalog The catalog the lookups are answered from.
+     * @param dataIntersection The object that uses this as an interface to other data.
+     */
+    public InMemoryActorData(ConnectionPool connectionPool, EntityCaches entityCaches, InMemoryCatalog catalog,
+                             DataIntersection dataIntersection) {
+        super(connectionPool, entityCaches, dataIntersection);
+        this.catalog = catalog;
+    }
+
+    @Override
+    public Actor[] retrieveActors(Actor actor) {
+        return catalog.actors(actor.getId(), actor.getName());
+    }
+
+    @Override
+    public Actor[] retrieveActorsWithMovieTitles(Actor actor, Set<MovieTitle.Field> fields,
+                                                 Set<MovieTitleData.Relation> relations) {
+        Actor[] actors = retrieveActors(actor);
+        for (Actor loaded : actors) {
+            loaded.setPreloadedMovieTitles(InMemoryMovieTitleData.preload(catalog, catalog.movieTitlesOfActor(loaded.getId()), relations));
+        }
+        return actors;
+    }
+
+    @Override
+    public Actor[] retrieveActorsOfMovieTitle(MovieTitle movieTitle) {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitle.getId() == null){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        return catalog.actorsOfMovieTitle(movieTitle.getId());
+    }
+
+    @Override
+    public Map<Integer, Actor[]> retrieveActorsOfMovieTitles(Collection<Integer> movieTitleIds) {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitleIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        Map<Integer, Actor[]> actorsByMovieTitle = new HashMap<>();
+        movieTitleIds.forEach(movieTitleId -> actorsByMovieTitle.put(movieTitleId, catalog.actorsOfMovieTitle(movieTitleId)));
+        return actorsByMovieTitle;
+    }
+}
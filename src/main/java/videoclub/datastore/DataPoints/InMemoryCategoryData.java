@@ -0,0 +1,72 @@
+package videoclub.datastore.DataPoints;
+
+import videoclub.datastore.ConnectionPool;
+import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.InMemoryCatalog;
+import videoclub.graphql.server.domain.videoclub.Category;
+import videoclub.graphql.server.domain.videoclub.MovieTitle;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The class that manages the application's data concerning the Categories, answering the lookups from the
+ * {@link InMemoryCatalog} instead of the database.
+ * @author Ioannis Baraklilis
+ */
+public class InMemoryCategoryData extends CategoryData {
+    private final InMemoryCatalog catalog; // The catalog the lookups are answered from.
+
+    /**
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the relationships loaded are kept in.
+     * @param catalog The catalog the lookups are answered from.
+     * @param dataIntersection The object that uses this as an interface to other data.
+     */
+    public InMemoryCategoryData(ConnectionPool connectionPool, EntityCaches entityCaches, InMemoryCatalog catalog,
+                                DataIntersection dataIntersection) {
+        super(connectionPool, entityCaches, dataIntersection);
+        this.catalog = catalog;
+    }
+
+    @Override
+    public Category[] retrieveCategories(Category category) {
+        return catalog.categories(category.getId(), category.getName());
+    }
+
+    @Override
+    public Category[] retrieveCategoriesWithMovieTitles(Category category, Set<MovieTitle.Field> fields,
+                                                        Set<MovieTitleData.Relation> relations) {
+        Category[] categories = retrieveCategories(category);
+        for (Category loaded : categories) {
+            loaded.setPreloadedMovieTitles(InMemoryMovieTitleData.preload(catalog, catalog.movieTitlesOfCategory(loaded.getId()), relations));
+        }
+        return categories;
+    }
+
+    @Override
+    public Category[] retrieveCategoriesOfMovieTitle(MovieTitle movieTitle) {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitle.getId() == null){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        return catalog.categoriesOfMovieTitle(movieTitle.getId());
+    }
+
+    @Override
+    public Map<Integer, Category[]> retrieveCategoriesOfMovieTitles(Collection<Integer> movieTitleIds) {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitleIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        Map<Integer, Category[]> categoriesByMovieTitle = new HashMap<>();
+        movieTitleIds.forEach(movieTitleId -> categoriesByMovieTitle.put(movieTitleId, catalog.categoriesOfMovieTitle(movieTitleId)));
+        return categoriesByMovieTitle;
+    }
+}
@@ -0,0 +1,72 @@
+package videoclub.datastore.DataPoints;
+
+import videoclub.datastore.ConnectionPool;
+import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.InMemoryCatalog;
+import videoclub.graphql.server.domain.videoclub.Director;
+import videoclub.graphql.server.domain.videoclub.MovieTitle;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The class that manages the application's data concerning the Directors, answering the lookups from the
+ * {@link InMemoryCatalog} instead of the database.
+ * @author Ioannis Baraklilis
+ */
+public class InMemoryDirectorData extends DirectorData {
+    private final InMemoryCatalog catalog; // The catalog the lookups are answered from.
+
+    /**
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the relationships loaded are kept in.
+     * @param catalog The catalog the lookups are answered from.
+     * @param dataIntersection The object that uses this as an interface to other data.
+     */
+    public InMemoryDirectorData(ConnectionPool connectionPool, EntityCaches entityCaches, InMemoryCatalog catalog,
+                                DataIntersection dataIntersection) {
+        super(connectionPool, entityCaches, dataIntersection);
+        this.catalog = catalog;
+    }
+
+    @Override
+    public Director[] retrieveDirectors(Director director) {
+        return catalog.directors(director.getId(), director.getName());
+    }
+
+    @Override
+    public Director[] retrieveDirectorsWithMovieTitles(Director director, Set<MovieTitle.Field> fields,
+                                                       Set<MovieTitleData.Relation> relations) {
+        Director[] directors = retrieveDirectors(director);
+        for (Director loaded : directors) {
+            loaded.setPreloadedMovieTitles(InMemoryMovieTitleData.preload(catalog, catalog.movieTitlesOfDirector(loaded.getId()), relations));
+        }
+        return directors;
+    }
+
+    @Override
+    public Director[] retrieveDirectorsOfMovieTitle(MovieTitle movieTitle) {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitle.getId() == null){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        return catalog.directorsOfMovieTitle(movieTitle.getId());
+    }
+
+    @Override
+    public Map<Integer, Director[]> retrieveDirectorsOfMovieTitles(Collection<Integer> movieTitleIds) {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitleIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        Map<Integer, Director[]> directorsByMovieTitle = new HashMap<>();
+        movieTitleIds.forEach(movieTitleId -> directorsByMovieTitle.put(movieTitleId, catalog.directorsOfMovieTitle(movieTitleId)));
+        return directorsByMovieTitle;
+    }
+}
@@ -0,0 +1,91 @@
+package videoclub.datastore.DataPoints;
+
+import videoclub.datastore.ConnectionPool;
+import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.InMemoryCatalog;
+import videoclub.datastore.ReferenceDictionary;
+import videoclub.graphql.server.domain.videoclub.MovieCopy;
+import videoclub.graphql.server.domain.videoclub.MovieTitle;
+import videoclub.graphql.server.domain.videoclub.input.DeleteMovieCopyInput;
+import videoclub.graphql.server.domain.videoclub.input.NewMovieCopyInput;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * The class that manages the application's data concerning the Movie Copies, answering the lookups of the copies
+ * from the {@link InMemoryCatalog} instead of the database. <br>
+ *
+ * The writes go to the database first, and are applied to the catalog once they have succeeded. The copies of the
+ * rent transactions are still looked up in the database, since the transactions are not part of the catalog.
+ * @author Ioannis Baraklilis
+ */
+public class InMemoryMovieCopyData extends MovieCopyData {
+    private final InMemoryCatalog catalog; // The catalog the lookups are answered from.
+    private final EntityCaches entityCaches; // Told about the writes again once they have been applied to the catalog.
+
+    /**
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param writeConnectionPool The pool that connections for the writes are borrowed from.
+     * @param fetchSize The rows fetched at a time by the streamed queries.
+     * @param mediums The rows of the Medium table, that the copies reference by id.
+     * @param movieFormats The rows of the MovieFormat table, that the copies reference by id.
+     * @param entityCaches The caches that the copies of the transactions are kept in.
+     * @param catalog The catalog the lookups are answered from.
+     * @param dataIntersection The object that uses this as an interface to other data.
+     */
+    public InMemoryMovieCopyData(ConnectionPool connectionPool, ConnectionPool writeConnectionPool, int fetchSize,
+                                 ReferenceDictionary<MovieCopy.Medium> mediums, ReferenceDictionary<MovieCopy.MovieFormat> movieFormats,
+                                 EntityCaches entityCaches, InMemoryCatalog catalog, DataIntersection dataIntersection) {
+        super(connectionPool, writeConnectionPool, fetchSize, mediums, movieFormats, entityCaches, dataIntersection);
+        this.catalog = catalog;
+        this.entityCaches = entityCaches;
+    }
+
+    @Override
+    public MovieCopy[] retrieveMovieCopy(MovieCopy movieCopy) {
+        return catalog.movieCopies(movieCopy.getId(), movieCopy.getMedium(), movieCopy.getCopyType(), movieCopy.getRentPrice());
+    }
+
+    @Override
+    public Stream<MovieCopy> streamMovieCopiesInPriceRange(Float priceFrom, Float priceTo) {
+        return Arrays.stream(catalog.movieCopiesInPriceRange(priceFrom, priceTo));
+    }
+
+    @Override
+    public MovieCopy[] retrieveMovieCopiesInPriceRangePage(Float priceFrom, Float priceTo, Integer afterId, int limit) {
+        return catalog.movieCopiesInPriceRange(priceFrom, priceTo, afterId, limit);
+    }
+
+    @Override
+    public MovieCopy[] retrieveMovieCopiesOfMovieTitle(MovieTitle movieTitle) {
+        // A movie title object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitle.getId() == null){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        return catalog.movieCopiesOfMovieTitle(movieTitle.getId());
+    }
+
+    @Override
+    public MovieCopy insertNewMovieCopy(NewMovieCopyInput input) throws SQLException {
+        MovieCopy movieCopy = super.insertNewMovieCopy(input);
+        catalog.addMovieCopy(movieCopy.getId(), input.getMovieTitleId(), input.getMedium(), input.getCopyType(),
+                input.getRentPrice());
+        // A lookup made between the write and its application to the catalog may have been cached with the old copies.
+        entityCaches.invalidate("MovieCopy");
+        return movieCopy;
+    }
+
+    @Override
+    public boolean deleteMovieCopy(DeleteMovieCopyInput input) throws SQLException {
+        boolean deleted = super.deleteMovieCopy(input);
+        if (deleted) {
+            catalog.deleteMovieCopy(input.getMovieCopyID());
+            entityCaches.invalidate("MovieCopy");
+        }
+        return deleted;
+    }
+}
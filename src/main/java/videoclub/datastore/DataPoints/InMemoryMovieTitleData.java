@@ -0,0 +1,188 @@
+package videoclub.datastore.DataPoints;
+
+import videoclub.datastore.ConnectionPool;
+import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.InMemoryCatalog;
+import videoclub.graphql.server.domain.videoclub.*;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * The class that manages the application's data concerning the Movie Titles, answering the lookups from the
+ * {@link InMemoryCatalog} instead of the database. <br>
+ *
+ * The movie titles are always returned with all of their fields, since reading them from memory costs nothing.
+ * @author Ioannis Baraklilis
+ */
+public class InMemoryMovieTitleData extends MovieTitleData {
+    private final InMemoryCatalog catalog; // The catalog the lookups are answered from.
+
+    /**
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the movie titles looked up by id are kept in.
+     * @param catalog The catalog the lookups are answered from.
+     * @param dataIntersection The object that uses this as an interface to other data.
+     */
+    public InMemoryMovieTitleData(ConnectionPool connectionPool, EntityCaches entityCaches, InMemoryCatalog catalog,
+                                  DataIntersection dataIntersection) {
+        super(connectionPool, entityCaches, dataIntersection);
+        this.catalog = catalog;
+    }
+
+    @Override
+    public MovieTitle[] retrieveMovieTitles(MovieTitle movieTitle, Set<MovieTitle.Field> fields) {
+        return catalog.movieTitles(movieTitle.getId(), movieTitle.getTitle(), movieTitle.getDescription(),
+                movieTitle.getReleaseDate(), movieTitle.getRating());
+    }
+
+    @Override
+    public Map<Integer, MovieTitle> retrieveMovieTitlesByIds(Collection<Integer> movieTitleIds) {
+        requireIds(movieTitleIds, "MovieTitleId");
+
+        Map<Integer, MovieTitle> movieTitles = new HashMap<>();
+        for (Integer movieTitleId : movieTitleIds) {
+            MovieTitle movieTitle = catalog.movieTitle(movieTitleId);
+            if (movieTitle != null) {
+                movieTitles.put(movieTitleId, movieTitle);
+            }
+        }
+        return movieTitles;
+    }
+
+    @Override
+    public MovieTitle[] retrieveMovieTitlesOfDirector(Director director) {
+        // A director object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (director.getId() == null){
+            throw new IllegalArgumentException("The DirectorId must not be null.");
+        }
+
+        return catalog.movieTitlesOfDirector(director.getId());
+    }
+
+    @Override
+    public Map<Integer, MovieTitle[]> retrieveMovieTitlesOfDirectors(Collection<Integer> directorIds) {
+        requireIds(directorIds, "DirectorId");
+        return byOwner(directorIds, catalog::movieTitlesOfDirector);
+    }
+
+    @Override
+    public MovieTitle[] retrieveMovieTitlesOfActor(Actor actor) {
+        // An actor object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (actor.getId() == null){
+            throw new IllegalArgumentException("The ActorId must not be null.");
+        }
+
+        return catalog.movieTitlesOfActor(actor.getId());
+    }
+
+    @Override
+    public Map<Integer, MovieTitle[]> retrieveMovieTitlesOfActors(Collection<Integer> actorIds) {
+        requireIds(actorIds, "ActorId");
+        return byOwner(actorIds, catalog::movieTitlesOfActor);
+    }
+
+    @Override
+    public MovieTitle[] retrieveMovieTitlesOfCategory(Category category) {
+        // A category is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (category.getId() == null){
+            throw new IllegalArgumentException("The CategoryId must not be null.");
+        }
+
+        return catalog.movieTitlesOfCategory(category.getId());
+    }
+
+    @Override
+    public Map<Integer, MovieTitle[]> retrieveMovieTitlesOfCategories(Collection<Integer> categoryIds) {
+        requireIds(categoryIds, "CategoryId");
+        return byOwner(categoryIds, catalog::movieTitlesOfCategory);
+    }
+
+    @Override
+    public MovieTitle[] retrieveMovieTitlesOfProductionCompany(ProductionCompany productionCompany) {
+        // A production company is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (productionCompany.getId() == null){
+            throw new IllegalArgumentException("The ProductionCompany must not be null.");
+        }
+
+        return catalog.movieTitlesOfProductionCompany(productionCompany.getId());
+    }
+
+    @Override
+    public Map<Integer, MovieTitle[]> retrieveMovieTitlesOfProductionCompanies(Collection<Integer> productionCompanyIds) {
+        requireIds(productionCompanyIds, "ProductionCompanyId");
+        return byOwner(productionCompanyIds, catalog::movieTitlesOfProductionCompany);
+    }
+
+    @Override
+    public MovieTitle retrieveMovieTitleOfMovieCopy(MovieCopy movieCopy) {
+        // A movie copy is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieCopy.getId() == null){
+            throw new IllegalArgumentException("The MovieCopyId must not be null.");
+        }
+
+        MovieTitle movieTitle = catalog.movieTitleOfMovieCopy(movieCopy.getId());
+        if (movieTitle == null){
+            throw new IllegalArgumentException("There is no MovieCopy with the id " + movieCopy.getId() + ".");
+        }
+        return movieTitle;
+    }
+
+    @Override
+    public MovieTitle[] retrieveMovieTitlesWithRelations(Integer id, String title, LocalDate releaseDate, Float ratingFrom,
+                                                         Float ratingTo, Set<MovieTitle.Field> fields,
+                                                         Set<Relation> relations) {
+        return preload(catalog, catalog.movieTitlesInRatingRange(id, title, releaseDate, ratingFrom, ratingTo), relations);
+    }
+
+    /**
+     * Sets the related entities of the movie titles given as their preloaded ones.
+     * @param catalog The catalog the related entities are looked up in.
+     * @param movieTitles The movie titles, new instances of the catalog's.
+     * @param relations The relationships preloaded.
+     * @return The movie titles given.
+     */
+    static MovieTitle[] preload(InMemoryCatalog catalog, MovieTitle[] movieTitles, Set<Relation> relations) {
+        for (MovieTitle movieTitle : movieTitles) {
+            int movieTitleId = movieTitle.getId();
+            if (relations.contains(Relation.DIRECTORS))
+                movieTitle.setPreloadedDirectors(catalog.directorsOfMovieTitle(movieTitleId));
+            if (relations.contains(Relation.ACTORS))
+                movieTitle.setPreloadedActors(catalog.actorsOfMovieTitle(movieTitleId));
+            if (relations.contains(Relation.CATEGORIES))
+                movieTitle.setPreloadedCategories(catalog.categoriesOfMovieTitle(movieTitleId));
+            if (relations.contains(Relation.PRODUCTION_COMPANIES))
+                movieTitle.setPreloadedProductionCompanies(catalog.productionCompaniesOfMovieTitle(movieTitleId));
+        }
+        return movieTitles;
+    }
+
+    @Override
+    public MovieTitle[] retrieveMovieTitlesWithFiltering(String title, LocalDate releaseDate, Float ratingFrom, Float ratingTo,
+                                                         Set<MovieTitle.Field> fields) {
+        return catalog.movieTitlesInRatingRange(null, title, releaseDate, ratingFrom, ratingTo);
+    }
+
+    @Override
+    public MovieTitle[] retrieveMovieTitlesPage(Integer id, String title, LocalDate releaseDate, Float ratingFrom, Float ratingTo,
+                                                Set<MovieTitle.Field> fields, Integer afterId, int limit) {
+        return catalog.movieTitlesInRatingRange(id, title, releaseDate, ratingFrom, ratingTo, afterId, limit);
+    }
+
+    /**
+     * Looks up the movie titles of each of the entities given.
+     * @param ownerIds The ids of the entities the movie titles belong to.
+     * @param lookup Looks up the movie titles of an entity.
+     * @return The movie titles, by owner id. Every owner id given has an entry, which is empty if there are none.
+     */
+    private static Map<Integer, MovieTitle[]> byOwner(Collection<Integer> ownerIds, IntFunction<MovieTitle[]> lookup) {
+        Map<Integer, MovieTitle[]> movieTitlesByOwner = new HashMap<>();
+        ownerIds.forEach(ownerId -> movieTitlesByOwner.put(ownerId, lookup.apply(ownerId)));
+        return movieTitlesByOwner;
+    }
+}
@@ -0,0 +1,72 @@
+package videoclub.datastore.DataPoints;
+
+import videoclub.datastore.ConnectionPool;
+import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.InMemoryCatalog;
+import videoclub.graphql.server.domain.videoclub.ProductionCompany;
+import videoclub.graphql.server.domain.videoclub.MovieTitle;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The class that manages the application's data concerning the Production Companies, answering the lookups from the
+ * {@link InMemoryCatalog} instead of the database.
+ * @author Ioannis Baraklilis
+ */
+public class InMemoryProductionCompanyData extends ProductionCompanyData {
+    private final InMemoryCatalog catalog; // The catalog the lookups are answered from.
+
+    /**
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the relationships loaded are kept in.
+     * @param catalog The catalog the lookups are answered from.
+     * @param dataIntersection The object that uses this as an interface to other data.
+     */
+    public InMemoryProductionCompanyData(ConnectionPool connectionPool, EntityCaches entityCaches, InMemoryCatalog catalog,
+                                         DataIntersection dataIntersection) {
+        super(connectionPool, entityCaches, dataIntersection);
+        this.catalog = catalog;
+    }
+
+    @Override
+    public ProductionCompany[] retrieveProductionCompanies(ProductionCompany productionCompany) {
+        return catalog.productionCompanies(productionCompany.getId(), productionCompany.getName());
+    }
+
+    @Override
+    public ProductionCompany[] retrieveProductionCompaniesWithMovieTitles(ProductionCompany productionCompany, Set<MovieTitle.Field> fields,
+                                                                          Set<MovieTitleData.Relation> relations) {
+        ProductionCompany[] productionCompanies = retrieveProductionCompanies(productionCompany);
+        for (ProductionCompany loaded : productionCompanies) {
+            loaded.setPreloadedMovieTitles(InMemoryMovieTitleData.preload(catalog, catalog.movieTitlesOfProductionCompany(loaded.getId()), relations));
+        }
+        return productionCompanies;
+    }
+
+    @Override
+    public ProductionCompany[] retrieveProductionCompanyOfMovieTitle(MovieTitle movieTitle) {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitle.getId() == null){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        return catalog.productionCompaniesOfMovieTitle(movieTitle.getId());
+    }
+
+    @Override
+    public Map<Integer, ProductionCompany[]> retrieveProductionCompaniesOfMovieTitles(Collection<Integer> movieTitleIds) {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitleIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        Map<Integer, ProductionCompany[]> productionCompaniesByMovieTitle = new HashMap<>();
+        movieTitleIds.forEach(movieTitleId -> productionCompaniesByMovieTitle.put(movieTitleId, catalog.productionCompaniesOfMovieTitle(movieTitleId)));
+        return productionCompaniesByMovieTitle;
+    }
+}
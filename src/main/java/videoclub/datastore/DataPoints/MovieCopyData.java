@@ -1,6 +1,13 @@
 package videoclub.datastore.DataPoints;
 
+import videoclub.datastore.ConnectionPool;
+import videoclub.datastore.Cursor;
 import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCache;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.QueryBuilder;
+import videoclub.datastore.ReferenceDictionary;
+import videoclub.datastore.SqlQuery;
 import videoclub.graphql.server.domain.videoclub.Customer;
 import videoclub.graphql.server.domain.videoclub.MovieCopy;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
@@ -10,8 +17,13 @@ import videoclub.graphql.server.domain.videoclub.input.NewMovieCopyInput;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * The class that manages the application's data concerning the Movie Copies. <br>
@@ -20,47 +32,78 @@ import java.util.ArrayList;
  * @author Ioannis Baraklilis
  */
 public class MovieCopyData {
-    private final Statement queryEndpoint; // The object used for executing a static SQL statements.
+    // The condition of the copies that are not flagged as deleted. It is written exactly as the condition of the
+    // partial indexes created by the first SchemaMigrator migration, since SQLite only uses them for queries that repeat it.
+    // The queries that use it are ordered by id, so that the order of the results does not depend on the index chosen.
+    private static final String LIVE_COPY = "MovieCopy.deleted = 0";
+
+    private final ConnectionPool connectionPool; // The pool that connections to the database are borrowed from.
+    private final ConnectionPool writeConnectionPool; // The pool that connections for the writes are borrowed from.
+    private final int fetchSize; // The rows fetched at a time by the streamed queries.
+    private final ReferenceDictionary<MovieCopy.Medium> mediums; // The rows of the Medium table.
+    private final ReferenceDictionary<MovieCopy.MovieFormat> movieFormats; // The rows of the MovieFormat table.
+    private final EntityCaches entityCaches; // Told about the writes, so that the caches reading the copies are emptied.
+    private final EntityCache<Integer, MovieCopy> movieCopyOfRentTransaction; // The copy of each transaction, by its id.
     private final DataIntersection dataIntersection; // The object that uses this as an interface to other data.
 
     /**
-     * Sets the Statement object as the "endpoint" to interface with the database through queries.
-     * @param queryEndpoint The object used for executing a static SQL statements.
+     * Sets the connection pools as the "endpoint" to interface with the database through queries.
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param writeConnectionPool The pool that connections for the writes are borrowed from.
+     * @param fetchSize The rows fetched at a time by the streamed queries.
+     * @param mediums The rows of the Medium table, that the copies reference by id.
+     * @param movieFormats The rows of the MovieFormat table, that the copies reference by id.
+     * @param entityCaches The caches that the copies of the transactions are kept in.
+     * @param dataIntersection The object that uses this as an interface to other data.
      */
-    public MovieCopyData(Statement queryEndpoint, DataIntersection dataIntersection) {
-        this.queryEndpoint = queryEndpoint;
+    public MovieCopyData(ConnectionPool connectionPool, ConnectionPool writeConnectionPool, int fetchSize,
+                         ReferenceDictionary<MovieCopy.Medium> mediums, ReferenceDictionary<MovieCopy.MovieFormat> movieFormats,
+                         EntityCaches entityCaches, DataIntersection dataIntersection) {
+        this.connectionPool = connectionPool;
+        this.writeConnectionPool = writeConnectionPool;
+        this.fetchSize = fetchSize;
+        this.mediums = mediums;
+        this.movieFormats = movieFormats;
+        this.entityCaches = entityCaches;
+        this.movieCopyOfRentTransaction = entityCaches.create("movieCopyOfRentTransaction", "MovieCopy", "RentTransaction");
         this.dataIntersection = dataIntersection;
     }
 
     /**
      * Executes the given query and returns the list of MovieCopy object created.
-     * WARNING: The MovieCopy and MovieFormat must be requested as strings and not ids.
+     * The Medium and MovieFormat are requested as ids, and are mapped to their names by the reference dictionaries.
      *
-     * @param query The sql query to be executed.
-     * @param ignoreDeleted if true, the rows that have the column value deleted as 1, will not be returned.
+     * The copies flagged as deleted are left out by the query itself, where that is needed.
+     *
+     * @param query The parameterized sql query to be executed.
      * @return The list of MovieCopy objects retrieved.
      */
-    private MovieCopy[] executeMovieCopyRetrievalQuery(String query, boolean ignoreDeleted) throws SQLException {
-        // Asserting synchronization of database accesses.
-        ResultSet qResults;
+    private MovieCopy[] executeMovieCopyRetrievalQuery(SqlQuery query) throws SQLException {
         ArrayList<MovieCopy> movieCopies = new ArrayList<>();
-        synchronized (queryEndpoint) {
-            qResults = queryEndpoint.executeQuery(query.toString());
-
+        // Each call borrows its own connection, so that the queries of concurrent requests can run in parallel.
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             // Running through the results and constructing Customer objects with the returned data.
             while (qResults.next()) {
-                // Ignore this row if it is marked as deleted and these kinds of objects are ignored.
-                if (qResults.getBoolean(5) && ignoreDeleted)
-                    continue;
-
-                movieCopies.add(new MovieCopy(qResults.getInt(1), MovieCopy.Medium.valueOf(qResults.getString(2)), MovieCopy.MovieFormat.valueOf(qResults.getString(3)),
-                        qResults.getFloat(4)));
+                movieCopies.add(readMovieCopy(qResults, 1));
             }
         }
 
         return movieCopies.toArray(new MovieCopy[0]);
     }
 
+    /**
+     * Constructs a MovieCopy object with the data of the current row of the results.
+     * @param qResults The results of a query, positioned at the row to be read.
+     * @param firstColumn The index of the first of the four movie copy columns (id, medium id, format id,
+     *                    rent price), in the order of the retrieval queries.
+     * @return The movie copy object created.
+     */
+    private MovieCopy readMovieCopy(ResultSet qResults, int firstColumn) throws SQLException {
+        return new MovieCopy(qResults.getInt(firstColumn), mediums.valueOf(qResults.getInt(firstColumn + 1)),
+                movieFormats.valueOf(qResults.getInt(firstColumn + 2)), qResults.getFloat(firstColumn + 3));
+    }
+
     /**
      * Retrieves the movie copy involved in the transaction of the argument.
      * @param rentTransaction The rent transaction that involves a customer.
@@ -73,77 +116,84 @@ public class MovieCopyData {
             throw new IllegalArgumentException("The RentTransactionId must not be null.");
         }
 
-        String sqlQuery = "select MovieCopy.id, Medium.name as \"MediumName\", MovieFormat.name as \"FormatName\", rentPrice, deleted " +
-                "from MovieCopy inner join Medium on Medium_id = Medium.id " +
-                "               inner join MovieFormat on MovieFormat_id = MovieFormat.id " +
-                "where MovieCopy.id = (select MovieCopy_id from RentTransaction where id = " + rentTransaction.getId() + " )";
+        SqlQuery sqlQuery = SqlQuery.of("select MovieCopy.id, Medium_id, MovieFormat_id, rentPrice " +
+                "from MovieCopy " +
+                "where MovieCopy.id = (select MovieCopy_id from RentTransaction where id = ? )", rentTransaction.getId());
 
-        return executeMovieCopyRetrievalQuery(sqlQuery, false)[0];
+        return executeMovieCopyRetrievalQuery(sqlQuery)[0];
     }
 
     /**
-     * Retrieves a number of movie copies that match the template given that are not flagged as deleted.
-     * @param movieCopy The MovieCopy template that will be used for selection of the movie copies loaded from the database.
-     *                  <p>Any object fields that have the value null will be substituted for any value</p>
-     * @return A list of MovieCopy entities that match the template given as argument.
+     * Retrieves the movie copies involved in each of the transactions given, with a single query.
+     * The copies flagged as deleted are included, as they are still part of the transactions.
+     * @param rentTransactionIds The ids of the rent transactions which are referenced.
+     * @return The movie copy of each rent transaction, by rent transaction id.
+     *         They are cached until the MovieCopy or RentTransaction table is written.
      * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
      */
-    public MovieCopy[] retrieveMovieCopy(MovieCopy movieCopy) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select MovieCopy.id, Medium.name as \"MediumName\", MovieFormat.name as \"FormatName\", rentPrice, deleted ")
-                .append("from MovieCopy inner join Medium on Medium_id = Medium.id ")
-                .append("               inner join MovieFormat on MovieFormat_id = MovieFormat.id ");
-
-        // Controls whether the final query will retrieve all movie copies or will filter the results first.
-        boolean getAll = true;
-
-        // Check if it has been given an id filter.
-        if (movieCopy.getId() != null){
-            getAll = false;
-            sqlQuery.append("where MovieCopy.id = ").append(movieCopy.getId());
+    public Map<Integer, MovieCopy> retrieveMovieCopiesOfTransactions(Collection<Integer> rentTransactionIds) throws SQLException {
+        // A rent transaction object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (rentTransactionIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The RentTransactionId must not be null.");
         }
 
-        // Check if it has been given a medium filter.
-        if (movieCopy.getMedium() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+        return movieCopyOfRentTransaction.getAll(rentTransactionIds, this::loadMovieCopiesOfTransactions);
+    }
 
-            sqlQuery.append(" MediumName = \"").append(movieCopy.getMedium().toString()).append("\"");
+    /**
+     * Loads the movie copies involved in each of the transactions given from the database, with a single query.
+     * @param rentTransactionIds The ids of the rent transactions which are referenced.
+     * @return The movie copy of each rent transaction, by rent transaction id.
+     */
+    private Map<Integer, MovieCopy> loadMovieCopiesOfTransactions(Collection<Integer> rentTransactionIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select RentTransaction.id, MovieCopy.id, Medium_id, MovieFormat_id, rentPrice " +
+                "from RentTransaction inner join MovieCopy on MovieCopy.id = RentTransaction.MovieCopy_id");
+        sqlQuery.whereIn("RentTransaction.id", rentTransactionIds);
+
+        Map<Integer, MovieCopy> movieCopies = new HashMap<>();
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.build().executeQuery(lease)) {
+            // The first column is the rent transaction the row belongs to, the rest are the movie copy's.
+            while (qResults.next()) {
+                movieCopies.put(qResults.getInt(1), readMovieCopy(qResults, 2));
+            }
         }
 
-        // Check if it has been given a copy type filter.
-        if (movieCopy.getCopyType() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+        return movieCopies;
+    }
 
-            sqlQuery.append(" FormatName = \"").append(movieCopy.getCopyType().toString()).append("\"");
+    /**
+     * Retrieves a number of movie copies that match the template given that are not flagged as deleted.
+     * @param movieCopy The MovieCopy template that will be used for selection of the movie copies loaded from the database.
+     *                  <p>Any object fields that have the value null will be substituted for any value</p>
+     * @return A list of MovieCopy entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public MovieCopy[] retrieveMovieCopy(MovieCopy movieCopy) throws SQLException {
+        Integer mediumId = movieCopy.getMedium() == null ? null : mediums.idOf(movieCopy.getMedium());
+        Integer movieFormatId = movieCopy.getCopyType() == null ? null : movieFormats.idOf(movieCopy.getCopyType());
+        // No copy can have a medium or format that is not in the database.
+        if ((movieCopy.getMedium() != null && mediumId == null) || (movieCopy.getCopyType() != null && movieFormatId == null)){
+            return new MovieCopy[0];
         }
 
-        // Check if it has been given a rentPrice filter.
-        if (movieCopy.getRentPrice() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+        QueryBuilder sqlQuery = new QueryBuilder("select MovieCopy.id, Medium_id, MovieFormat_id, rentPrice " +
+                "from MovieCopy");
 
-            sqlQuery.append(" rentPrice = ").append(movieCopy.getRentPrice());
-        }
+        // Only the filters that have been given are added to the where condition.
+        sqlQuery.where(LIVE_COPY)
+                .whereIfPresent("MovieCopy.id = ?", movieCopy.getId())
+                .whereIfPresent("Medium_id = ?", mediumId)
+                .whereIfPresent("MovieFormat_id = ?", movieFormatId)
+                .whereIfPresent("rentPrice = ?", movieCopy.getRentPrice())
+                .append(" order by MovieCopy.id");
 
-        return executeMovieCopyRetrievalQuery(sqlQuery.toString(), true);
+        return executeMovieCopyRetrievalQuery(sqlQuery.build());
     }
 
     /**
-     * Retrieves a number of movie copies that have a rent price inside the given price limits.
+     * Retrieves a number of movie copies, not flagged as deleted, that have a rent price inside the given price limits.
      * If one (or both) the upper or lower limit is null, then the price, regarding that end of the range, is considered unbound.
      * @param priceFrom the price lower limit.
      * @param priceTo the price upper limit.
@@ -151,28 +201,59 @@ public class MovieCopyData {
      * @throws SQLException If a database access error occurs.
      */
     public MovieCopy[] retrieveMovieCopiesInPriceRange(Float priceFrom, Float priceTo) throws SQLException {
-        String sqlQuery = "select MovieCopy.id, Medium.name as \"MediumName\", MovieFormat.name as \"FormatName\", rentPrice, deleted " +
-                          "from MovieCopy inner join Medium on Medium_id = Medium.id " +
-                          "               inner join MovieFormat on MovieFormat_id = MovieFormat.id ";
-
-        // If priceFrom is null, no lower limit is imposed.
-        if (priceFrom == null){
-             if (priceTo != null){
-                 sqlQuery += "where MovieCopy.rentPrice <= " + priceTo;
-             }
-            // If also upper limit is null, all movie copies are returned: No change to SQL query.
-        } else { // There is a lower limit.
-            sqlQuery += "where MovieCopy.rentPrice >= " + priceFrom;
-            if (priceTo != null){ // If there is an upper limit.
-                sqlQuery += " and MovieCopy.rentPrice <= " + priceTo;
-            }
+        try (Stream<MovieCopy> movieCopies = streamMovieCopiesInPriceRange(priceFrom, priceTo)) {
+            return movieCopies.toArray(MovieCopy[]::new);
         }
+    }
+
+    /**
+     * Streams the movie copies, not flagged as deleted, that have a rent price inside the given price limits, reading
+     * each row only when it is consumed. The stream holds a connection until it has been consumed, and must be closed
+     * by the caller.
+     * @param priceFrom the price lower limit.
+     * @param priceTo the price upper limit.
+     * @return A stream of the MovieCopy entities that have a rent price inside the given limits.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Stream<MovieCopy> streamMovieCopiesInPriceRange(Float priceFrom, Float priceTo) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select MovieCopy.id, Medium_id, MovieFormat_id, rentPrice " +
+                "from MovieCopy");
+
+        // A null limit leaves that end of the range unbound.
+        sqlQuery.where(LIVE_COPY)
+                .whereIfPresent("MovieCopy.rentPrice >= ?", priceFrom)
+                .whereIfPresent("MovieCopy.rentPrice <= ?", priceTo)
+                .append(" order by MovieCopy.id");
+
+        return Cursor.open(connectionPool, sqlQuery.build(), fetchSize, qResults -> readMovieCopy(qResults, 1)).stream();
+    }
 
-        return executeMovieCopyRetrievalQuery(sqlQuery, false);
+    /**
+     * Retrieves a page of the movie copies, not flagged as deleted, that have a rent price inside the given price
+     * limits, in the order of their ids.
+     * @param priceFrom the price lower limit.
+     * @param priceTo the price upper limit.
+     * @param afterId The id of the copy after which the page starts. null starts from the first one.
+     * @param limit The maximum number of copies returned.
+     * @return A list of MovieCopy entities that have a rent price inside the given limits.
+     * @throws SQLException If a database access error occurs.
+     */
+    public MovieCopy[] retrieveMovieCopiesInPriceRangePage(Float priceFrom, Float priceTo, Integer afterId, int limit) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select MovieCopy.id, Medium_id, MovieFormat_id, rentPrice " +
+                "from MovieCopy");
+
+        // A null limit leaves that end of the range unbound.
+        sqlQuery.where(LIVE_COPY)
+                .whereIfPresent("MovieCopy.rentPrice >= ?", priceFrom)
+                .whereIfPresent("MovieCopy.rentPrice <= ?", priceTo)
+                .whereIfPresent("MovieCopy.id > ?", afterId)
+                .append(" order by MovieCopy.id limit ?", limit);
+
+        return executeMovieCopyRetrievalQuery(sqlQuery.build());
     }
 
     /**
-     * Retrieves the list of movie copies that contain this movie title.
+     * Retrieves the list of movie copies, not flagged as deleted, that contain this movie title.
      * @param movieTitle The movie title.
      * @return A list of MovieCopy entities.
      * @throws SQLException If a database access error occurs.
@@ -183,12 +264,12 @@ public class MovieCopyData {
             throw new IllegalArgumentException("The MovieTitleId must not be null.");
         }
 
-        String sqlQuery = "select MovieCopy.id, Medium.name as \"MediumName\", MovieFormat.name as \"FormatName\", rentPrice, deleted " +
-                "from MovieCopy inner join Medium on Medium_id = Medium.id " +
-                "               inner join MovieFormat on MovieFormat_id = MovieFormat.id " +
-                "where MovieCopy.MovieTitle_id = " + movieTitle.getId();
+        SqlQuery sqlQuery = SqlQuery.of("select MovieCopy.id, Medium_id, MovieFormat_id, rentPrice " +
+                "from MovieCopy " +
+                "where MovieCopy.MovieTitle_id = ? and " + LIVE_COPY + " " +
+                "order by MovieCopy.id", movieTitle.getId());
 
-        return executeMovieCopyRetrievalQuery(sqlQuery, false);
+        return executeMovieCopyRetrievalQuery(sqlQuery);
     }
 
     /**
@@ -201,49 +282,37 @@ public class MovieCopyData {
     public MovieCopy insertNewMovieCopy(NewMovieCopyInput input) throws SQLException {
         StringBuilder columns = new StringBuilder();
         StringBuilder values = new StringBuilder();
+        List<Object> parameters = new ArrayList<>(); // The values of the placeholders, in the order of the columns.
 
         // Check if movie id was provided.
         if (input.getMovieTitleId() == null){
             throw new IllegalArgumentException("MovieTitleId required.");
         } else {
             columns.append("MovieTitle_id, ");
-            values.append("'").append(input.getMovieTitleId()).append("', ");
+            values.append("?, ");
+            parameters.add(input.getMovieTitleId());
         }
 
         // Check if medium was provided.
         if (input.getMedium() == null) {
             throw new IllegalArgumentException("Medium required.");
+        } else if (mediums.idOf(input.getMedium()) == null) {
+            throw new IllegalArgumentException("The Medium " + input.getMedium() + " is not registered.");
         } else {
-            int mediumId;
-            synchronized (queryEndpoint){ // "Lock" the database.
-                ResultSet rs = queryEndpoint.executeQuery( // Lookup of the id of the Medium in the database.
-                        "select id from Medium where name = '" + input.getMedium().toString() + "'"
-                );
-
-                // Assuming the database returned one and only row (medium names should be unique), extract the required id.
-                mediumId = rs.getInt(1);
-            }
-
             columns.append("Medium_id, ");
-            values.append("'").append(mediumId).append("', ");
+            values.append("?, ");
+            parameters.add(mediums.idOf(input.getMedium()));
         }
 
         // Check if copyType was provided.
         if (input.getCopyType() == null){
             throw new IllegalArgumentException("CopyType required.");
+        } else if (movieFormats.idOf(input.getCopyType()) == null) {
+            throw new IllegalArgumentException("The MovieFormat " + input.getCopyType() + " is not registered.");
         } else {
-            int movieFormatId;
-            synchronized (queryEndpoint){ // "Lock" the database.
-                ResultSet rs = queryEndpoint.executeQuery( // Lookup of the id of the Format in the database.
-                        "select id from MovieFormat where name == '" + input.getCopyType().toString() + "'"
-                );
-
-                // Assuming the database returned one and only row (format names should be unique), extract the required id.
-                movieFormatId = rs.getInt(1);
-            }
-
             columns.append("MovieFormat_id, ");
-            values.append("'").append(movieFormatId).append("', ");
+            values.append("?, ");
+            parameters.add(movieFormats.idOf(input.getCopyType()));
         }
 
         // Check rentPrice was provided.
@@ -251,34 +320,28 @@ public class MovieCopyData {
             throw new IllegalArgumentException("Rent price required.");
         } else {
             columns.append("rentPrice, ");
-            values.append("'").append(input.getRentPrice()).append("', ");
+            values.append("?, ");
+            parameters.add(input.getRentPrice());
         }
 
         columns.replace(columns.length() - 2, columns.length(), "");
         values.replace(values.length() - 2, values.length(), "");
 
 
-        String query = String.format("insert into MovieCopy ( %s ) %n" +
-                "values ( %s )", columns.toString(), values.toString());
+        // The id of the inserted row is returned by the insert itself.
+        SqlQuery query = new SqlQuery(String.format("insert into MovieCopy ( %s ) " +
+                "values ( %s ) " +
+                "returning id", columns.toString(), values.toString()), parameters);
 
         int newMovieCopyId;
 
-        // Making sure there are no synchronization errors.
-        synchronized (queryEndpoint) {
-            queryEndpoint.execute(query);
-
-            // Query the database for all the valid ids. The one with the greatest value is the one just inserted.
-            String newIdQuery = "select id " +
-                    "from MovieCopy " +
-                    "order by id desc limit 1";
-
-            ResultSet qResults = queryEndpoint.executeQuery(newIdQuery);
-
+        try (ConnectionPool.Lease lease = writeConnectionPool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             newMovieCopyId = qResults.getInt(1);
         }
-        // Searching and returning the new customer object by id.
-        // Only one is expected to be returned.
-        return retrieveMovieCopy(new MovieCopy(newMovieCopyId, null, null, null))[0];
+        entityCaches.invalidate("MovieCopy");
+        // The rest of the new movie copy is known from the input, so it is not read back from the database.
+        return new MovieCopy(newMovieCopyId, input.getMedium(), input.getCopyType(), input.getRentPrice());
     }
 
     /**
@@ -300,15 +363,15 @@ public class MovieCopyData {
 
         int result;
 
-        // Making sure there are no synchronization errors.
-        synchronized (queryEndpoint) {
-            // Mark deleted = 1 to the movie copy we want deleted.
-            queryEndpoint.execute("update MovieCopy " +
+        // Mark deleted = 1 to the movie copy we want deleted.
+        SqlQuery query = SqlQuery.of("update MovieCopy " +
                                      "set deleted = 1 " +
-                                     "where id = " + id);
+                                     "where id = ?", id);
 
-            result = queryEndpoint.getUpdateCount();
+        try (ConnectionPool.Lease lease = writeConnectionPool.acquire()) {
+            result = query.executeUpdate(lease);
         }
+        entityCaches.invalidate("MovieCopy");
         // The query should change exactly one row.
         // In any other case, it failed.
         return result == 1;
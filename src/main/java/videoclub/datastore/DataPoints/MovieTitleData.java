@@ -1,13 +1,27 @@
 package videoclub.datastore.DataPoints;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import videoclub.datastore.ConnectionPool;
 import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCache;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.QueryBuilder;
+import videoclub.datastore.SqlQuery;
 import videoclub.graphql.server.domain.videoclub.*;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * The class that manages the application's data concerning the Movie Titles. <br>
@@ -16,35 +30,62 @@ import java.util.ArrayList;
  * @author Ioannis Baraklilis
  */
 public class MovieTitleData {
-    private final Statement queryEndpoint; // The object used for executing a static SQL statements.
+    private static final ObjectMapper JSON = new ObjectMapper(); // Reads the related entities aggregated as JSON.
+    private static final Set<MovieTitle.Field> ALL_FIELDS = EnumSet.allOf(MovieTitle.Field.class);
+
+    private final ConnectionPool connectionPool; // The pool that connections to the database are borrowed from.
+    // The caches of the lookups by id, that are made by the field resolvers. They hold complete movie titles.
+    private final EntityCache<Integer, MovieTitle> movieTitleById;
+    private final EntityCache<Integer, MovieTitle[]> movieTitlesOfDirector;
+    private final EntityCache<Integer, MovieTitle[]> movieTitlesOfActor;
+    private final EntityCache<Integer, MovieTitle[]> movieTitlesOfCategory;
+    private final EntityCache<Integer, MovieTitle[]> movieTitlesOfProductionCompany;
+    private final EntityCache<Integer, MovieTitle> movieTitleOfMovieCopy;
     private final DataIntersection dataIntersection; // The object that uses this as an interface to other data.
 
     /**
-     * Sets the Statement object as the "endpoint" to interface with the database through queries.
-     * @param queryEndpoint The object used for executing a static SQL statements.
+     * Sets the connection pool as the "endpoint" to interface with the database through queries.
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the movie titles looked up by id are kept in.
+     * @param dataIntersection The object that uses this as an interface to other data.
      */
-    public MovieTitleData(Statement queryEndpoint, DataIntersection dataIntersection) {
-        this.queryEndpoint = queryEndpoint;
+    public MovieTitleData(ConnectionPool connectionPool, EntityCaches entityCaches, DataIntersection dataIntersection) {
+        this.connectionPool = connectionPool;
+        this.movieTitleById = entityCaches.create("movieTitleById", "MovieTitle");
+        this.movieTitlesOfDirector = entityCaches.create("movieTitlesOfDirector", "MovieTitle", "MovieTitleParticipants");
+        this.movieTitlesOfActor = entityCaches.create("movieTitlesOfActor", "MovieTitle", "MovieTitleParticipants");
+        this.movieTitlesOfCategory = entityCaches.create("movieTitlesOfCategory", "MovieTitle", "inCategory");
+        this.movieTitlesOfProductionCompany = entityCaches.create("movieTitlesOfProductionCompany", "MovieTitle", "producedBy");
+        this.movieTitleOfMovieCopy = entityCaches.create("movieTitleOfMovieCopy", "MovieTitle", "MovieCopy");
         this.dataIntersection = dataIntersection;
     }
 
     /**
      * Executes the given query and returns the list of movie title object created.
-     * @param query The sql query to be executed.
+     * @param query The parameterized sql query to be executed.
      * @return The list of MovieTitle objects retrieved.
      */
-    private MovieTitle[] executeMovieTitleRetrievalQuery(String query) throws SQLException {
-        // Asserting synchronization of database accesses.
-        ResultSet qResults;
-        ArrayList<MovieTitle> movieTitles = new ArrayList<>();
-        synchronized (queryEndpoint) {
-            qResults = queryEndpoint.executeQuery(query.toString());
+    private MovieTitle[] executeMovieTitleRetrievalQuery(SqlQuery query) throws SQLException {
+        return executeMovieTitleRetrievalQuery(query, ALL_FIELDS);
+    }
 
+    /**
+     * Executes the given query, that selects the columns of {@link #projection}, and returns the list of movie title
+     * object created.
+     * @param query The parameterized sql query to be executed.
+     * @param fields The fields of the movie titles that the query loads.
+     * @return The list of MovieTitle objects retrieved.
+     */
+    private MovieTitle[] executeMovieTitleRetrievalQuery(SqlQuery query, Set<MovieTitle.Field> fields) throws SQLException {
+        ArrayList<MovieTitle> movieTitles = new ArrayList<>();
+        // Each call borrows its own connection, so that the queries of concurrent requests can run in parallel.
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             // Running through the results and constructing Customer objects with the returned data.
             while (qResults.next()) {
-                movieTitles.add(new MovieTitle(qResults.getInt(1), qResults.getString(2),
-                        qResults.getString(3), LocalDate.parse(qResults.getString(4)),
-                        qResults.getFloat(5)));
+                MovieTitle movieTitle = readMovieTitle(qResults, 1);
+                movieTitle.setLoadedFields(fields);
+                movieTitles.add(movieTitle);
             }
         }
 
@@ -52,75 +93,134 @@ public class MovieTitleData {
     }
 
     /**
-     * Retrieves a number of movie titles from the database.
-     * @param movieTitle The movieTitle template that will be used for selection of the titles loaded from the database.
-     *              <p>Any object fields that have the value null will be substituted for any value</p>
-     * @return A list of MovieTitle entities that match the template given as argument.
-     * @throws SQLException If a database access error occurs.
+     * Executes the given query, whose rows start with the id of the entity they belong to, and returns the movie
+     * title objects created grouped by that id.
+     * @param query The parameterized sql query to be executed.
+     * @param ownerIds The ids of the entities the movie titles belong to.
+     * @return The MovieTitle objects retrieved, by owner id. Every owner id given has an entry, which is empty if
+     *         there are none.
      */
-    public MovieTitle[] retrieveMovieTitles(MovieTitle movieTitle) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select id, title, description, releaseDate, rating ")
-                .append("from MovieTitle ");
+    private Map<Integer, MovieTitle[]> executeGroupedMovieTitleRetrievalQuery(SqlQuery query, Collection<Integer> ownerIds) throws SQLException {
+        Map<Integer, List<MovieTitle>> movieTitles = new HashMap<>();
+        ownerIds.forEach(ownerId -> movieTitles.put(ownerId, new ArrayList<>()));
 
-        // Controls whether the final query will retrieve all movieTitles or will filter the results first.
-        boolean getAll = true;
-
-        // Check if it has been given an id filter.
-        if (movieTitle.getId() != null){
-            getAll = false;
-            sqlQuery.append("where id = ").append(movieTitle.getId());
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
+            // The first column is the entity the row belongs to, the rest are the movie title's.
+            while (qResults.next()) {
+                movieTitles.get(qResults.getInt(1)).add(readMovieTitle(qResults, 2));
+            }
         }
 
-        // Check if it has been given a title filter.
-        if (movieTitle.getTitle() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+        Map<Integer, MovieTitle[]> movieTitlesByOwner = new HashMap<>();
+        movieTitles.forEach((ownerId, ofOwner) -> movieTitlesByOwner.put(ownerId, ofOwner.toArray(new MovieTitle[0])));
+        return movieTitlesByOwner;
+    }
 
-            sqlQuery.append(" title = \"").append(movieTitle.getTitle()).append("\"");
-        }
+    /**
+     * Constructs a MovieTitle object with the data of the current row of the results.
+     * @param qResults The results of a query, positioned at the row to be read.
+     * @param firstColumn The index of the first of the five movie title columns, in the order of the retrieval queries.
+     * @return The movie title object created.
+     */
+    private static MovieTitle readMovieTitle(ResultSet qResults, int firstColumn) throws SQLException {
+        String releaseDate = qResults.getString(firstColumn + 3);
+        Object rating = qResults.getObject(firstColumn + 4);
+        return new MovieTitle(qResults.getInt(firstColumn), qResults.getString(firstColumn + 1),
+                qResults.getString(firstColumn + 2), releaseDate == null ? null : LocalDate.parse(releaseDate),
+                rating == null ? null : qResults.getFloat(firstColumn + 4));
+    }
 
-        // Check if it has been given a description filter.
-        if (movieTitle.getDescription() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+    /**
+     * Builds the select list of the five movie title columns, in the order of the retrieval queries.
+     * The columns of the fields that are not requested are selected as null, so that the positions stay the same
+     * while their values are not read from the table.
+     * @param fields The fields of the movie titles that are requested.
+     * @return The select list.
+     */
+    private static String projection(Set<MovieTitle.Field> fields) {
+        return "MovieTitle.id, " +
+                (fields.contains(MovieTitle.Field.TITLE) ? "MovieTitle.title" : "null") + ", " +
+                (fields.contains(MovieTitle.Field.DESCRIPTION) ? "MovieTitle.description" : "null") + ", " +
+                (fields.contains(MovieTitle.Field.RELEASE_DATE) ? "MovieTitle.releaseDate" : "null") + ", " +
+                (fields.contains(MovieTitle.Field.RATING) ? "MovieTitle.rating" : "null");
+    }
 
-            sqlQuery.append(" description = \"").append(movieTitle.getDescription()).append("\"");
+    /**
+     * Checks that none of the ids given is null, as the entities are uniquely identified by their id.
+     * @param ids The ids of the referenced entities.
+     * @param name The name of the id, used in the error message.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    static void requireIds(Collection<Integer> ids, String name) {
+        if (ids.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The " + name + " must not be null.");
         }
+    }
 
-        // Check if it has been given a releaseDate filter.
-        if (movieTitle.getReleaseDate() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+    /**
+     * Retrieves a number of movie titles from the database.
+     * @param movieTitle The movieTitle template that will be used for selection of the titles loaded from the database.
+     *              <p>Any object fields that have the value null will be substituted for any value</p>
+     * @return A list of MovieTitle entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public MovieTitle[] retrieveMovieTitles(MovieTitle movieTitle) throws SQLException {
+        return retrieveMovieTitles(movieTitle, ALL_FIELDS);
+    }
 
-            sqlQuery.append(" releaseDate = \"").append(movieTitle.getReleaseDate()).append("\"");
-        }
+    /**
+     * Retrieves a number of movie titles from the database, loading only the fields requested.
+     * @param movieTitle The movieTitle template that will be used for selection of the titles loaded from the database.
+     *              <p>Any object fields that have the value null will be substituted for any value</p>
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @return A list of MovieTitle entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public MovieTitle[] retrieveMovieTitles(MovieTitle movieTitle, Set<MovieTitle.Field> fields) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select " + projection(fields) + " " +
+                "from MovieTitle");
+
+        // Only the filters that have been given are added to the where condition.
+        sqlQuery.whereIfPresent("id = ?", movieTitle.getId())
+                .whereIfPresent("title = ?", movieTitle.getTitle())
+                .whereIfPresent("description = ?", movieTitle.getDescription())
+                .whereIfPresent("releaseDate = ?", movieTitle.getReleaseDate())
+                .whereIfPresent("rating = ?", movieTitle.getRating())
+                .append(" order by MovieTitle.id");
+
+        return executeMovieTitleRetrievalQuery(sqlQuery.build(), fields);
+    }
 
-        // Check if it has been given a rating filter.
-        if (movieTitle.getRating() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+    /**
+     * Retrieves the movie titles with the given ids, with all of their fields loaded.
+     * @param movieTitleIds The ids of the movie titles.
+     * @return The movie titles found, by id.
+     *         They are cached until the MovieTitle table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, MovieTitle> retrieveMovieTitlesByIds(Collection<Integer> movieTitleIds) throws SQLException {
+        requireIds(movieTitleIds, "MovieTitleId");
 
-            sqlQuery.append(" rating = ").append(movieTitle.getRating());
-        }
+        return movieTitleById.getAll(movieTitleIds, this::loadMovieTitlesByIds);
+    }
 
-        return executeMovieTitleRetrievalQuery(sqlQuery.toString());
+    /**
+     * Loads the movie titles with the given ids from the database, with a single query.
+     * @param movieTitleIds The ids of the movie titles.
+     * @return The movie titles found, by id.
+     */
+    private Map<Integer, MovieTitle> loadMovieTitlesByIds(Collection<Integer> movieTitleIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select " + projection(ALL_FIELDS) + " " +
+                "from MovieTitle");
+        sqlQuery.whereIn("MovieTitle.id", movieTitleIds);
+
+        Map<Integer, MovieTitle> movieTitles = new HashMap<>();
+        for (MovieTitle movieTitle : executeMovieTitleRetrievalQuery(sqlQuery.build())) {
+            movieTitles.put(movieTitle.getId(), movieTitle);
+        }
+        return movieTitles;
     }
 
     /**
@@ -131,18 +231,45 @@ public class MovieTitleData {
      * @throws IllegalArgumentException If there is an error in the Director object fields.
      */
     public MovieTitle[] retrieveMovieTitlesOfDirector(Director director) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating ")
-                .append("from MovieTitle inner join MovieTitleParticipants on MovieTitleParticipants.MovieTitle_id = MovieTitle.id ")
-                .append("where MovieTitleParticipants.Person_id = ").append(director.getId())
-                .append(" and MovieTitleParticipants.participationRole = \"Director\"");
-
-        // An actor object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        // A director object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
         if (director.getId() == null){
-            throw new IllegalArgumentException("The ActorId must not be null.");
+            throw new IllegalArgumentException("The DirectorId must not be null.");
         }
 
-        return executeMovieTitleRetrievalQuery(sqlQuery.toString());
+        SqlQuery sqlQuery = SqlQuery.of("select MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
+                "from MovieTitle inner join MovieTitleParticipants on MovieTitleParticipants.MovieTitle_id = MovieTitle.id " +
+                "where MovieTitleParticipants.Person_id = ?" +
+                " and MovieTitleParticipants.participationRole = \"Director\"", director.getId());
+
+        return executeMovieTitleRetrievalQuery(sqlQuery);
+    }
+
+    /**
+     * Retrieves the registered movies that each of the directors given directed, with a single query.
+     * @param directorIds The ids of the directors which are referenced.
+     * @return The MovieTitles of each director, by director id.
+     *         They are cached until the MovieTitle or MovieTitleParticipants table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, MovieTitle[]> retrieveMovieTitlesOfDirectors(Collection<Integer> directorIds) throws SQLException {
+        requireIds(directorIds, "DirectorId");
+
+        return movieTitlesOfDirector.getAll(directorIds, this::loadMovieTitlesOfDirectors);
+    }
+
+    /**
+     * Loads the movies that each of the directors given directed from the database, with a single query.
+     * @param directorIds The ids of the directors which are referenced.
+     * @return The MovieTitles of each director, by director id.
+     */
+    private Map<Integer, MovieTitle[]> loadMovieTitlesOfDirectors(Collection<Integer> directorIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select MovieTitleParticipants.Person_id, MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
+                "from MovieTitle inner join MovieTitleParticipants on MovieTitleParticipants.MovieTitle_id = MovieTitle.id " +
+                "where MovieTitleParticipants.participationRole = \"Director\"").withWhereClause();
+        sqlQuery.whereIn("MovieTitleParticipants.Person_id", directorIds);
+
+        return executeGroupedMovieTitleRetrievalQuery(sqlQuery.build(), directorIds);
     }
 
     /**
@@ -153,19 +280,47 @@ public class MovieTitleData {
      * @throws IllegalArgumentException If there is an error in the Actor object fields.
      */
     public MovieTitle[] retrieveMovieTitlesOfActor(Actor actor) throws SQLException {
-        String sqlQuery = "select MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
-                "from MovieTitle inner join MovieTitleParticipants on MovieTitleParticipants.MovieTitle_id = MovieTitle.id " +
-                "where MovieTitleParticipants.Person_id = " + actor.getId() +
-                " and MovieTitleParticipants.participationRole = \"Actor\"";
-
         // An actor object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
         if (actor.getId() == null){
             throw new IllegalArgumentException("The ActorId must not be null.");
         }
 
+        SqlQuery sqlQuery = SqlQuery.of("select MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
+                "from MovieTitle inner join MovieTitleParticipants on MovieTitleParticipants.MovieTitle_id = MovieTitle.id " +
+                "where MovieTitleParticipants.Person_id = ?" +
+                " and MovieTitleParticipants.participationRole = \"Actor\"", actor.getId());
+
         return executeMovieTitleRetrievalQuery(sqlQuery);
     }
 
+    /**
+     * Retrieves the registered movies that each of the actors given starred in, with a single query.
+     * @param actorIds The ids of the actors which are referenced.
+     * @return The MovieTitles of each actor, by actor id.
+     *         They are cached until the MovieTitle or MovieTitleParticipants table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, MovieTitle[]> retrieveMovieTitlesOfActors(Collection<Integer> actorIds) throws SQLException {
+        requireIds(actorIds, "ActorId");
+
+        return movieTitlesOfActor.getAll(actorIds, this::loadMovieTitlesOfActors);
+    }
+
+    /**
+     * Loads the movies that each of the actors given starred in from the database, with a single query.
+     * @param actorIds The ids of the actors which are referenced.
+     * @return The MovieTitles of each actor, by actor id.
+     */
+    private Map<Integer, MovieTitle[]> loadMovieTitlesOfActors(Collection<Integer> actorIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select MovieTitleParticipants.Person_id, MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
+                "from MovieTitle inner join MovieTitleParticipants on MovieTitleParticipants.MovieTitle_id = MovieTitle.id " +
+                "where MovieTitleParticipants.participationRole = \"Actor\"").withWhereClause();
+        sqlQuery.whereIn("MovieTitleParticipants.Person_id", actorIds);
+
+        return executeGroupedMovieTitleRetrievalQuery(sqlQuery.build(), actorIds);
+    }
+
     /**
      * Retrieves the list of movies in the category.
      * @param category The Category entity which is referenced.
@@ -180,13 +335,40 @@ public class MovieTitleData {
             throw new IllegalArgumentException("The CategoryId must not be null.");
         }
 
-        String sqlQuery = String.format("select MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
+        SqlQuery sqlQuery = SqlQuery.of("select MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
                 "from MovieTitle inner join inCategory on MovieTitle.id = inCategory.MovieTitle_id " +
-                "where inCategory.Category_id = %d ", category.getId());
+                "where inCategory.Category_id = ?", category.getId());
 
         return executeMovieTitleRetrievalQuery(sqlQuery);
     }
 
+    /**
+     * Retrieves the movies in each of the categories given, with a single query.
+     * @param categoryIds The ids of the categories which are referenced.
+     * @return The MovieTitles in each category, by category id.
+     *         They are cached until the MovieTitle or inCategory table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, MovieTitle[]> retrieveMovieTitlesOfCategories(Collection<Integer> categoryIds) throws SQLException {
+        requireIds(categoryIds, "CategoryId");
+
+        return movieTitlesOfCategory.getAll(categoryIds, this::loadMovieTitlesOfCategories);
+    }
+
+    /**
+     * Loads the movies in each of the categories given from the database, with a single query.
+     * @param categoryIds The ids of the categories which are referenced.
+     * @return The MovieTitles in each category, by category id.
+     */
+    private Map<Integer, MovieTitle[]> loadMovieTitlesOfCategories(Collection<Integer> categoryIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select inCategory.Category_id, MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
+                "from MovieTitle inner join inCategory on MovieTitle.id = inCategory.MovieTitle_id");
+        sqlQuery.whereIn("inCategory.Category_id", categoryIds);
+
+        return executeGroupedMovieTitleRetrievalQuery(sqlQuery.build(), categoryIds);
+    }
+
     /**
      * Retrieves the list of registered movies that this production company produced.
      * @param productionCompany The Production Company entity which is referenced.
@@ -201,13 +383,38 @@ public class MovieTitleData {
             throw new IllegalArgumentException("The ProductionCompany must not be null.");
         }
 
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating ")
-                .append("from MovieTitle inner join producedBy on producedBy.MovieTitle_id = MovieTitle.id ")
-                .append("where producedBy.ProductionCompany_id = ").append(productionCompany.getId());
+        SqlQuery sqlQuery = SqlQuery.of("select MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
+                "from MovieTitle inner join producedBy on producedBy.MovieTitle_id = MovieTitle.id " +
+                "where producedBy.ProductionCompany_id = ?", productionCompany.getId());
 
+        return executeMovieTitleRetrievalQuery(sqlQuery);
+    }
 
-        return executeMovieTitleRetrievalQuery(sqlQuery.toString());
+    /**
+     * Retrieves the registered movies that each of the production companies given produced, with a single query.
+     * @param productionCompanyIds The ids of the production companies which are referenced.
+     * @return The MovieTitles of each production company, by production company id.
+     *         They are cached until the MovieTitle or producedBy table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, MovieTitle[]> retrieveMovieTitlesOfProductionCompanies(Collection<Integer> productionCompanyIds) throws SQLException {
+        requireIds(productionCompanyIds, "ProductionCompanyId");
+
+        return movieTitlesOfProductionCompany.getAll(productionCompanyIds, this::loadMovieTitlesOfProductionCompanies);
+    }
+
+    /**
+     * Loads the movies that each of the production companies given produced from the database, with a single query.
+     * @param productionCompanyIds The ids of the production companies which are referenced.
+     * @return The MovieTitles of each production company, by production company id.
+     */
+    private Map<Integer, MovieTitle[]> loadMovieTitlesOfProductionCompanies(Collection<Integer> productionCompanyIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select producedBy.ProductionCompany_id, MovieTitle.id, MovieTitle.title, MovieTitle.description, MovieTitle.releaseDate, MovieTitle.rating " +
+                "from MovieTitle inner join producedBy on producedBy.MovieTitle_id = MovieTitle.id");
+        sqlQuery.whereIn("producedBy.ProductionCompany_id", productionCompanyIds);
+
+        return executeGroupedMovieTitleRetrievalQuery(sqlQuery.build(), productionCompanyIds);
     }
 
     /**
@@ -224,82 +431,291 @@ public class MovieTitleData {
             throw new IllegalArgumentException("The MovieCopyId must not be null.");
         }
 
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select id, title, description, releaseDate, rating ")
-                .append("from MovieTitle ")
-                .append("where id = (select MovieTitle_id from MovieCopy where id = ").append(movieCopy.getId()).append(")");
+        SqlQuery sqlQuery = SqlQuery.of("select id, title, description, releaseDate, rating " +
+                "from MovieTitle " +
+                "where id = (select MovieTitle_id from MovieCopy where id = ?)", movieCopy.getId());
 
-        return executeMovieTitleRetrievalQuery(sqlQuery.toString())[0];
+        // The copies are looked up one at a time by their field resolver, so the cache saves a query per copy.
+        return movieTitleOfMovieCopy.get(movieCopy.getId(), () -> executeMovieTitleRetrievalQuery(sqlQuery)[0]);
     }
 
     /**
-     * Retrieves a number of movie titles from the database and filters them with the given arguments before returning
-     * the list with them.
-     * @param title the movie's title.
-     * @param releaseDate the movie's release date.
+     * The relationships of a movie title that can be loaded together with it, by {@link #retrieveMovieTitlesWithRelations}.
+     * Each one is a sub-query of the movie title row, that aggregates the related entities into a JSON array.
+     */
+    public enum Relation {
+        DIRECTORS("select json_group_array(json_object('id', Person.id, 'name', Person.name)) " +
+                "from Person inner join MovieTitleParticipants on MovieTitleParticipants.Person_id = Person.id " +
+                "where MovieTitleParticipants.MovieTitle_id = MovieTitle.id" +
+                " and MovieTitleParticipants.participationRole = \"Director\""),
+        ACTORS("select json_group_array(json_object('id', Person.id, 'name', Person.name)) " +
+                "from Person inner join MovieTitleParticipants on MovieTitleParticipants.Person_id = Person.id " +
+                "where MovieTitleParticipants.MovieTitle_id = MovieTitle.id" +
+                " and MovieTitleParticipants.participationRole = \"Actor\""),
+        CATEGORIES("select json_group_array(json_object('id', Category.id, 'name', Category.name)) " +
+                "from Category inner join inCategory on Category.id = inCategory.Category_id " +
+                "where inCategory.MovieTitle_id = MovieTitle.id"),
+        PRODUCTION_COMPANIES("select json_group_array(json_object('id', ProductionCompany.id, 'name', ProductionCompany.name)) " +
+                "from ProductionCompany inner join producedBy on producedBy.ProductionCompany_id = ProductionCompany.id " +
+                "where producedBy.MovieTitle_id = MovieTitle.id");
+
+        private final String subQuery; // The sub-query that aggregates the related entities of a movie title.
+
+        Relation(String subQuery) {
+            this.subQuery = subQuery;
+        }
+    }
+
+    /**
+     * Retrieves a number of movie titles from the database together with the given relationships, with a single
+     * query. The related entities are set as the preloaded ones of each movie title.
+     * @param id the movie's id. If null, any id is selected.
+     * @param title the movie's title. If null, any title is selected.
+     * @param releaseDate the movie's release date. If null, any release date is selected.
      * @param ratingFrom the lower limit of the movie's rating. If null, the lower limit is considered unbound.
      * @param ratingTo the upper limit of the movie's rating. If null, the upper limit is considered unbound.
-     * @return A list with the filtered query result of movie titles.
-     * @throws SQLException  If a database access error occurs.
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @param relations The relationships loaded together with the movie titles.
+     * @return A list with the movie titles selected.
+     * @throws SQLException If a database access error occurs.
      */
-    public MovieTitle[] retrieveMovieTitlesWithFiltering(String title, LocalDate releaseDate, Float ratingFrom, Float ratingTo) throws SQLException {
+    public MovieTitle[] retrieveMovieTitlesWithRelations(Integer id, String title, LocalDate releaseDate, Float ratingFrom,
+                                                         Float ratingTo, Set<MovieTitle.Field> fields,
+                                                         Set<Relation> relations) throws SQLException {
+        // The relations are always added in the order of their declaration, so that a selection maps to one template.
+        EnumSet<Relation> selectedRelations = EnumSet.noneOf(Relation.class);
+        selectedRelations.addAll(relations);
+        List<Relation> orderedRelations = new ArrayList<>(selectedRelations);
+
+        QueryBuilder sqlQuery = new QueryBuilder("select " + projection(fields));
+        for (Relation relation : orderedRelations) {
+            sqlQuery.append(", (" + relation.subQuery + ")");
+        }
+        sqlQuery.append(" from MovieTitle");
 
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select id, title, description, releaseDate, rating ")
-                .append("from MovieTitle ");
+        sqlQuery.whereIfPresent("MovieTitle.id = ?", id)
+                .whereIfPresent("MovieTitle.title = ?", title)
+                .whereIfPresent("MovieTitle.releaseDate = ?", releaseDate)
+                // A null rating limit leaves that end of the range unbound.
+                .whereIfPresent("MovieTitle.rating >= ?", ratingFrom)
+                .whereIfPresent("MovieTitle.rating <= ?", ratingTo)
+                .append(" order by MovieTitle.id");
 
-        // Controls whether the final query will retrieve all movieTitles or will filter the results first.
-        boolean getAll = true;
+        ArrayList<MovieTitle> movieTitles = new ArrayList<>();
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.build().executeQuery(lease)) {
+            while (qResults.next()) {
+                MovieTitle movieTitle = readMovieTitle(qResults, 1);
+                movieTitle.setLoadedFields(fields);
+                // The columns after the movie title's are the JSON arrays of the relations, in the same order.
+                for (int i = 0; i < orderedRelations.size(); i++) {
+                    preload(movieTitle, orderedRelations.get(i), JSON.readTree(qResults.getString(6 + i)));
+                }
+                movieTitles.add(movieTitle);
+            }
+        } catch (JsonProcessingException e) {
+            throw new SQLException("The related entities of a movie title could not be read.", e);
+        }
 
-        // Check if it has been given a title filter.
-        if (title != null){
-            // If it has another filter to chain into where condition.
-            getAll = false;
+        return movieTitles.toArray(new MovieTitle[0]);
+    }
 
-            sqlQuery.append("where ");
+    /**
+     * Sets the related entities of the JSON array given as the preloaded ones of the movie title.
+     * @param movieTitle The movie title the entities are related to.
+     * @param relation The relationship the entities are part of.
+     * @param entities The JSON array of the entities, each an object with their id and name.
+     */
+    private static void preload(MovieTitle movieTitle, Relation relation, JsonNode entities) {
+        int count = entities.size();
+        switch (relation) {
+            case DIRECTORS:
+                Director[] directors = new Director[count];
+                for (int i = 0; i < count; i++)
+                    directors[i] = new Director(entities.get(i).get("id").asInt(), entities.get(i).get("name").asText());
+                movieTitle.setPreloadedDirectors(directors);
+                break;
+            case ACTORS:
+                Actor[] actors = new Actor[count];
+                for (int i = 0; i < count; i++)
+                    actors[i] = new Actor(entities.get(i).get("id").asInt(), entities.get(i).get("name").asText());
+                movieTitle.setPreloadedActors(actors);
+                break;
+            case CATEGORIES:
+                Category[] categories = new Category[count];
+                for (int i = 0; i < count; i++)
+                    categories[i] = new Category(entities.get(i).get("id").asInt(), entities.get(i).get("name").asText());
+                movieTitle.setPreloadedCategories(categories);
+                break;
+            case PRODUCTION_COMPANIES:
+                ProductionCompany[] productionCompanies = new ProductionCompany[count];
+                for (int i = 0; i < count; i++)
+                    productionCompanies[i] = new ProductionCompany(entities.get(i).get("id").asInt(), entities.get(i).get("name").asText());
+                movieTitle.setPreloadedProductionCompanies(productionCompanies);
+                break;
+        }
+    }
 
-            sqlQuery.append(" title = \"").append(title).append("\"");
+    /**
+     * The entities whose movie titles can be loaded together with them, by {@link #withMovieTitles}.
+     * Each one is the join that selects the movie titles of an entity of the outer query, which is aliased as Owner.
+     */
+    public enum Owner {
+        DIRECTOR("MovieTitle inner join MovieTitleParticipants on MovieTitleParticipants.MovieTitle_id = MovieTitle.id " +
+                "where MovieTitleParticipants.Person_id = Owner.id" +
+                " and MovieTitleParticipants.participationRole = \"Director\""),
+        ACTOR("MovieTitle inner join MovieTitleParticipants on MovieTitleParticipants.MovieTitle_id = MovieTitle.id " +
+                "where MovieTitleParticipants.Person_id = Owner.id" +
+                " and MovieTitleParticipants.participationRole = \"Actor\""),
+        CATEGORY("MovieTitle inner join inCategory on MovieTitle.id = inCategory.MovieTitle_id " +
+                "where inCategory.Category_id = Owner.id"),
+        PRODUCTION_COMPANY("MovieTitle inner join producedBy on producedBy.MovieTitle_id = MovieTitle.id " +
+                "where producedBy.ProductionCompany_id = Owner.id");
+
+        private final String join; // The from and where clauses of the movie titles of an entity.
+
+        Owner(String join) {
+            this.join = join;
         }
+    }
 
-        // Check if it has been given a releaseDate filter.
-        if (releaseDate != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
+    /**
+     * Extends a query of the entities that own movie titles with one more column, that aggregates the movie titles of
+     * each entity into a JSON array, along with the relationships given of every movie title. The array is read back
+     * with {@link #readMovieTitles}.
+     * @param owner The kind of the entities the query selects.
+     * @param ownerQuery The query of the entities, whose first column is their id.
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @param relations The relationships loaded together with the movie titles.
+     * @return The query, that selects the columns of the given one followed by the array of the movie titles.
+     */
+    public static SqlQuery withMovieTitles(Owner owner, SqlQuery ownerQuery, Set<MovieTitle.Field> fields,
+                                           Set<Relation> relations) {
+        // The fields and relations are always added in the order of their declaration, so that a selection maps to one template.
+        StringBuilder movieTitle = new StringBuilder("json_object('id', MovieTitle.id");
+        if (fields.contains(MovieTitle.Field.TITLE))
+            movieTitle.append(", 'title', MovieTitle.title");
+        if (fields.contains(MovieTitle.Field.DESCRIPTION))
+            movieTitle.append(", 'description', MovieTitle.description");
+        if (fields.contains(MovieTitle.Field.RELEASE_DATE))
+            movieTitle.append(", 'releaseDate', MovieTitle.releaseDate");
+        if (fields.contains(MovieTitle.Field.RATING))
+            movieTitle.append(", 'rating', MovieTitle.rating");
+        for (Relation relation : Relation.values()) {
+            if (relations.contains(relation)) {
+                // json() keeps the array of the sub-query an array, instead of a string holding its text.
+                movieTitle.append(", '").append(relation.name()).append("', json((").append(relation.subQuery).append("))");
             }
-
-            sqlQuery.append(" releaseDate = \"").append(releaseDate.toString()).append("\"");
         }
+        movieTitle.append(")");
 
-        // If ratingFrom is null, no lower limit is imposed.
-        if (ratingFrom == null){
-            if (ratingTo != null){
-                if (getAll) { // If it has another filter to chain into where condition.
-                    getAll = false;
-                    sqlQuery.append("where ");
-                } else {
-                    sqlQuery.append(" and");
-                }
-                sqlQuery.append(" MovieTitle.rating <= ").append(ratingTo);
-            }
-            // If also upper limit is null, all movie copies are returned: No change to SQL query.
-        } else { // There is a lower limit.
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+        return new SqlQuery("select Owner.*, (select json_group_array(" + movieTitle + ") from " + owner.join + ") " +
+                "from (" + ownerQuery.getSql() + ") as Owner", new ArrayList<>(ownerQuery.getParameters()));
+    }
 
-            sqlQuery.append(" MovieTitle.rating >= ").append(ratingFrom);
-            if (ratingTo != null){ // If there is an upper limit.
-                sqlQuery.append(" and MovieTitle.rating <= ").append(ratingTo);
+    /**
+     * Reads the movie titles aggregated by a query extended with {@link #withMovieTitles}.
+     * @param movieTitles The JSON array of the movie titles.
+     * @param fields The fields of the movie titles that were loaded.
+     * @param relations The relationships that were loaded together with the movie titles. They are set as the
+     *                  preloaded ones of each movie title.
+     * @return The movie titles.
+     * @throws SQLException If the array cannot be read.
+     */
+    public static MovieTitle[] readMovieTitles(String movieTitles, Set<MovieTitle.Field> fields,
+                                               Set<Relation> relations) throws SQLException {
+        try {
+            JsonNode entities = JSON.readTree(movieTitles);
+            MovieTitle[] read = new MovieTitle[entities.size()];
+            for (int i = 0; i < read.length; i++) {
+                JsonNode entity = entities.get(i);
+                // The fields that were not loaded are missing from the object, and read as null.
+                JsonNode releaseDate = entity.path("releaseDate");
+                JsonNode rating = entity.path("rating");
+                read[i] = new MovieTitle(entity.get("id").asInt(), entity.path("title").textValue(),
+                        entity.path("description").textValue(),
+                        releaseDate.isTextual() ? LocalDate.parse(releaseDate.textValue()) : null,
+                        rating.isNumber() ? rating.floatValue() : null);
+                read[i].setLoadedFields(fields);
+                for (Relation relation : relations) {
+                    preload(read[i], relation, entity.get(relation.name()));
+                }
             }
+            return read;
+        } catch (JsonProcessingException e) {
+            throw new SQLException("The movie titles of an entity could not be read.", e);
         }
+    }
+
+    /**
+     * Retrieves a number of movie titles from the database and filters them with the given arguments before returning
+     * the list with them.
+     * @param title the movie's title.
+     * @param releaseDate the movie's release date.
+     * @param ratingFrom the lower limit of the movie's rating. If null, the lower limit is considered unbound.
+     * @param ratingTo the upper limit of the movie's rating. If null, the upper limit is considered unbound.
+     * @return A list with the filtered query result of movie titles.
+     * @throws SQLException  If a database access error occurs.
+     */
+    public MovieTitle[] retrieveMovieTitlesWithFiltering(String title, LocalDate releaseDate, Float ratingFrom, Float ratingTo) throws SQLException {
+        return retrieveMovieTitlesWithFiltering(title, releaseDate, ratingFrom, ratingTo, ALL_FIELDS);
+    }
+
+    /**
+     * Retrieves a number of movie titles from the database and filters them with the given arguments before returning
+     * the list with them, loading only the fields requested.
+     * @param title the movie's title.
+     * @param releaseDate the movie's release date.
+     * @param ratingFrom the lower limit of the movie's rating. If null, the lower limit is considered unbound.
+     * @param ratingTo the upper limit of the movie's rating. If null, the upper limit is considered unbound.
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @return A list with the filtered query result of movie titles.
+     * @throws SQLException  If a database access error occurs.
+     */
+    public MovieTitle[] retrieveMovieTitlesWithFiltering(String title, LocalDate releaseDate, Float ratingFrom, Float ratingTo,
+                                                         Set<MovieTitle.Field> fields) throws SQLException {
 
+        QueryBuilder sqlQuery = new QueryBuilder("select " + projection(fields) + " " +
+                "from MovieTitle");
 
-        return executeMovieTitleRetrievalQuery(sqlQuery.toString());
+        sqlQuery.whereIfPresent("title = ?", title)
+                .whereIfPresent("releaseDate = ?", releaseDate)
+                // A null rating limit leaves that end of the range unbound.
+                .whereIfPresent("MovieTitle.rating >= ?", ratingFrom)
+                .whereIfPresent("MovieTitle.rating <= ?", ratingTo)
+                .append(" order by MovieTitle.id");
+
+        return executeMovieTitleRetrievalQuery(sqlQuery.build(), fields);
+    }
+
+    /**
+     * Retrieves a page of the movie titles that match the given arguments, in the order of their ids, loading only
+     * the fields requested.
+     * @param id the movie's id.
+     * @param title the movie's title.
+     * @param releaseDate the movie's release date.
+     * @param ratingFrom the lower limit of the movie's rating. If null, the lower limit is considered unbound.
+     * @param ratingTo the upper limit of the movie's rating. If null, the upper limit is considered unbound.
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @param afterId The id of the movie title after which the page starts. null starts from the first one.
+     * @param limit The maximum number of movie titles returned.
+     * @return A list with the filtered query result of movie titles.
+     * @throws SQLException  If a database access error occurs.
+     */
+    public MovieTitle[] retrieveMovieTitlesPage(Integer id, String title, LocalDate releaseDate, Float ratingFrom, Float ratingTo,
+                                                Set<MovieTitle.Field> fields, Integer afterId, int limit) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select " + projection(fields) + " " +
+                "from MovieTitle");
+
+        sqlQuery.whereIfPresent("MovieTitle.id = ?", id)
+                .whereIfPresent("title = ?", title)
+                .whereIfPresent("releaseDate = ?", releaseDate)
+                // A null rating limit leaves that end of the range unbound.
+                .whereIfPresent("MovieTitle.rating >= ?", ratingFrom)
+                .whereIfPresent("MovieTitle.rating <= ?", ratingTo)
+                .whereIfPresent("MovieTitle.id > ?", afterId)
+                .append(" order by MovieTitle.id limit ?", limit);
+
+        return executeMovieTitleRetrievalQuery(sqlQuery.build(), fields);
     }
 }
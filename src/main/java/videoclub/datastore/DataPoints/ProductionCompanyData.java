@@ -1,13 +1,23 @@
 package videoclub.datastore.DataPoints;
 
+import videoclub.datastore.ConnectionPool;
 import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCache;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.QueryBuilder;
+import videoclub.datastore.SqlQuery;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 import videoclub.graphql.server.domain.videoclub.ProductionCompany;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * The class that manages the application's data concerning the Production Companies. <br>
@@ -16,30 +26,32 @@ import java.util.ArrayList;
  * @author Ioannis Baraklilis
  */
 public class ProductionCompanyData {
-    private final Statement queryEndpoint; // The object used for executing a static SQL statements.
+    private final ConnectionPool connectionPool; // The pool that connections to the database are borrowed from.
+    private final EntityCache<Integer, ProductionCompany[]> productionCompaniesOfMovieTitle; // The production companies of each movie title, by movie title id.
     private final DataIntersection dataIntersection; // The object that uses this as an interface to other data.
 
     /**
-     * Sets the Statement object as the "endpoint" to interface with the database through queries.
-     * @param queryEndpoint The object used for executing a static SQL statements.
+     * Sets the connection pool as the "endpoint" to interface with the database through queries.
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param entityCaches The caches that the relationships loaded are kept in.
+     * @param dataIntersection The object that uses this as an interface to other data.
      */
-    public ProductionCompanyData(Statement queryEndpoint, DataIntersection dataIntersection) {
-        this.queryEndpoint = queryEndpoint;
+    public ProductionCompanyData(ConnectionPool connectionPool, EntityCaches entityCaches, DataIntersection dataIntersection) {
+        this.connectionPool = connectionPool;
+        this.productionCompaniesOfMovieTitle = entityCaches.create("productionCompaniesOfMovieTitle", "ProductionCompany", "producedBy");
         this.dataIntersection = dataIntersection;
     }
 
     /**
      * Executes the given query and returns the list of ProductionCompany object created.
-     * @param query The sql query to be executed.
+     * @param query The parameterized sql query to be executed.
      * @return The list of ProductionCompany objects retrieved.
      */
-    private ProductionCompany[] executeProductionCompanyRetrievalQuery(String query) throws SQLException {
-        // Asserting synchronization of database accesses.
-        ResultSet qResults;
+    private ProductionCompany[] executeProductionCompanyRetrievalQuery(SqlQuery query) throws SQLException {
         ArrayList<ProductionCompany> productionCompanies = new ArrayList<>();
-        synchronized (queryEndpoint) {
-            qResults = queryEndpoint.executeQuery(query.toString());
-
+        // Each call borrows its own connection, so that the queries of concurrent requests can run in parallel.
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             // Running through the results and constructing Customer objects with the returned data.
             while (qResults.next()) {
                 productionCompanies.add(new ProductionCompany(qResults.getInt(1), qResults.getString(2)));
@@ -57,24 +69,48 @@ public class ProductionCompanyData {
      * @throws SQLException If a database access error occurs.
      */
     public ProductionCompany[] retrieveProductionCompanies(ProductionCompany productionCompany) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select ProductionCompany.id, ProductionCompany.name ")
-                .append("from ProductionCompany ");
+        return executeProductionCompanyRetrievalQuery(productionCompaniesQuery(productionCompany));
+    }
 
-        if (productionCompany.getId() == null){ // id not provided
-            if (productionCompany.getName() != null){ // Only name is provided.
-                sqlQuery.append(String.format("where name = '%s'", productionCompany.getName()));
-            }
-        } else { // id provided.
-            if (productionCompany.getName() == null){ // Only id is provided.
-                sqlQuery.append(String.format("where id = '%d'", productionCompany.getId()));
-            } else { // Both id and name provided.
-                sqlQuery.append(String.format("where id = '%d' and name = '%s'",
-                        productionCompany.getId(), productionCompany.getName()));
+    /**
+     * Retrieves a number of production companies from the database together with their movie titles, with a single query.
+     * The movie titles are set as the preloaded ones of each production company.
+     * @param productionCompany The production company template that will be used for selection, as in {@link #retrieveProductionCompanies(ProductionCompany)}.
+     * @param fields The fields of the movie titles that are loaded, the rest are left to be filled in.
+     * @param relations The relationships loaded together with the movie titles.
+     * @return A list of ProductionCompany entities that match the template given as argument.
+     * @throws SQLException If a database access error occurs.
+     */
+    public ProductionCompany[] retrieveProductionCompaniesWithMovieTitles(ProductionCompany productionCompany, Set<MovieTitle.Field> fields,
+                                                                          Set<MovieTitleData.Relation> relations) throws SQLException {
+        SqlQuery sqlQuery = MovieTitleData.withMovieTitles(MovieTitleData.Owner.PRODUCTION_COMPANY, productionCompaniesQuery(productionCompany), fields, relations);
+
+        ArrayList<ProductionCompany> productionCompanies = new ArrayList<>();
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.executeQuery(lease)) {
+            // The columns of the production company are followed by the array of its movie titles.
+            while (qResults.next()) {
+                ProductionCompany loaded = new ProductionCompany(qResults.getInt(1), qResults.getString(2));
+                loaded.setPreloadedMovieTitles(MovieTitleData.readMovieTitles(qResults.getString(3), fields, relations));
+                productionCompanies.add(loaded);
             }
         }
 
-        return executeProductionCompanyRetrievalQuery(sqlQuery.toString());
+        return productionCompanies.toArray(new ProductionCompany[0]);
+    }
+
+    /**
+     * @param productionCompany The production company template, whose null fields match any value.
+     * @return The query of the production companies that match the template.
+     */
+    private static SqlQuery productionCompaniesQuery(ProductionCompany productionCompany) {
+        QueryBuilder sqlQuery = new QueryBuilder("select ProductionCompany.id, ProductionCompany.name " +
+                "from ProductionCompany");
+
+        sqlQuery.whereIfPresent("id = ?", productionCompany.getId()) // id provided.
+                .whereIfPresent("name = ?", productionCompany.getName()); // name provided.
+
+        return sqlQuery.build();
     }
 
     /**
@@ -85,17 +121,61 @@ public class ProductionCompanyData {
      * @throws IllegalArgumentException If there is an error in the MovieTitle object fields.
      */
     public ProductionCompany[] retrieveProductionCompanyOfMovieTitle(MovieTitle movieTitle) throws SQLException, IllegalArgumentException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select ProductionCompany.id, ProductionCompany.name ")
-                .append("from ProductionCompany inner join producedBy on producedBy.ProductionCompany_id = ProductionCompany.id ")
-                .append("where producedBy.MovieTitle_id = ").append(movieTitle.getId());
-
-
         // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
         if (movieTitle.getId() == null){
             throw new IllegalArgumentException("The MovieTitle must not be null.");
         }
 
-        return executeProductionCompanyRetrievalQuery(sqlQuery.toString());
+        SqlQuery sqlQuery = SqlQuery.of("select ProductionCompany.id, ProductionCompany.name " +
+                "from ProductionCompany inner join producedBy on producedBy.ProductionCompany_id = ProductionCompany.id " +
+                "where producedBy.MovieTitle_id = ?", movieTitle.getId());
+
+        return executeProductionCompanyRetrievalQuery(sqlQuery);
+    }
+
+    /**
+     * Retrieves the production companies that produced each of the movie titles given, with a single query.
+     * @param movieTitleIds The ids of the movie titles which are referenced.
+     * @return The ProductionCompany entities of each movie title, by movie title id.
+     *         Every id given has an entry, which is empty if there are none.
+     *         They are cached until the ProductionCompany or producedBy table is written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If one of the ids is null.
+     */
+    public Map<Integer, ProductionCompany[]> retrieveProductionCompaniesOfMovieTitles(Collection<Integer> movieTitleIds) throws SQLException {
+        // A movie is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (movieTitleIds.stream().anyMatch(Objects::isNull)){
+            throw new IllegalArgumentException("The MovieTitleId must not be null.");
+        }
+
+        return productionCompaniesOfMovieTitle.getAll(movieTitleIds, this::loadProductionCompaniesOfMovieTitles);
+    }
+
+    /**
+     * Loads the production companies of each of the movie titles given from the database, with a single query.
+     * @param movieTitleIds The ids of the movie titles which are referenced.
+     * @return The ProductionCompany entities of each movie title, by movie title id.
+     *         Every id given has an entry, which is empty if there are none.
+     */
+    private Map<Integer, ProductionCompany[]> loadProductionCompaniesOfMovieTitles(Collection<Integer> movieTitleIds) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select producedBy.MovieTitle_id, ProductionCompany.id, ProductionCompany.name " +
+                "from ProductionCompany inner join producedBy on producedBy.ProductionCompany_id = ProductionCompany.id");
+        sqlQuery.whereIn("producedBy.MovieTitle_id", movieTitleIds);
+
+        Map<Integer, List<ProductionCompany>> productionCompanies = new HashMap<>();
+        movieTitleIds.forEach(movieTitleId -> productionCompanies.put(movieTitleId, new ArrayList<>()));
+
+        try (ConnectionPool.Lease lease = connectionPool.acquire();
+             ResultSet qResults = sqlQuery.build().executeQuery(lease)) {
+            // The first column is the movie title the row belongs to, the rest are the same as in the other queries.
+            while (qResults.next()) {
+                productionCompanies.get(qResults.getInt(1)).add(new ProductionCompany(qResults.getInt(2), qResults.getString(3)));
+            }
+        }
+
+        Map<Integer, ProductionCompany[]> productionCompaniesByMovieTitle = new HashMap<>();
+        productionCompanies.forEach((movieTitleId, ofMovieTitle) ->
+                productionCompaniesByMovieTitle.put(movieTitleId, ofMovieTitle.toArray(new ProductionCompany[0])));
+        return productionCompaniesByMovieTitle;
     }
 }
@@ -1,7 +1,12 @@
 package videoclub.datastore.DataPoints;
 
 
+import videoclub.datastore.ConnectionPool;
+import videoclub.datastore.Cursor;
 import videoclub.datastore.DataIntersection;
+import videoclub.datastore.EntityCaches;
+import videoclub.datastore.QueryBuilder;
+import videoclub.datastore.SqlQuery;
 import videoclub.graphql.server.domain.videoclub.Customer;
 import videoclub.graphql.server.domain.videoclub.MovieCopy;
 import videoclub.graphql.server.domain.videoclub.RentTransaction;
@@ -10,9 +15,10 @@ import videoclub.graphql.server.domain.videoclub.input.ReturnInput;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * The class that manages the application's data concerning the Rent Transactions. <br>
@@ -21,41 +27,80 @@ import java.util.ArrayList;
  * @author Ioannis Baraklilis
  */
 public class RentTransactionData {
-    private final Statement queryEndpoint; // The object used for executing a static SQL statements.
+    private final ConnectionPool connectionPool; // The pool that connections to the database are borrowed from.
+    private final ConnectionPool writeConnectionPool; // The pool that connections for the writes are borrowed from.
+    private final int fetchSize; // The rows fetched at a time by the streamed queries.
+    private final EntityCaches entityCaches; // Told about the writes, so that the caches reading the transactions are emptied.
     private final DataIntersection dataIntersection; // The object that uses this as an interface to other data.
 
     /**
-     * Sets the Statement object as the "endpoint" to interface with the database through queries.
-     * @param queryEndpoint The object used for executing a static SQL statements.
+     * Sets the connection pools as the "endpoint" to interface with the database through queries.
+     * @param connectionPool The pool that connections to the database are borrowed from.
+     * @param writeConnectionPool The pool that connections for the writes are borrowed from.
+     * @param fetchSize The rows fetched at a time by the streamed queries.
+     * @param entityCaches The caches that are emptied when the transactions are written.
+     * @param dataIntersection The object that uses this as an interface to other data.
      */
-    public RentTransactionData(Statement queryEndpoint, DataIntersection dataIntersection) {
-        this.queryEndpoint = queryEndpoint;
+    public RentTransactionData(ConnectionPool connectionPool, ConnectionPool writeConnectionPool, int fetchSize,
+                               EntityCaches entityCaches, DataIntersection dataIntersection) {
+        this.connectionPool = connectionPool;
+        this.writeConnectionPool = writeConnectionPool;
+        this.fetchSize = fetchSize;
+        this.entityCaches = entityCaches;
         this.dataIntersection = dataIntersection;
     }
 
     /**
      * Executes the given query and returns the list of RentTransaction object created.
-     * @param query The sql query to be executed.
+     * @param query The parameterized sql query to be executed.
      * @return The list of RentTransaction objects retrieved.
      */
-    private RentTransaction[] executeRentTransactionRetrievalQuery(String query) throws SQLException {
-        // Asserting synchronization of database accesses.
-        ResultSet qResults;
-        ArrayList<RentTransaction> rentTransactions = new ArrayList<>();
-        synchronized (queryEndpoint) {
-            qResults = queryEndpoint.executeQuery(query.toString());
+    private RentTransaction[] executeRentTransactionRetrievalQuery(SqlQuery query) throws SQLException {
+        return executeRentTransactionRetrievalQuery(query, connectionPool);
+    }
 
+    /**
+     * Executes the given query on a connection of the given pool and returns the list of RentTransaction object created.
+     * @param query The parameterized sql query to be executed.
+     * @param pool The pool that the connection is borrowed from.
+     * @return The list of RentTransaction objects retrieved.
+     */
+    private RentTransaction[] executeRentTransactionRetrievalQuery(SqlQuery query, ConnectionPool pool) throws SQLException {
+        ArrayList<RentTransaction> rentTransactions = new ArrayList<>();
+        // Each call borrows its own connection, so that the queries of concurrent requests can run in parallel.
+        try (ConnectionPool.Lease lease = pool.acquire();
+             ResultSet qResults = query.executeQuery(lease)) {
             // Running through the results and constructing Customer objects with the returned data.
             while (qResults.next()) {
-                rentTransactions.add(new RentTransaction(qResults.getInt(1), qResults.getFloat(2),
-                        OffsetDateTime.parse(qResults.getString(3)),
-                        qResults.getString(4) != null ? OffsetDateTime.parse(qResults.getString(4)) : null));
+                rentTransactions.add(readRentTransaction(qResults));
             }
         }
 
         return rentTransactions.toArray(new RentTransaction[0]);
     }
 
+    /**
+     * Executes the given query and streams the RentTransaction objects, creating each one only when it is consumed.
+     * The stream holds a connection of the pool until it has been consumed or closed, so it must be closed by the caller.
+     * @param query The parameterized sql query to be executed.
+     * @return The stream of RentTransaction objects retrieved.
+     */
+    private Stream<RentTransaction> streamRentTransactionRetrievalQuery(SqlQuery query) throws SQLException {
+        return Cursor.open(connectionPool, query, fetchSize, RentTransactionData::readRentTransaction).stream();
+    }
+
+    /**
+     * Constructs a RentTransaction object with the data of the current row of the results.
+     * @param qResults The results of a query, positioned at the row to be read, with the columns id, price, dateFrom
+     *                 and dateTo.
+     * @return The rent transaction object created.
+     */
+    private static RentTransaction readRentTransaction(ResultSet qResults) throws SQLException {
+        String dateTo = qResults.getString(4);
+        return new RentTransaction(qResults.getInt(1), qResults.getFloat(2), OffsetDateTime.parse(qResults.getString(3)),
+                dateTo != null ? OffsetDateTime.parse(dateTo) : null);
+    }
+
     /**
      * Retrieves a number of rent transactions from the database.
      * @param rentTransaction The rent transaction template that will be used for selection of the actors loaded from the database.
@@ -66,62 +111,26 @@ public class RentTransactionData {
      * @throws SQLException If a database access error occurs.
      */
     public RentTransaction[] retrieveRentTransactions(RentTransaction rentTransaction) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select id, price, dateFrom, dateTo ")
-                .append("from RentTransaction ");
-
-        // Controls whether the final query will retrieve all rent transactions or will filter the results first.
-        boolean getAll = true;
-
-        // Check if it has been given an id filter.
-        if (rentTransaction.getId() != null){
-            getAll = false;
-            sqlQuery.append("where id = ").append(rentTransaction.getId());
-        }
-
-        // Check if it has been given a price filter.
-        if (rentTransaction.getPrice() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
-
-            sqlQuery.append(" price = \"").append( rentTransaction.getPrice() ).append("\"");
-        }
-
-        // Check if it has been given a dateFrom filter.
-        if (rentTransaction.getDateFrom() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
+        QueryBuilder sqlQuery = new QueryBuilder("select id, price, dateFrom, dateTo " +
+                "from RentTransaction");
 
-            sqlQuery.append(" dateFrom = \"").append( rentTransaction.getDateFrom() ).append("\"");
-        }
+        // Only the filters that have been given are added to the where condition.
+        sqlQuery.whereIfPresent("id = ?", rentTransaction.getId())
+                .whereIfPresent("price = ?", rentTransaction.getPrice())
+                .whereIfPresent("dateFrom = ?", rentTransaction.getDateFrom());
 
         // Check if it has been given a dateTo filter.
         if (rentTransaction.getDateTo() != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
-
             // OffsetDateTime.MAX signal value of null
             if (rentTransaction.getDateTo().equals(OffsetDateTime.MAX)){
-                sqlQuery.append(" dateTo is null");
+                sqlQuery.where("dateTo is null");
             } else {
-                sqlQuery.append(" dateTo = \"").append( rentTransaction.getDateTo() ).append("\"");
+                sqlQuery.where("dateTo = ?", rentTransaction.getDateTo());
             }
-
         }
+        sqlQuery.append(" order by id");
 
-        return executeRentTransactionRetrievalQuery(sqlQuery.toString());
+        return executeRentTransactionRetrievalQuery(sqlQuery.build());
     }
 
     /**
@@ -138,13 +147,45 @@ public class RentTransactionData {
             throw new IllegalArgumentException("The CustomerId must not be null.");
         }
 
-        String sqlQuery = String.format("select id, price, dateFrom, dateTo " +
+        SqlQuery sqlQuery = SqlQuery.of("select id, price, dateFrom, dateTo " +
                 "from RentTransaction " +
-                "where Customer_id = %d", customer.getId());
+                "where Customer_id = ? " +
+                "order by id", customer.getId());
 
         return executeRentTransactionRetrievalQuery(sqlQuery);
     }
 
+    /**
+     * Returns a page of the rent transactions of a customer, in the order of their ids.
+     * @param customer The customer that is referenced.
+     * @param returned Whether the transactions returned are the completed (true) or the active (false) ones.
+     *                 null returns both.
+     * @param afterId The id of the transaction after which the page starts. null starts from the first one.
+     * @param limit The maximum number of transactions returned.
+     * @return A list of RentTransaction entities.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If there is an error in the Customer object fields.
+     */
+    public RentTransaction[] retrieveRentTransactionsFromCustomerPage(Customer customer, Boolean returned, Integer afterId,
+                                                                      int limit) throws SQLException, IllegalArgumentException {
+        // A customer object is uniquely identified by its id. If it is null, then an IllegalArgumentException is thrown.
+        if (customer.getId() == null){
+            throw new IllegalArgumentException("The CustomerId must not be null.");
+        }
+
+        QueryBuilder sqlQuery = new QueryBuilder("select id, price, dateFrom, dateTo " +
+                "from RentTransaction");
+
+        sqlQuery.where("Customer_id = ?", customer.getId());
+        if (returned != null) {
+            sqlQuery.where(returned ? "dateTo is not null" : "dateTo is null");
+        }
+        sqlQuery.whereIfPresent("id > ?", afterId)
+                .append(" order by id limit ?", limit);
+
+        return executeRentTransactionRetrievalQuery(sqlQuery.build());
+    }
+
     /**
      * Returns a list of rent transactions that involve a movie copy.
      * @param movieCopy The movie copy that is referenced.
@@ -159,9 +200,10 @@ public class RentTransactionData {
             throw new IllegalArgumentException("The MovieCopyId must not be null.");
         }
 
-        String sqlQuery = String.format("select id, price, dateFrom, dateTo " +
+        SqlQuery sqlQuery = SqlQuery.of("select id, price, dateFrom, dateTo " +
                 "from RentTransaction " +
-                "where MovieCopy_id = %d ", movieCopy.getId());
+                "where MovieCopy_id = ? " +
+                "order by id", movieCopy.getId());
 
         return executeRentTransactionRetrievalQuery(sqlQuery);
     }
@@ -177,60 +219,63 @@ public class RentTransactionData {
      * @throws SQLException If a database access error occurs.
      */
     public RentTransaction[] retrieveRentTransactionsFiltered(Float priceFrom, Float priceTo, OffsetDateTime dateFrom, OffsetDateTime dateFromUpto) throws SQLException {
-        StringBuilder sqlQuery = new StringBuilder();
-        sqlQuery.append("select id, price, dateFrom, dateTo ")
-                .append("from RentTransaction ");
-
-        // Controls whether the final query will retrieve all rent transactions or will filter the results first.
-        boolean getAll = true;
-
-        // Check if it has been given a priceFrom filter.
-        if (priceFrom != null){
-            // If it has another filter to chain into where condition.
-            getAll = false;
-            sqlQuery.append("where ");
-
-            sqlQuery.append(" price >= ").append( priceFrom ).append(" ");
+        try (Stream<RentTransaction> rentTransactions = streamRentTransactionsFiltered(priceFrom, priceTo, dateFrom, dateFromUpto)) {
+            return rentTransactions.toArray(RentTransaction[]::new);
         }
+    }
 
-        // Check if it has been given a priceTo filter.
-        if (priceTo != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
-
-            sqlQuery.append(" price <= ").append( priceTo ).append(" ");
-        }
-
-        // Check if it has been given a dateFrom filter.
-        if (dateFrom != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
-
-            sqlQuery.append(" dateFrom >= \"").append( dateFrom ).append("\"");
-        }
-
-        // Check if it has been given a dateFromUpto filter.
-        if (dateFromUpto != null){
-            if (getAll) { // If it has another filter to chain into where condition.
-                getAll = false;
-                sqlQuery.append("where ");
-            } else {
-                sqlQuery.append(" and");
-            }
-
-            sqlQuery.append(" dateFrom <= \"").append(dateFromUpto).append("\"");
-
-        }
+    /**
+     * Streams the rent transactions of the database that match the given arguments, reading each row only when it
+     * is consumed, so that long histories are not held in memory twice.
+     * The stream holds a connection until it has been consumed, and must be closed by the caller.
+     * @param priceFrom price lower limit. null value means no lower limit.
+     * @param priceTo price upper limit. null value means no upper limit.
+     * @param dateFrom date lower limit. null value means no lower limit.
+     * @param dateFromUpto date upper limit. null value means no upper limit.
+     * @return A stream of the filtered data.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Stream<RentTransaction> streamRentTransactionsFiltered(Float priceFrom, Float priceTo, OffsetDateTime dateFrom, OffsetDateTime dateFromUpto) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select id, price, dateFrom, dateTo " +
+                "from RentTransaction");
+
+        // A null limit leaves that end of the range unbound.
+        sqlQuery.whereIfPresent("price >= ?", priceFrom)
+                .whereIfPresent("price <= ?", priceTo)
+                .whereIfPresent("dateFrom >= ?", dateFrom)
+                .whereIfPresent("dateFrom <= ?", dateFromUpto)
+                .append(" order by id");
+
+        return streamRentTransactionRetrievalQuery(sqlQuery.build());
+    }
 
-        return executeRentTransactionRetrievalQuery(sqlQuery.toString());
+    /**
+     * Returns a page of the rent transactions of the database that match the given arguments, in the order of their
+     * ids. The page is read by a range of the primary key that starts after the given id, so its cost does not grow
+     * with the number of pages before it.
+     * @param priceFrom price lower limit. null value means no lower limit.
+     * @param priceTo price upper limit. null value means no upper limit.
+     * @param dateFrom date lower limit. null value means no lower limit.
+     * @param dateFromUpto date upper limit. null value means no upper limit.
+     * @param afterId The id of the transaction after which the page starts. null starts from the first one.
+     * @param limit The maximum number of transactions returned.
+     * @return A list with the filtered data.
+     * @throws SQLException If a database access error occurs.
+     */
+    public RentTransaction[] retrieveRentTransactionsFilteredPage(Float priceFrom, Float priceTo, OffsetDateTime dateFrom,
+                                                                  OffsetDateTime dateFromUpto, Integer afterId, int limit) throws SQLException {
+        QueryBuilder sqlQuery = new QueryBuilder("select id, price, dateFrom, dateTo " +
+                "from RentTransaction");
+
+        // A null limit leaves that end of the range unbound.
+        sqlQuery.whereIfPresent("price >= ?", priceFrom)
+                .whereIfPresent("price <= ?", priceTo)
+                .whereIfPresent("dateFrom >= ?", dateFrom)
+                .whereIfPresent("dateFrom <= ?", dateFromUpto)
+                .whereIfPresent("id > ?", afterId)
+                .append(" order by id limit ?", limit);
+
+        return executeRentTransactionRetrievalQuery(sqlQuery.build());
     }
 
     /**
@@ -243,13 +288,15 @@ public class RentTransactionData {
     public RentTransaction insertRentTransaction(NewRentingInput newRentingInput) throws SQLException {
         StringBuilder columns = new StringBuilder();
         StringBuilder values = new StringBuilder();
+        List<Object> parameters = new ArrayList<>(); // The values of the placeholders, in the order of the columns.
 
         // Check if customerID was provided.
         if (newRentingInput.getCustomerID() == null){
             throw new IllegalArgumentException("Customer id required.");
         } else {
             columns.append("Customer_id, ");
-            values.append("'").append(newRentingInput.getCustomerID()).append("', ");
+            values.append("?, ");
+            parameters.add(newRentingInput.getCustomerID());
         }
 
         // Check if movieCopyID was provided.
@@ -257,13 +304,15 @@ public class RentTransactionData {
             throw new IllegalArgumentException("Movie copy id required.");
         } else {
             columns.append("MovieCopy_id, ");
-            values.append("'").append(newRentingInput.getMovieCopyID()).append("', ");
+            values.append("?, ");
+            parameters.add(newRentingInput.getMovieCopyID());
         }
 
         // Check if price was provided.
         if (newRentingInput.getPrice() != null){
             columns.append("price, ");
-            values.append("'").append(newRentingInput.getPrice()).append("', ");
+            values.append("?, ");
+            parameters.add(newRentingInput.getPrice());
         } else {
             throw new IllegalArgumentException("Price required.");
         }
@@ -273,34 +322,23 @@ public class RentTransactionData {
             throw new IllegalArgumentException("Date from required.");
         } else {
             columns.append("dateFrom, ");
-            values.append("'").append(newRentingInput.getDateFrom()).append("', ");
+            values.append("?, ");
+            parameters.add(newRentingInput.getDateFrom());
         }
 
 
         columns.replace(columns.length() - 2, columns.length(), "");
         values.replace(values.length() - 2, values.length(), "");
 
-        String query = String.format("insert into RentTransaction ( %s ) %n" +
-                "values ( %s )", columns.toString(), values.toString());
+        // The inserted row is returned by the insert itself, in the column order of the retrieval queries.
+        SqlQuery query = new SqlQuery(String.format("insert into RentTransaction ( %s ) " +
+                "values ( %s ) " +
+                "returning id, price, dateFrom, dateTo", columns.toString(), values.toString()), parameters);
 
-        Integer newRentId;
-
-        // Making sure there are no synchronization errors.
-        synchronized (queryEndpoint) {
-            queryEndpoint.execute(query);
-
-            // Query the database for all the valid ids. The one with the greatest value is the one just inserted.
-            String newIdQuery = "select id " +
-                                "from RentTransaction " +
-                                "order by id desc limit 1";
-
-            ResultSet qResults = queryEndpoint.executeQuery(newIdQuery);
-
-            newRentId = qResults.getInt(1);
-        }
-        // Searching and returning the new customer object by id.
         // Only one is expected to be returned.
-        return retrieveRentTransactions(new RentTransaction(newRentId, null, null, null))[0];
+        RentTransaction rentTransaction = executeRentTransactionRetrievalQuery(query, writeConnectionPool)[0];
+        entityCaches.invalidate("RentTransaction");
+        return rentTransaction;
     }
 
     /**
@@ -332,14 +370,14 @@ public class RentTransactionData {
             throw new IllegalArgumentException("Return date required.");
         }
 
-        // Making sure there are no synchronization errors.
-        synchronized (queryEndpoint) {
-            String query ="update RentTransaction " +
-                          "set dateTo = '" + returnInput.getDate().toString() + "'" +
-                          " where id = " + returnInput.getRentID();
+        SqlQuery query = SqlQuery.of("update RentTransaction " +
+                                     "set dateTo = ?" +
+                                     " where id = ?", returnInput.getDate(), returnInput.getRentID());
 
-            queryEndpoint.execute(query);
+        try (ConnectionPool.Lease lease = writeConnectionPool.acquire()) {
+            query.executeUpdate(lease);
         }
+        entityCaches.invalidate("RentTransaction");
 
         // Return the mutated object.
         return retrieveRentTransactions(specifiedTransaction)[0];
@@ -0,0 +1,101 @@
+package videoclub.datastore;
+
+import videoclub.datastore.DataPoints.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * The application's data, as the resolvers see it. <br>
+ *
+ * Each entity is handled by its own data point, which loads, processes and saves the data of that entity.
+ * The data store is created once at startup and shared by every request, see
+ * {@link videoclub.graphql.configuration.DataStoreConfiguration}.
+ * @author Ioannis Baraklilis
+ */
+public interface DataStore extends AutoCloseable {
+    /**
+     * @return The interface class that handles the Actor data.
+     */
+    ActorData aboutActors();
+
+    /**
+     * @return The interface class that handles the Category data.
+     */
+    CategoryData aboutCategories();
+
+    /**
+     * @return The interface class that handles the Customer data.
+     */
+    CustomerData aboutCustomers();
+
+    /**
+     * @return The interface class that handles the Director data.
+     */
+    DirectorData aboutDirectors();
+
+    /**
+     * @return The interface class that handles the Movie Copy data.
+     */
+    MovieCopyData aboutMovieCopies();
+
+    /**
+     * @return The interface class that handles the MovieTitle data.
+     */
+    MovieTitleData aboutMovieTitles();
+
+    /**
+     * @return The interface class that handles the Production Company data.
+     */
+    ProductionCompanyData aboutProductionCompanies();
+
+    /**
+     * @return The interface class that handles the Rent Transaction data.
+     */
+    RentTransactionData aboutRentTransactions();
+
+    /**
+     * Runs a call to the data points on the threads of the data store, that are bounded by the connections available.
+     * @param call The call to the data points.
+     * @param <T> The type of the result of the call.
+     * @return The result of the call, which fails with the exception thrown by the call or if the data store is
+     *         saturated. It is not completed on the threads of the data store, so what is chained to it does not
+     *         hold them.
+     */
+    <T> CompletableFuture<T> async(DatabaseExecutor.Call<T> call);
+
+    /**
+     * @return Whether the root queries should load the relationships selected below them in the same SQL query,
+     *         instead of leaving them to the field resolvers.
+     */
+    boolean compilesSelections();
+
+    /**
+     * @return A snapshot of the state of each connection pool, used to watch for saturation.
+     */
+    List<ConnectionPool.Statistics> connectionPoolStatistics();
+
+    /**
+     * @return A snapshot of the size and the hit, miss and eviction counters of each entity cache.
+     */
+    List<EntityCache.Statistics> entityCacheStatistics();
+
+    /**
+     * Adds a listener that is told the name of every table written through the data points, once the write has been
+     * committed, so that the caches kept outside the data store can drop what was read from it.
+     * @param listener The listener, which must not block.
+     */
+    void addWriteListener(Consumer<String> listener);
+
+    /**
+     * @return A snapshot of the threads and the queue that the calls to the data store run on.
+     */
+    DatabaseExecutor.Statistics executorStatistics();
+
+    /**
+     * Closes the connections to the database.
+     */
+    @Override
+    void close();
+}
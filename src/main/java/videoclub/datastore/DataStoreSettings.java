@@ -0,0 +1,317 @@
+package videoclub.datastore;
+
+import org.sqlite.SQLiteConfig;
+
+import java.time.Duration;
+
+/**
+ * The settings of the application's data store. <br>
+ *
+ * They are bound from the <code>videoclub.datastore</code> section of the application configuration.
+ * @author Ioannis Baraklilis
+ */
+public class DataStoreSettings {
+    private String file = "database/video_club.sqlite"; // Filepath of the SQLite database file.
+    private StorageMode storageMode = StorageMode.ROLLBACK_JOURNAL; // How the database file is written.
+    private boolean compiledSelections = false; // Whether nested selections are loaded with the root query.
+    private Catalog catalog = Catalog.DATABASE; // Where the lookups of the catalog are answered from.
+    private int fetchSize = 256; // The rows fetched at a time by the queries that stream their results.
+    private final Pool pool = new Pool(); // The settings of the connection pool.
+    private final Pragmas pragmas = new Pragmas(); // The PRAGMAs applied to the database and its connections.
+    private final SlowQueries slowQueries = new SlowQueries(); // The settings of the slow query log.
+    private final Cache cache = new Cache(); // The settings of the entity caches.
+    private final Memory memory = new Memory(); // The settings of the in-memory storage mode.
+    private final Executor executor = new Executor(); // The settings of the threads the calls to the data store run on.
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public void setStorageMode(StorageMode storageMode) {
+        this.storageMode = storageMode;
+    }
+
+    public boolean isCompiledSelections() {
+        return compiledSelections;
+    }
+
+    public void setCompiledSelections(boolean compiledSelections) {
+        this.compiledSelections = compiledSelections;
+    }
+
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    public void setCatalog(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public Pragmas getPragmas() {
+        return pragmas;
+    }
+
+    public SlowQueries getSlowQueries() {
+        return slowQueries;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Memory getMemory() {
+        return memory;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * The ways the database file can be written.
+     */
+    public enum StorageMode {
+        /**
+         * The rollback journal of SQLite. Readers and writers share a single pool of connections, and a write blocks
+         * every read of the database while it is being committed.
+         */
+        ROLLBACK_JOURNAL,
+        /**
+         * The write-ahead log of SQLite. Reads are served by a pool of read-only connections that never block the
+         * writer nor each other, while every write goes through one dedicated writer connection.
+         */
+        WAL,
+        /**
+         * The database file is copied into memory at startup and every connection is opened to the copy, so that no
+         * read touches the disk. The copy is written back to the file periodically and at shutdown, which means the
+         * writes since the last copy are lost if the application crashes. Readers and writers share a single pool of
+         * connections, and a write blocks every read of the database until it is committed.
+         */
+        MEMORY
+    }
+
+    /**
+     * The places the lookups of the catalog (movie titles, people, categories, production companies and movie copies)
+     * can be answered from.
+     */
+    public enum Catalog {
+        /**
+         * Every lookup is a query to the database.
+         */
+        DATABASE,
+        /**
+         * The catalog is loaded into memory at startup and the lookups are answered from there. The writes of the movie
+         * copies go to the database and then to memory, so the database must not be written by anyone else.
+         */
+        MEMORY
+    }
+
+    /**
+     * The settings of the connection pool used to access the database.
+     */
+    public static class Pool {
+        private int minSize = 2; // The number of connections kept open even when idle.
+        private int maxSize = 8; // The maximum number of connections that may be open at the same time.
+        private Duration acquireTimeout = Duration.ofSeconds(5); // How long a caller waits for a connection.
+        private int statementCacheSize = 64; // How many compiled statements each connection keeps.
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public void setMinSize(int minSize) {
+            this.minSize = minSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getAcquireTimeout() {
+            return acquireTimeout;
+        }
+
+        public void setAcquireTimeout(Duration acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+        }
+
+        public int getStatementCacheSize() {
+            return statementCacheSize;
+        }
+
+        public void setStatementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+        }
+    }
+
+    /**
+     * The PRAGMAs applied to the database. A missing value leaves the SQLite default in place.
+     */
+    public static class Pragmas {
+        private SQLiteConfig.SynchronousMode synchronous; // How often SQLite waits for the data to reach the disk.
+        private Integer cacheSize; // Pages of the page cache per connection, or KiB when negative.
+        private Long mmapSize; // Bytes of the database file accessed through memory-mapped I/O.
+        private Integer pageSize; // Bytes of a database page; the database is rebuilt at startup when it differs.
+
+        public SQLiteConfig.SynchronousMode getSynchronous() {
+            return synchronous;
+        }
+
+        public void setSynchronous(SQLiteConfig.SynchronousMode synchronous) {
+            this.synchronous = synchronous;
+        }
+
+        public Integer getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(Integer cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public Long getMmapSize() {
+            return mmapSize;
+        }
+
+        public void setMmapSize(Long mmapSize) {
+            this.mmapSize = mmapSize;
+        }
+
+        public Integer getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(Integer pageSize) {
+            this.pageSize = pageSize;
+        }
+    }
+
+    /**
+     * The settings of the log of the statements that take longer than a threshold.
+     */
+    public static class SlowQueries {
+        private boolean enabled = true; // Whether the statements are timed at all.
+        private Duration threshold = Duration.ofMillis(100); // The statements that take longer are logged.
+        private boolean explain = true; // Whether the query plan of a slow query is logged as well.
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(Duration threshold) {
+            this.threshold = threshold;
+        }
+
+        public boolean isExplain() {
+            return explain;
+        }
+
+        public void setExplain(boolean explain) {
+            this.explain = explain;
+        }
+    }
+
+    /**
+     * The settings of the caches of the entities and relationships looked up by id.
+     */
+    public static class Cache {
+        private boolean enabled = true; // Whether the lookups by id are cached at all.
+        private int maxSize = 10_000; // The maximum number of entries of every cache.
+        private Duration timeToLive = Duration.ofMinutes(10); // How long an entry is used after it has been cached.
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    /**
+     * The settings of the {@link StorageMode#MEMORY} storage mode.
+     */
+    public static class Memory {
+        private Duration persistInterval = Duration.ofMinutes(1); // How often the copy in memory is written to the file.
+
+        public Duration getPersistInterval() {
+            return persistInterval;
+        }
+
+        public void setPersistInterval(Duration persistInterval) {
+            this.persistInterval = persistInterval;
+        }
+    }
+
+    /**
+     * The settings of the threads that the calls of the resolvers to the data store run on.
+     */
+    public static class Executor {
+        private Integer threads; // The number of threads; by default one for every connection that can be borrowed.
+        private int queueCapacity = 1000; // The number of calls that may wait for a thread before they are rejected.
+
+        public Integer getThreads() {
+            return threads;
+        }
+
+        public void setThreads(Integer threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
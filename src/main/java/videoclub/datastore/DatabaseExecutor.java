@@ -0,0 +1,184 @@
+package videoclub.datastore;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The threads that the calls to the data store are run on, so that the threads serving the requests are not held
+ * while SQLite works and the independent fields of a request are loaded at the same time. <br>
+ *
+ * There are as many threads as connections that can be borrowed, since a call that runs without a connection to work
+ * on only waits for one. The calls that find every thread busy are queued, and the ones that find the queue full fail
+ * right away instead of piling up behind a saturated database. <br>
+ *
+ * Only the calls run on these threads: their results are completed on another executor, since whatever is chained
+ * to a result runs on the thread that completes it, i.e. the rest of the execution of the request and the writing of
+ * its response, which would otherwise hold the threads of the data store while a slow client reads it.
+ * @author Ioannis Baraklilis
+ */
+public class DatabaseExecutor implements AutoCloseable {
+    /**
+     * A call to the data store.
+     * @param <T> The type of the result of the call.
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        /**
+         * @return The result of the call.
+         * @throws SQLException If a database access error occurs.
+         */
+        T call() throws SQLException;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Executor completionExecutor; // The executor the results of the calls are completed on.
+    private final AtomicLong rejections = new AtomicLong(); // Number of calls that failed because the queue was full.
+
+    /**
+     * @param threads The number of threads the calls run on.
+     * @param queueCapacity The number of calls that may wait for a thread.
+     * @param completionExecutor The executor the results of the calls are completed on, and so the one that the
+     *                           computations chained to them run on, e.g. the threads that serve the requests.
+     */
+    public DatabaseExecutor(int threads, int queueCapacity, Executor completionExecutor) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The executor needs at least one thread and room for one waiting call.");
+        }
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new DaemonThreadFactory());
+        this.completionExecutor = completionExecutor;
+    }
+
+    /**
+     * Runs a call to the data store on one of the threads of the executor.
+     * @param call The call to the data store.
+     * @param <T> The type of the result of the call.
+     * @return The result of the call, completed on the completion executor. It fails with the exception thrown by the
+     *         call, or with a {@link RejectedExecutionException} if too many calls are waiting already.
+     */
+    public <T> CompletableFuture<T> submit(Call<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    T value = call.call();
+                    completeLater(() -> result.complete(value));
+                } catch (SQLException | RuntimeException e) {
+                    completeLater(() -> result.completeExceptionally(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.incrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException(
+                    "The data store is saturated: " + executor.getQueue().size() + " calls are waiting already.", e));
+        }
+        return result;
+    }
+
+    /**
+     * Hands the completion of a result to the completion executor, so that the thread of the data store is free for
+     * the next call as soon as the call returns.
+     * @param completion The completion of the result.
+     */
+    private void completeLater(Runnable completion) {
+        try {
+            completionExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // The completion executor is shutting down; the result is still completed, so that no caller waits forever.
+            completion.run();
+        }
+    }
+
+    /**
+     * @return A snapshot of the threads and the queue of the executor.
+     */
+    public Statistics statistics() {
+        return new Statistics(executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                executor.getQueue().remainingCapacity(), executor.getCompletedTaskCount(), rejections.get());
+    }
+
+    /**
+     * Stops accepting calls and waits a little for the ones in progress to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Names the threads of the executor, and lets the application exit while they are alive.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "datastore-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * A snapshot of the threads and the queue of the executor.
+     */
+    public static final class Statistics {
+        private final int threads;
+        private final int activeThreads;
+        private final int queuedCalls;
+        private final int remainingCapacity;
+        private final long completedCalls;
+        private final long rejectedCalls;
+
+        Statistics(int threads, int activeThreads, int queuedCalls, int remainingCapacity, long completedCalls,
+                   long rejectedCalls) {
+            this.threads = threads;
+            this.activeThreads = activeThreads;
+            this.queuedCalls = queuedCalls;
+            this.remainingCapacity = remainingCapacity;
+            this.completedCalls = completedCalls;
+            this.rejectedCalls = rejectedCalls;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        /** @return The number of threads running a call. */
+        public int getActiveThreads() {
+            return activeThreads;
+        }
+
+        /** @return The number of calls waiting for a thread. */
+        public int getQueuedCalls() {
+            return queuedCalls;
+        }
+
+        /** @return The number of calls that may still be queued before the calls are rejected. */
+        public int getRemainingCapacity() {
+            return remainingCapacity;
+        }
+
+        public long getCompletedCalls() {
+            return completedCalls;
+        }
+
+        /** @return The number of calls that failed because the queue was full. */
+        public long getRejectedCalls() {
+            return rejectedCalls;
+        }
+    }
+}
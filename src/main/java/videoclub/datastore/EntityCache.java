@@ -0,0 +1,278 @@
+package videoclub.datastore;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded cache of the values loaded by a retrieval method of the data points, by the id they were looked up with
+ * (an entity id, or the id of the entity at the other end of a relationship). <br>
+ *
+ * The least recently used entry is evicted when the cache is full, and an entry expires once it has been cached for
+ * longer than the time to live. The cache is emptied whenever one of the tables its values are read from is written,
+ * see {@link EntityCaches#invalidate(String)}; a value whose loading overlapped such a write is not cached, so that a
+ * write is never undone by a load that started before it. <br>
+ *
+ * The cached values are shared by every request, so they must not be changed by their readers.
+ * @param <K> The type of the ids the values are looked up with.
+ * @param <V> The type of the values.
+ * @author Ioannis Baraklilis
+ */
+public final class EntityCache<K, V> {
+    /**
+     * Loads the values of a batch of ids from the database.
+     * @param <K> The type of the ids the values are looked up with.
+     * @param <V> The type of the values.
+     */
+    @FunctionalInterface
+    public interface BatchLoader<K, V> {
+        /**
+         * @param ids The ids whose values are not cached.
+         * @return The values found, by id.
+         * @throws SQLException If a database access error occurs.
+         */
+        Map<K, V> load(Collection<K> ids) throws SQLException;
+    }
+
+    /**
+     * Loads the value of a single id from the database.
+     * @param <V> The type of the value.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        /**
+         * @return The value found, or null if there is none.
+         * @throws SQLException If a database access error occurs.
+         */
+        V load() throws SQLException;
+    }
+
+    private final String name; // The name of the cache, used in the statistics.
+    private final Set<String> tables; // The tables the values are read from.
+    private final int maxSize; // The maximum number of entries; 0 disables the cache.
+    private final long timeToLiveNanos; // How long an entry is used after it has been cached.
+
+    // The entries in the order they were last used, the least recently used first.
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation; // Advanced by every invalidation, so that the loads that overlapped it can be told apart.
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    EntityCache(String name, Set<String> tables, int maxSize, Duration timeToLive) {
+        this.name = name;
+        this.tables = Set.copyOf(tables);
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * Looks up the values of the given ids, loading the ones that are not cached with a single batch.
+     * @param ids The ids whose values are requested.
+     * @param loader Loads the values of the ids that are not cached.
+     * @return The values found, by id.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Map<K, V> getAll(Collection<K> ids, BatchLoader<K, V> loader) throws SQLException {
+        if (maxSize == 0) {
+            return loader.load(ids);
+        }
+
+        Map<K, V> values = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            long now = System.nanoTime();
+            for (K id : ids) {
+                V value = lookup(id, now);
+                if (value == null) {
+                    missing.add(id);
+                } else {
+                    values.put(id, value);
+                }
+            }
+            loadGeneration = generation;
+        }
+
+        if (!missing.isEmpty()) {
+            // The database is queried outside the lock, so that the other lookups are not held up by it.
+            Map<K, V> loaded = loader.load(missing);
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    long now = System.nanoTime();
+                    loaded.forEach((id, value) -> store(id, value, now));
+                }
+            }
+            values.putAll(loaded);
+        }
+        return values;
+    }
+
+    /**
+     * Looks up the value of the given id, loading it if it is not cached.
+     * @param id The id whose value is requested.
+     * @param loader Loads the value if it is not cached.
+     * @return The value found, or null if there is none.
+     * @throws SQLException If a database access error occurs.
+     */
+    public V get(K id, Loader<V> loader) throws SQLException {
+        if (maxSize == 0) {
+            return loader.load();
+        }
+
+        long loadGeneration;
+        synchronized (this) {
+            V value = lookup(id, System.nanoTime());
+            if (value != null) {
+                return value;
+            }
+            loadGeneration = generation;
+        }
+
+        V loaded = loader.load();
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    store(id, loaded, System.nanoTime());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @param table The name of a table.
+     * @return Whether the values of the cache are read from the table.
+     */
+    public boolean dependsOn(String table) {
+        return tables.contains(table);
+    }
+
+    /**
+     * Empties the cache, and keeps the loads that are in progress from caching their values.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations++;
+        entries.clear();
+    }
+
+    /**
+     * @return A snapshot of the size and the counters of the cache.
+     */
+    public synchronized Statistics statistics() {
+        return new Statistics(name, entries.size(), maxSize, hits, misses, evictions, expirations, invalidations);
+    }
+
+    private V lookup(K id, long now) {
+        Entry<V> entry = entries.get(id);
+        if (entry != null && now - entry.expiresAt >= 0) {
+            entries.remove(id);
+            expirations++;
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    private void store(K id, V value, long now) {
+        entries.put(id, new Entry<>(value, now + timeToLiveNanos));
+        Iterator<Entry<V>> leastRecentlyUsed = entries.values().iterator();
+        while (entries.size() > maxSize) {
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * A cached value and the time it expires at.
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt; // In the time base of System.nanoTime().
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A snapshot of the size and the counters of a cache.
+     */
+    public static final class Statistics {
+        private final String name;
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+
+        Statistics(String name, int size, int maxSize, long hits, long misses, long evictions, long expirations,
+                   long invalidations) {
+            this.name = name;
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** @return The number of values cached. */
+        public int getSize() {
+            return size;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /** @return The number of ids whose value was found in the cache. */
+        public long getHits() {
+            return hits;
+        }
+
+        /** @return The number of ids whose value had to be loaded from the database. */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** @return The number of values evicted to make room for others. */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /** @return The number of values dropped because they outlived the time to live. */
+        public long getExpirations() {
+            return expirations;
+        }
+
+        /** @return The number of times the cache was emptied because one of its tables was written. */
+        public long getInvalidations() {
+            return invalidations;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package videoclub.datastore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The {@link EntityCache}s of the data points, and the tables each one is read from. <br>
+ *
+ * The data points write the database only through their insert and update methods, which report the tables they wrote
+ * with {@link #invalidate(String)}, so that exactly the caches that read those tables are emptied. The caches kept
+ * outside the data store are told about the writes by the listeners added with {@link #addWriteListener(Consumer)}.
+ * @author Ioannis Baraklilis
+ */
+public class EntityCaches {
+    private final int maxSize; // The maximum number of entries of every cache; 0 disables caching.
+    private final Duration timeToLive; // How long an entry is used after it has been cached.
+    private final List<EntityCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> writeListeners = new CopyOnWriteArrayList<>(); // Told the tables written.
+
+    /**
+     * @param maxSize The maximum number of entries of every cache; 0 disables caching.
+     * @param timeToLive How long an entry is used after it has been cached.
+     */
+    public EntityCaches(int maxSize, Duration timeToLive) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The size of a cache must not be negative.");
+        }
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * @return Caches that keep nothing, so that every lookup is loaded from the database.
+     */
+    public static EntityCaches disabled() {
+        return new EntityCaches(0, Duration.ZERO);
+    }
+
+    /**
+     * Creates a cache and registers it for the invalidations of its tables.
+     * @param name The name of the cache, used in the statistics.
+     * @param tables The tables the values of the cache are read from.
+     * @param <K> The type of the ids the values are looked up with.
+     * @param <V> The type of the values.
+     * @return The cache created.
+     */
+    public <K, V> EntityCache<K, V> create(String name, String... tables) {
+        EntityCache<K, V> cache = new EntityCache<>(name, Set.of(tables), maxSize, timeToLive);
+        caches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Empties the caches that read the given table. It is called after every committed write of the table.
+     * @param table The name of the table written.
+     */
+    public void invalidate(String table) {
+        for (EntityCache<?, ?> cache : caches) {
+            if (cache.dependsOn(table)) {
+                cache.invalidateAll();
+            }
+        }
+        writeListeners.forEach(listener -> listener.accept(table));
+    }
+
+    /**
+     * Adds a listener that is told the name of every table written, after the caches have been emptied.
+     * @param listener The listener, which must not block.
+     */
+    public void addWriteListener(Consumer<String> listener) {
+        writeListeners.add(listener);
+    }
+
+    /**
+     * @return A snapshot of the size and the counters of each cache.
+     */
+    public List<EntityCache.Statistics> statistics() {
+        List<EntityCache.Statistics> statistics = new ArrayList<>();
+        caches.forEach(cache -> statistics.add(cache.statistics()));
+        return statistics;
+    }
+}
@@ -0,0 +1,723 @@
+package videoclub.datastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import videoclub.graphql.server.domain.videoclub.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A copy of the catalog of the video club held in memory: the movie titles, the people, the categories, the
+ * production companies, the movie copies and the relationships between them. <br>
+ *
+ * The rows are kept in arrays indexed by their id, and every relationship in both directions as arrays of the ids
+ * at its other end, in the order of the rows of its table. The ids of these tables are assigned by SQLite in sequence,
+ * so the arrays are dense. Apart from the movie copies, the catalog is not changed by the application and is
+ * only read once at startup; the copies are written to the database first and then to the catalog, see
+ * {@link #addMovieCopy} and {@link #deleteMovieCopy}. No other process may change the catalog tables while it is in use.
+ * <br>
+ *
+ * The lookups select the same rows as the queries of the data points they replace, and create new objects for every
+ * call, so that the callers may change them.
+ * @author Ioannis Baraklilis
+ */
+public final class InMemoryCatalog {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryCatalog.class);
+    private static final int[] NONE = new int[0];
+
+    // The columns of the movie titles, by id. A missing title is null; a missing rating is NaN.
+    private final String[] titles;
+    private final String[] descriptions;
+    private final LocalDate[] releaseDates;
+    private final double[] ratings;
+
+    private final String[] personNames; // The names of the people, by id.
+    private final String[] categoryNames; // The names of the categories, by id.
+    private final String[] productionCompanyNames; // The names of the production companies, by id.
+
+    // The people of each role, each once and in the order of their first participation.
+    private final int[] directors;
+    private final int[] actors;
+
+    // The relationships, by the id of the entity at either end.
+    private final int[][] directorsOfMovieTitle;
+    private final int[][] actorsOfMovieTitle;
+    private final int[][] categoriesOfMovieTitle;
+    private final int[][] productionCompaniesOfMovieTitle;
+    private final int[][] movieTitlesOfDirector;
+    private final int[][] movieTitlesOfActor;
+    private final int[][] movieTitlesOfCategory;
+    private final int[][] movieTitlesOfProductionCompany;
+
+    private volatile MovieCopies movieCopies; // Replaced as a whole on every write, so that readers need no lock.
+
+    private InMemoryCatalog(Builder builder) {
+        titles = builder.titles;
+        descriptions = builder.descriptions;
+        releaseDates = builder.releaseDates;
+        ratings = builder.ratings;
+        personNames = builder.personNames;
+        categoryNames = builder.categoryNames;
+        productionCompanyNames = builder.productionCompanyNames;
+        directors = builder.directors;
+        actors = builder.actors;
+        directorsOfMovieTitle = builder.directorsOfMovieTitle;
+        actorsOfMovieTitle = builder.actorsOfMovieTitle;
+        categoriesOfMovieTitle = builder.categoriesOfMovieTitle;
+        productionCompaniesOfMovieTitle = builder.productionCompaniesOfMovieTitle;
+        movieTitlesOfDirector = builder.movieTitlesOfDirector;
+        movieTitlesOfActor = builder.movieTitlesOfActor;
+        movieTitlesOfCategory = builder.movieTitlesOfCategory;
+        movieTitlesOfProductionCompany = builder.movieTitlesOfProductionCompany;
+        movieCopies = builder.movieCopies;
+    }
+
+    /**
+     * Reads the catalog tables of the database into memory.
+     * @param pool The pool that the connection is borrowed from.
+     * @param mediums The rows of the Medium table, that the copies reference by id.
+     * @param movieFormats The rows of the MovieFormat table, that the copies reference by id.
+     * @return The catalog.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static InMemoryCatalog load(ConnectionPool pool, ReferenceDictionary<MovieCopy.Medium> mediums,
+                                       ReferenceDictionary<MovieCopy.MovieFormat> movieFormats) throws SQLException {
+        Builder builder = new Builder();
+        // A single connection reads every table, so that the catalog is a consistent snapshot of the database.
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            lease.connection().setAutoCommit(false);
+            try {
+                builder.readMovieTitles(lease);
+                builder.personNames = readNames(lease, "Person");
+                builder.categoryNames = readNames(lease, "Category");
+                builder.productionCompanyNames = readNames(lease, "ProductionCompany");
+                builder.readParticipations(lease);
+                builder.readCategories(lease);
+                builder.readProductionCompanies(lease);
+                builder.readMovieCopies(lease, mediums, movieFormats);
+            } finally {
+                lease.connection().rollback();
+                lease.connection().setAutoCommit(true);
+            }
+        }
+
+        InMemoryCatalog catalog = new InMemoryCatalog(builder);
+        log.info("Loaded the catalog into memory: {} movie titles, {} people, {} categories, {} production companies, {} movie copies",
+                count(builder.titles), count(builder.personNames), count(builder.categoryNames),
+                count(builder.productionCompanyNames), count(builder.movieCopies.movieTitleIds));
+        return catalog;
+    }
+
+    /**
+     * @param id The id of a movie title.
+     * @return The movie title, or null if there is none.
+     */
+    public MovieTitle movieTitle(int id) {
+        return isMovieTitle(id) ? newMovieTitle(id) : null;
+    }
+
+    /**
+     * Selects the movie titles whose fields are equal to the ones given, in the order of their ids.
+     * A null argument matches any value.
+     * @return The movie titles selected.
+     */
+    public MovieTitle[] movieTitles(Integer id, String title, String description, LocalDate releaseDate, Float rating) {
+        List<MovieTitle> selected = new ArrayList<>();
+        for (int i = 0; i < titles.length; i++) {
+            if (isMovieTitle(i) && (id == null || id == i) && (title == null || title.equals(titles[i]))
+                    && (description == null || description.equals(descriptions[i]))
+                    && (releaseDate == null || releaseDate.equals(releaseDates[i]))
+                    && (rating == null || ratings[i] == asStored(rating))) {
+                selected.add(newMovieTitle(i));
+            }
+        }
+        return selected.toArray(new MovieTitle[0]);
+    }
+
+    /**
+     * Selects the movie titles with the id, title and release date given and a rating inside the given limits, in
+     * the order of their ids. A null argument matches any value, or leaves that end of the range unbound.
+     * @return The movie titles selected.
+     */
+    public MovieTitle[] movieTitlesInRatingRange(Integer id, String title, LocalDate releaseDate, Float ratingFrom,
+                                                 Float ratingTo) {
+        return movieTitlesInRatingRange(id, title, releaseDate, ratingFrom, ratingTo, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Selects a page of the movie titles selected by {@link #movieTitlesInRatingRange(Integer, String, LocalDate, Float, Float)}.
+     * @param afterId The id after which the page starts. null starts from the first one.
+     * @param limit The maximum number of movie titles selected.
+     * @return The movie titles selected.
+     */
+    public MovieTitle[] movieTitlesInRatingRange(Integer id, String title, LocalDate releaseDate, Float ratingFrom,
+                                                 Float ratingTo, Integer afterId, int limit) {
+        List<MovieTitle> selected = new ArrayList<>();
+        for (int i = firstAfter(afterId); i < titles.length && selected.size() < limit; i++) {
+            // A missing rating is NaN, which is outside every range, as null is in SQL.
+            if (isMovieTitle(i) && (id == null || id == i) && (title == null || title.equals(titles[i]))
+                    && (releaseDate == null || releaseDate.equals(releaseDates[i]))
+                    && (ratingFrom == null || ratings[i] >= asStored(ratingFrom))
+                    && (ratingTo == null || ratings[i] <= asStored(ratingTo))) {
+                selected.add(newMovieTitle(i));
+            }
+        }
+        return selected.toArray(new MovieTitle[0]);
+    }
+
+    public MovieTitle[] movieTitlesOfDirector(int personId) {
+        return newMovieTitles(at(movieTitlesOfDirector, personId));
+    }
+
+    public MovieTitle[] movieTitlesOfActor(int personId) {
+        return newMovieTitles(at(movieTitlesOfActor, personId));
+    }
+
+    public MovieTitle[] movieTitlesOfCategory(int categoryId) {
+        return newMovieTitles(at(movieTitlesOfCategory, categoryId));
+    }
+
+    public MovieTitle[] movieTitlesOfProductionCompany(int productionCompanyId) {
+        return newMovieTitles(at(movieTitlesOfProductionCompany, productionCompanyId));
+    }
+
+    /**
+     * @param movieCopyId The id of a movie copy, deleted or not.
+     * @return The movie title of the copy, or null if there is no such copy.
+     */
+    public MovieTitle movieTitleOfMovieCopy(int movieCopyId) {
+        MovieCopies copies = movieCopies;
+        return copies.exists(movieCopyId) ? movieTitle(copies.movieTitleIds[movieCopyId]) : null;
+    }
+
+    /**
+     * Selects the people that have directed a movie, in the order of their first participation.
+     * A null argument matches any value.
+     * @return The directors selected.
+     */
+    public Director[] directors(Integer id, String name) {
+        List<Director> selected = new ArrayList<>();
+        for (int personId : directors) {
+            if ((id == null || id == personId) && (name == null || name.equals(personNames[personId]))) {
+                selected.add(new Director(personId, personNames[personId]));
+            }
+        }
+        return selected.toArray(new Director[0]);
+    }
+
+    /**
+     * Selects the people that have starred in a movie, in the order of their first participation.
+     * A null argument matches any value.
+     * @return The actors selected.
+     */
+    public Actor[] actors(Integer id, String name) {
+        List<Actor> selected = new ArrayList<>();
+        for (int personId : actors) {
+            if ((id == null || id == personId) && (name == null || name.equals(personNames[personId]))) {
+                selected.add(new Actor(personId, personNames[personId]));
+            }
+        }
+        return selected.toArray(new Actor[0]);
+    }
+
+    /**
+     * Selects the categories with the id and name given, in the order of their ids. A null argument matches any value.
+     * @return The categories selected.
+     */
+    public Category[] categories(Integer id, String name) {
+        List<Category> selected = new ArrayList<>();
+        for (int i = 0; i < categoryNames.length; i++) {
+            if (categoryNames[i] != null && (id == null || id == i) && (name == null || name.equals(categoryNames[i]))) {
+                selected.add(new Category(i, categoryNames[i]));
+            }
+        }
+        return selected.toArray(new Category[0]);
+    }
+
+    /**
+     * Selects the production companies with the id and name given, in the order of their ids.
+     * A null argument matches any value.
+     * @return The production companies selected.
+     */
+    public ProductionCompany[] productionCompanies(Integer id, String name) {
+        List<ProductionCompany> selected = new ArrayList<>();
+        for (int i = 0; i < productionCompanyNames.length; i++) {
+            if (productionCompanyNames[i] != null && (id == null || id == i)
+                    && (name == null || name.equals(productionCompanyNames[i]))) {
+                selected.add(new ProductionCompany(i, productionCompanyNames[i]));
+            }
+        }
+        return selected.toArray(new ProductionCompany[0]);
+    }
+
+    public Director[] directorsOfMovieTitle(int movieTitleId) {
+        int[] ids = at(directorsOfMovieTitle, movieTitleId);
+        Director[] related = new Director[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            related[i] = new Director(ids[i], personNames[ids[i]]);
+        }
+        return related;
+    }
+
+    public Actor[] actorsOfMovieTitle(int movieTitleId) {
+        int[] ids = at(actorsOfMovieTitle, movieTitleId);
+        Actor[] related = new Actor[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            related[i] = new Actor(ids[i], personNames[ids[i]]);
+        }
+        return related;
+    }
+
+    public Category[] categoriesOfMovieTitle(int movieTitleId) {
+        int[] ids = at(categoriesOfMovieTitle, movieTitleId);
+        Category[] related = new Category[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            related[i] = new Category(ids[i], categoryNames[ids[i]]);
+        }
+        return related;
+    }
+
+    public ProductionCompany[] productionCompaniesOfMovieTitle(int movieTitleId) {
+        int[] ids = at(productionCompaniesOfMovieTitle, movieTitleId);
+        ProductionCompany[] related = new ProductionCompany[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            related[i] = new ProductionCompany(ids[i], productionCompanyNames[ids[i]]);
+        }
+        return related;
+    }
+
+    /**
+     * Selects the movie copies, not flagged as deleted, whose fields are equal to the ones given, in the order of
+     * their ids. A null argument matches any value.
+     * @return The movie copies selected.
+     */
+    public MovieCopy[] movieCopies(Integer id, MovieCopy.Medium medium, MovieCopy.MovieFormat movieFormat, Float rentPrice) {
+        MovieCopies copies = movieCopies;
+        List<MovieCopy> selected = new ArrayList<>();
+        for (int i = 0; i < copies.movieTitleIds.length; i++) {
+            if (copies.isLive(i) && (id == null || id == i) && (medium == null || medium == copies.mediums[i])
+                    && (movieFormat == null || movieFormat == copies.movieFormats[i])
+                    && (rentPrice == null || copies.rentPrices[i] == asStored(rentPrice))) {
+                selected.add(copies.newMovieCopy(i));
+            }
+        }
+        return selected.toArray(new MovieCopy[0]);
+    }
+
+    /**
+     * Selects the movie copies, not flagged as deleted, with a rent price inside the given limits, in the order of
+     * their ids. A null limit leaves that end of the range unbound.
+     * @return The movie copies selected.
+     */
+    public MovieCopy[] movieCopiesInPriceRange(Float priceFrom, Float priceTo) {
+        return movieCopiesInPriceRange(priceFrom, priceTo, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Selects a page of the movie copies selected by {@link #movieCopiesInPriceRange(Float, Float)}.
+     * @param afterId The id after which the page starts. null starts from the first one.
+     * @param limit The maximum number of movie copies selected.
+     * @return The movie copies selected.
+     */
+    public MovieCopy[] movieCopiesInPriceRange(Float priceFrom, Float priceTo, Integer afterId, int limit) {
+        MovieCopies copies = movieCopies;
+        List<MovieCopy> selected = new ArrayList<>();
+        for (int i = firstAfter(afterId); i < copies.movieTitleIds.length && selected.size() < limit; i++) {
+            if (copies.isLive(i) && (priceFrom == null || copies.rentPrices[i] >= asStored(priceFrom))
+                    && (priceTo == null || copies.rentPrices[i] <= asStored(priceTo))) {
+                selected.add(copies.newMovieCopy(i));
+            }
+        }
+        return selected.toArray(new MovieCopy[0]);
+    }
+
+    /**
+     * @param movieTitleId The id of a movie title.
+     * @return The copies of the movie title not flagged as deleted, in the order of their ids.
+     */
+    public MovieCopy[] movieCopiesOfMovieTitle(int movieTitleId) {
+        MovieCopies copies = movieCopies;
+        List<MovieCopy> selected = new ArrayList<>();
+        for (int movieCopyId : at(copies.ofMovieTitle, movieTitleId)) {
+            if (copies.isLive(movieCopyId)) {
+                selected.add(copies.newMovieCopy(movieCopyId));
+            }
+        }
+        return selected.toArray(new MovieCopy[0]);
+    }
+
+    /**
+     * Adds a movie copy that has been inserted into the database.
+     * @param id The id of the new copy.
+     * @param movieTitleId The movie title of the copy.
+     * @param medium The medium of the copy.
+     * @param movieFormat The format of the copy.
+     * @param rentPrice The rent price of the copy, as it was given to the database.
+     */
+    public synchronized void addMovieCopy(int id, int movieTitleId, MovieCopy.Medium medium,
+                                          MovieCopy.MovieFormat movieFormat, Float rentPrice) {
+        movieCopies = movieCopies.with(id, movieTitleId, medium, movieFormat, asStored(rentPrice));
+    }
+
+    /**
+     * Flags a movie copy as deleted, after it has been flagged in the database.
+     * @param id The id of the copy.
+     */
+    public synchronized void deleteMovieCopy(int id) {
+        if (movieCopies.exists(id)) {
+            movieCopies = movieCopies.withDeleted(id);
+        }
+    }
+
+    /**
+     * @param afterId The id after which a page starts, or null for the first page.
+     * @return The first id that the page may contain.
+     */
+    private static int firstAfter(Integer afterId) {
+        if (afterId == null || afterId < 0) {
+            return 0;
+        }
+        return afterId == Integer.MAX_VALUE ? afterId : afterId + 1;
+    }
+
+    private boolean isMovieTitle(int id) {
+        return id >= 0 && id < titles.length && titles[id] != null;
+    }
+
+    private MovieTitle newMovieTitle(int id) {
+        return new MovieTitle(id, titles[id], descriptions[id], releaseDates[id],
+                Double.isNaN(ratings[id]) ? null : (float) ratings[id]);
+    }
+
+    private MovieTitle[] newMovieTitles(int[] ids) {
+        MovieTitle[] movieTitles = new MovieTitle[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            movieTitles[i] = newMovieTitle(ids[i]);
+        }
+        return movieTitles;
+    }
+
+    /**
+     * @return The ids related to the given id, or none if it is out of range.
+     */
+    private static int[] at(int[][] relationship, int id) {
+        return id >= 0 && id < relationship.length ? relationship[id] : NONE;
+    }
+
+    /**
+     * @return The value a float is compared as by the queries, that bind it through its decimal representation.
+     */
+    private static double asStored(Float value) {
+        return Double.parseDouble(value.toString());
+    }
+
+    private static boolean exists(Object[] rows, int id) {
+        return id >= 0 && id < rows.length && rows[id] != null;
+    }
+
+    private static int count(Object[] rows) {
+        return (int) Arrays.stream(rows).filter(row -> row != null).count();
+    }
+
+    private static int count(int[] movieTitleIds) {
+        return (int) Arrays.stream(movieTitleIds).filter(movieTitleId -> movieTitleId >= 0).count();
+    }
+
+    /**
+     * @return The size of an array indexed by the ids of the table.
+     */
+    private static int idRange(ConnectionPool.Lease lease, String table) throws SQLException {
+        try (ResultSet qResults = SqlQuery.of("select coalesce(max(id), -1) + 1 from " + table).executeQuery(lease)) {
+            return qResults.getInt(1);
+        }
+    }
+
+    private static String[] readNames(ConnectionPool.Lease lease, String table) throws SQLException {
+        String[] names = new String[idRange(lease, table)];
+        try (ResultSet qResults = SqlQuery.of("select id, name from " + table).executeQuery(lease)) {
+            while (qResults.next()) {
+                names[qResults.getInt(1)] = qResults.getString(2);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * The movie copies, by id. An instance is never changed once it is published; a write creates a new one.
+     */
+    private static final class MovieCopies {
+        private final int[] movieTitleIds; // -1 where there is no copy.
+        private final MovieCopy.Medium[] mediums;
+        private final MovieCopy.MovieFormat[] movieFormats;
+        private final double[] rentPrices;
+        private final boolean[] deleted;
+        private final int[][] ofMovieTitle; // The ids of the copies of each movie title, deleted or not.
+
+        private MovieCopies(int[] movieTitleIds, MovieCopy.Medium[] mediums, MovieCopy.MovieFormat[] movieFormats,
+                            double[] rentPrices, boolean[] deleted, int[][] ofMovieTitle) {
+            this.movieTitleIds = movieTitleIds;
+            this.mediums = mediums;
+            this.movieFormats = movieFormats;
+            this.rentPrices = rentPrices;
+            this.deleted = deleted;
+            this.ofMovieTitle = ofMovieTitle;
+        }
+
+        private boolean exists(int id) {
+            return id >= 0 && id < movieTitleIds.length && movieTitleIds[id] >= 0;
+        }
+
+        private boolean isLive(int id) {
+            return exists(id) && !deleted[id];
+        }
+
+        private MovieCopy newMovieCopy(int id) {
+            return new MovieCopy(id, mediums[id], movieFormats[id], (float) rentPrices[id]);
+        }
+
+        private MovieCopies with(int id, int movieTitleId, MovieCopy.Medium medium, MovieCopy.MovieFormat movieFormat,
+                                 double rentPrice) {
+            int size = Math.max(movieTitleIds.length, id + 1);
+            int[] newMovieTitleIds = Arrays.copyOf(movieTitleIds, size);
+            Arrays.fill(newMovieTitleIds, movieTitleIds.length, size, -1);
+            MovieCopy.Medium[] newMediums = Arrays.copyOf(mediums, size);
+            MovieCopy.MovieFormat[] newMovieFormats = Arrays.copyOf(movieFormats, size);
+            double[] newRentPrices = Arrays.copyOf(rentPrices, size);
+            boolean[] newDeleted = Arrays.copyOf(deleted, size);
+
+            newMovieTitleIds[id] = movieTitleId;
+            newMediums[id] = medium;
+            newMovieFormats[id] = movieFormat;
+            newRentPrices[id] = rentPrice;
+            newDeleted[id] = false;
+
+            // Only the copies of the movie title change, the rest of the relationship is shared with this instance.
+            int[][] newOfMovieTitle = Arrays.copyOf(ofMovieTitle, Math.max(ofMovieTitle.length, movieTitleId + 1));
+            for (int i = ofMovieTitle.length; i < newOfMovieTitle.length; i++) {
+                newOfMovieTitle[i] = NONE;
+            }
+            int[] copies = Arrays.copyOf(newOfMovieTitle[movieTitleId], newOfMovieTitle[movieTitleId].length + 1);
+            copies[copies.length - 1] = id;
+            Arrays.sort(copies); // The ids are committed in order, but may be added out of it.
+            newOfMovieTitle[movieTitleId] = copies;
+
+            return new MovieCopies(newMovieTitleIds, newMediums, newMovieFormats, newRentPrices, newDeleted, newOfMovieTitle);
+        }
+
+        private MovieCopies withDeleted(int id) {
+            boolean[] newDeleted = deleted.clone();
+            newDeleted[id] = true;
+            return new MovieCopies(movieTitleIds, mediums, movieFormats, rentPrices, newDeleted, ofMovieTitle);
+        }
+    }
+
+    /**
+     * Collects the rows of the catalog tables while they are read.
+     */
+    private static final class Builder {
+        private String[] titles;
+        private String[] descriptions;
+        private LocalDate[] releaseDates;
+        private double[] ratings;
+        private String[] personNames;
+        private String[] categoryNames;
+        private String[] productionCompanyNames;
+        private int[] directors;
+        private int[] actors;
+        private int[][] directorsOfMovieTitle;
+        private int[][] actorsOfMovieTitle;
+        private int[][] categoriesOfMovieTitle;
+        private int[][] productionCompaniesOfMovieTitle;
+        private int[][] movieTitlesOfDirector;
+        private int[][] movieTitlesOfActor;
+        private int[][] movieTitlesOfCategory;
+        private int[][] movieTitlesOfProductionCompany;
+        private MovieCopies movieCopies;
+
+        private void readMovieTitles(ConnectionPool.Lease lease) throws SQLException {
+            int range = idRange(lease, "MovieTitle");
+            titles = new String[range];
+            descriptions = new String[range];
+            releaseDates = new LocalDate[range];
+            ratings = new double[range];
+            try (ResultSet qResults = SqlQuery.of("select id, title, description, releaseDate, rating from MovieTitle")
+                    .executeQuery(lease)) {
+                while (qResults.next()) {
+                    int id = qResults.getInt(1);
+                    String releaseDate = qResults.getString(4);
+                    double rating = qResults.getDouble(5);
+                    titles[id] = qResults.getString(2);
+                    descriptions[id] = qResults.getString(3);
+                    releaseDates[id] = releaseDate == null ? null : LocalDate.parse(releaseDate);
+                    ratings[id] = qResults.wasNull() ? Double.NaN : rating;
+                }
+            }
+        }
+
+        private void readParticipations(ConnectionPool.Lease lease) throws SQLException {
+            Edges directed = new Edges();
+            Edges starred = new Edges();
+            try (ResultSet qResults = SqlQuery.of("select MovieTitle_id, Person_id, participationRole " +
+                    "from MovieTitleParticipants order by rowid").executeQuery(lease)) {
+                while (qResults.next()) {
+                    int movieTitleId = qResults.getInt(1);
+                    int personId = qResults.getInt(2);
+                    String role = qResults.getString(3);
+                    // The rows that reference a missing entity are left out, as the joins of the queries do.
+                    if (!exists(titles, movieTitleId) || !exists(personNames, personId)) {
+                        continue;
+                    }
+                    if ("Director".equals(role)) {
+                        directed.add(movieTitleId, personId);
+                    } else if ("Actor".equals(role)) {
+                        starred.add(movieTitleId, personId);
+                    }
+                }
+            }
+            directorsOfMovieTitle = sortEach(directed.fromFirst(titles.length));
+            movieTitlesOfDirector = directed.fromSecond(personNames.length);
+            actorsOfMovieTitle = sortEach(starred.fromFirst(titles.length));
+            movieTitlesOfActor = starred.fromSecond(personNames.length);
+            directors = directed.distinctSeconds();
+            actors = starred.distinctSeconds();
+        }
+
+        private void readCategories(ConnectionPool.Lease lease) throws SQLException {
+            Edges inCategory = readEdges(lease, "select MovieTitle_id, Category_id from inCategory order by rowid",
+                    categoryNames);
+            categoriesOfMovieTitle = sortEach(inCategory.fromFirst(titles.length));
+            movieTitlesOfCategory = inCategory.fromSecond(categoryNames.length);
+        }
+
+        private void readProductionCompanies(ConnectionPool.Lease lease) throws SQLException {
+            Edges producedBy = readEdges(lease, "select MovieTitle_id, ProductionCompany_id from producedBy order by rowid",
+                    productionCompanyNames);
+            productionCompaniesOfMovieTitle = producedBy.fromFirst(titles.length);
+            movieTitlesOfProductionCompany = sortEach(producedBy.fromSecond(productionCompanyNames.length));
+        }
+
+        /**
+         * Sorts the ids of every group. The groups looked up by the first column of the primary key of their table
+         * are listed by the second column, as the database lists them when it reads them through that key; the rest
+         * are listed in the order their rows were inserted.
+         * @param groups The ids, by the id of the entity they belong to.
+         * @return The groups given.
+         */
+        private static int[][] sortEach(int[][] groups) {
+            for (int[] group : groups) {
+                Arrays.sort(group);
+            }
+            return groups;
+        }
+
+        private void readMovieCopies(ConnectionPool.Lease lease, ReferenceDictionary<MovieCopy.Medium> mediums,
+                                     ReferenceDictionary<MovieCopy.MovieFormat> movieFormats) throws SQLException {
+            int range = idRange(lease, "MovieCopy");
+            int[] movieTitleIds = new int[range];
+            Arrays.fill(movieTitleIds, -1);
+            MovieCopy.Medium[] copyMediums = new MovieCopy.Medium[range];
+            MovieCopy.MovieFormat[] copyMovieFormats = new MovieCopy.MovieFormat[range];
+            double[] rentPrices = new double[range];
+            boolean[] deleted = new boolean[range];
+            Edges ofMovieTitle = new Edges();
+            try (ResultSet qResults = SqlQuery.of("select id, MovieTitle_id, Medium_id, MovieFormat_id, rentPrice, deleted " +
+                    "from MovieCopy order by id").executeQuery(lease)) {
+                while (qResults.next()) {
+                    int id = qResults.getInt(1);
+                    movieTitleIds[id] = qResults.getInt(2);
+                    copyMediums[id] = mediums.valueOf(qResults.getInt(3));
+                    copyMovieFormats[id] = movieFormats.valueOf(qResults.getInt(4));
+                    rentPrices[id] = qResults.getDouble(5);
+                    deleted[id] = qResults.getInt(6) != 0;
+                    ofMovieTitle.add(movieTitleIds[id], id);
+                }
+            }
+            movieCopies = new MovieCopies(movieTitleIds, copyMediums, copyMovieFormats, rentPrices, deleted,
+                    ofMovieTitle.fromFirst(titles.length));
+        }
+
+        /**
+         * Reads the rows of a relationship between the movie titles and the entities with the given names.
+         * The rows that reference a missing entity are left out, as the joins of the queries do.
+         */
+        private Edges readEdges(ConnectionPool.Lease lease, String sql, String[] names) throws SQLException {
+            Edges edges = new Edges();
+            try (ResultSet qResults = SqlQuery.of(sql).executeQuery(lease)) {
+                while (qResults.next()) {
+                    int movieTitleId = qResults.getInt(1);
+                    int otherId = qResults.getInt(2);
+                    if (exists(titles, movieTitleId) && exists(names, otherId)) {
+                        edges.add(movieTitleId, otherId);
+                    }
+                }
+            }
+            return edges;
+        }
+    }
+
+    /**
+     * The rows of a relationship table, as pairs of ids in the order they were read.
+     */
+    private static final class Edges {
+        private int[] firsts = new int[16];
+        private int[] seconds = new int[16];
+        private int size;
+
+        private void add(int first, int second) {
+            if (size == firsts.length) {
+                firsts = Arrays.copyOf(firsts, size * 2);
+                seconds = Arrays.copyOf(seconds, size * 2);
+            }
+            firsts[size] = first;
+            seconds[size] = second;
+            size++;
+        }
+
+        /** @return The second ids of the pairs, by their first id. */
+        private int[][] fromFirst(int range) {
+            return group(firsts, seconds, range);
+        }
+
+        /** @return The first ids of the pairs, by their second id. */
+        private int[][] fromSecond(int range) {
+            return group(seconds, firsts, range);
+        }
+
+        /** @return The second ids, each once and in the order they first appear. */
+        private int[] distinctSeconds() {
+            Set<Integer> distinct = new LinkedHashSet<>();
+            for (int i = 0; i < size; i++) {
+                distinct.add(seconds[i]);
+            }
+            return distinct.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private int[][] group(int[] keys, int[] values, int range) {
+            // The groups are sized first, so that each is filled in place in the order of the pairs.
+            int[] counts = new int[range];
+            for (int i = 0; i < size; i++) {
+                if (keys[i] >= 0 && keys[i] < range) {
+                    counts[keys[i]]++;
+                }
+            }
+            int[][] groups = new int[range][];
+            for (int key = 0; key < range; key++) {
+                groups[key] = counts[key] == 0 ? NONE : new int[counts[key]];
+                counts[key] = 0;
+            }
+            for (int i = 0; i < size; i++) {
+                if (keys[i] >= 0 && keys[i] < range) {
+                    groups[keys[i]][counts[keys[i]]++] = values[i];
+                }
+            }
+            return groups;
+        }
+    }
+}
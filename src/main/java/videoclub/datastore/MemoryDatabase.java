@@ -0,0 +1,130 @@
+package videoclub.datastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The in-memory copy of the database file that the connections of the {@link DataStoreSettings.StorageMode#MEMORY}
+ * storage mode are opened to. <br>
+ *
+ * The file is copied into memory at startup with the backup API of SQLite, and copied back to the file periodically
+ * and when the data store is closed, so the writes made since the last copy are lost if the application crashes.
+ * An in-memory database only lives while a connection to it is open, so one connection is held until it is closed.
+ * @author Ioannis Baraklilis
+ */
+public class MemoryDatabase implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(MemoryDatabase.class);
+
+    private final String file; // Filepath of the database file the memory is copied from and to.
+    private final Connection connection; // Keeps the in-memory database alive, and copies it to the file.
+    private final ScheduledExecutorService persister; // Copies the database to the file periodically, if at all.
+    // Keeps the copies from overlapping. A lock, since a virtual thread that blocks in a monitor pins its carrier.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private MemoryDatabase(String file, Connection connection, Duration persistInterval) {
+        this.file = file;
+        this.connection = connection;
+        if (persistInterval.isZero()) {
+            persister = null;
+        } else {
+            persister = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sqlite-persister");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = persistInterval.toMillis();
+            persister.scheduleWithFixedDelay(this::persistQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Copies the database file into memory.
+     * It must be called before any other connection to the in-memory database is opened.
+     * @param connectionFactory Opens connections to the in-memory database.
+     * @param file Filepath of the database file.
+     * @param persistInterval How often the in-memory database is copied back to the file; zero copies it only when
+     *                        it is closed.
+     * @return The in-memory database.
+     * @throws SQLException If the file cannot be read or a database access error occurs.
+     */
+    public static MemoryDatabase open(ConnectionPool.ConnectionFactory connectionFactory, String file,
+                                      Duration persistInterval) throws SQLException {
+        Connection connection = connectionFactory.create();
+        try {
+            check(connection.unwrap(SQLiteConnection.class).getDatabase().restore("main", file, null),
+                    "Could not copy the database " + file + " into memory");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        log.info("Copied the database {} into memory", file);
+        return new MemoryDatabase(file, connection, persistInterval);
+    }
+
+    /**
+     * Copies the in-memory database to the database file. The writes that are in progress are waited for.
+     * @throws SQLException If the file cannot be written or a database access error occurs.
+     */
+    public void persist() throws SQLException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            check(connection.unwrap(SQLiteConnection.class).getDatabase().backup("main", file, null),
+                    "Could not copy the in-memory database to " + file);
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Copied the in-memory database to {} in {} ms", file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void persistQuietly() {
+        try {
+            persist();
+        } catch (SQLException e) {
+            // It is tried again at the next interval, and at the latest when the database is closed.
+            log.warn("The in-memory database was not persisted: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the in-memory database to the file one last time and releases it.
+     */
+    @Override
+    public void close() {
+        if (persister != null) {
+            persister.shutdownNow();
+        }
+        lock.lock();
+        try {
+            persist();
+        } catch (SQLException e) {
+            log.error("The in-memory database was not persisted before closing", e);
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("Could not close the connection to the in-memory database", e);
+            }
+            lock.unlock();
+        }
+    }
+
+    private static void check(int resultCode, String message) throws SQLException {
+        if (resultCode != SQLiteErrorCode.SQLITE_OK.code) {
+            SQLiteErrorCode errorCode = SQLiteErrorCode.getErrorCode(resultCode);
+            throw new SQLiteException(message + ": " + errorCode.message, errorCode);
+        }
+    }
+}
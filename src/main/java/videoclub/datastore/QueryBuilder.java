@@ -0,0 +1,113 @@
+package videoclub.datastore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Builds a parameterized {@link SqlQuery} out of SQL fragments, replacing the string concatenation of filter values
+ * into the SQL text. <br>
+ *
+ * Filters are added with {@link #where(String, Object)}, which takes care of chaining them with "where" and "and";
+ * the variants ending in IfPresent skip filters whose value is null, so that a template object with null fields
+ * acts as a wildcard. Every combination of filters therefore maps to one fixed SQL template.
+ * @author Ioannis Baraklilis
+ */
+public final class QueryBuilder {
+    private final StringBuilder sql; // The SQL template built so far.
+    private final List<Object> parameters = new ArrayList<>(); // The values of the placeholders added so far.
+    private boolean hasWhereClause; // Whether the next condition has to be chained with "and" instead of "where".
+
+    /**
+     * Starts a query with the given fragment (usually its select and from clauses).
+     * @param sql The first fragment of the query.
+     * @param parameters The values of the placeholders of the fragment.
+     */
+    public QueryBuilder(String sql, Object... parameters) {
+        this.sql = new StringBuilder(sql);
+        this.parameters.addAll(List.of(parameters));
+        this.hasWhereClause = false;
+    }
+
+    /**
+     * Marks that the fragments given so far already contain a where clause, so that further conditions are
+     * chained with "and".
+     * @return This builder.
+     */
+    public QueryBuilder withWhereClause() {
+        hasWhereClause = true;
+        return this;
+    }
+
+    /**
+     * Appends a fragment to the query as is.
+     * @param fragment The SQL fragment.
+     * @param parameters The values of the placeholders of the fragment.
+     * @return This builder.
+     */
+    public QueryBuilder append(String fragment, Object... parameters) {
+        sql.append(fragment);
+        this.parameters.addAll(List.of(parameters));
+        return this;
+    }
+
+    /**
+     * Adds a condition to the where clause of the query.
+     * @param condition The condition, with a placeholder for the value (e.g. "id = ?").
+     * @param value The value of the placeholder.
+     * @return This builder.
+     */
+    public QueryBuilder where(String condition, Object value) {
+        sql.append(hasWhereClause ? " and " : " where ").append(condition);
+        parameters.add(value);
+        hasWhereClause = true;
+        return this;
+    }
+
+    /**
+     * Adds a condition without placeholders to the where clause of the query.
+     * @param condition The condition (e.g. "dateTo is null").
+     * @return This builder.
+     */
+    public QueryBuilder where(String condition) {
+        sql.append(hasWhereClause ? " and " : " where ").append(condition);
+        hasWhereClause = true;
+        return this;
+    }
+
+    /**
+     * Adds a condition to the where clause of the query, only if its value is not null.
+     * @param condition The condition, with a placeholder for the value (e.g. "id = ?").
+     * @param value The value of the placeholder. If null, the condition is not added.
+     * @return This builder.
+     */
+    public QueryBuilder whereIfPresent(String condition, Object value) {
+        return value == null ? this : where(condition, value);
+    }
+
+    /**
+     * Adds a condition to the where clause of the query, that the column takes one of the given values. <br>
+     *
+     * The values are bound to a single placeholder, as a JSON array that SQLite expands with json_each, so that the
+     * query has the same template whatever the number of values, and shares one compiled statement with every other
+     * batch.
+     * @param column The column compared (e.g. "MovieTitle_id").
+     * @param values The values of the column that are selected.
+     * @return This builder.
+     */
+    public QueryBuilder whereIn(String column, Collection<? extends Number> values) {
+        StringJoiner array = new StringJoiner(",", "[", "]");
+        for (Number value : values) {
+            array.add(value.toString());
+        }
+        return where(column + " in (select value from json_each(?))", array.toString());
+    }
+
+    /**
+     * @return The parameterized query built.
+     */
+    public SqlQuery build() {
+        return new SqlQuery(sql.toString(), new ArrayList<>(parameters));
+    }
+}
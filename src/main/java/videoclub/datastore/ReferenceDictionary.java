@@ -0,0 +1,87 @@
+package videoclub.datastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An in-memory copy of a small reference table (id, name) whose names are the constants of an enum. <br>
+ *
+ * It is loaded once at startup and maps the ids stored in the referencing rows to the enum constants and back,
+ * so that those rows can be read and written without joining or looking up the reference table.
+ * The reference tables are not changed by the application, so the dictionary is never reloaded.
+ * @param <E> The enum whose constants are the names of the table.
+ * @author Ioannis Baraklilis
+ */
+public final class ReferenceDictionary<E extends Enum<E>> {
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDictionary.class);
+
+    private final String table; // The name of the reference table, used in error messages.
+    private final Map<Integer, E> constantsById; // The constant named by each row, by id.
+    private final EnumMap<E, Integer> idsByConstant; // The id of the row of each constant.
+
+    private ReferenceDictionary(String table, Map<Integer, E> constantsById, EnumMap<E, Integer> idsByConstant) {
+        this.table = table;
+        this.constantsById = constantsById;
+        this.idsByConstant = idsByConstant;
+    }
+
+    /**
+     * Loads the rows of a reference table.
+     * Rows whose name is not a constant of the enum are left out with a warning.
+     * @param pool The pool that the connection is borrowed from.
+     * @param table The name of the table, with the columns id and name.
+     * @param enumType The enum whose constants are the names of the table.
+     * @param <E> The enum whose constants are the names of the table.
+     * @return The dictionary of the table.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static <E extends Enum<E>> ReferenceDictionary<E> load(ConnectionPool pool, String table, Class<E> enumType) throws SQLException {
+        Map<Integer, E> constantsById = new HashMap<>();
+        EnumMap<E, Integer> idsByConstant = new EnumMap<>(enumType);
+
+        try (ConnectionPool.Lease lease = pool.acquire();
+             ResultSet qResults = SqlQuery.of("select id, name from " + table).executeQuery(lease)) {
+            while (qResults.next()) {
+                int id = qResults.getInt(1);
+                String name = qResults.getString(2);
+                try {
+                    E constant = Enum.valueOf(enumType, name);
+                    constantsById.put(id, constant);
+                    idsByConstant.put(constant, id);
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    log.warn("The row {} of {} is named '{}', which is not a {}; it is ignored", id, table, name,
+                            enumType.getSimpleName());
+                }
+            }
+        }
+
+        return new ReferenceDictionary<>(table, constantsById, idsByConstant);
+    }
+
+    /**
+     * @param id The id of a row of the table.
+     * @return The constant named by the row.
+     * @throws IllegalStateException If the table has no row with this id known to the dictionary.
+     */
+    public E valueOf(int id) {
+        E constant = constantsById.get(id);
+        if (constant == null){
+            throw new IllegalStateException("There is no " + table + " with the id " + id + ".");
+        }
+        return constant;
+    }
+
+    /**
+     * @param constant A constant of the enum.
+     * @return The id of the row named after the constant, or null if the table has no such row.
+     */
+    public Integer idOf(E constant) {
+        return idsByConstant.get(constant);
+    }
+}
@@ -0,0 +1,101 @@
+package videoclub.datastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Opens connections to an SQLite database file, applying the PRAGMAs of the data store settings. <br>
+ *
+ * The PRAGMAs that are persisted in the database file itself (the journal mode and the page size) are not applied
+ * per connection, but once at startup by {@link #prepareDatabase()}. In the MEMORY storage mode the connections are
+ * opened to an in-memory database shared by the whole process instead, see {@link MemoryDatabase}.
+ * @author Ioannis Baraklilis
+ */
+public class SQLiteConnectionFactory implements ConnectionPool.ConnectionFactory {
+    private static final Logger log = LoggerFactory.getLogger(SQLiteConnectionFactory.class);
+
+    private final String fileUrl; // The JDBC url of the database file.
+    private final String url; // The JDBC url the connections are opened to.
+    private final DataStoreSettings settings; // The settings holding the storage mode and the PRAGMAs.
+    private final boolean readOnly; // Whether the connections are opened read-only.
+
+    /**
+     * @param settings The settings of the data store.
+     * @param readOnly Whether the connections are opened read-only.
+     */
+    public SQLiteConnectionFactory(DataStoreSettings settings, boolean readOnly) {
+        this.fileUrl = "jdbc:sqlite:" + settings.getFile();
+        this.url = settings.getStorageMode() == DataStoreSettings.StorageMode.MEMORY
+                ? "jdbc:sqlite:file:/" + memoryDatabaseName(settings.getFile()) + "?vfs=memdb"
+                : fileUrl;
+        this.settings = settings;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public Connection create() throws SQLException {
+        DataStoreSettings.Pragmas pragmas = settings.getPragmas();
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(readOnly);
+        if (pragmas.getSynchronous() != null) {
+            config.setSynchronous(pragmas.getSynchronous());
+        }
+        if (pragmas.getCacheSize() != null) {
+            config.setCacheSize(pragmas.getCacheSize());
+        }
+        if (pragmas.getMmapSize() != null) {
+            config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, pragmas.getMmapSize().toString());
+        }
+        return config.createConnection(url);
+    }
+
+    /**
+     * Names the in-memory database after the file it is copied from. The names of the memdb VFS that start with a
+     * slash are shared by every connection of the process.
+     * @param file Filepath of the database file.
+     * @return The name of the in-memory database.
+     */
+    private static String memoryDatabaseName(String file) {
+        return "videoclub-" + Integer.toHexString(Paths.get(file).toAbsolutePath().normalize().hashCode());
+    }
+
+    /**
+     * Applies the page size and the journal mode of the storage mode to the database file.
+     * It must be called before any pooled connection is opened, because changing them needs exclusive access.
+     * In the MEMORY storage mode the file uses the rollback journal, as the in-memory copy cannot use the write-ahead
+     * log that would be copied along with it.
+     * @throws SQLException If a database access error occurs.
+     */
+    public void prepareDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(fileUrl);
+             Statement statement = connection.createStatement()) {
+            Integer pageSize = settings.getPragmas().getPageSize();
+            if (pageSize != null && pageSize != queryInt(statement, "pragma page_size")) {
+                // The page size of an existing database only changes when it is rebuilt, which is not possible in WAL mode.
+                statement.execute("pragma journal_mode = delete");
+                statement.execute("pragma page_size = " + pageSize);
+                statement.execute("vacuum");
+                log.info("Rebuilt the database {} with a page size of {} bytes", settings.getFile(), pageSize);
+            }
+
+            String journalMode = settings.getStorageMode() == DataStoreSettings.StorageMode.WAL ? "wal" : "delete";
+            try (ResultSet qResults = statement.executeQuery("pragma journal_mode = " + journalMode)) {
+                log.info("The database {} uses the {} journal mode", settings.getFile(), qResults.getString(1));
+            }
+        }
+    }
+
+    private static int queryInt(Statement statement, String sql) throws SQLException {
+        try (ResultSet qResults = statement.executeQuery(sql)) {
+            return qResults.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package videoclub.datastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Brings the schema of the database file up to date, applying the migrations it has not seen yet. <br>
+ *
+ * The version of the schema is kept in the <code>user_version</code> PRAGMA of the database file. Every migration
+ * runs in its own transaction together with the update of the version, so a migration that fails leaves the file
+ * at the previous version and is retried on the next startup. The statements of the migrations are idempotent
+ * as well, so that a database that already has some of their changes (e.g. one built by hand) can be migrated.
+ * New migrations are appended to {@link #MIGRATIONS} with the next version; the released ones must not be changed.
+ * @author Ioannis Baraklilis
+ */
+public class SchemaMigrator {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "partial indexes over the movie copies not flagged as deleted",
+                    "create index if not exists MovieCopy_live_MovieTitle on MovieCopy (MovieTitle_id) where deleted = 0",
+                    "create index if not exists MovieCopy_live_rentPrice on MovieCopy (rentPrice) where deleted = 0"),
+            new Migration(2, "indexes of the filters used by the queries",
+                    // The role is part of the index, since the actors and the directors are always looked up separately.
+                    "create index if not exists MovieTitleParticipants_Person_role on MovieTitleParticipants (Person_id, participationRole)",
+                    "drop index if exists MovieTitle_has_Person_FKIndex2",
+                    // The rents of a customer are looked up together with whether they are still active.
+                    "create index if not exists RentTransaction_Customer_dateTo on RentTransaction (Customer_id, dateTo)",
+                    "drop index if exists Customer_has_MovieCopy_FKIndex1",
+                    "create index if not exists RentTransaction_dateFrom on RentTransaction (dateFrom)",
+                    "create index if not exists RentTransaction_price on RentTransaction (price)",
+                    "create index if not exists MovieTitle_title on MovieTitle (title)",
+                    "create index if not exists MovieTitle_rating on MovieTitle (rating)",
+                    "create index if not exists Customer_fullName on Customer (fullName)")
+    );
+
+    private final ConnectionPool.ConnectionFactory connectionFactory; // Opens the connection the migrations run on.
+
+    /**
+     * @param connectionFactory Opens the connection the migrations run on. It must not be read-only.
+     */
+    public SchemaMigrator(ConnectionPool.ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Applies, in order, the migrations with a version greater than the version of the database.
+     * @return The version of the database after the migrations.
+     * @throws SQLException If a database access error occurs or a migration fails.
+     */
+    public int migrate() throws SQLException {
+        try (Connection connection = connectionFactory.create();
+             Statement statement = connection.createStatement()) {
+            int version;
+            try (ResultSet qResults = statement.executeQuery("pragma user_version")) {
+                version = qResults.getInt(1);
+            }
+
+            int latest = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+            if (version > latest) {
+                log.warn("The database schema is at version {}, newer than the version {} known to this application",
+                        version, latest);
+                return version;
+            }
+
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= version) {
+                    continue;
+                }
+
+                connection.setAutoCommit(false);
+                try {
+                    for (String sql : migration.statements) {
+                        statement.execute(sql);
+                    }
+                    statement.execute("pragma user_version = " + migration.version);
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw new SQLException("The schema migration " + migration.version + " (" + migration.description
+                            + ") failed: " + e.getMessage(), e);
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+
+                version = migration.version;
+                log.info("Migrated the database schema to version {}: {}", version, migration.description);
+            }
+
+            return version;
+        }
+    }
+
+    /**
+     * A change of the schema, made of statements that are applied together.
+     */
+    private static final class Migration {
+        private final int version; // The version of the schema after the migration.
+        private final String description; // What the migration changes, used in log messages.
+        private final List<String> statements; // The statements of the migration, in order.
+
+        private Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = List.of(statements);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package videoclub.datastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Times the statements executed through {@link SqlQuery} and logs the ones slower than a threshold, together with
+ * the shape of their SQL, the number of rows, the time spent waiting for a connection and their query plan. <br>
+ *
+ * SQLite computes the rows of a query while they are read, so a query is timed from its execution until its results
+ * are closed. The results are wrapped for that purpose only while the log is enabled.
+ * @author Ioannis Baraklilis
+ */
+public class SlowQueryLog {
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final SlowQueryLog DISABLED = new SlowQueryLog(false, Duration.ZERO, false);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+    private final boolean enabled; // Whether the statements are timed at all.
+    private final long thresholdNanos; // The statements that take longer are logged.
+    private final boolean explain; // Whether the query plan of a slow query is logged as well.
+
+    /**
+     * @param enabled Whether the statements are timed at all.
+     * @param threshold The statements that take longer are logged.
+     * @param explain Whether the query plan of a slow query is logged as well.
+     */
+    public SlowQueryLog(boolean enabled, Duration threshold, boolean explain) {
+        this.enabled = enabled;
+        this.thresholdNanos = threshold.toNanos();
+        this.explain = explain;
+    }
+
+    /**
+     * @return A log that times nothing.
+     */
+    public static SlowQueryLog disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Times the results of a query until they are closed.
+     * @param query The query that was executed.
+     * @param lease The connection the query was executed on.
+     * @param qResults The results of the query.
+     * @param startNanos When the execution of the query started.
+     * @return The results to hand to the caller.
+     */
+    ResultSet monitor(SqlQuery query, ConnectionPool.Lease lease, ResultSet qResults, long startNanos) {
+        if (!enabled) {
+            return qResults;
+        }
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                new TimedResults(query, lease, qResults, startNanos));
+    }
+
+    /**
+     * Logs the statement if it took longer than the threshold.
+     * @param query The statement that was executed.
+     * @param lease The connection the statement was executed on, still borrowed.
+     * @param startNanos When the execution of the statement started.
+     * @param rows The number of rows read or changed by the statement.
+     */
+    void record(SqlQuery query, ConnectionPool.Lease lease, long startNanos, long rows) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (!enabled || elapsedNanos < thresholdNanos) {
+            return;
+        }
+
+        String plan = "";
+        if (explain) {
+            try {
+                List<String> steps = query.explainQueryPlan(lease);
+                plan = "\n  query plan: " + String.join("\n              ", steps);
+            } catch (SQLException e) {
+                plan = "\n  query plan unavailable: " + e.getMessage();
+            }
+        }
+
+        logger.warn("Slow query: {} ms ({} ms waiting for a connection), {} rows: {}{}",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), TimeUnit.NANOSECONDS.toMillis(lease.waitNanos()), rows,
+                shape(query.getSql()), plan);
+    }
+
+    /**
+     * Normalizes the SQL of a statement so that the statements that only differ in the length of their value lists
+     * or in their formatting are logged the same way.
+     * @param sql The SQL template of a statement.
+     * @return The shape of the SQL.
+     */
+    static String shape(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return PLACEHOLDER_LIST.matcher(shape).replaceAll("(?, ...)");
+    }
+
+    /**
+     * Counts the rows read from the results of a query, and records the query when they are closed.
+     */
+    private final class TimedResults implements InvocationHandler {
+        private final SqlQuery query;
+        private final ConnectionPool.Lease lease;
+        private final ResultSet qResults;
+        private final long startNanos;
+        private long rows;
+        private boolean recorded;
+
+        private TimedResults(SqlQuery query, ConnectionPool.Lease lease, ResultSet qResults, long startNanos) {
+            this.query = query;
+            this.lease = lease;
+            this.qResults = qResults;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(qResults, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (method.getName().equals("close") && !recorded) {
+                // The connection is still borrowed, since the results are closed before their lease.
+                recorded = true;
+                record(query, lease, startNanos, rows);
+            }
+            return result;
+        }
+    }
+}
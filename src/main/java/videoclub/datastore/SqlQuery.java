@@ -0,0 +1,152 @@
+package videoclub.datastore;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parameterized SQL statement: the SQL template, with a <code>?</code> placeholder for every value, and the values
+ * bound to the placeholders. <br>
+ *
+ * Statements with the same template share one compiled {@link PreparedStatement} per connection, so SQLite does not
+ * have to parse and plan them again on every call.
+ * @author Ioannis Baraklilis
+ */
+public final class SqlQuery {
+    private final String sql; // The SQL template.
+    private final List<Object> parameters; // The values bound to the placeholders of the template, in order.
+
+    /**
+     * Creates a parameterized SQL statement.
+     * @param sql The SQL template.
+     * @param parameters The values bound to the placeholders of the template, in order.
+     */
+    public SqlQuery(String sql, List<Object> parameters) {
+        this.sql = sql;
+        this.parameters = Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * Creates a parameterized SQL statement.
+     * @param sql The SQL template.
+     * @param parameters The values bound to the placeholders of the template, in order.
+     * @return The parameterized SQL statement.
+     */
+    public static SqlQuery of(String sql, Object... parameters) {
+        return new SqlQuery(sql, List.of(parameters));
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Executes the query on the borrowed connection, using its cached compiled statement.
+     * @param lease The borrowed connection.
+     * @return The results of the query. They must be closed by the caller.
+     * @throws SQLException If a database access error occurs.
+     */
+    public ResultSet executeQuery(ConnectionPool.Lease lease) throws SQLException {
+        long startNanos = System.nanoTime();
+        return lease.slowQueryLog().monitor(this, lease, bind(lease.prepare(sql)).executeQuery(), startNanos);
+    }
+
+    /**
+     * Executes the query on the borrowed connection, using its cached compiled statement, with a hint of how many
+     * rows the driver should fetch at a time.
+     * @param lease The borrowed connection.
+     * @param fetchSize The number of rows fetched at a time, or 0 for the default of the driver.
+     * @return The results of the query. They must be closed by the caller.
+     * @throws SQLException If a database access error occurs.
+     */
+    public ResultSet executeQuery(ConnectionPool.Lease lease, int fetchSize) throws SQLException {
+        long startNanos = System.nanoTime();
+        PreparedStatement statement = bind(lease.prepare(sql));
+        // The statement is shared by every caller of the connection, so the hint is set again on every execution.
+        statement.setFetchSize(fetchSize);
+        return lease.slowQueryLog().monitor(this, lease, statement.executeQuery(), startNanos);
+    }
+
+    /**
+     * Executes the statement (insert, update or delete) on the borrowed connection, using its cached compiled statement.
+     * @param lease The borrowed connection.
+     * @return The number of rows changed.
+     * @throws SQLException If a database access error occurs.
+     */
+    public int executeUpdate(ConnectionPool.Lease lease) throws SQLException {
+        long startNanos = System.nanoTime();
+        int rows = bind(lease.prepare(sql)).executeUpdate();
+        lease.slowQueryLog().record(this, lease, startNanos, rows);
+        return rows;
+    }
+
+    /**
+     * Asks SQLite how it executes the statement, with the parameter values bound.
+     * @param lease The borrowed connection.
+     * @return The steps of the query plan, indented by their depth.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<String> explainQueryPlan(ConnectionPool.Lease lease) throws SQLException {
+        List<String> steps = new ArrayList<>();
+        Map<Integer, Integer> depths = new HashMap<>(); // The depth of every step, by id.
+        // The plan is compiled outside the statement cache of the connection, since it is only needed once.
+        try (PreparedStatement statement = bind(lease.connection().prepareStatement("explain query plan " + sql));
+             ResultSet qResults = statement.executeQuery()) {
+            while (qResults.next()) {
+                int depth = depths.getOrDefault(qResults.getInt("parent"), -1) + 1;
+                depths.put(qResults.getInt("id"), depth);
+                steps.add("  ".repeat(depth) + qResults.getString("detail"));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Binds the parameter values to the compiled statement.
+     * @param statement The compiled statement of the template.
+     * @return The statement given.
+     * @throws SQLException If a value cannot be bound.
+     */
+    private PreparedStatement bind(PreparedStatement statement) throws SQLException {
+        statement.clearParameters();
+
+        for (int i = 0; i < parameters.size(); i++) {
+            bindValue(statement, i + 1, parameters.get(i));
+        }
+
+        return statement;
+    }
+
+    private static void bindValue(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null){
+            statement.setNull(index, Types.NULL);
+        } else if (value instanceof Integer){
+            statement.setInt(index, (Integer) value);
+        } else if (value instanceof Float){
+            // Bound through its decimal representation, so that 7.1f is compared as 7.1 and not as 7.099999904632568.
+            statement.setDouble(index, Double.parseDouble(value.toString()));
+        } else if (value instanceof Number){
+            statement.setObject(index, value);
+        } else if (value instanceof Boolean){
+            statement.setInt(index, (Boolean) value ? 1 : 0);
+        } else {
+            // Strings, and dates and names, which are stored as text in their ISO-8601 and declared form respectively.
+            statement.setString(index, value.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + parameters;
+    }
+}
@@ -0,0 +1,42 @@
+package videoclub.graphql.configuration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import videoclub.graphql.server.cachecontrol.CacheControlHeaders;
+import videoclub.graphql.server.instrumentation.CacheControlInstrumentation;
+
+/**
+ * Configuration of the HTTP caching headers of the responses, that let the clients, the CDN and the reverse proxies
+ * answer the queries of the catalog before they reach the application. The headers are set by the front end of each
+ * build, through its {@link CacheControlHeaders}.
+ */
+@Configuration
+public class CacheControlConfiguration {
+
+    /**
+     * The settings of the caching headers, bound from the videoclub.cache-control section of the application configuration.
+     * @return The settings of the caching headers.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "videoclub.cache-control")
+    public CacheControlSettings cacheControlSettings() {
+        return new CacheControlSettings();
+    }
+
+    /**
+     * Computes the caching policy of every operation and sets the headers of its response. It is picked up by the
+     * GraphQL endpoint along with any other instrumentation.
+     * @param settings The settings of the caching headers.
+     * @param headers Sets the headers of the responses of the front end.
+     * @return The instrumentation of the operations.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "videoclub.cache-control", name = "enabled", matchIfMissing = true)
+    public CacheControlInstrumentation cacheControlInstrumentation(CacheControlSettings settings,
+                                                                   ObjectProvider<CacheControlHeaders> headers) {
+        return new CacheControlInstrumentation(settings.getDefaultMaxAge(), headers.getIfAvailable());
+    }
+}
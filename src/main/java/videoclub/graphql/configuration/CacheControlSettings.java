@@ -0,0 +1,29 @@
+package videoclub.graphql.configuration;
+
+/**
+ * The settings of the HTTP caching headers of the responses, see
+ * {@link videoclub.graphql.server.instrumentation.CacheControlInstrumentation}. <br>
+ *
+ * They are bound from the <code>videoclub.cache-control</code> section of the application configuration.
+ * @author Ioannis Baraklilis
+ */
+public class CacheControlSettings {
+    private boolean enabled = true; // Whether the caching headers are sent at all.
+    private int defaultMaxAge = 0; // The max age of the fields that return objects and have no @cacheControl directive.
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getDefaultMaxAge() {
+        return defaultMaxAge;
+    }
+
+    public void setDefaultMaxAge(int defaultMaxAge) {
+        this.defaultMaxAge = defaultMaxAge;
+    }
+}
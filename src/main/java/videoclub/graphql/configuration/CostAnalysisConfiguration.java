@@ -0,0 +1,36 @@
+package videoclub.graphql.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import videoclub.graphql.server.instrumentation.CostAnalysisInstrumentation;
+
+/**
+ * Configuration of the estimation of the cost of the operations, that bounds the work a single operation can cause.
+ */
+@Configuration
+public class CostAnalysisConfiguration {
+
+    /**
+     * The settings of the cost analysis, bound from the videoclub.cost-analysis section of the application configuration.
+     * @return The settings of the cost analysis.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "videoclub.cost-analysis")
+    public CostAnalysisSettings costAnalysisSettings() {
+        return new CostAnalysisSettings();
+    }
+
+    /**
+     * Estimates the cost of every operation and rejects the ones over the budget. It is picked up by the GraphQL
+     * endpoint along with any other instrumentation.
+     * @param settings The settings of the cost analysis.
+     * @return The instrumentation of the operations.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "videoclub.cost-analysis", name = "enabled", matchIfMissing = true)
+    public CostAnalysisInstrumentation costAnalysisInstrumentation(CostAnalysisSettings settings) {
+        return new CostAnalysisInstrumentation(settings.getMaxCost(), settings.getDefaultListSize());
+    }
+}
@@ -0,0 +1,38 @@
+package videoclub.graphql.configuration;
+
+/**
+ * The settings of the estimation of the cost of the operations, see
+ * {@link videoclub.graphql.server.instrumentation.CostAnalysisInstrumentation}. <br>
+ *
+ * They are bound from the <code>videoclub.cost-analysis</code> section of the application configuration.
+ * @author Ioannis Baraklilis
+ */
+public class CostAnalysisSettings {
+    private boolean enabled = true; // Whether the cost of the operations is estimated at all.
+    private long maxCost = 50000; // Operations that cost more are rejected.
+    private int defaultListSize = 10; // The size of the lists whose size is not declared with @listSize.
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxCost() {
+        return maxCost;
+    }
+
+    public void setMaxCost(long maxCost) {
+        this.maxCost = maxCost;
+    }
+
+    public int getDefaultListSize() {
+        return defaultListSize;
+    }
+
+    public void setDefaultListSize(int defaultListSize) {
+        this.defaultListSize = defaultListSize;
+    }
+}
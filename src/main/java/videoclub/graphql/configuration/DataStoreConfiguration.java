@@ -0,0 +1,50 @@
+package videoclub.graphql.configuration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import videoclub.datastore.DataIntersection;
+import videoclub.datastore.DataStore;
+import videoclub.datastore.DataStoreSettings;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Configuration of the data store the resolvers read from and write to.
+ */
+@Configuration
+public class DataStoreConfiguration {
+
+    /**
+     * The settings of the data store, bound from the videoclub.datastore section of the application configuration.
+     * @return The settings of the data store.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "videoclub.datastore")
+    public DataStoreSettings dataStoreSettings(){
+        return new DataStoreSettings();
+    }
+
+    /**
+     * Opens the data store described by the settings. The resolvers reach the data through it. <br>
+     *
+     * The results of its asynchronous calls are completed on the threads the GraphQL servlet executes the requests
+     * on, so that the rest of the execution and the writing of the response do not hold the threads of SQLite. The
+     * reactive front end has no such threads, and nothing it chains to the results blocks, so the common fork-join
+     * pool completes them there.
+     * @param settings The settings of the data store.
+     * @param requestExecutor The executor of the GraphQL servlet, if it executes the requests asynchronously.
+     * @return The object that manages the application's data.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Bean(destroyMethod = "close")
+    public DataStore dataStore(DataStoreSettings settings,
+                               @Qualifier("graphqlAsyncTaskExecutor") ObjectProvider<Executor> requestExecutor)
+            throws SQLException {
+        return new DataIntersection(settings, requestExecutor.getIfAvailable(ForkJoinPool::commonPool));
+    }
+}
@@ -0,0 +1,49 @@
+package videoclub.graphql.configuration;
+
+import graphql.kickstart.execution.GraphQLRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import videoclub.graphql.server.preparsed.PersistedQueryRequest;
+import videoclub.graphql.server.preparsed.PreparsedDocumentCache;
+
+/**
+ * Configuration of the cache of the parsed and validated documents of the operations, and of the automatic persisted
+ * queries that it supports.
+ */
+@Configuration
+public class DocumentCacheConfiguration {
+
+    /**
+     * The settings of the document cache, bound from the videoclub.document-cache section of the application configuration.
+     * @return The settings of the document cache.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "videoclub.document-cache")
+    public DocumentCacheSettings documentCacheSettings() {
+        return new DocumentCacheSettings();
+    }
+
+    /**
+     * Caches the documents of the operations. It is picked up by the GraphQL endpoint as its preparsed document provider.
+     * @param settings The settings of the document cache.
+     * @return The document cache.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "videoclub.document-cache", name = "enabled", matchIfMissing = true)
+    public PreparsedDocumentCache preparsedDocumentCache(DocumentCacheSettings settings) {
+        return new PreparsedDocumentCache(settings.getMaxSize(), settings.isPersistedQueries());
+    }
+
+    /**
+     * Reads the GraphQL requests that leave out the text of their operation, since they send it by its hash alone.
+     * @return The customization of the object mapper that the GraphQL requests are read with.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "videoclub.document-cache", name = {"enabled", "persisted-queries"}, matchIfMissing = true)
+    public Jackson2ObjectMapperBuilderCustomizer persistedQueryRequests() {
+        return builder -> builder.mixIn(GraphQLRequest.class, PersistedQueryRequest.Mixin.class);
+    }
+}
@@ -0,0 +1,38 @@
+package videoclub.graphql.configuration;
+
+/**
+ * The settings of the cache of the parsed and validated documents of the operations, see
+ * {@link videoclub.graphql.server.preparsed.PreparsedDocumentCache}. <br>
+ *
+ * They are bound from the <code>videoclub.document-cache</code> section of the application configuration.
+ * @author Ioannis Baraklilis
+ */
+public class DocumentCacheSettings {
+    private boolean enabled = true; // Whether the documents are cached at all.
+    private int maxSize = 1000; // The maximum number of documents cached.
+    private boolean persistedQueries = true; // Whether the operations may be sent by their hash alone.
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public boolean isPersistedQueries() {
+        return persistedQueries;
+    }
+
+    public void setPersistedQueries(boolean persistedQueries) {
+        this.persistedQueries = persistedQueries;
+    }
+}
@@ -0,0 +1,54 @@
+package videoclub.graphql.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import videoclub.datastore.DataStore;
+import videoclub.graphql.server.instrumentation.ResponseCacheInstrumentation;
+import videoclub.graphql.server.responsecache.ResponseCache;
+
+/**
+ * Configuration of the cache of the responses of the queries. The cached responses are answered by the HTTP front end
+ * of each build, before the requests reach the GraphQL endpoint.
+ */
+@Configuration
+public class ResponseCacheConfiguration {
+
+    /**
+     * The settings of the response cache, bound from the videoclub.response-cache section of the application configuration.
+     * @return The settings of the response cache.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "videoclub.response-cache")
+    public ResponseCacheSettings responseCacheSettings() {
+        return new ResponseCacheSettings();
+    }
+
+    /**
+     * Caches the responses of the queries, and evicts them when the data store writes the tables they were read from.
+     * @param settings The settings of the response cache.
+     * @param dataStore The data store whose writes evict the responses.
+     * @return The response cache.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "videoclub.response-cache", name = "enabled", matchIfMissing = true)
+    public ResponseCache responseCache(ResponseCacheSettings settings, DataStore dataStore) {
+        ResponseCache responseCache = new ResponseCache(settings.getMaxSize(), settings.getMaxEntrySize().toBytes(),
+                settings.getTimeToLive());
+        dataStore.addWriteListener(responseCache::invalidate);
+        return responseCache;
+    }
+
+    /**
+     * Admits the results of the queries to the response cache. It is picked up by the GraphQL endpoint along with any
+     * other instrumentation.
+     * @param responseCache The response cache.
+     * @return The instrumentation of the operations.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "videoclub.response-cache", name = "enabled", matchIfMissing = true)
+    public ResponseCacheInstrumentation responseCacheInstrumentation(ResponseCache responseCache) {
+        return new ResponseCacheInstrumentation(responseCache);
+    }
+}
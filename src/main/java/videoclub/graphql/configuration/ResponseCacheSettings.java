@@ -0,0 +1,51 @@
+package videoclub.graphql.configuration;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * The settings of the cache of the responses of the queries, see
+ * {@link videoclub.graphql.server.responsecache.ResponseCache}. <br>
+ *
+ * They are bound from the <code>videoclub.response-cache</code> section of the application configuration.
+ * @author Ioannis Baraklilis
+ */
+public class ResponseCacheSettings {
+    private boolean enabled = true; // Whether the responses are cached at all.
+    private int maxSize = 1000; // The maximum number of responses cached.
+    private DataSize maxEntrySize = DataSize.ofKilobytes(256); // The larger responses are not cached.
+    private Duration timeToLive = Duration.ofMinutes(10); // How long a response is used after it has been cached.
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+}
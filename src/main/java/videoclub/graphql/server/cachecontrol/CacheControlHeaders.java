@@ -0,0 +1,19 @@
+package videoclub.graphql.server.cachecontrol;
+
+/**
+ * Sets the caching headers of the HTTP response that the result of an operation is written to. Each front end of the
+ * GraphQL endpoint implements it, since only it knows the HTTP exchange behind an operation. The exchange is handed to
+ * it as the root object of the operation, which the front end builds as well: kickstart passes its own context to
+ * graphql-java through a deprecated accessor only.
+ * @author Ioannis Baraklilis
+ */
+public interface CacheControlHeaders {
+
+    /**
+     * Sets the caching headers of the response, restricting the policy to the ones already set for the other
+     * operations of the same request, if it is a batch.
+     * @param root The root object of the operation, as built by the front end.
+     * @param policy The policy of the result of the operation.
+     */
+    void apply(Object root, CacheControlPolicy policy);
+}
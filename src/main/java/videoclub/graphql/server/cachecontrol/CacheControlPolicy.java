@@ -0,0 +1,79 @@
+package videoclub.graphql.server.cachecontrol;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How long the response of an operation may be cached over HTTP, and by whom, as declared on the fields it selects
+ * with the @cacheControl directive (see directives.graphqls). <br>
+ *
+ * A policy that may not be cached for any time is sent as <code>Cache-Control: no-store</code>, so that neither the
+ * clients nor the proxies in front of the application keep the response.
+ * @author Ioannis Baraklilis
+ */
+public final class CacheControlPolicy {
+    /**
+     * The policy of the responses that must not be cached at all, e.g. the ones of the mutations.
+     */
+    public static final CacheControlPolicy NO_STORE = new CacheControlPolicy(0, Scope.PUBLIC);
+
+    private final int maxAge; // The seconds the response may be cached for.
+    private final Scope scope; // Who may cache the response.
+
+    private CacheControlPolicy(int maxAge, Scope scope) {
+        this.maxAge = maxAge;
+        this.scope = scope;
+    }
+
+    /**
+     * @param maxAge The seconds the response may be cached for. If not positive, the response is not cached.
+     * @param scope Who may cache the response.
+     * @return The policy.
+     */
+    public static CacheControlPolicy of(int maxAge, Scope scope) {
+        return maxAge <= 0 ? NO_STORE : new CacheControlPolicy(maxAge, scope);
+    }
+
+    /**
+     * @param other The policy of another part of the same response.
+     * @return The policy that satisfies both: the shorter max age, and the private scope if either is private.
+     */
+    public CacheControlPolicy restrict(CacheControlPolicy other) {
+        return of(Math.min(maxAge, other.maxAge), scope == Scope.PRIVATE ? scope : other.scope);
+    }
+
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @return The Cache-Control header of the policy and, if the response may be cached, the Vary header that tells
+     *         the caches that the response also depends on how it is encoded.
+     */
+    public Map<String, String> headers() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (maxAge <= 0) {
+            headers.put("Cache-Control", "no-store");
+            return headers;
+        }
+        headers.put("Cache-Control", "max-age=" + maxAge + ", " + (scope == Scope.PRIVATE ? "private" : "public"));
+        headers.put("Vary", "Accept-Encoding");
+        return headers;
+    }
+
+    @Override
+    public String toString() {
+        return headers().get("Cache-Control");
+    }
+
+    /**
+     * Who may cache a response: any cache (the CDN and the reverse proxies as well), or only the client's own cache.
+     */
+    public enum Scope {
+        PUBLIC, PRIVATE
+    }
+}
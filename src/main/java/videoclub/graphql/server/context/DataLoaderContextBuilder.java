@@ -0,0 +1,47 @@
+package videoclub.graphql.server.context;
+
+import graphql.kickstart.execution.context.DefaultGraphQLContext;
+import graphql.kickstart.execution.context.GraphQLContext;
+import graphql.kickstart.servlet.context.DefaultGraphQLServletContext;
+import graphql.kickstart.servlet.context.DefaultGraphQLWebSocketContext;
+import graphql.kickstart.servlet.context.GraphQLServletContextBuilder;
+import org.springframework.stereotype.Component;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.websocket.Session;
+import javax.websocket.server.HandshakeRequest;
+
+/**
+ * Builds the context of every GraphQL request, giving each request its own set of data loaders.
+ */
+@Component
+public class DataLoaderContextBuilder implements GraphQLServletContextBuilder {
+    private final DataLoaderRegistryFactory dataLoaderRegistryFactory; // Creates the data loaders of a request.
+
+    public DataLoaderContextBuilder(DataLoaderRegistryFactory dataLoaderRegistryFactory) {
+        this.dataLoaderRegistryFactory = dataLoaderRegistryFactory;
+    }
+
+    @Override
+    public GraphQLContext build(HttpServletRequest request, HttpServletResponse response) {
+        return DefaultGraphQLServletContext.createServletContext(dataLoaderRegistryFactory.create(), null)
+                .with(request)
+                .with(response)
+                .build();
+    }
+
+    @Override
+    public GraphQLContext build(Session session, HandshakeRequest handshakeRequest) {
+        return DefaultGraphQLWebSocketContext.createWebSocketContext(dataLoaderRegistryFactory.create(), null)
+                .with(session)
+                .with(handshakeRequest)
+                .build();
+    }
+
+    @Override
+    public GraphQLContext build() {
+        return new DefaultGraphQLContext(dataLoaderRegistryFactory.create(), null);
+    }
+}
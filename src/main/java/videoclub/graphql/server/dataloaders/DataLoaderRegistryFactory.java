@@ -0,0 +1,103 @@
+package videoclub.graphql.server.dataloaders;
+
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.stereotype.Component;
+import videoclub.datastore.DataStore;
+import videoclub.graphql.server.domain.videoclub.Actor;
+import videoclub.graphql.server.domain.videoclub.Category;
+import videoclub.graphql.server.domain.videoclub.Customer;
+import videoclub.graphql.server.domain.videoclub.Director;
+import videoclub.graphql.server.domain.videoclub.MovieCopy;
+import videoclub.graphql.server.domain.videoclub.MovieTitle;
+import videoclub.graphql.server.domain.videoclub.ProductionCompany;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates the {@link DataLoader}s that batch the lookups of related entities made while resolving a request. <br>
+ *
+ * A new registry is created for every request, so that the loaded entities are only cached for its duration.
+ * The field resolvers find the loaders by the names declared here.
+ */
+@Component
+public class DataLoaderRegistryFactory {
+    public static final String DIRECTORS_OF_MOVIE_TITLE = "directorsOfMovieTitle";
+    public static final String ACTORS_OF_MOVIE_TITLE = "actorsOfMovieTitle";
+    public static final String CATEGORIES_OF_MOVIE_TITLE = "categoriesOfMovieTitle";
+    public static final String PRODUCTION_COMPANIES_OF_MOVIE_TITLE = "productionCompaniesOfMovieTitle";
+    public static final String CUSTOMER_OF_RENT_TRANSACTION = "customerOfRentTransaction";
+    public static final String MOVIE_COPY_OF_RENT_TRANSACTION = "movieCopyOfRentTransaction";
+    public static final String MOVIE_TITLES_OF_ACTOR = "movieTitlesOfActor";
+    public static final String MOVIE_TITLES_OF_DIRECTOR = "movieTitlesOfDirector";
+    public static final String MOVIE_TITLES_OF_CATEGORY = "movieTitlesOfCategory";
+    public static final String MOVIE_TITLES_OF_PRODUCTION_COMPANY = "movieTitlesOfProductionCompany";
+    public static final String MOVIE_TITLE_BY_ID = "movieTitleById";
+    public static final String CUSTOMER_BY_ID = "customerById";
+
+    // Bounds the rows a single batch query reads, however many entities a request resolves at once.
+    private static final DataLoaderOptions OPTIONS = DataLoaderOptions.newOptions().setMaxBatchSize(500);
+
+    private final DataStore dataStore; // The data the batches are loaded from.
+
+    public DataLoaderRegistryFactory(DataStore dataStore) {
+        this.dataStore = dataStore;
+    }
+
+    /**
+     * @return A registry holding a new instance of every data loader.
+     */
+    public DataLoaderRegistry create() {
+        DataLoaderRegistry registry = new DataLoaderRegistry();
+        registry.register(DIRECTORS_OF_MOVIE_TITLE, this.<Director[]>newDataLoader(
+                movieTitleIds -> dataStore.aboutDirectors().retrieveDirectorsOfMovieTitles(movieTitleIds)));
+        registry.register(ACTORS_OF_MOVIE_TITLE, this.<Actor[]>newDataLoader(
+                movieTitleIds -> dataStore.aboutActors().retrieveActorsOfMovieTitles(movieTitleIds)));
+        registry.register(CATEGORIES_OF_MOVIE_TITLE, this.<Category[]>newDataLoader(
+                movieTitleIds -> dataStore.aboutCategories().retrieveCategoriesOfMovieTitles(movieTitleIds)));
+        registry.register(PRODUCTION_COMPANIES_OF_MOVIE_TITLE, this.<ProductionCompany[]>newDataLoader(
+                movieTitleIds -> dataStore.aboutProductionCompanies().retrieveProductionCompaniesOfMovieTitles(movieTitleIds)));
+        registry.register(CUSTOMER_OF_RENT_TRANSACTION, this.<Customer>newDataLoader(
+                rentTransactionIds -> dataStore.aboutCustomers().retrieveCustomersOfTransactions(rentTransactionIds)));
+        registry.register(MOVIE_COPY_OF_RENT_TRANSACTION, this.<MovieCopy>newDataLoader(
+                rentTransactionIds -> dataStore.aboutMovieCopies().retrieveMovieCopiesOfTransactions(rentTransactionIds)));
+        registry.register(MOVIE_TITLES_OF_ACTOR, this.<MovieTitle[]>newDataLoader(
+                actorIds -> dataStore.aboutMovieTitles().retrieveMovieTitlesOfActors(actorIds)));
+        registry.register(MOVIE_TITLES_OF_DIRECTOR, this.<MovieTitle[]>newDataLoader(
+                directorIds -> dataStore.aboutMovieTitles().retrieveMovieTitlesOfDirectors(directorIds)));
+        registry.register(MOVIE_TITLES_OF_CATEGORY, this.<MovieTitle[]>newDataLoader(
+                categoryIds -> dataStore.aboutMovieTitles().retrieveMovieTitlesOfCategories(categoryIds)));
+        registry.register(MOVIE_TITLES_OF_PRODUCTION_COMPANY, this.<MovieTitle[]>newDataLoader(
+                productionCompanyIds -> dataStore.aboutMovieTitles().retrieveMovieTitlesOfProductionCompanies(productionCompanyIds)));
+        registry.register(MOVIE_TITLE_BY_ID, this.<MovieTitle>newDataLoader(
+                movieTitleIds -> dataStore.aboutMovieTitles().retrieveMovieTitlesByIds(movieTitleIds)));
+        registry.register(CUSTOMER_BY_ID, this.<Customer>newDataLoader(
+                customerIds -> dataStore.aboutCustomers().retrieveCustomersByIds(customerIds)));
+        return registry;
+    }
+
+    /**
+     * Creates a data loader keyed by entity id, that loads a whole batch of ids with the given query.
+     * The batches run on the threads of the data store, so that the batches of a level of the query run in parallel.
+     * @param batchQuery The query that loads the values of a batch of ids.
+     * @param <V> The type of the values loaded.
+     * @return The data loader.
+     */
+    private <V> DataLoader<Integer, V> newDataLoader(BatchQuery<V> batchQuery) {
+        return DataLoaderFactory.newMappedDataLoader(
+                (Set<Integer> ids) -> dataStore.async(() -> batchQuery.retrieve(ids)), OPTIONS);
+    }
+
+    /**
+     * A query of the data source that loads the values of a batch of ids at once.
+     * @param <V> The type of the values loaded.
+     */
+    @FunctionalInterface
+    private interface BatchQuery<V> {
+        Map<Integer, V> retrieve(Set<Integer> ids) throws SQLException;
+    }
+}
@@ -7,6 +7,7 @@ package videoclub.graphql.server.domain.videoclub;
 public class Actor {
     Integer id; // The actor's unique identifier.
     String name; // The actor's name.
+    MovieTitle[] preloadedMovieTitles; // The movie titles loaded together with the actor, or null if they were not.
 
     /**
      * Builds an Actor object and sets its fields according to the arguments.
@@ -26,6 +27,17 @@ public class Actor {
         return name;
     }
 
+    /**
+     * @return The actor's movie titles if they were loaded together with the actor, otherwise null.
+     */
+    public MovieTitle[] getPreloadedMovieTitles() {
+        return preloadedMovieTitles;
+    }
+
+    public void setPreloadedMovieTitles(MovieTitle[] preloadedMovieTitles) {
+        this.preloadedMovieTitles = preloadedMovieTitles;
+    }
+
     @Override
     public String toString() {
         return "Actor{" +
@@ -7,6 +7,7 @@ package videoclub.graphql.server.domain.videoclub;
 public class Category {
     Integer id; // The category's unique identifier.
     String name; // The category's name.
+    MovieTitle[] preloadedMovieTitles; // The movie titles loaded together with the category, or null if they were not.
 
     /**
      * Builds a Category object and sets its fields according to the arguments.
@@ -25,4 +26,15 @@ public class Category {
     public String getName() {
         return name;
     }
+
+    /**
+     * @return The category's movie titles if they were loaded together with the category, otherwise null.
+     */
+    public MovieTitle[] getPreloadedMovieTitles() {
+        return preloadedMovieTitles;
+    }
+
+    public void setPreloadedMovieTitles(MovieTitle[] preloadedMovieTitles) {
+        this.preloadedMovieTitles = preloadedMovieTitles;
+    }
 }
@@ -1,12 +1,19 @@
 package videoclub.graphql.server.domain.videoclub;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Defines a Customer object equivalent of the one defined in the GraphQL schema.
  * @author Ioannis Baraklilis
  */
 public class Customer {
+    /**
+     * The fields of a customer that are stored in its row and may be left out when it is loaded.
+     * The id is always loaded.
+     */
+    public enum Field { FULL_NAME, DATE_OF_BIRTH, ADDRESS, PHONE_NUMBER, EMAIL }
 
     Integer id; // The customer's unique identifier (it is an integer).
     String fullName; // The customer's full name.
@@ -16,6 +23,7 @@ public class Customer {
                     // Can include any of: Address, Number, Area, City, Country, Area code, etc.
     String phoneNumber; // The customer's phone number in any format.
     String email; // The customer's e-mail address.
+    Set<Field> loadedFields = EnumSet.allOf(Field.class); // The fields that hold the stored values.
 
     /**
      * Builds a Customer object and sets its fields according to the arguments.
@@ -38,6 +46,41 @@ public class Customer {
         this.email = email;
     }
 
+    /**
+     * Marks which fields were loaded, the rest hold null until they are filled in.
+     * @param loadedFields The fields that hold the stored values.
+     */
+    public void setLoadedFields(Set<Field> loadedFields) {
+        this.loadedFields = EnumSet.noneOf(Field.class);
+        this.loadedFields.addAll(loadedFields);
+    }
+
+    /**
+     * @param field A field of the customer.
+     * @return Whether the field holds the stored value.
+     */
+    public boolean isLoaded(Field field) {
+        return loadedFields.contains(field);
+    }
+
+    /**
+     * Copies the fields that were not loaded from the fully loaded customer given.
+     * @param complete The same customer, with all of its fields loaded.
+     */
+    public void fillIn(Customer complete) {
+        if (!isLoaded(Field.FULL_NAME))
+            fullName = complete.fullName;
+        if (!isLoaded(Field.DATE_OF_BIRTH))
+            dateOfBirth = complete.dateOfBirth;
+        if (!isLoaded(Field.ADDRESS))
+            address = complete.address;
+        if (!isLoaded(Field.PHONE_NUMBER))
+            phoneNumber = complete.phoneNumber;
+        if (!isLoaded(Field.EMAIL))
+            email = complete.email;
+        loadedFields = EnumSet.allOf(Field.class);
+    }
+
     public Integer getId() {
         return id;
     }
@@ -8,6 +8,7 @@ package videoclub.graphql.server.domain.videoclub;
 public class Director {
     Integer id; // The director's unique identifier.
     String name; // The director's name.
+    MovieTitle[] preloadedMovieTitles; // The movie titles loaded together with the director, or null if they were not.
 
     /**
      * Builds a Director object and sets its fields according to the arguments.
@@ -26,4 +27,15 @@ public class Director {
     public String getName() {
         return name;
     }
+
+    /**
+     * @return The director's movie titles if they were loaded together with the director, otherwise null.
+     */
+    public MovieTitle[] getPreloadedMovieTitles() {
+        return preloadedMovieTitles;
+    }
+
+    public void setPreloadedMovieTitles(MovieTitle[] preloadedMovieTitles) {
+        this.preloadedMovieTitles = preloadedMovieTitles;
+    }
 }
@@ -1,17 +1,32 @@
 package videoclub.graphql.server.domain.videoclub;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Defines a MovieTitle object equivalent of the one defined in the GraphQL schema.
  * @author Ioannis Baraklilis
  */
 public class MovieTitle {
+    /**
+     * The fields of a movie title that are stored in its row and may be left out when it is loaded.
+     * The id is always loaded.
+     */
+    public enum Field { TITLE, DESCRIPTION, RELEASE_DATE, RATING }
+
     Integer id; // The movie's unique identifier.
     String title; // The movie's title.
     String description; // The movie's description.
     LocalDate releaseDate; // The movie's release date.
     Float rating; // The movie's rating.
+    Set<Field> loadedFields = EnumSet.allOf(Field.class); // The fields that hold the stored values.
+
+    // The related entities loaded together with the movie, or null for those that were not.
+    Director[] preloadedDirectors;
+    Actor[] preloadedActors;
+    Category[] preloadedCategories;
+    ProductionCompany[] preloadedProductionCompanies;
 
     /**
      * Builds a MovieTitle object and sets its fields according to the arguments.
@@ -29,6 +44,39 @@ public class MovieTitle {
         this.rating = rating;
     }
 
+    /**
+     * Marks which fields were loaded, the rest hold null until they are filled in.
+     * @param loadedFields The fields that hold the stored values.
+     */
+    public void setLoadedFields(Set<Field> loadedFields) {
+        this.loadedFields = EnumSet.noneOf(Field.class);
+        this.loadedFields.addAll(loadedFields);
+    }
+
+    /**
+     * @param field A field of the movie title.
+     * @return Whether the field holds the stored value.
+     */
+    public boolean isLoaded(Field field) {
+        return loadedFields.contains(field);
+    }
+
+    /**
+     * Copies the fields that were not loaded from the fully loaded movie title given.
+     * @param complete The same movie title, with all of its fields loaded.
+     */
+    public void fillIn(MovieTitle complete) {
+        if (!isLoaded(Field.TITLE))
+            title = complete.title;
+        if (!isLoaded(Field.DESCRIPTION))
+            description = complete.description;
+        if (!isLoaded(Field.RELEASE_DATE))
+            releaseDate = complete.releaseDate;
+        if (!isLoaded(Field.RATING))
+            rating = complete.rating;
+        loadedFields = EnumSet.allOf(Field.class);
+    }
+
     public Integer getId() {
         return id;
     }
@@ -48,4 +96,48 @@ public class MovieTitle {
     public Float getRating() {
         return rating;
     }
+
+    /**
+     * @return The movie's directors if they were loaded together with the movie, otherwise null.
+     */
+    public Director[] getPreloadedDirectors() {
+        return preloadedDirectors;
+    }
+
+    public void setPreloadedDirectors(Director[] preloadedDirectors) {
+        this.preloadedDirectors = preloadedDirectors;
+    }
+
+    /**
+     * @return The movie's actors if they were loaded together with the movie, otherwise null.
+     */
+    public Actor[] getPreloadedActors() {
+        return preloadedActors;
+    }
+
+    public void setPreloadedActors(Actor[] preloadedActors) {
+        this.preloadedActors = preloadedActors;
+    }
+
+    /**
+     * @return The movie's categories if they were loaded together with the movie, otherwise null.
+     */
+    public Category[] getPreloadedCategories() {
+        return preloadedCategories;
+    }
+
+    public void setPreloadedCategories(Category[] preloadedCategories) {
+        this.preloadedCategories = preloadedCategories;
+    }
+
+    /**
+     * @return The movie's production companies if they were loaded together with the movie, otherwise null.
+     */
+    public ProductionCompany[] getPreloadedProductionCompanies() {
+        return preloadedProductionCompanies;
+    }
+
+    public void setPreloadedProductionCompanies(ProductionCompany[] preloadedProductionCompanies) {
+        this.preloadedProductionCompanies = preloadedProductionCompanies;
+    }
 }
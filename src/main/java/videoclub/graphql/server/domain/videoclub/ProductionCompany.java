@@ -7,6 +7,7 @@ package videoclub.graphql.server.domain.videoclub;
 public class ProductionCompany {
     Integer id; // The production company's unique identifier.
     String name; // The production company's name.
+    MovieTitle[] preloadedMovieTitles; // The movie titles loaded together with the production company, or null if they were not.
 
     /**
      * Builds a ProductionCompany object and sets its fields according to the arguments.
@@ -25,4 +26,15 @@ public class ProductionCompany {
     public String getName() {
         return name;
     }
+
+    /**
+     * @return The production company's movie titles if they were loaded together with the production company, otherwise null.
+     */
+    public MovieTitle[] getPreloadedMovieTitles() {
+        return preloadedMovieTitles;
+    }
+
+    public void setPreloadedMovieTitles(MovieTitle[] preloadedMovieTitles) {
+        this.preloadedMovieTitles = preloadedMovieTitles;
+    }
 }
@@ -0,0 +1,172 @@
+package videoclub.graphql.server.instrumentation;
+
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.language.OperationDefinition;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLDirective;
+import graphql.schema.GraphQLDirectiveContainer;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import videoclub.graphql.server.cachecontrol.CacheControlHeaders;
+import videoclub.graphql.server.cachecontrol.CacheControlPolicy;
+
+import java.util.concurrent.CompletableFuture;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.noOp;
+
+/**
+ * Computes how long the response of every query may be cached over HTTP, from the @cacheControl directives of the
+ * fields it selects (see directives.graphqls), and sets the Cache-Control and Vary headers of the response. <br>
+ *
+ * The max age of a response is the shortest one among its fields, and it is private if any of them is. A field
+ * without a directive of its own takes the one of the type it returns; if neither has one, a field that returns
+ * objects may not be cached for longer than the default max age, while a scalar field or a field of a connection
+ * leaves the policy to the fields above it. The mutations, and the operations that failed or returned errors, are
+ * never cached. <br>
+ *
+ * The policy is computed from the document rather than from the fields resolved, as none of the types of the schema
+ * is abstract, and is kept in the GraphQLContext of the execution input, so that the response cache sends it along
+ * with the cached response as well.
+ * @author Ioannis Baraklilis
+ */
+public class CacheControlInstrumentation extends SimpleInstrumentation {
+    private final int defaultMaxAge; // The max age of the fields that return objects and have no directive.
+    private final CacheControlHeaders headers; // Sets the headers of the responses, or null if there is no front end.
+
+    /**
+     * @param defaultMaxAge The max age of the fields that return objects and have no directive, in seconds.
+     * @param headers Sets the headers of the responses, or null if there is no HTTP front end.
+     */
+    public CacheControlInstrumentation(int defaultMaxAge, CacheControlHeaders headers) {
+        this.defaultMaxAge = defaultMaxAge;
+        this.headers = headers;
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        return new CacheControlState();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        ExecutionContext executionContext = parameters.getExecutionContext();
+        CacheControlPolicy policy = policyOf(executionContext);
+        CacheControlState state = parameters.getInstrumentationState();
+        state.policy = policy;
+        executionContext.getGraphQLContext().put(CacheControlPolicy.class, policy);
+        return noOp();
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult,
+                                                                        InstrumentationExecutionParameters parameters) {
+        CacheControlState state = parameters.getInstrumentationState();
+        CacheControlPolicy policy = state.policy == null || !executionResult.getErrors().isEmpty()
+                ? CacheControlPolicy.NO_STORE : state.policy;
+        if (headers != null) {
+            headers.apply(parameters.getExecutionInput().getRoot(), policy);
+        }
+        return CompletableFuture.completedFuture(executionResult);
+    }
+
+    /**
+     * @param executionContext The operation, its variables and the schema it is executed against.
+     * @return The policy of the response of the operation.
+     */
+    private CacheControlPolicy policyOf(ExecutionContext executionContext) {
+        if (executionContext.getOperationDefinition().getOperation() != OperationDefinition.Operation.QUERY) {
+            return CacheControlPolicy.NO_STORE;
+        }
+
+        GraphQLSchema schema = executionContext.getGraphQLSchema();
+        QueryTraverser traverser = QueryTraverser.newQueryTraverser()
+                .schema(schema)
+                .document(executionContext.getDocument())
+                .operationName(executionContext.getExecutionInput().getOperationName())
+                .variables(executionContext.getExecutionInput().getVariables())
+                .build();
+
+        Restriction restriction = new Restriction();
+        traverser.visitPreOrder(new QueryVisitorStub() {
+            @Override
+            public void visitField(QueryVisitorFieldEnvironment environment) {
+                if (environment.isTypeNameIntrospectionField()) {
+                    return;
+                }
+                GraphQLFieldDefinition fieldDefinition = environment.getFieldDefinition();
+                GraphQLType type = GraphQLTypeUtil.unwrapAll(fieldDefinition.getType());
+                GraphQLDirective connection = fieldDefinition.getDirective("connection");
+                String nodeType = connection == null ? null : argumentOf(connection, "for");
+                if (nodeType != null) {
+                    type = schema.getType(nodeType); // A connection is cached as its nodes are.
+                }
+
+                GraphQLDirective fieldHint = fieldDefinition.getDirective("cacheControl");
+                GraphQLDirective typeHint = type instanceof GraphQLDirectiveContainer
+                        ? ((GraphQLDirectiveContainer) type).getDirective("cacheControl") : null;
+                Integer maxAge = fieldHint != null ? argumentOf(fieldHint, "maxAge") : null;
+                if (maxAge == null && typeHint != null) {
+                    maxAge = argumentOf(typeHint, "maxAge");
+                }
+                if (maxAge == null && !GraphQLTypeUtil.isLeaf(type) && !isInConnection(environment)) {
+                    maxAge = defaultMaxAge;
+                }
+                restriction.restrict(maxAge, isPrivate(fieldHint) || isPrivate(typeHint));
+            }
+        });
+        return CacheControlPolicy.of(restriction.maxAge == null ? defaultMaxAge : restriction.maxAge,
+                restriction.isPrivate ? CacheControlPolicy.Scope.PRIVATE : CacheControlPolicy.Scope.PUBLIC);
+    }
+
+    /**
+     * @return Whether the field is one of the fields of a connection (edges, pageInfo), that is cached as its nodes are.
+     */
+    private static boolean isInConnection(QueryVisitorFieldEnvironment environment) {
+        QueryVisitorFieldEnvironment parent = environment.getParentEnvironment();
+        return parent != null && parent.getFieldDefinition().getDirective("connection") != null;
+    }
+
+    private static boolean isPrivate(GraphQLDirective hint) {
+        Object scope = hint == null ? null : argumentOf(hint, "scope");
+        return scope != null && CacheControlPolicy.Scope.PRIVATE.name().equals(scope.toString());
+    }
+
+    private static <T> T argumentOf(GraphQLDirective directive, String name) {
+        GraphQLArgument argument = directive.getArgument(name);
+        return argument == null ? null : GraphQLArgument.getArgumentValue(argument);
+    }
+
+    /**
+     * The policy of the fields visited so far.
+     */
+    private static final class Restriction {
+        private Integer maxAge; // null until a field restricts it.
+        private boolean isPrivate;
+
+        private void restrict(Integer maxAge, boolean isPrivate) {
+            if (maxAge != null) {
+                this.maxAge = this.maxAge == null ? maxAge : Math.min(this.maxAge, maxAge);
+            }
+            this.isPrivate |= isPrivate;
+        }
+    }
+
+    /**
+     * The policy of an operation, computed when its execution begins.
+     */
+    private static final class CacheControlState implements InstrumentationState {
+        private CacheControlPolicy policy; // null until the execution of the operation has begun.
+    }
+}
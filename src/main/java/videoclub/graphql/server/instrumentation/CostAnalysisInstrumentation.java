@@ -0,0 +1,221 @@
+package videoclub.graphql.server.instrumentation;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLDirective;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLOutputType;
+import graphql.schema.GraphQLTypeUtil;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.noOp;
+
+/**
+ * Estimates the cost of every operation once it has been validated, and rejects the operations that cost more than
+ * the budget before any of their fields is resolved. <br>
+ *
+ * The cost is estimated when the execution of the operation begins rather than along with its validation, since the
+ * validation of a cached document is skipped (see {@link videoclub.graphql.server.preparsed.PreparsedDocumentCache})
+ * while the cost depends on the variables of every request. <br>
+ *
+ * The cost of a field is its weight plus the cost of the fields selected below it, multiplied by the size of the
+ * list the field returns. The weights and the sizes are declared in the schema with the @cost and @listSize
+ * directives (see directives.graphqls); the rest of the fields weigh 1 if they return objects and 0 if they return
+ * a scalar, and their lists are assumed to be of the default size. A list looked up by a key argument, such as the
+ * id, holds a single entity. Since the schema has cycles (a movie title's actors, their movies, their actors...),
+ * the cost of a selection grows with the product of the sizes of the lists it nests, which is what the budget
+ * bounds. <br>
+ *
+ * The cost estimated is reported in the cost entry of the extensions of the response.
+ * @author Ioannis Baraklilis
+ */
+public class CostAnalysisInstrumentation extends SimpleInstrumentation {
+    private final long maxCost; // Operations that cost more are rejected.
+    private final int defaultListSize; // The size of the lists whose size is not declared.
+
+    /**
+     * @param maxCost Operations that cost more are rejected.
+     * @param defaultListSize The size of the lists whose size is not declared.
+     */
+    public CostAnalysisInstrumentation(long maxCost, int defaultListSize) {
+        this.maxCost = maxCost;
+        this.defaultListSize = defaultListSize;
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        return new CostState();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        long cost = costOf(parameters.getExecutionContext());
+        CostState state = parameters.getInstrumentationState();
+        state.cost = cost;
+        if (cost > maxCost) {
+            throw new AbortExecutionException("The operation costs " + cost + ", which is more than the maximum of "
+                    + maxCost + ". Select fewer nested lists, or page through them with the connection fields.");
+        }
+        return noOp();
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult,
+                                                                        InstrumentationExecutionParameters parameters) {
+        CostState state = parameters.getInstrumentationState();
+        if (state.cost == null) {
+            return CompletableFuture.completedFuture(executionResult);
+        }
+
+        Map<String, Object> cost = new LinkedHashMap<>();
+        cost.put("estimated", state.cost);
+        cost.put("maximum", maxCost);
+        Map<Object, Object> extensions = new LinkedHashMap<>();
+        if (executionResult.getExtensions() != null) {
+            extensions.putAll(executionResult.getExtensions());
+        }
+        extensions.put("cost", cost);
+        return CompletableFuture.completedFuture(
+                ExecutionResultImpl.newExecutionResult().from(executionResult).extensions(extensions).build());
+    }
+
+    /**
+     * Estimates the cost of the operation, walking its fields from the leaves up.
+     * @param executionContext The operation, its variables and the schema it is executed against.
+     * @return The cost estimated, saturated at Long.MAX_VALUE.
+     */
+    private long costOf(ExecutionContext executionContext) {
+        // The variables as they were sent, which the traverser coerces itself.
+        QueryTraverser traverser = QueryTraverser.newQueryTraverser()
+                .schema(executionContext.getGraphQLSchema())
+                .document(executionContext.getDocument())
+                .operationName(executionContext.getExecutionInput().getOperationName())
+                .variables(executionContext.getExecutionInput().getVariables())
+                .build();
+
+        // The cost of the fields selected below each field, the root fields' under null.
+        Map<QueryVisitorFieldEnvironment, Long> costBelow = new HashMap<>();
+        traverser.visitPostOrder(new QueryVisitorStub() {
+            @Override
+            public void visitField(QueryVisitorFieldEnvironment environment) {
+                if (environment.isTypeNameIntrospectionField()) {
+                    return;
+                }
+                long cost = saturatedAdd(weightOf(environment.getFieldDefinition()),
+                        saturatedMultiply(sizeOf(environment), costBelow.getOrDefault(environment, 0L)));
+                costBelow.merge(environment.getParentEnvironment(), cost, CostAnalysisInstrumentation::saturatedAdd);
+            }
+        });
+        return costBelow.getOrDefault(null, 0L);
+    }
+
+    /**
+     * @param fieldDefinition The definition of a field.
+     * @return The weight of resolving the field once.
+     */
+    private static long weightOf(GraphQLFieldDefinition fieldDefinition) {
+        GraphQLDirective cost = fieldDefinition.getDirective("cost");
+        if (cost != null) {
+            return argumentOf(cost, "weight", 0);
+        }
+        return GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(fieldDefinition.getType())) ? 0 : 1;
+    }
+
+    /**
+     * @param environment A field of the operation.
+     * @return The number of times the fields selected below the field are resolved for each time it is resolved.
+     */
+    private long sizeOf(QueryVisitorFieldEnvironment environment) {
+        // The lists of the sized fields take the size declared on the field above them.
+        QueryVisitorFieldEnvironment parent = environment.getParentEnvironment();
+        if (parent != null) {
+            GraphQLDirective parentListSize = parent.getFieldDefinition().getDirective("listSize");
+            if (parentListSize != null && sizedFields(parentListSize).contains(environment.getField().getName())) {
+                return declaredSize(parentListSize, parent.getArguments());
+            }
+        }
+
+        GraphQLDirective listSize = environment.getFieldDefinition().getDirective("listSize");
+        if (listSize != null) {
+            // The size applies to the sized fields below the field instead.
+            return sizedFields(listSize).isEmpty() ? declaredSize(listSize, environment.getArguments()) : 1;
+        }
+        return isList(environment.getFieldDefinition().getType()) ? defaultListSize : 1;
+    }
+
+    /**
+     * @param listSize The @listSize directive of a field.
+     * @param arguments The arguments the field is given.
+     * @return 1 if one of the key arguments is given, or else the value of the first slicing argument given, or else
+     *         the assumed size, or else the default size.
+     */
+    private long declaredSize(GraphQLDirective listSize, Map<String, Object> arguments) {
+        for (String keyArgument : argumentOf(listSize, "keyArguments", List.<String>of())) {
+            if (arguments.get(keyArgument) != null) {
+                return 1;
+            }
+        }
+        for (String slicingArgument : argumentOf(listSize, "slicingArguments", List.<String>of())) {
+            Object value = arguments.get(slicingArgument);
+            if (value instanceof Number) {
+                return Math.max(((Number) value).longValue(), 0);
+            }
+        }
+        return argumentOf(listSize, "assumedSize", defaultListSize);
+    }
+
+    private static List<String> sizedFields(GraphQLDirective listSize) {
+        return argumentOf(listSize, "sizedFields", List.of());
+    }
+
+    /**
+     * @param directive A directive applied to a field of the schema.
+     * @param name The name of one of its arguments.
+     * @param defaultValue The value of the argument if it is not given.
+     * @param <T> The type of the value.
+     * @return The value of the argument.
+     */
+    private static <T> T argumentOf(GraphQLDirective directive, String name, T defaultValue) {
+        GraphQLArgument argument = directive.getArgument(name);
+        T value = argument == null ? null : GraphQLArgument.getArgumentValue(argument);
+        return value != null ? value : defaultValue;
+    }
+
+    private static boolean isList(GraphQLOutputType type) {
+        return GraphQLTypeUtil.unwrapNonNull(type) instanceof GraphQLList;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum; // Both are non-negative, so only an overflow makes it negative.
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+
+    /**
+     * The cost of an operation, estimated when its execution begins.
+     */
+    private static final class CostState implements InstrumentationState {
+        private Long cost; // null until the execution of the operation has begun.
+    }
+}
@@ -0,0 +1,144 @@
+package videoclub.graphql.server.instrumentation;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.language.OperationDefinition;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLDirective;
+import graphql.schema.GraphQLDirectiveContainer;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import videoclub.graphql.server.cachecontrol.CacheControlPolicy;
+import videoclub.graphql.server.responsecache.ResponseCache;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.noOp;
+
+/**
+ * Admits the result of every query that executed without errors to the {@link ResponseCache}, along with the tables
+ * of the database its fields are read from. <br>
+ *
+ * The tables are the ones declared with the @tables directive (see directives.graphqls) on the types of the fields the
+ * query selects, and on the types of the connections they return. They are collected from the document rather than
+ * from the result, so that a list that was empty when the query was executed still evicts its response once an entity
+ * is added to it. The caching headers computed by {@link CacheControlInstrumentation} are cached along with the
+ * response.
+ * @author Ioannis Baraklilis
+ */
+public class ResponseCacheInstrumentation extends SimpleInstrumentation {
+    private final ResponseCache responseCache; // The cache the results are admitted to.
+
+    /**
+     * @param responseCache The cache the results are admitted to.
+     */
+    public ResponseCacheInstrumentation(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        // Read before any field is resolved, so that every write made during the execution is noticed.
+        return new ResponseCacheState(responseCache.generation());
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        ResponseCacheState state = parameters.getInstrumentationState();
+        state.executionContext = parameters.getExecutionContext();
+        return noOp();
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult,
+                                                                        InstrumentationExecutionParameters parameters) {
+        ResponseCacheState state = parameters.getInstrumentationState();
+        ExecutionContext executionContext = state.executionContext;
+        if (executionContext != null && executionResult.getErrors().isEmpty()
+                && executionContext.getOperationDefinition().getOperation() == OperationDefinition.Operation.QUERY) {
+            ExecutionInput executionInput = parameters.getExecutionInput();
+            String key = ResponseCache.keyOf(executionInput.getQuery(), executionInput.getOperationName(),
+                    executionInput.getVariables(), executionInput.getExtensions());
+            if (key != null) {
+                CacheControlPolicy policy = executionInput.getGraphQLContext().get(CacheControlPolicy.class);
+                responseCache.admit(key, tablesOf(executionContext), policy == null ? Map.of() : policy.headers(),
+                        state.generation);
+            }
+        }
+        return CompletableFuture.completedFuture(executionResult);
+    }
+
+    /**
+     * @param executionContext The operation, its variables and the schema it is executed against.
+     * @return The tables that the fields selected by the operation are read from.
+     */
+    private static Set<String> tablesOf(ExecutionContext executionContext) {
+        GraphQLSchema schema = executionContext.getGraphQLSchema();
+        QueryTraverser traverser = QueryTraverser.newQueryTraverser()
+                .schema(schema)
+                .document(executionContext.getDocument())
+                .operationName(executionContext.getExecutionInput().getOperationName())
+                .variables(executionContext.getExecutionInput().getVariables())
+                .build();
+
+        Set<String> tables = new HashSet<>();
+        traverser.visitPreOrder(new QueryVisitorStub() {
+            @Override
+            public void visitField(QueryVisitorFieldEnvironment environment) {
+                GraphQLFieldDefinition fieldDefinition = environment.getFieldDefinition();
+                addTables(tables, GraphQLTypeUtil.unwrapAll(fieldDefinition.getType()));
+
+                // A connection is read from the tables of its nodes, even if they are not selected.
+                GraphQLDirective connection = fieldDefinition.getDirective("connection");
+                String nodeType = connection == null ? null : argumentOf(connection, "for");
+                if (nodeType != null) {
+                    addTables(tables, schema.getType(nodeType));
+                }
+            }
+        });
+        return Set.copyOf(tables);
+    }
+
+    private static void addTables(Set<String> tables, GraphQLType type) {
+        if (type instanceof GraphQLDirectiveContainer) {
+            GraphQLDirective directive = ((GraphQLDirectiveContainer) type).getDirective("tables");
+            if (directive != null) {
+                List<String> names = argumentOf(directive, "names");
+                tables.addAll(names);
+            }
+        }
+    }
+
+    private static <T> T argumentOf(GraphQLDirective directive, String name) {
+        GraphQLArgument argument = directive.getArgument(name);
+        return argument == null ? null : GraphQLArgument.getArgumentValue(argument);
+    }
+
+    /**
+     * The number of writes when the execution of a query began, and the operation executed once it has.
+     */
+    private static final class ResponseCacheState implements InstrumentationState {
+        private final long generation;
+        private ExecutionContext executionContext; // null until the execution of the operation has begun.
+
+        private ResponseCacheState(long generation) {
+            this.generation = generation;
+        }
+    }
+}
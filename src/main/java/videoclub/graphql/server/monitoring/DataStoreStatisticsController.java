@@ -0,0 +1,33 @@
+package videoclub.graphql.server.monitoring;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import videoclub.datastore.DataStore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the usage statistics of the data store, so that saturation of its resources can be watched.
+ * @author Ioannis Baraklilis
+ */
+@RestController
+public class DataStoreStatisticsController {
+    private final DataStore dataStore; // The data store being watched.
+
+    public DataStoreStatisticsController(DataStore dataStore) {
+        this.dataStore = dataStore;
+    }
+
+    /**
+     * @return The current usage statistics of the data store.
+     */
+    @GetMapping("/statistics/datastore")
+    public Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("connectionPools", dataStore.connectionPoolStatistics());
+        statistics.put("entityCaches", dataStore.entityCacheStatistics());
+        statistics.put("executor", dataStore.executorStatistics());
+        return statistics;
+    }
+}
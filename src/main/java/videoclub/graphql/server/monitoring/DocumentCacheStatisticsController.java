@@ -0,0 +1,30 @@
+package videoclub.graphql.server.monitoring;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import videoclub.graphql.server.preparsed.PreparsedDocumentCache;
+
+import java.util.Map;
+
+/**
+ * Exposes the usage statistics of the cache of the parsed and validated documents, so that its hit rate can be watched.
+ * @author Ioannis Baraklilis
+ */
+@RestController
+public class DocumentCacheStatisticsController {
+    private final ObjectProvider<PreparsedDocumentCache> documentCache; // The cache being watched, if it is enabled.
+
+    public DocumentCacheStatisticsController(ObjectProvider<PreparsedDocumentCache> documentCache) {
+        this.documentCache = documentCache;
+    }
+
+    /**
+     * @return The current usage statistics of the document cache, or an empty object if it is disabled.
+     */
+    @GetMapping("/statistics/documents")
+    public Map<String, Object> statistics() {
+        PreparsedDocumentCache cache = documentCache.getIfAvailable();
+        return cache == null ? Map.of() : cache.statistics();
+    }
+}
@@ -0,0 +1,30 @@
+package videoclub.graphql.server.monitoring;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import videoclub.graphql.server.responsecache.ResponseCache;
+
+import java.util.Map;
+
+/**
+ * Exposes the usage statistics of the cache of the responses of the queries, so that its hit rate can be watched.
+ * @author Ioannis Baraklilis
+ */
+@RestController
+public class ResponseCacheStatisticsController {
+    private final ObjectProvider<ResponseCache> responseCache; // The cache being watched, if it is enabled.
+
+    public ResponseCacheStatisticsController(ObjectProvider<ResponseCache> responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * @return The current usage statistics of the response cache, or an empty object if it is disabled.
+     */
+    @GetMapping("/statistics/responses")
+    public Map<String, Object> statistics() {
+        ResponseCache cache = responseCache.getIfAvailable();
+        return cache == null ? Map.of() : cache.statistics();
+    }
+}
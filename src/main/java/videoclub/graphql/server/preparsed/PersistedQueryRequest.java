@@ -0,0 +1,30 @@
+package videoclub.graphql.server.preparsed;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import graphql.kickstart.execution.GraphQLRequest;
+
+/**
+ * A GraphQL request whose operation may be sent by its hash alone, see {@link PreparsedDocumentCache}. <br>
+ *
+ * Such a request leaves out the text of the operation, which the servlet endpoint rejects before the document cache
+ * is asked for it, so the text of an operation sent by its hash reads as empty instead.
+ * @author Ioannis Baraklilis
+ */
+public class PersistedQueryRequest extends GraphQLRequest {
+
+    @Override
+    public String getQuery() {
+        String query = super.getQuery();
+        if (query == null && getExtensions() != null && getExtensions().containsKey("persistedQuery")) {
+            return "";
+        }
+        return query;
+    }
+
+    /**
+     * Makes Jackson read the GraphQL requests as {@link PersistedQueryRequest}s when it is mixed in for them.
+     */
+    @JsonDeserialize(as = PersistedQueryRequest.class)
+    public interface Mixin {
+    }
+}
@@ -0,0 +1,162 @@
+package videoclub.graphql.server.preparsed;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.execution.preparsed.persisted.PersistedQueryCache;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the parsed and validated documents of the operations, by the SHA-256 hash of their text, so that
+ * an operation that is sent again is neither parsed nor validated again. <br>
+ *
+ * It also supports the automatic persisted queries of Apollo: a client may send only the hash of an operation, in the
+ * persistedQuery entry of the extensions of the request, along with its variables. If the operation is not cached,
+ * the request fails with a PersistedQueryNotFound error and the client sends it again along with the text of the
+ * operation, which is checked against the hash and cached. Since both kinds of request are cached by the same hash,
+ * an operation that has been sent with its text can be sent by its hash right away. <br>
+ *
+ * Only the documents that were parsed and validated without errors are cached, so that invalid operations do not
+ * evict the valid ones. A cached document is not validated again, so the checks that depend on the variables of a
+ * request are made when it is executed instead, see
+ * {@link videoclub.graphql.server.instrumentation.CostAnalysisInstrumentation}.
+ * @author Ioannis Baraklilis
+ */
+public class PreparsedDocumentCache extends ApolloPersistedQuerySupport {
+    private final Documents documents; // The cached documents, by hash.
+    private final boolean persistedQueries; // Whether the operations may be sent by their hash alone.
+
+    /**
+     * @param maxSize The maximum number of documents cached; the least recently used one is evicted beyond it.
+     * @param persistedQueries Whether the operations may be sent by their hash alone.
+     */
+    public PreparsedDocumentCache(int maxSize, boolean persistedQueries) {
+        this(new Documents(maxSize), persistedQueries);
+    }
+
+    private PreparsedDocumentCache(Documents documents, boolean persistedQueries) {
+        super(documents);
+        this.documents = documents;
+        this.persistedQueries = persistedQueries;
+    }
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+        if (getPersistedQueryId(executionInput).isPresent()) {
+            return super.getDocument(executionInput, parseAndValidate);
+        }
+        return documents.getPersistedQueryDocument(hashOf(executionInput.getQuery()), executionInput,
+                query -> parseAndValidate.apply(executionInput));
+    }
+
+    @Override
+    protected Optional<Object> getPersistedQueryId(ExecutionInput executionInput) {
+        Object persistedQuery = executionInput.getExtensions() == null ? null
+                : executionInput.getExtensions().get("persistedQuery");
+        if (!persistedQueries || !(persistedQuery instanceof Map)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(((Map<?, ?>) persistedQuery).get("sha256Hash"));
+    }
+
+    /**
+     * @return A snapshot of the size and the counters of the cache.
+     */
+    public Map<String, Object> statistics() {
+        return documents.statistics();
+    }
+
+    /**
+     * @param query The text of an operation.
+     * @return The SHA-256 hash of the text, in lower case hexadecimal digits, as the clients of Apollo compute it.
+     */
+    public static String hashOf(String query) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    /**
+     * The cached documents, in the order they were last used, the least recently used first.
+     */
+    private static final class Documents implements PersistedQueryCache {
+        private final int maxSize;
+        private final LinkedHashMap<String, PreparsedDocumentEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private Documents(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("The size of the document cache must be positive.");
+            }
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public PreparsedDocumentEntry getPersistedQueryDocument(Object persistedQueryId, ExecutionInput executionInput,
+                                                                PersistedQueryCacheMiss onCacheMiss) {
+            String hash = persistedQueryId.toString().toLowerCase(Locale.ROOT);
+            synchronized (this) {
+                PreparsedDocumentEntry entry = entries.get(hash);
+                if (entry != null) {
+                    hits++;
+                    return entry;
+                }
+                misses++;
+            }
+
+            // Some clients send a marker instead of leaving out the text of an operation sent by its hash.
+            String query = executionInput.getQuery();
+            if (PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query)) {
+                throw new PersistedQueryNotFound(persistedQueryId);
+            }
+
+            // The operation is parsed and validated outside the lock, so that the other lookups are not held up by it.
+            PreparsedDocumentEntry entry = onCacheMiss.apply(query);
+            if (!entry.hasErrors()) {
+                synchronized (this) {
+                    store(hash, entry);
+                }
+            }
+            return entry;
+        }
+
+        private void store(String hash, PreparsedDocumentEntry entry) {
+            entries.put(hash, entry);
+            Iterator<PreparsedDocumentEntry> leastRecentlyUsed = entries.values().iterator();
+            while (entries.size() > maxSize) {
+                leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                evictions++;
+            }
+        }
+
+        private synchronized Map<String, Object> statistics() {
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("size", entries.size());
+            statistics.put("maxSize", maxSize);
+            statistics.put("hits", hits);
+            statistics.put("misses", misses);
+            statistics.put("evictions", evictions);
+            return statistics;
+        }
+    }
+}
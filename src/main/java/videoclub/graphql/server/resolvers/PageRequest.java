@@ -0,0 +1,117 @@
+package videoclub.graphql.server.resolvers;
+
+import graphql.relay.Connection;
+import graphql.relay.ConnectionCursor;
+import graphql.relay.DefaultConnection;
+import graphql.relay.DefaultConnectionCursor;
+import graphql.relay.DefaultEdge;
+import graphql.relay.DefaultPageInfo;
+import graphql.relay.Edge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * The page of a Relay connection that a query asks for with its first and after arguments. <br>
+ *
+ * The connections are ordered by the ids of their entities, and a page is read with a keyset query
+ * (id &gt; after order by id limit first + 1) instead of an offset, so that its cost does not grow with the number of
+ * pages before it. The extra row only tells whether there is a next page. <br>
+ *
+ * A cursor is the id of its entity prefixed with the name of its type, so that the cursor of one connection is not
+ * mistaken for the cursor of another.
+ * @author Ioannis Baraklilis
+ */
+public final class PageRequest {
+    public static final int DEFAULT_PAGE_SIZE = 20; // The size of a page when first is not given.
+    public static final int MAX_PAGE_SIZE = 100; // The largest page a query may ask for.
+
+    private final String type; // The name of the type of the entities in the connection.
+    private final Integer afterId; // The id after which the page starts, or null for the first page.
+    private final int size; // The number of entities in the page.
+
+    private PageRequest(String type, Integer afterId, int size) {
+        this.type = type;
+        this.afterId = afterId;
+        this.size = size;
+    }
+
+    /**
+     * Reads the first and after arguments of a connection.
+     * @param type The name of the type of the entities in the connection.
+     * @param first The number of entities in the page. If null, it is {@link #DEFAULT_PAGE_SIZE}.
+     * @param after The cursor of the entity after which the page starts. If null, the page is the first one.
+     * @return The page asked for.
+     * @throws IllegalArgumentException If first is negative or larger than {@link #MAX_PAGE_SIZE}, or after is not a
+     *                                  cursor of the given type.
+     */
+    public static PageRequest of(String type, Integer first, String after) {
+        int size = first == null ? DEFAULT_PAGE_SIZE : first;
+        if (size < 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("The argument first must be between 0 and " + MAX_PAGE_SIZE + ", not " + first + ".");
+        }
+        return new PageRequest(type, after == null ? null : decode(type, after), size);
+    }
+
+    /**
+     * @return The id after which the page starts, or null for the first page.
+     */
+    public Integer getAfterId() {
+        return afterId;
+    }
+
+    /**
+     * @return The number of rows to read for the page: one more than its size, to tell whether there is a next page.
+     */
+    public int getLimit() {
+        return size + 1;
+    }
+
+    /**
+     * Builds the connection of the page out of the rows read for it.
+     * @param rows At most {@link #getLimit()} entities in the order of their ids, starting after the cursor.
+     * @param id The id of an entity.
+     * @param <T> The type of the entities.
+     * @return The connection, with an edge for each entity of the page.
+     */
+    public <T> Connection<T> connection(T[] rows, ToIntFunction<T> id) {
+        int count = Math.min(rows.length, size);
+        List<Edge<T>> edges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            edges.add(new DefaultEdge<>(rows[i], encode(id.applyAsInt(rows[i]))));
+        }
+
+        ConnectionCursor startCursor = edges.isEmpty() ? null : edges.get(0).getCursor();
+        ConnectionCursor endCursor = edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor();
+        // Whether there are entities before the cursor is not looked up, which the Relay specification allows for
+        // forward pagination.
+        return new DefaultConnection<>(edges, new DefaultPageInfo(startCursor, endCursor, false, rows.length > size));
+    }
+
+    private ConnectionCursor encode(int id) {
+        String cursor = type + ":" + id;
+        return new DefaultConnectionCursor(Base64.getEncoder().encodeToString(cursor.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Integer decode(String type, String after) {
+        String cursor;
+        try {
+            cursor = new String(Base64.getDecoder().decode(after), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("The cursor " + after + " is not valid.");
+        }
+
+        String prefix = type + ":";
+        if (cursor.startsWith(prefix)) {
+            try {
+                return Integer.valueOf(cursor.substring(prefix.length()));
+            } catch (NumberFormatException ignored) {
+                // Reported below as any other cursor that does not belong to the connection.
+            }
+        }
+        throw new IllegalArgumentException("The cursor " + after + " is not a cursor of a " + type + ".");
+    }
+}
@@ -1,12 +1,13 @@
 package videoclub.graphql.server.resolvers.fields;
 
 import graphql.kickstart.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
 import videoclub.graphql.server.domain.videoclub.Actor;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class contains methods to resolve field queries of the type Actor that is not
@@ -17,10 +18,13 @@ public class ActorFieldsResolver implements GraphQLResolver<Actor> {
     /**
      * Acts as resolver for the moviesPlayedIn field of Actor type.
      * @param actor The {@link Actor} specified.
-     * @return The MovieTitle list requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The MovieTitle list requested, once the batch it is part of has been loaded.
      */
-    public MovieTitle[] moviesPlayedIn(Actor actor) throws SQLException {
-        return Application.dataSource.aboutMovieTitles().retrieveMovieTitlesOfActor(actor);
+    public CompletableFuture<MovieTitle[]> moviesPlayedIn(Actor actor, DataFetchingEnvironment environment) {
+        if (actor.getPreloadedMovieTitles() != null) { // Loaded together with the actor.
+            return CompletableFuture.completedFuture(actor.getPreloadedMovieTitles());
+        }
+        return environment.<Integer, MovieTitle[]>getDataLoader(DataLoaderRegistryFactory.MOVIE_TITLES_OF_ACTOR).load(actor.getId());
     }
 }
@@ -1,12 +1,13 @@
 package videoclub.graphql.server.resolvers.fields;
 
 import graphql.kickstart.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
 import videoclub.graphql.server.domain.videoclub.Category;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class contains methods to resolve field queries of the type Category that is not
@@ -17,10 +18,13 @@ public class CategoryFieldsResolver implements GraphQLResolver<Category> {
     /**
      * Acts as resolver for the moviesInCategory field of Category type.
      * @param category The {@link Category} that contains the requested movie titles.
-     * @return The MovieTitle list requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The MovieTitle list requested, once the batch it is part of has been loaded.
      */
-    public MovieTitle[] moviesInCategory(Category category) throws SQLException {
-        return Application.dataSource.aboutMovieTitles().retrieveMovieTitlesOfCategory(category);
+    public CompletableFuture<MovieTitle[]> moviesInCategory(Category category, DataFetchingEnvironment environment) {
+        if (category.getPreloadedMovieTitles() != null) { // Loaded together with the category.
+            return CompletableFuture.completedFuture(category.getPreloadedMovieTitles());
+        }
+        return environment.<Integer, MovieTitle[]>getDataLoader(DataLoaderRegistryFactory.MOVIE_TITLES_OF_CATEGORY).load(category.getId());
     }
 }
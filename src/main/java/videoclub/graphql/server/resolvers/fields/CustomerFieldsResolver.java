@@ -1,15 +1,21 @@
 package videoclub.graphql.server.resolvers.fields;
 
 import graphql.kickstart.tools.GraphQLResolver;
+import graphql.relay.Connection;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.datastore.DataStore;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
 import videoclub.graphql.server.domain.videoclub.Customer;
 import videoclub.graphql.server.domain.videoclub.RentTransaction;
+import videoclub.graphql.server.resolvers.PageRequest;
 
-import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * This class contains methods to resolve field queries of the type Customer that is not
@@ -33,19 +39,122 @@ public class CustomerFieldsResolver implements GraphQLResolver<Customer> {
         All
     }
 
+    private final DataStore dataStore; // The data the fields are resolved from.
+
+    public CustomerFieldsResolver(DataStore dataStore) {
+        this.dataStore = dataStore;
+    }
+
+    /**
+     * Acts as resolver for the fullName field of customer type.
+     * @param customer The customer whose full name is requested.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The full name, filled in from the customer's row if it was not loaded.
+     */
+    public CompletableFuture<String> fullName(Customer customer, DataFetchingEnvironment environment) {
+        return loaded(customer, Customer.Field.FULL_NAME, Customer::getFullName, environment);
+    }
+
+    /**
+     * Acts as resolver for the dateOfBirth field of customer type.
+     * @param customer The customer whose date of birth is requested.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The date of birth, filled in from the customer's row if it was not loaded.
+     */
+    public CompletableFuture<LocalDate> dateOfBirth(Customer customer, DataFetchingEnvironment environment) {
+        return loaded(customer, Customer.Field.DATE_OF_BIRTH, Customer::getDateOfBirth, environment);
+    }
+
+    /**
+     * Acts as resolver for the address field of customer type.
+     * @param customer The customer whose address is requested.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The address, filled in from the customer's row if it was not loaded.
+     */
+    public CompletableFuture<String> address(Customer customer, DataFetchingEnvironment environment) {
+        return loaded(customer, Customer.Field.ADDRESS, Customer::getAddress, environment);
+    }
+
+    /**
+     * Acts as resolver for the phoneNumber field of customer type.
+     * @param customer The customer whose phone number is requested.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The phone number, filled in from the customer's row if it was not loaded.
+     */
+    public CompletableFuture<String> phoneNumber(Customer customer, DataFetchingEnvironment environment) {
+        return loaded(customer, Customer.Field.PHONE_NUMBER, Customer::getPhoneNumber, environment);
+    }
+
+    /**
+     * Acts as resolver for the email field of customer type.
+     * @param customer The customer whose e-mail address is requested.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The e-mail address, filled in from the customer's row if it was not loaded.
+     */
+    public CompletableFuture<String> email(Customer customer, DataFetchingEnvironment environment) {
+        return loaded(customer, Customer.Field.EMAIL, Customer::getEmail, environment);
+    }
+
+    /**
+     * Returns the value of a field of the customer, loading the rest of its fields first if it was left out by
+     * the projection of the query that loaded it.
+     */
+    private static <T> CompletableFuture<T> loaded(Customer customer, Customer.Field field,
+                                                   Function<Customer, T> getter, DataFetchingEnvironment environment) {
+        if (customer.isLoaded(field)) {
+            return CompletableFuture.completedFuture(getter.apply(customer));
+        }
+        return environment.<Integer, Customer>getDataLoader(DataLoaderRegistryFactory.CUSTOMER_BY_ID)
+                .load(customer.getId())
+                .thenApply(complete -> {
+                    customer.fillIn(complete);
+                    return getter.apply(customer);
+                });
+    }
+
     /**
      * Acts as resolver for the rentTransactions field of customer type.
      * @param customer The customer whose rentTransactions are requested.
      * @param status The status of rentTransactions to be returned.
+     * @return a list of the requested rentTransactions. It fails with an SQLException if there is a communication
+     *         error with the data source.
+     */
+    public CompletableFuture<RentTransaction[]> rentTransactions(Customer customer, TransactionStatus status) {
+        return dataStore.async(() -> dataStore.aboutRentTransactions().retrieveRentTransactionsFromCustomer(customer))
+                .thenApply(rentTransactions -> withStatus(rentTransactions, status));
+    }
+
+    /**
+     * Acts as resolver for the rentTransactionsConnection field of customer type.
+     * The status is filtered by the query of the page, so that every page but the last one is full.
+     * @param customer The customer whose rentTransactions are requested.
+     * @param status The status of rentTransactions to be returned.
+     * @param first The number of rentTransactions in the page.
+     * @param after The cursor of the rentTransaction after which the page starts.
+     * @return a page of the requested rentTransactions. It fails with an SQLException if there is a communication
+     *         error with the data source.
+     */
+    public CompletableFuture<Connection<RentTransaction>> rentTransactionsConnection(Customer customer, TransactionStatus status,
+                                                                                     Integer first, String after) {
+        PageRequest page = PageRequest.of("RentTransaction", first, after);
+        Boolean returned = status == TransactionStatus.Completed ? Boolean.TRUE
+                : status == TransactionStatus.Active ? Boolean.FALSE
+                : null; // Either null or All.
+        return dataStore.async(() -> dataStore.aboutRentTransactions()
+                        .retrieveRentTransactionsFromCustomerPage(customer, returned, page.getAfterId(), page.getLimit()))
+                .thenApply(rentTransactions -> page.connection(rentTransactions, RentTransaction::getId));
+    }
+
+    /**
+     * Keeps the rent transactions of the given status.
+     * @param rentTransactions The rent transactions of a customer.
+     * @param status The status of rentTransactions to be returned.
      * @return a list of the requested rentTransactions.
-     * @throws SQLException if there is a communication error with the data source.
      */
-    public RentTransaction[] rentTransactions(Customer customer, TransactionStatus status) throws SQLException {
+    private static RentTransaction[] withStatus(RentTransaction[] rentTransactions, TransactionStatus status) {
         // Filter out complete transactions.
         if (status == TransactionStatus.Active){
-            ArrayList<RentTransaction> queryResults = new ArrayList<>(
-                    List.of(Application.dataSource.aboutRentTransactions().retrieveRentTransactionsFromCustomer(customer))
-            );
+            ArrayList<RentTransaction> queryResults = new ArrayList<>(List.of(rentTransactions));
 
             Iterator<RentTransaction> transactionIterator = queryResults.iterator();
             while (transactionIterator.hasNext()){
@@ -58,9 +167,7 @@ public class CustomerFieldsResolver implements GraphQLResolver<Customer> {
 
             return queryResults.toArray(new RentTransaction[0]);
         } else if (status == TransactionStatus.Completed){ // Filter out incomplete transactions.
-            ArrayList<RentTransaction> queryResults = new ArrayList<>(
-                    List.of(Application.dataSource.aboutRentTransactions().retrieveRentTransactionsFromCustomer(customer))
-            );
+            ArrayList<RentTransaction> queryResults = new ArrayList<>(List.of(rentTransactions));
 
             Iterator<RentTransaction> transactionIterator = queryResults.iterator();
             while (transactionIterator.hasNext()){
@@ -73,7 +180,7 @@ public class CustomerFieldsResolver implements GraphQLResolver<Customer> {
 
             return queryResults.toArray(new RentTransaction[0]);
         } else { // No need to filter out results (either null or All), return the whole list.
-            return Application.dataSource.aboutRentTransactions().retrieveRentTransactionsFromCustomer(customer);
+            return rentTransactions;
         }
     }
 
@@ -1,12 +1,13 @@
 package videoclub.graphql.server.resolvers.fields;
 
 import graphql.kickstart.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
 import videoclub.graphql.server.domain.videoclub.Director;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class contains methods to resolve field queries of the type Director that is not
@@ -17,10 +18,13 @@ public class DirectorFieldsResolver implements GraphQLResolver<Director> {
     /**
      * Acts as resolver for the moviesDirected field of Director type.
      * @param director The {@link Director} specified.
-     * @return The MovieTitle list requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The MovieTitle list requested, once the batch it is part of has been loaded.
      */
-    public MovieTitle[] moviesDirected(Director director) throws SQLException {
-        return Application.dataSource.aboutMovieTitles().retrieveMovieTitlesOfDirector(director);
+    public CompletableFuture<MovieTitle[]> moviesDirected(Director director, DataFetchingEnvironment environment) {
+        if (director.getPreloadedMovieTitles() != null) { // Loaded together with the director.
+            return CompletableFuture.completedFuture(director.getPreloadedMovieTitles());
+        }
+        return environment.<Integer, MovieTitle[]>getDataLoader(DataLoaderRegistryFactory.MOVIE_TITLES_OF_DIRECTOR).load(director.getId());
     }
 }
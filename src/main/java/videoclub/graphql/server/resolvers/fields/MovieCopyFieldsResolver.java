@@ -2,11 +2,11 @@ package videoclub.graphql.server.resolvers.fields;
 
 import graphql.kickstart.tools.GraphQLResolver;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.datastore.DataStore;
 import videoclub.graphql.server.domain.videoclub.MovieCopy;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class contains methods to resolve field queries of the type MovieCopy that is not
@@ -14,14 +14,20 @@ import java.sql.SQLException;
  */
 @Component
 public class MovieCopyFieldsResolver implements GraphQLResolver<MovieCopy> {
+    private final DataStore dataStore; // The data the fields are resolved from.
+
+    public MovieCopyFieldsResolver(DataStore dataStore) {
+        this.dataStore = dataStore;
+    }
+
 
     /**
      * Acts as resolver for the movieTitle field of MovieCopy type.
      * @param movieCopy The {@link MovieCopy} that contains the requested movie title.
-     * @return The movie title requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @return The movie title requested. It fails with an SQLException if there is a communication error with the
+     *         data source.
      */
-    public MovieTitle movieTitle(MovieCopy movieCopy) throws SQLException {
-        return Application.dataSource.aboutMovieTitles().retrieveMovieTitleOfMovieCopy(movieCopy);
+    public CompletableFuture<MovieTitle> movieTitle(MovieCopy movieCopy) {
+        return dataStore.async(() -> dataStore.aboutMovieTitles().retrieveMovieTitleOfMovieCopy(movieCopy));
     }
 }
@@ -1,57 +1,129 @@
 package videoclub.graphql.server.resolvers.fields;
 
 import graphql.kickstart.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
 import videoclub.graphql.server.domain.videoclub.*;
 
-import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * This class contains methods to resolve field queries of the type MovieTitle that is not
  * explicitly stored as an instance variable of an object of this kind.
+ * The related entities are loaded through the data loaders of the request, so that the movie titles of a
+ * response share one query per field, unless they were already loaded together with the movie title.
  */
 @Component
 public class MovieTitleFieldsResolver implements GraphQLResolver<MovieTitle> {
 
+    /**
+     * Acts as resolver for the title field of MovieTitle type.
+     * @param movieTitle The {@link MovieTitle} that contains the requested title.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The title, filled in from the movie title's row if it was not loaded.
+     */
+    public CompletableFuture<String> title(MovieTitle movieTitle, DataFetchingEnvironment environment) {
+        return loaded(movieTitle, MovieTitle.Field.TITLE, MovieTitle::getTitle, environment);
+    }
+
+    /**
+     * Acts as resolver for the description field of MovieTitle type.
+     * @param movieTitle The {@link MovieTitle} that contains the requested description.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The description, filled in from the movie title's row if it was not loaded.
+     */
+    public CompletableFuture<String> description(MovieTitle movieTitle, DataFetchingEnvironment environment) {
+        return loaded(movieTitle, MovieTitle.Field.DESCRIPTION, MovieTitle::getDescription, environment);
+    }
+
+    /**
+     * Acts as resolver for the releaseDate field of MovieTitle type.
+     * @param movieTitle The {@link MovieTitle} that contains the requested release date.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The release date, filled in from the movie title's row if it was not loaded.
+     */
+    public CompletableFuture<LocalDate> releaseDate(MovieTitle movieTitle, DataFetchingEnvironment environment) {
+        return loaded(movieTitle, MovieTitle.Field.RELEASE_DATE, MovieTitle::getReleaseDate, environment);
+    }
 
+    /**
+     * Acts as resolver for the rating field of MovieTitle type.
+     * @param movieTitle The {@link MovieTitle} that contains the requested rating.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The rating, filled in from the movie title's row if it was not loaded.
+     */
+    public CompletableFuture<Float> rating(MovieTitle movieTitle, DataFetchingEnvironment environment) {
+        return loaded(movieTitle, MovieTitle.Field.RATING, MovieTitle::getRating, environment);
+    }
+
+    /**
+     * Returns the value of a field of the movie title, loading the rest of its fields first if it was left out by
+     * the projection of the query that loaded it.
+     */
+    private static <T> CompletableFuture<T> loaded(MovieTitle movieTitle, MovieTitle.Field field,
+                                                   Function<MovieTitle, T> getter, DataFetchingEnvironment environment) {
+        if (movieTitle.isLoaded(field)) {
+            return CompletableFuture.completedFuture(getter.apply(movieTitle));
+        }
+        return environment.<Integer, MovieTitle>getDataLoader(DataLoaderRegistryFactory.MOVIE_TITLE_BY_ID)
+                .load(movieTitle.getId())
+                .thenApply(complete -> {
+                    movieTitle.fillIn(complete);
+                    return getter.apply(movieTitle);
+                });
+    }
     /**
      * Acts as resolver for the directors field of MovieTitle type.
      * @param movieTitle The {@link MovieTitle} that contains the requested directors.
-     * @return The directors requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The directors requested, once the batch they are part of has been loaded.
      */
-    public Director[] directors(MovieTitle movieTitle) throws SQLException {
-        return Application.dataSource.aboutDirectors().retrieveDirectorsOfMovieTitle(movieTitle);
+    public CompletableFuture<Director[]> directors(MovieTitle movieTitle, DataFetchingEnvironment environment) {
+        if (movieTitle.getPreloadedDirectors() != null) { // Loaded together with the movie title.
+            return CompletableFuture.completedFuture(movieTitle.getPreloadedDirectors());
+        }
+        return environment.<Integer, Director[]>getDataLoader(DataLoaderRegistryFactory.DIRECTORS_OF_MOVIE_TITLE).load(movieTitle.getId());
     }
 
     /**
      * Acts as resolver for the actors field of MovieTitle type.
      * @param movieTitle The {@link MovieTitle} that contains the requested actors.
-     * @return The actors requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The actors requested, once the batch they are part of has been loaded.
      */
-    public Actor[] actors(MovieTitle movieTitle) throws SQLException {
-        return Application.dataSource.aboutActors().retrieveActorsOfMovieTitle(movieTitle);
+    public CompletableFuture<Actor[]> actors(MovieTitle movieTitle, DataFetchingEnvironment environment) {
+        if (movieTitle.getPreloadedActors() != null) { // Loaded together with the movie title.
+            return CompletableFuture.completedFuture(movieTitle.getPreloadedActors());
+        }
+        return environment.<Integer, Actor[]>getDataLoader(DataLoaderRegistryFactory.ACTORS_OF_MOVIE_TITLE).load(movieTitle.getId());
     }
 
     /**
      * Acts as resolver for the inCategory field of MovieTitle type.
      * @param movieTitle The {@link MovieTitle} that contains the requested categories.
-     * @return The categories requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The categories requested, once the batch they are part of has been loaded.
      */
-    public Category[] inCategory(MovieTitle movieTitle) throws SQLException {
-        return Application.dataSource.aboutCategories().retrieveCategoriesOfMovieTitle(movieTitle);
+    public CompletableFuture<Category[]> inCategory(MovieTitle movieTitle, DataFetchingEnvironment environment) {
+        if (movieTitle.getPreloadedCategories() != null) { // Loaded together with the movie title.
+            return CompletableFuture.completedFuture(movieTitle.getPreloadedCategories());
+        }
+        return environment.<Integer, Category[]>getDataLoader(DataLoaderRegistryFactory.CATEGORIES_OF_MOVIE_TITLE).load(movieTitle.getId());
     }
 
     /**
      * Acts as resolver for the producedBy field of MovieTitle type.
      * @param movieTitle The {@link MovieTitle} that contains the requested production companies.
-     * @return The production companies requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The production companies requested, once the batch they are part of has been loaded.
      */
-    public ProductionCompany[] producedBy(MovieTitle movieTitle) throws SQLException {
-        return Application.dataSource.aboutProductionCompanies().retrieveProductionCompanyOfMovieTitle(movieTitle);
+    public CompletableFuture<ProductionCompany[]> producedBy(MovieTitle movieTitle, DataFetchingEnvironment environment) {
+        if (movieTitle.getPreloadedProductionCompanies() != null) { // Loaded together with the movie title.
+            return CompletableFuture.completedFuture(movieTitle.getPreloadedProductionCompanies());
+        }
+        return environment.<Integer, ProductionCompany[]>getDataLoader(DataLoaderRegistryFactory.PRODUCTION_COMPANIES_OF_MOVIE_TITLE).load(movieTitle.getId());
     }
 }
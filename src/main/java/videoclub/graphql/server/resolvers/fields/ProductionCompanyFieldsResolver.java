@@ -1,12 +1,13 @@
 package videoclub.graphql.server.resolvers.fields;
 
 import graphql.kickstart.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
 import videoclub.graphql.server.domain.videoclub.MovieTitle;
 import videoclub.graphql.server.domain.videoclub.ProductionCompany;
 
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class contains methods to resolve field queries of the type ProductionCompany that is not
@@ -17,10 +18,14 @@ public class ProductionCompanyFieldsResolver implements GraphQLResolver<Producti
     /**
      * Acts as resolver for the moviesProduced field of ProductionCompany type.
      * @param productionCompany The {@link ProductionCompany} that produced the movies requested.
-     * @return The list of movie titles requested.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The list of movie titles requested, once the batch it is part of has been loaded.
      */
-    public MovieTitle[] moviesProduced(ProductionCompany productionCompany) throws SQLException {
-        return Application.dataSource.aboutMovieTitles().retrieveMovieTitlesOfProductionCompany(productionCompany);
+    public CompletableFuture<MovieTitle[]> moviesProduced(ProductionCompany productionCompany, DataFetchingEnvironment environment) {
+        if (productionCompany.getPreloadedMovieTitles() != null) { // Loaded together with the production company.
+            return CompletableFuture.completedFuture(productionCompany.getPreloadedMovieTitles());
+        }
+        return environment.<Integer, MovieTitle[]>getDataLoader(DataLoaderRegistryFactory.MOVIE_TITLES_OF_PRODUCTION_COMPANY)
+                .load(productionCompany.getId());
     }
 }
@@ -1,17 +1,20 @@
 package videoclub.graphql.server.resolvers.fields;
 
 import graphql.kickstart.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
 import videoclub.graphql.server.domain.videoclub.Customer;
 import videoclub.graphql.server.domain.videoclub.MovieCopy;
 import videoclub.graphql.server.domain.videoclub.RentTransaction;
 
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class contains methods to resolve field queries of the type RentTransaction that is not
  * explicitly stored as an instance variable of an object of this kind.
+ * The related entities are loaded through the data loaders of the request, so that the transactions of a
+ * response share one query per field.
  */
 @Component
 public class RentTransactionFieldsResolver implements GraphQLResolver<RentTransaction> {
@@ -19,20 +22,22 @@ public class RentTransactionFieldsResolver implements GraphQLResolver<RentTransa
     /**
      * Acts as resolver for the customer field of RentTransaction type.
      * @param rentTransaction The rentTransaction that refers to the requested customer.
-     * @return The customer that participates in the transaction.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The customer that participates in the transaction, once the batch it is part of has been loaded.
      */
-    public Customer customer(RentTransaction rentTransaction) throws SQLException {
-        return Application.dataSource.aboutCustomers().retrieveCustomerFromTransaction(rentTransaction);
+    public CompletableFuture<Customer> customer(RentTransaction rentTransaction, DataFetchingEnvironment environment) {
+        return environment.<Integer, Customer>getDataLoader(DataLoaderRegistryFactory.CUSTOMER_OF_RENT_TRANSACTION)
+                .load(rentTransaction.getId());
     }
 
     /**
      * Acts as resolver for the movie field of RentTransaction type.
      * @param rentTransaction The rentTransaction that refers to the requested customer.
-     * @return The movie that participates in the transaction.
-     * @throws SQLException If there is a communication error with the data source.
+     * @param environment The environment of the field, holding the data loaders of the request.
+     * @return The movie that participates in the transaction, once the batch it is part of has been loaded.
      */
-    public MovieCopy movie(RentTransaction rentTransaction) throws SQLException {
-        return Application.dataSource.aboutMovieCopies().retrieveMovieCopyFromTransaction(rentTransaction);
+    public CompletableFuture<MovieCopy> movie(RentTransaction rentTransaction, DataFetchingEnvironment environment) {
+        return environment.<Integer, MovieCopy>getDataLoader(DataLoaderRegistryFactory.MOVIE_COPY_OF_RENT_TRANSACTION)
+                .load(rentTransaction.getId());
     }
 }
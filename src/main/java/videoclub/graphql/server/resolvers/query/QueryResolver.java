@@ -1,14 +1,23 @@
 package videoclub.graphql.server.resolvers.query;
 
 import graphql.kickstart.tools.GraphQLQueryResolver;
+import graphql.relay.Connection;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import org.springframework.stereotype.Component;
-import videoclub.graphql.Application;
+import videoclub.datastore.DataStore;
+import videoclub.datastore.DataPoints.MovieTitleData;
+import videoclub.graphql.server.resolvers.PageRequest;
 import videoclub.graphql.server.domain.videoclub.*;
 
 import java.sql.DriverManager;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Resolver for the queries supported by the server.
@@ -16,92 +25,283 @@ import java.time.OffsetDateTime;
  */
 @Component
 public class QueryResolver implements GraphQLQueryResolver {
+    private static final String NODE = "edges/node/"; // The path from a connection to the fields of its entities.
+
+    private final DataStore dataStore; // The data the queries are resolved from.
+
+    public QueryResolver(DataStore dataStore) {
+        this.dataStore = dataStore;
+    }
+
     /**
      * Resolves the GraphQL query:
      * getCustomer(id: ID, name: String): [Customer!].
+     * Only the columns of the fields selected are loaded.
      */
-    public Customer[] getCustomer(Integer id, String fullName) throws SQLException {
+    public CompletableFuture<Customer[]> getCustomer(Integer id, String fullName, DataFetchingEnvironment environment) {
         Customer template = new Customer(id, fullName, null, null, null, null);
-        return Application.dataSource.aboutCustomers().retrieveCustomers(template);
+        EnumSet<Customer.Field> fields = selectedFields(environment.getSelectionSet(), "");
+        return dataStore.async(() -> dataStore.aboutCustomers().retrieveCustomers(template, fields));
+    }
+
+    /**
+     * Resolves the GraphQL query:
+     * getCustomerConnection(id: ID, name: String, first: Int, after: String): CustomerConnection.
+     * Only the columns of the fields selected below the nodes are loaded.
+     */
+    public CompletableFuture<Connection<Customer>> getCustomerConnection(Integer id, String fullName, Integer first, String after,
+                                                                         DataFetchingEnvironment environment) {
+        PageRequest page = PageRequest.of("Customer", first, after);
+        Customer template = new Customer(id, fullName, null, null, null, null);
+        EnumSet<Customer.Field> fields = selectedFields(environment.getSelectionSet(), NODE);
+        return dataStore.async(() -> dataStore.aboutCustomers().retrieveCustomersPage(template, fields, page.getAfterId(), page.getLimit()))
+                .thenApply(customers -> page.connection(customers, Customer::getId));
+    }
+
+    /**
+     * Looks ahead at the fields selected below a Customer, for the columns that have to be loaded.
+     * @param selectionSet The fields selected below the customers.
+     * @param path The path from the field to the customers, "" if it returns them directly.
+     * @return The fields selected.
+     */
+    private static EnumSet<Customer.Field> selectedFields(DataFetchingFieldSelectionSet selectionSet, String path) {
+        EnumSet<Customer.Field> fields = EnumSet.noneOf(Customer.Field.class);
+        if (selectionSet.contains(path + "fullName"))
+            fields.add(Customer.Field.FULL_NAME);
+        if (selectionSet.contains(path + "dateOfBirth"))
+            fields.add(Customer.Field.DATE_OF_BIRTH);
+        if (selectionSet.contains(path + "address"))
+            fields.add(Customer.Field.ADDRESS);
+        if (selectionSet.contains(path + "phoneNumber"))
+            fields.add(Customer.Field.PHONE_NUMBER);
+        if (selectionSet.contains(path + "email"))
+            fields.add(Customer.Field.EMAIL);
+        return fields;
     }
 
     /**
      * Resolves the GraphQL query:
      * getCategory(name: String): [Category!].
+     * If the data source compiles selections, the movie titles selected are loaded by the same SQL query.
      */
-    public Category[] getCategory(Integer id, String name) throws SQLException {
+    public CompletableFuture<Category[]> getCategory(Integer id, String name, DataFetchingEnvironment environment) {
         Category template = new Category(id, name);
-        return Application.dataSource.aboutCategories().retrieveCategories(template);
+        if (compilesMovieTitles(environment, "moviesInCategory")) {
+            EnumSet<MovieTitle.Field> fields = selectedMovieTitleFields(environment.getSelectionSet(), "moviesInCategory/");
+            EnumSet<MovieTitleData.Relation> relations = selectedRelations(environment.getSelectionSet(), "moviesInCategory/");
+            return dataStore.async(() -> dataStore.aboutCategories().retrieveCategoriesWithMovieTitles(template, fields, relations));
+        }
+        return dataStore.async(() -> dataStore.aboutCategories().retrieveCategories(template));
     }
 
     /**
      * Resolves the GraphQL query:
      * getActor(id: ID, name: String): [Actor!].
+     * If the data source compiles selections, the movie titles selected are loaded by the same SQL query.
      */
-    public Actor[] getActor(Integer id, String name) throws SQLException {
+    public CompletableFuture<Actor[]> getActor(Integer id, String name, DataFetchingEnvironment environment) {
         Actor template = new Actor(id, name);
-        return Application.dataSource.aboutActors().retrieveActors(template);
+        if (compilesMovieTitles(environment, "moviesPlayedIn")) {
+            EnumSet<MovieTitle.Field> fields = selectedMovieTitleFields(environment.getSelectionSet(), "moviesPlayedIn/");
+            EnumSet<MovieTitleData.Relation> relations = selectedRelations(environment.getSelectionSet(), "moviesPlayedIn/");
+            return dataStore.async(() -> dataStore.aboutActors().retrieveActorsWithMovieTitles(template, fields, relations));
+        }
+        return dataStore.async(() -> dataStore.aboutActors().retrieveActors(template));
     }
 
     /**
      * Resolves the GraphQL query:
      * getDirector(id: ID, name: String): [Director!].
+     * If the data source compiles selections, the movie titles selected are loaded by the same SQL query.
      */
-    public Director[] getDirector(Integer id, String name) throws SQLException {
+    public CompletableFuture<Director[]> getDirector(Integer id, String name, DataFetchingEnvironment environment) {
         Director template = new Director(id, name);
-        return Application.dataSource.aboutDirectors().retrieveDirectors(template);
+        if (compilesMovieTitles(environment, "moviesDirected")) {
+            EnumSet<MovieTitle.Field> fields = selectedMovieTitleFields(environment.getSelectionSet(), "moviesDirected/");
+            EnumSet<MovieTitleData.Relation> relations = selectedRelations(environment.getSelectionSet(), "moviesDirected/");
+            return dataStore.async(() -> dataStore.aboutDirectors().retrieveDirectorsWithMovieTitles(template, fields, relations));
+        }
+        return dataStore.async(() -> dataStore.aboutDirectors().retrieveDirectors(template));
     }
 
     /**
      * Resolves the GraphQL query:
      * getMovieCopy(id: ID, medium: Medium, format: MovieFormat): [MovieCopy!].
      */
-    public MovieCopy[] getMovieCopy(Integer id, MovieCopy.Medium medium, MovieCopy.MovieFormat format) throws SQLException {
+    public CompletableFuture<MovieCopy[]> getMovieCopy(Integer id, MovieCopy.Medium medium, MovieCopy.MovieFormat format) {
         MovieCopy template =  new MovieCopy(id, medium, format, null);
-        return Application.dataSource.aboutMovieCopies().retrieveMovieCopy(template);
+        return dataStore.async(() -> dataStore.aboutMovieCopies().retrieveMovieCopy(template));
     }
 
     /**
      * Resolves the GraphQL query:
      * getMoviesByPrice(from:Float, upTo: Float): [MovieTitle!].
+     * The rows are mapped straight into the list that the response is built from.
+     */
+    public CompletableFuture<List<MovieCopy>> getMovieCopiesByPrice(Float from, Float upTo) {
+        return dataStore.async(() -> {
+            try (Stream<MovieCopy> movieCopies = dataStore.aboutMovieCopies().streamMovieCopiesInPriceRange(from, upTo)) {
+                return movieCopies.collect(Collectors.toList());
+            }
+        });
+    }
+
+    /**
+     * Resolves the GraphQL query:
+     * getMovieCopiesByPriceConnection(from: Float, upTo: Float, first: Int, after: String): MovieCopyConnection.
      */
-    public MovieCopy[] getMovieCopiesByPrice(Float from, Float upTo) throws SQLException {
-        return Application.dataSource.aboutMovieCopies().retrieveMovieCopiesInPriceRange(from, upTo);
+    public CompletableFuture<Connection<MovieCopy>> getMovieCopiesByPriceConnection(Float from, Float upTo, Integer first, String after) {
+        PageRequest page = PageRequest.of("MovieCopy", first, after);
+        return dataStore.async(() -> dataStore.aboutMovieCopies().retrieveMovieCopiesInPriceRangePage(from, upTo, page.getAfterId(), page.getLimit()))
+                .thenApply(movieCopies -> page.connection(movieCopies, MovieCopy::getId));
     }
 
     /**
      * Resolves the GraphQL query:
      * getMovies(id: ID, title: String, releaseDate: Date, ratingFrom: Float, ratingTo: Float): [MovieTitle!].
+     * Only the columns of the fields selected are loaded. If the data source compiles selections, the relationships
+     * selected are loaded by the same SQL query.
      */
-    public MovieTitle[] getMovies(Integer id, String title, LocalDate releaseDate, Float ratingFrom, Float ratingTo) throws SQLException {
-        if (id != null){ // If the id argument is used, the others will be ignored.
-            return Application.dataSource.aboutMovieTitles().retrieveMovieTitles(
-                    new MovieTitle(id, null, null, null, null)
-            );
-        } else {
-            // Retrieve all the movie copies stored a
-            return Application.dataSource.aboutMovieTitles().retrieveMovieTitlesWithFiltering(title, releaseDate, ratingFrom, ratingTo);
-        }
+    public CompletableFuture<MovieTitle[]> getMovies(Integer id, String title, LocalDate releaseDate, Float ratingFrom,
+                                                     Float ratingTo, DataFetchingEnvironment environment) {
+        // The selections are looked at before the call is handed to the data store.
+        EnumSet<MovieTitle.Field> fields = selectedMovieTitleFields(environment.getSelectionSet(), "");
+        EnumSet<MovieTitleData.Relation> relations = dataStore.compilesSelections()
+                ? selectedRelations(environment.getSelectionSet(), "")
+                : EnumSet.noneOf(MovieTitleData.Relation.class);
+
+        return dataStore.async(() -> {
+            if (!relations.isEmpty()) {
+                return id != null
+                        ? dataStore.aboutMovieTitles().retrieveMovieTitlesWithRelations(id, null, null, null, null, fields, relations)
+                        : dataStore.aboutMovieTitles().retrieveMovieTitlesWithRelations(null, title, releaseDate, ratingFrom, ratingTo, fields, relations);
+            }
+
+            if (id != null){ // If the id argument is used, the others will be ignored.
+                return dataStore.aboutMovieTitles().retrieveMovieTitles(
+                        new MovieTitle(id, null, null, null, null), fields
+                );
+            } else {
+                // Retrieve all the movie copies stored a
+                return dataStore.aboutMovieTitles().retrieveMovieTitlesWithFiltering(title, releaseDate, ratingFrom, ratingTo, fields);
+            }
+        });
+    }
+
+    /**
+     * Resolves the GraphQL query:
+     * getMoviesConnection(id: ID, title: String, releaseDate: Date, ratingFrom: Float, ratingTo: Float, first: Int,
+     * after: String): MovieTitleConnection.
+     * Only the columns of the fields selected below the nodes are loaded; the relationships are left to the field
+     * resolvers.
+     */
+    public CompletableFuture<Connection<MovieTitle>> getMoviesConnection(Integer id, String title, LocalDate releaseDate, Float ratingFrom,
+                                                                         Float ratingTo, Integer first, String after,
+                                                                         DataFetchingEnvironment environment) {
+        PageRequest page = PageRequest.of("MovieTitle", first, after);
+        EnumSet<MovieTitle.Field> fields = selectedMovieTitleFields(environment.getSelectionSet(), NODE);
+        return dataStore.async(() -> id != null // If the id argument is used, the others will be ignored.
+                        ? dataStore.aboutMovieTitles().retrieveMovieTitlesPage(id, null, null, null, null, fields, page.getAfterId(), page.getLimit())
+                        : dataStore.aboutMovieTitles().retrieveMovieTitlesPage(null, title, releaseDate, ratingFrom, ratingTo, fields, page.getAfterId(), page.getLimit()))
+                .thenApply(movieTitles -> page.connection(movieTitles, MovieTitle::getId));
+    }
+
+    /**
+     * Looks ahead at the fields selected below a MovieTitle, for the columns that have to be loaded.
+     * @param selectionSet The fields selected below the movie titles.
+     * @param path The path from the field to the movie titles, "" if it returns them directly.
+     * @return The fields selected.
+     */
+    private static EnumSet<MovieTitle.Field> selectedMovieTitleFields(DataFetchingFieldSelectionSet selectionSet, String path) {
+        EnumSet<MovieTitle.Field> fields = EnumSet.noneOf(MovieTitle.Field.class);
+        if (selectionSet.contains(path + "title"))
+            fields.add(MovieTitle.Field.TITLE);
+        if (selectionSet.contains(path + "description"))
+            fields.add(MovieTitle.Field.DESCRIPTION);
+        if (selectionSet.contains(path + "releaseDate"))
+            fields.add(MovieTitle.Field.RELEASE_DATE);
+        if (selectionSet.contains(path + "rating"))
+            fields.add(MovieTitle.Field.RATING);
+        return fields;
+    }
+
+    /**
+     * Looks ahead at the fields selected below a MovieTitle, for the relationships that can be loaded with it.
+     * @param selectionSet The fields selected below the movie titles.
+     * @param path The path from the field to the movie titles, "" if it returns them directly.
+     * @return The relationships selected.
+     */
+    private static EnumSet<MovieTitleData.Relation> selectedRelations(DataFetchingFieldSelectionSet selectionSet, String path) {
+        EnumSet<MovieTitleData.Relation> relations = EnumSet.noneOf(MovieTitleData.Relation.class);
+        if (selectionSet.contains(path + "directors"))
+            relations.add(MovieTitleData.Relation.DIRECTORS);
+        if (selectionSet.contains(path + "actors"))
+            relations.add(MovieTitleData.Relation.ACTORS);
+        if (selectionSet.contains(path + "inCategory"))
+            relations.add(MovieTitleData.Relation.CATEGORIES);
+        if (selectionSet.contains(path + "producedBy"))
+            relations.add(MovieTitleData.Relation.PRODUCTION_COMPANIES);
+        return relations;
+    }
+
+    /**
+     * @param environment The environment of a root query of the catalog.
+     * @param movieTitlesField The field of the entities it returns that lists their movie titles.
+     * @return Whether the movie titles are selected and should be loaded together with the entities.
+     */
+    private boolean compilesMovieTitles(DataFetchingEnvironment environment, String movieTitlesField) {
+        return dataStore.compilesSelections() && environment.getSelectionSet().contains(movieTitlesField);
     }
 
     /**
      * Resolves the GraphQL query:
      * getProductionCompany(id: ID, name: String): [ProductionCompany!].
+     * If the data source compiles selections, the movie titles selected are loaded by the same SQL query.
      */
-    public ProductionCompany[] getProductionCompany(Integer id, String name) throws SQLException {
+    public CompletableFuture<ProductionCompany[]> getProductionCompany(Integer id, String name, DataFetchingEnvironment environment) {
         ProductionCompany template = new ProductionCompany(id, name);
-        return Application.dataSource.aboutProductionCompanies().retrieveProductionCompanies(template);
+        if (compilesMovieTitles(environment, "moviesProduced")) {
+            EnumSet<MovieTitle.Field> fields = selectedMovieTitleFields(environment.getSelectionSet(), "moviesProduced/");
+            EnumSet<MovieTitleData.Relation> relations = selectedRelations(environment.getSelectionSet(), "moviesProduced/");
+            return dataStore.async(() -> dataStore.aboutProductionCompanies().retrieveProductionCompaniesWithMovieTitles(template, fields, relations));
+        }
+        return dataStore.async(() -> dataStore.aboutProductionCompanies().retrieveProductionCompanies(template));
     }
 
     /**
      * Resolves the GraphQL query:
      * getRents(id: ID, priceFrom: Float, priceTo: Float, dateFrom: DateTime, dateFromUpto: DateTime): [RentTransaction!].
+     * The rows of a range are mapped straight into the list that the response is built from.
      */
-    public RentTransaction[] getRents(Integer id, Float priceFrom, Float priceTo, OffsetDateTime dateFrom, OffsetDateTime dateFromUpto) throws SQLException {
-        if ( id!= null){ // If the id argument is used, the others will be ignored.
-            return Application.dataSource.aboutRentTransactions().retrieveRentTransactions(new RentTransaction(id, null, null, null));
-        } else {
-            return Application.dataSource.aboutRentTransactions().retrieveRentTransactionsFiltered(priceFrom, priceTo, dateFrom, dateFromUpto);
-        }
+    public CompletableFuture<List<RentTransaction>> getRents(Integer id, Float priceFrom, Float priceTo, OffsetDateTime dateFrom, OffsetDateTime dateFromUpto) {
+        return dataStore.async(() -> {
+            if ( id!= null){ // If the id argument is used, the others will be ignored.
+                return List.of(dataStore.aboutRentTransactions().retrieveRentTransactions(new RentTransaction(id, null, null, null)));
+            } else {
+                try (Stream<RentTransaction> rentTransactions = dataStore.aboutRentTransactions()
+                        .streamRentTransactionsFiltered(priceFrom, priceTo, dateFrom, dateFromUpto)) {
+                    return rentTransactions.collect(Collectors.toList());
+                }
+            }
+        });
+    }
+
+    /**
+     * Resolves the GraphQL query:
+     * getRentsConnection(id: ID, priceFrom: Float, priceTo: Float, dateFrom: DateTime, dateFromUpto: DateTime,
+     * first: Int, after: String): RentTransactionConnection.
+     */
+    public CompletableFuture<Connection<RentTransaction>> getRentsConnection(Integer id, Float priceFrom, Float priceTo, OffsetDateTime dateFrom,
+                                                                             OffsetDateTime dateFromUpto, Integer first, String after) {
+        PageRequest page = PageRequest.of("RentTransaction", first, after);
+        return dataStore.async(() -> {
+            if (id != null){ // If the id argument is used, the others will be ignored.
+                RentTransaction[] rentTransactions = dataStore.aboutRentTransactions().retrieveRentTransactions(new RentTransaction(id, null, null, null));
+                // The transaction is on the page only if it comes after the cursor.
+                return page.getAfterId() == null || id > page.getAfterId() ? rentTransactions : new RentTransaction[0];
+            }
+            return dataStore.aboutRentTransactions()
+                    .retrieveRentTransactionsFilteredPage(priceFrom, priceTo, dateFrom, dateFromUpto, page.getAfterId(), page.getLimit());
+        }).thenApply(rentTransactions -> page.connection(rentTransactions, RentTransaction::getId));
     }
 }
@@ -0,0 +1,358 @@
+package videoclub.graphql.server.responsecache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import videoclub.graphql.server.preparsed.PreparsedDocumentCache;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded cache of the serialized responses of the queries, by their document, operation name and variables, so that
+ * a query sent again is answered without being executed. <br>
+ *
+ * Every response is cached along with the tables of the database that its fields are read from, as declared on the
+ * types of the schema with the @tables directive, and is evicted as soon as one of them is written, see
+ * {@link videoclub.datastore.DataStore#addWriteListener}. Since any write may have overlapped the execution of a query,
+ * the responses of the queries executing while a table is written are not cached at all. The least recently used
+ * response is evicted when the cache is full, and a response expires once it has been cached for longer than the
+ * time to live, which bounds how long the writes made by other applications go unnoticed. <br>
+ *
+ * A response is cached in two steps, since it is serialized after its execution has finished:
+ * {@link videoclub.graphql.server.instrumentation.ResponseCacheInstrumentation} admits the result of every query that
+ * executed without errors, along with its tables, and the HTTP front end stores the serialized response of an admitted
+ * result with {@link #put}. Every response cached gets an ETag, so that a client that already has it is answered with
+ * <code>304 Not Modified</code>. <br>
+ *
+ * The document of a request is identified by the SHA-256 hash of its text, or by the hash it was sent with as a
+ * persisted query, and its variables by their JSON with the keys of every object sorted, so that a request is looked up
+ * before it is parsed. Two requests that differ only in the layout of their text are cached separately.
+ * @author Ioannis Baraklilis
+ */
+public class ResponseCache {
+    private static final ObjectMapper CANONICAL_JSON = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true); // Writes the variables of the keys.
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() {};
+
+    private final int maxSize; // The maximum number of responses cached.
+    private final long maxEntrySize; // The responses larger than this, in bytes, are not cached.
+    private final long timeToLive; // How long a response is used after it has been cached, in nanoseconds.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Admission> admitted = new LinkedHashMap<>();
+    private long generation; // Counts the writes, so that the results of the queries they overlapped are not admitted.
+    private long hits;
+    private long misses;
+    private long stores;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    /**
+     * @param maxSize The maximum number of responses cached; the least recently used one is evicted beyond it.
+     * @param maxEntrySize The responses larger than this, in bytes, are not cached.
+     * @param timeToLive How long a response is used after it has been cached.
+     */
+    public ResponseCache(int maxSize, long maxEntrySize, Duration timeToLive) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The size of the response cache must be positive.");
+        }
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+        this.timeToLive = timeToLive.toNanos();
+    }
+
+    /**
+     * @return The number of writes so far. It is read before a query is executed, and given to {@link #admit} after.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Looks up the response of a request.
+     * @param key The key of the request, see {@link #keyOf}.
+     * @return The response cached, or null if there is none.
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+
+    /**
+     * Admits the result of a query, so that its serialized response is cached once it is put.
+     * @param key The key of the request, see {@link #keyOf}.
+     * @param tables The tables that the fields selected by the query are read from.
+     * @param headers The caching headers the response is sent with, which are sent along with it once it is cached.
+     * @param generation The {@link #generation()} read before the query was executed. If a table has been written since,
+     *                   the result is not admitted.
+     */
+    public synchronized void admit(String key, Set<String> tables, Map<String, String> headers, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        admitted.put(key, new Admission(tables, headers));
+        Iterator<Admission> oldest = admitted.values().iterator();
+        while (admitted.size() > maxSize) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * Caches the serialized response of a request, if its result has been admitted and no table has been written since.
+     * @param key The key of the request, see {@link #keyOf}.
+     * @param body The response, as it was written.
+     * @param contentType The content type of the response.
+     * @return The response cached, or null if it was not cached.
+     */
+    public Entry put(String key, byte[] body, String contentType) {
+        if (body.length > maxEntrySize) {
+            synchronized (this) {
+                admitted.remove(key);
+            }
+            return null;
+        }
+        String eTag = eTagOf(body); // Hashed outside the lock, so that the lookups are not held up by it.
+        synchronized (this) {
+            Admission admission = admitted.remove(key);
+            if (admission == null) {
+                return null;
+            }
+            Entry entry = new Entry(body, contentType, eTag, admission.headers, admission.tables,
+                    System.nanoTime() + timeToLive);
+            entries.put(key, entry);
+            stores++;
+            Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+            while (entries.size() > maxSize) {
+                leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                evictions++;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Evicts the responses read from a table, and keeps the results of the queries executing from being cached.
+     * It is called after every committed write of the table.
+     * @param table The name of the table written.
+     */
+    public synchronized void invalidate(String table) {
+        generation++;
+        admitted.clear();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().tables.contains(table)) {
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * @return A snapshot of the size and the counters of the cache.
+     */
+    public synchronized Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("size", entries.size());
+        statistics.put("maxSize", maxSize);
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("stores", stores);
+        statistics.put("evictions", evictions);
+        statistics.put("expirations", expirations);
+        statistics.put("invalidations", invalidations);
+        return statistics;
+    }
+
+    /**
+     * @param query The text of the operation, or null or the persisted query marker if it was sent by its hash alone.
+     * @param operationName The name of the operation executed, or null.
+     * @param variables The variables of the request, or null.
+     * @param extensions The extensions of the request, or null.
+     * @return The key the response of the request is cached by, or null if it cannot be cached.
+     */
+    public static String keyOf(String query, String operationName, Map<String, Object> variables,
+                               Map<String, Object> extensions) {
+        String document = documentOf(query, extensions);
+        if (document == null) {
+            return null;
+        }
+        try {
+            return PreparsedDocumentCache.hashOf(document + '\n' + (operationName == null ? "" : operationName) + '\n'
+                    + CANONICAL_JSON.writeValueAsString(variables == null ? Map.of() : variables));
+        } catch (IOException e) {
+            return null; // Variables that are not plain JSON, e.g. uploaded files.
+        }
+    }
+
+    /**
+     * @param body The JSON body of a POST request.
+     * @return The key the response of the request is cached by, or null if it cannot be cached, e.g. a batch.
+     */
+    public static String keyOf(byte[] body) {
+        try {
+            JsonNode request = CANONICAL_JSON.readTree(body);
+            if (request == null || !request.isObject()) {
+                return null;
+            }
+            return keyOf(textOf(request.get("query")), textOf(request.get("operationName")),
+                    objectOf(request.get("variables")), objectOf(request.get("extensions")));
+        } catch (IOException | IllegalArgumentException e) {
+            return null; // Left to the GraphQL endpoint to reject.
+        }
+    }
+
+    /**
+     * @param query The query parameter of a GET request.
+     * @param operationName The operationName parameter, or null.
+     * @param variables The variables parameter, as JSON, or null.
+     * @param extensions The extensions parameter, as JSON, or null.
+     * @return The key the response of the request is cached by, or null if it cannot be cached.
+     */
+    public static String keyOfParameters(String query, String operationName, String variables, String extensions) {
+        try {
+            return keyOf(query, operationName, parseObject(variables), parseObject(extensions));
+        } catch (IOException e) {
+            return null; // Left to the GraphQL endpoint to reject.
+        }
+    }
+
+    /**
+     * @return The text hash of the operation if its text was sent, or else the hash of the persisted query, so that the
+     *         requests that send the text are not answered when the persisted queries are disabled. Null if neither is
+     *         given, or if they do not agree.
+     */
+    private static String documentOf(String query, Map<String, Object> extensions) {
+        Object persistedQuery = extensions == null ? null : extensions.get("persistedQuery");
+        Object hash = persistedQuery instanceof Map ? ((Map<?, ?>) persistedQuery).get("sha256Hash") : null;
+        String persistedHash = hash == null ? null : hash.toString().toLowerCase(Locale.ROOT);
+
+        if (query != null && !query.isBlank() && !PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query)) {
+            String textHash = PreparsedDocumentCache.hashOf(query);
+            return persistedHash == null || persistedHash.equals(textHash) ? "text:" + textHash : null;
+        }
+        return persistedHash == null ? null : "persisted:" + persistedHash;
+    }
+
+    private static String textOf(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private static Map<String, Object> objectOf(JsonNode node) throws IOException {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        // Some clients send the variables as a string of JSON.
+        return node.isTextual() ? parseObject(node.asText()) : CANONICAL_JSON.convertValue(node, JSON_OBJECT);
+    }
+
+    private static Map<String, Object> parseObject(String json) throws IOException {
+        return json == null || json.isBlank() ? null : CANONICAL_JSON.readValue(json, JSON_OBJECT);
+    }
+
+    private static String eTagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    /**
+     * The result of a query that has been admitted, until its serialized response is put.
+     */
+    private static final class Admission {
+        private final Set<String> tables; // The tables the result was read from.
+        private final Map<String, String> headers; // The caching headers the response is sent with.
+
+        private Admission(Set<String> tables, Map<String, String> headers) {
+            this.tables = tables;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * A cached response, as it was written.
+     */
+    public static final class Entry {
+        private final byte[] body;
+        private final String contentType;
+        private final String eTag;
+        private final Map<String, String> headers; // The caching headers the response was sent with.
+        private final Set<String> tables; // The tables the response was read from.
+        private final long expiresAt; // The System.nanoTime() after which the response is not used.
+
+        private Entry(byte[] body, String contentType, String eTag, Map<String, String> headers, Set<String> tables,
+                      long expiresAt) {
+            this.body = body;
+            this.contentType = contentType;
+            this.eTag = eTag;
+            this.headers = headers;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return The strong validator of the response, quoted.
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * @return The caching headers the response was sent with when it was executed, e.g. Cache-Control.
+         */
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @param ifNoneMatch The If-None-Match header of a request, or null.
+         * @return Whether the client already has this response, so that it may be answered with 304 Not Modified.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+                // The comparison of If-None-Match is weak, so a weak validator of the same response matches as well.
+                if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
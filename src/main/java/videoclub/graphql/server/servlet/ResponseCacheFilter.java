@@ -0,0 +1,285 @@
+package videoclub.graphql.server.servlet;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.CorsFilter;
+import org.springframework.web.filter.OncePerRequestFilter;
+import videoclub.graphql.server.responsecache.ResponseCache;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers the GraphQL requests whose response is in the {@link ResponseCache} without passing them on to the servlet,
+ * along with its ETag and caching headers, or with <code>304 Not Modified</code> if the If-None-Match header of the
+ * request matches it. <br>
+ *
+ * The body of a POST request is read here to look it up, and handed on to the servlet on a miss, whose response is
+ * stored by {@link ResponseCacheManager}. That response is held back until the servlet closes it, after storing it, so
+ * that it is sent with the ETag of the entry stored as well. The requests that upload files, that send their operation
+ * as application/graphql, or that are batches are passed on without being looked up.
+ * @author Ioannis Baraklilis
+ */
+@Component
+@ConditionalOnProperty(prefix = "videoclub.response-cache", name = "enabled", matchIfMissing = true)
+public class ResponseCacheFilter extends OncePerRequestFilter {
+    private final ResponseCache responseCache; // The cache the responses are looked up in.
+    private final String path; // The path of the GraphQL endpoint.
+    private final ObjectProvider<CorsFilter> corsFilter; // The CORS filter of the endpoint, if it is enabled.
+
+    /**
+     * @param responseCache The cache the responses are looked up in.
+     * @param path The path of the GraphQL endpoint.
+     * @param corsFilter The CORS filter of the endpoint, if it is enabled.
+     */
+    public ResponseCacheFilter(ResponseCache responseCache, @Value("${graphql.servlet.mapping:/graphql}") String path,
+                               ObjectProvider<CorsFilter> corsFilter) {
+        this.responseCache = responseCache;
+        this.path = path;
+        this.corsFilter = corsFilter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !(method.equals("GET") || method.equals("POST"))
+                || !request.getRequestURI().substring(request.getContextPath().length()).equals(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpServletRequest passedOn = request;
+        String key = null;
+        if (request.getMethod().equals("GET")) {
+            key = ResponseCache.keyOfParameters(request.getParameter("query"), request.getParameter("operationName"),
+                    request.getParameter("variables"), request.getParameter("extensions"));
+        } else if (isJson(request.getContentType())) {
+            byte[] body = request.getInputStream().readAllBytes();
+            key = ResponseCache.keyOf(body);
+            passedOn = new ReadRequest(request, body);
+        }
+
+        if (key == null) {
+            filterChain.doFilter(passedOn, response);
+            return;
+        }
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry == null) {
+            HeldBackResponse heldBack = new HeldBackResponse(request, response);
+            filterChain.doFilter(passedOn, heldBack);
+            if (!request.isAsyncStarted()) {
+                heldBack.release();
+            }
+            return;
+        }
+
+        // The order of the filters is not defined, so the cached response is written through the CORS filter, which
+        // does nothing if it has run already.
+        CorsFilter cors = corsFilter.getIfUnique();
+        if (cors == null) {
+            write(request, response, entry);
+        } else {
+            cors.doFilter(passedOn, response, (corsRequest, corsResponse) -> write(request, response, entry));
+        }
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, ResponseCache.Entry entry)
+            throws IOException {
+        ServletCacheControlHeaders.setHeaders(response, entry.getHeaders());
+        if (notModified(request, response, entry)) {
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(entry.getContentType());
+        response.setContentLength(entry.getBody().length);
+        response.getOutputStream().write(entry.getBody());
+    }
+
+    /**
+     * Sets the ETag of a cached response, and its status to 304 Not Modified if the client already has it.
+     * @return Whether the client already has the response, so that it is sent without a body.
+     */
+    private static boolean notModified(HttpServletRequest request, HttpServletResponse response,
+                                       ResponseCache.Entry entry) {
+        response.setHeader(HttpHeaders.ETAG, entry.getETag());
+        if (entry.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether the servlet reads the body of a POST request with the given content type as JSON.
+     */
+    private static boolean isJson(String contentType) {
+        return contentType == null
+                || !(contentType.startsWith("application/graphql") || contentType.startsWith("multipart/"));
+    }
+
+    /**
+     * A response whose body is held in memory until it is closed, when it is sent along with the ETag of the entry
+     * that {@link ResponseCacheManager} has stored for it, if any. The servlet writes and flushes the body before it
+     * stores it, and closes it after, on the thread of the request or on one of its own if it executes asynchronously.
+     */
+    private static final class HeldBackResponse extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private ServletOutputStream output;
+        private PrintWriter writer;
+        private boolean released;
+
+        private HeldBackResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (output == null) {
+                output = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        body.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) {
+                        body.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        release();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        throw new UnsupportedOperationException("The body is held in memory.");
+                    }
+                };
+            }
+            return output;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(),
+                        Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            // Set when the body is released.
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            // Set when the body is released.
+        }
+
+        @Override
+        public void flushBuffer() {
+            // Flushed when the body is released.
+        }
+
+        /**
+         * Sends the body held, or answers with 304 Not Modified if the client already has the entry stored for it.
+         */
+        private void release() throws IOException {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (writer != null) {
+                writer.flush();
+            }
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            ResponseCache.Entry stored = (ResponseCache.Entry) request.getAttribute(ResponseCacheManager.STORED_ENTRY);
+            if (stored != null && notModified(request, response, stored)) {
+                return;
+            }
+            response.setContentLength(body.size());
+            body.writeTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * A request whose body has been read already, that reads it again from memory.
+     */
+    private static final class ReadRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private ReadRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    return input.read(bytes, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException("The body has been read already.");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
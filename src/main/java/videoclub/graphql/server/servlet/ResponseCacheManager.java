@@ -0,0 +1,58 @@
+package videoclub.graphql.server.servlet;
+
+import graphql.ExecutionInput;
+import graphql.kickstart.execution.input.GraphQLInvocationInput;
+import graphql.kickstart.execution.input.GraphQLSingleInvocationInput;
+import graphql.kickstart.servlet.cache.CachedResponse;
+import graphql.kickstart.servlet.cache.GraphQLResponseCacheManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import videoclub.graphql.server.responsecache.ResponseCache;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Stores the responses that the servlet writes in the {@link ResponseCache}, once they have been serialized. Only the
+ * responses of the queries admitted by {@link videoclub.graphql.server.instrumentation.ResponseCacheInstrumentation}
+ * are stored. <br>
+ *
+ * The cached responses are answered by {@link ResponseCacheFilter} before the requests reach the servlet, so that they
+ * can be answered with 304 Not Modified as well, which the servlet's own lookup cannot do. The entry stored is left in
+ * the {@link #STORED_ENTRY} attribute of the request, from which the filter sets the ETag of the response.
+ * @author Ioannis Baraklilis
+ */
+@Component
+@ConditionalOnProperty(prefix = "videoclub.response-cache", name = "enabled", matchIfMissing = true)
+public class ResponseCacheManager implements GraphQLResponseCacheManager {
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8"; // The one the servlet writes.
+    static final String STORED_ENTRY = ResponseCacheManager.class.getName() + ".storedEntry"; // Request attribute.
+
+    private final ResponseCache responseCache; // The cache the responses are stored in.
+
+    public ResponseCacheManager(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public CachedResponse get(HttpServletRequest request, GraphQLInvocationInput invocationInput) {
+        return null; // Looked up by ResponseCacheFilter already.
+    }
+
+    @Override
+    public boolean isCacheable(HttpServletRequest request, GraphQLInvocationInput invocationInput) {
+        return invocationInput instanceof GraphQLSingleInvocationInput;
+    }
+
+    @Override
+    public void put(HttpServletRequest request, GraphQLInvocationInput invocationInput, CachedResponse cachedResponse) {
+        if (cachedResponse.isError()) {
+            return;
+        }
+        ExecutionInput executionInput = ((GraphQLSingleInvocationInput) invocationInput).getExecutionInput();
+        String key = ResponseCache.keyOf(executionInput.getQuery(), executionInput.getOperationName(),
+                executionInput.getVariables(), executionInput.getExtensions());
+        if (key != null) {
+            request.setAttribute(STORED_ENTRY, responseCache.put(key, cachedResponse.getContentBytes(), CONTENT_TYPE));
+        }
+    }
+}
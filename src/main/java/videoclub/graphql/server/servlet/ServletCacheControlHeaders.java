@@ -0,0 +1,83 @@
+package videoclub.graphql.server.servlet;
+
+import graphql.kickstart.servlet.core.GraphQLServletListener;
+import graphql.kickstart.servlet.core.GraphQLServletRootObjectBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import videoclub.graphql.server.cachecontrol.CacheControlHeaders;
+import videoclub.graphql.server.cachecontrol.CacheControlPolicy;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.websocket.server.HandshakeRequest;
+import java.util.Map;
+
+/**
+ * Sets the caching headers of the responses of the servlet. The policy set is kept in an attribute of the request,
+ * so that the response of a batch is cached only as long as all of its operations may be, and its headers are set
+ * just before the servlet writes the response. The request is the root object of the operations, which is otherwise
+ * unused by the resolvers.
+ * @author Ioannis Baraklilis
+ */
+@Component
+@ConditionalOnProperty(prefix = "videoclub.cache-control", name = "enabled", matchIfMissing = true)
+public class ServletCacheControlHeaders implements CacheControlHeaders, GraphQLServletRootObjectBuilder,
+        GraphQLServletListener {
+    private static final String POLICY = CacheControlPolicy.class.getName(); // The attribute of the policy set.
+
+    @Override
+    public Object build(HttpServletRequest request) {
+        return request;
+    }
+
+    @Override
+    public Object build(HandshakeRequest handshakeRequest) {
+        return new Object();
+    }
+
+    @Override
+    public Object build() {
+        return new Object();
+    }
+
+    @Override
+    public void apply(Object root, CacheControlPolicy policy) {
+        if (!(root instanceof HttpServletRequest)) {
+            return; // An operation over a web socket.
+        }
+        HttpServletRequest request = (HttpServletRequest) root;
+
+        CacheControlPolicy previous = (CacheControlPolicy) request.getAttribute(POLICY);
+        request.setAttribute(POLICY, previous == null ? policy : previous.restrict(policy));
+    }
+
+    @Override
+    public RequestCallback onRequest(HttpServletRequest request, HttpServletResponse response) {
+        return new RequestCallback() {
+            @Override
+            public void beforeFlush(HttpServletRequest request, HttpServletResponse response) {
+                CacheControlPolicy applied = (CacheControlPolicy) request.getAttribute(POLICY);
+                if (applied != null) {
+                    setHeaders(response, applied.headers());
+                }
+            }
+        };
+    }
+
+    /**
+     * Sets caching headers on a response, adding to its Vary header rather than replacing it, since the other filters
+     * (e.g. CORS) vary the response on headers of their own.
+     * @param response The response.
+     * @param headers The caching headers, see {@link CacheControlPolicy#headers()}.
+     */
+    static void setHeaders(HttpServletResponse response, Map<String, String> headers) {
+        headers.forEach((name, value) -> {
+            if (!name.equals(HttpHeaders.VARY)) {
+                response.setHeader(name, value);
+            } else if (!response.getHeaders(name).contains(value)) {
+                response.addHeader(name, value);
+            }
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package videoclub.graphql.configuration;
+
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the HTTP requests and runs the GraphQL executions on virtual threads, so that the number of requests in
+ * flight is not bounded by a pool of platform threads. <br>
+ *
+ * It is only compiled by the virtual-threads build profile, which targets Java 21, and applied while the
+ * virtual-threads Spring profile is active. The calls to SQLite still run on the bounded threads of the data store
+ * (see {@link videoclub.datastore.DatabaseExecutor}): the driver runs native code and holds monitors, both of which
+ * pin a virtual thread to its carrier, and the calls could not run any wider than the connections anyway.
+ * @author Ioannis Baraklilis
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfiguration {
+
+    /**
+     * Replaces the worker pool of Tomcat with a virtual thread per request.
+     * @return The customizer of the Tomcat connectors.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Replaces the thread pool the GraphQL servlet executes the requests on with a virtual thread per request. The
+     * calls to the data store complete their results on it as well, so the executions resume on virtual threads.
+     * @return The executor of the GraphQL servlet.
+     */
+    @Bean(name = "graphqlAsyncTaskExecutor", destroyMethod = "close")
+    public Executor graphqlAsyncTaskExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,94 @@
+package videoclub.graphql.configuration;
+
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.kickstart.execution.config.GraphQLBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import videoclub.graphql.server.reactive.InFlightRequestLimiter;
+import videoclub.graphql.server.reactive.ResponseCacheWebFilter;
+import videoclub.graphql.server.reactive.WebfluxCacheControlHeaders;
+import videoclub.graphql.server.responsecache.ResponseCache;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Configuration of the reactive front end of the GraphQL endpoint, compiled by the reactive build profile only. <br>
+ *
+ * The event loop of Netty never waits for SQLite: the resolvers hand every call to the data store to its own
+ * bounded threads, see {@link videoclub.datastore.DataStore#async}, and return at once.
+ * @author Ioannis Baraklilis
+ */
+@Configuration
+public class ReactiveConfiguration {
+
+    /**
+     * The settings of the reactive front end, bound from the videoclub.reactive section of the application configuration.
+     * @return The settings of the reactive front end.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "videoclub.reactive")
+    public ReactiveSettings reactiveSettings() {
+        return new ReactiveSettings();
+    }
+
+    /**
+     * Bounds the GraphQL requests executed at the same time.
+     * @param settings The settings of the reactive front end.
+     * @return The filter of the GraphQL requests.
+     */
+    @Bean
+    public InFlightRequestLimiter inFlightRequestLimiter(ReactiveSettings settings) {
+        return new InFlightRequestLimiter(settings.getPath(), settings.getMaxInFlight());
+    }
+
+    /**
+     * Answers the GraphQL requests whose response is cached, and stores the responses of the rest. It runs before
+     * {@link InFlightRequestLimiter}, so that the cached responses do not take the place of the requests executed.
+     * @param settings The settings of the reactive front end.
+     * @param responseCache The response cache.
+     * @return The filter of the GraphQL requests.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @ConditionalOnProperty(prefix = "videoclub.response-cache", name = "enabled", matchIfMissing = true)
+    public ResponseCacheWebFilter responseCacheWebFilter(ReactiveSettings settings, ResponseCache responseCache) {
+        return new ResponseCacheWebFilter(responseCache, settings.getPath());
+    }
+
+    /**
+     * Sets the caching headers of the responses of the GraphQL endpoint.
+     * @return The caching headers of the responses.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "videoclub.cache-control", name = "enabled", matchIfMissing = true)
+    public WebfluxCacheControlHeaders webfluxCacheControlHeaders() {
+        return new WebfluxCacheControlHeaders();
+    }
+
+    /**
+     * The builder of the GraphQL engine. The webflux auto-configuration builds one that ignores the instrumentation
+     * and preparsed document provider beans, which the servlet one uses, so they are applied here as well.
+     * @param instrumentations The instrumentation beans, e.g. the cost analysis.
+     * @param preparsedDocumentProvider The document cache, if it is enabled.
+     * @return The builder of the GraphQL engine.
+     */
+    @Bean
+    public GraphQLBuilder graphQLBuilder(ObjectProvider<Instrumentation> instrumentations,
+                                         ObjectProvider<PreparsedDocumentProvider> preparsedDocumentProvider) {
+        List<Instrumentation> chained = instrumentations.orderedStream().collect(Collectors.toList());
+        GraphQLBuilder builder = new GraphQLBuilder();
+        if (!chained.isEmpty()) {
+            builder.instrumentation(() -> new ChainedInstrumentation(chained));
+        }
+        preparsedDocumentProvider.ifAvailable(provider -> builder.preparsedDocumentProvider(() -> provider));
+        return builder;
+    }
+}
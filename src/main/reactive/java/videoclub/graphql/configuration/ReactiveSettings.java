@@ -0,0 +1,28 @@
+package videoclub.graphql.configuration;
+
+/**
+ * The settings of the reactive front end of the GraphQL endpoint. <br>
+ *
+ * They are bound from the <code>videoclub.reactive</code> section of the application configuration.
+ * @author Ioannis Baraklilis
+ */
+public class ReactiveSettings {
+    private String path = "/graphql"; // The path of the GraphQL endpoint.
+    private int maxInFlight = 512; // The number of GraphQL requests executed at the same time.
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+}
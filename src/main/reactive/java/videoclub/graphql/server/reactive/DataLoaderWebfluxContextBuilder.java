@@ -0,0 +1,33 @@
+package videoclub.graphql.server.reactive;
+
+import graphql.kickstart.spring.GraphQLSpringContext;
+import graphql.kickstart.spring.GraphQLSpringServerWebExchangeContext;
+import graphql.kickstart.spring.webflux.DefaultGraphQLSpringWebSocketSessionContext;
+import graphql.kickstart.spring.webflux.GraphQLSpringWebSocketSessionContext;
+import graphql.kickstart.spring.webflux.GraphQLSpringWebfluxContextBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.server.ServerWebExchange;
+import videoclub.graphql.server.dataloaders.DataLoaderRegistryFactory;
+
+/**
+ * Builds the context of every GraphQL request served by WebFlux, giving each request its own set of data loaders.
+ */
+@Component
+public class DataLoaderWebfluxContextBuilder implements GraphQLSpringWebfluxContextBuilder {
+    private final DataLoaderRegistryFactory dataLoaderRegistryFactory; // Creates the data loaders of a request.
+
+    public DataLoaderWebfluxContextBuilder(DataLoaderRegistryFactory dataLoaderRegistryFactory) {
+        this.dataLoaderRegistryFactory = dataLoaderRegistryFactory;
+    }
+
+    @Override
+    public GraphQLSpringContext build(ServerWebExchange exchange) {
+        return new GraphQLSpringServerWebExchangeContext(dataLoaderRegistryFactory.create(), exchange);
+    }
+
+    @Override
+    public GraphQLSpringWebSocketSessionContext build(WebSocketSession session) {
+        return new DefaultGraphQLSpringWebSocketSessionContext(dataLoaderRegistryFactory.create(), session);
+    }
+}
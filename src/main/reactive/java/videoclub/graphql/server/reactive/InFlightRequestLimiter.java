@@ -0,0 +1,51 @@
+package videoclub.graphql.server.reactive;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds the number of GraphQL requests that are executed at the same time, and turns the rest away with
+ * <code>503 Service Unavailable</code> and a <code>Retry-After</code> header. <br>
+ *
+ * An event loop accepts far more connections than there are threads behind it, and a response is held in memory from
+ * the moment its execution starts until the client has read it, so the requests admitted have to be bounded for the
+ * memory to be. The large lists are written as fast as each client reads them, as Netty stops pulling from the
+ * encoder while the socket is not writable.
+ * @author Ioannis Baraklilis
+ */
+public class InFlightRequestLimiter implements WebFilter {
+    private final String path; // The path of the GraphQL endpoint.
+    private final Semaphore permits; // One for every request that may be executed.
+
+    /**
+     * @param path The path of the GraphQL endpoint.
+     * @param maxInFlight The number of requests that may be executed at the same time.
+     */
+    public InFlightRequestLimiter(String path, int maxInFlight) {
+        this.path = path;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().pathWithinApplication().value().equals(path)) {
+            return chain.filter(exchange);
+        }
+
+        if (!permits.tryAcquire()) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return response.setComplete();
+        }
+        // The permit is returned once the response has been written, or the client has gone away.
+        return chain.filter(exchange).doFinally(signal -> permits.release());
+    }
+}
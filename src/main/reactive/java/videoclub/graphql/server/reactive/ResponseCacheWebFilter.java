@@ -0,0 +1,160 @@
+package videoclub.graphql.server.reactive;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import videoclub.graphql.server.responsecache.ResponseCache;
+
+/**
+ * Answers the GraphQL requests whose response is in the {@link ResponseCache} without executing them, along with its
+ * ETag and caching headers, or with <code>304 Not Modified</code> if the If-None-Match header of the request matches it.
+ * On a miss, the response written by the GraphQL endpoint is stored in the cache if its query has been admitted by
+ * {@link videoclub.graphql.server.instrumentation.ResponseCacheInstrumentation}, and is sent with its ETag as well. <br>
+ *
+ * The body of a POST request is read here to look it up, and handed on to the endpoint on a miss. The requests that
+ * send their operation as application/graphql, or that are batches, are passed on without being looked up.
+ * @author Ioannis Baraklilis
+ */
+public class ResponseCacheWebFilter implements WebFilter {
+    private final ResponseCache responseCache; // The cache the responses are looked up and stored in.
+    private final String path; // The path of the GraphQL endpoint.
+
+    /**
+     * @param responseCache The cache the responses are looked up and stored in.
+     * @param path The path of the GraphQL endpoint.
+     */
+    public ResponseCacheWebFilter(ResponseCache responseCache, String path) {
+        this.responseCache = responseCache;
+        this.path = path;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!request.getPath().pathWithinApplication().value().equals(path)) {
+            return chain.filter(exchange);
+        }
+
+        if (request.getMethod() == HttpMethod.GET) {
+            MultiValueMap<String, String> parameters = request.getQueryParams();
+            return lookUp(exchange, chain, ResponseCache.keyOfParameters(parameters.getFirst("query"),
+                    parameters.getFirst("operationName"), parameters.getFirst("variables"),
+                    parameters.getFirst("extensions")));
+        }
+        MediaType contentType = request.getHeaders().getContentType();
+        if (request.getMethod() == HttpMethod.POST && contentType != null
+                && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return DataBufferUtils.join(request.getBody())
+                    .map(ResponseCacheWebFilter::bytesOf)
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(body -> lookUp(exchange.mutate().request(new ReadRequest(request, body)).build(), chain,
+                            ResponseCache.keyOf(body)));
+        }
+        return chain.filter(exchange);
+    }
+
+    private Mono<Void> lookUp(ServerWebExchange exchange, WebFilterChain chain, String key) {
+        if (key == null) {
+            return chain.filter(exchange);
+        }
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry == null) {
+            return chain.filter(exchange.mutate().response(new StoringResponse(exchange, key)).build());
+        }
+
+        ServerHttpResponse response = exchange.getResponse();
+        WebfluxCacheControlHeaders.setHeaders(response.getHeaders(), entry.getHeaders());
+        if (notModified(exchange, response, entry)) {
+            return response.setComplete();
+        }
+        response.getHeaders().setContentType(MediaType.parseMediaType(entry.getContentType()));
+        response.getHeaders().setContentLength(entry.getBody().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(entry.getBody())));
+    }
+
+    /**
+     * Sets the ETag of a cached response, and its status to 304 Not Modified if the client already has it.
+     * @return Whether the client already has the response, so that it is sent without a body.
+     */
+    private static boolean notModified(ServerWebExchange exchange, ServerHttpResponse response, ResponseCache.Entry entry) {
+        response.getHeaders().setETag(entry.getETag());
+        if (entry.matches(exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[] bytesOf(DataBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    /**
+     * A request whose body has been read already, that reads it again from memory.
+     */
+    private static final class ReadRequest extends ServerHttpRequestDecorator {
+        private final byte[] body;
+
+        private ReadRequest(ServerHttpRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)));
+        }
+    }
+
+    /**
+     * A response that is stored in the cache as it is written, if its query has been admitted.
+     */
+    private final class StoringResponse extends ServerHttpResponseDecorator {
+        private final ServerWebExchange exchange;
+        private final String key; // The key of the request.
+
+        private StoringResponse(ServerWebExchange exchange, String key) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatus status = getStatusCode();
+            MediaType contentType = getHeaders().getContentType();
+            if ((status != null && status != HttpStatus.OK) || contentType == null) {
+                return super.writeWith(body);
+            }
+            // The response is serialized in memory already, so it is joined into one buffer before it is written.
+            return DataBufferUtils.join(Flux.from(body))
+                    .map(ResponseCacheWebFilter::bytesOf)
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        ResponseCache.Entry entry = responseCache.put(key, bytes, contentType.toString());
+                        if (entry != null && notModified(exchange, this, entry)) {
+                            return setComplete();
+                        }
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    });
+        }
+    }
+}
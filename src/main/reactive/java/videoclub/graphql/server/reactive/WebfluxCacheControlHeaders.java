@@ -0,0 +1,59 @@
+package videoclub.graphql.server.reactive;
+
+import graphql.kickstart.spring.webflux.GraphQLSpringWebfluxRootObjectBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.server.ServerWebExchange;
+import videoclub.graphql.server.cachecontrol.CacheControlHeaders;
+import videoclub.graphql.server.cachecontrol.CacheControlPolicy;
+
+import java.util.Map;
+
+/**
+ * Sets the caching headers of the responses served by WebFlux. The policy set is kept in an attribute of the exchange,
+ * so that the response of a batch is cached only as long as all of its operations may be. The exchange is the root
+ * object of the operations, which is otherwise unused by the resolvers.
+ * @author Ioannis Baraklilis
+ */
+public class WebfluxCacheControlHeaders implements CacheControlHeaders, GraphQLSpringWebfluxRootObjectBuilder {
+    private static final String POLICY = CacheControlPolicy.class.getName(); // The attribute of the policy set.
+
+    @Override
+    public Object build(ServerWebExchange exchange) {
+        return exchange;
+    }
+
+    @Override
+    public Object build(WebSocketSession session) {
+        return new Object();
+    }
+
+    @Override
+    public void apply(Object root, CacheControlPolicy policy) {
+        if (!(root instanceof ServerWebExchange)) {
+            return; // An operation over a web socket.
+        }
+        ServerWebExchange exchange = (ServerWebExchange) root;
+
+        CacheControlPolicy previous = exchange.getAttribute(POLICY);
+        CacheControlPolicy applied = previous == null ? policy : previous.restrict(policy);
+        exchange.getAttributes().put(POLICY, applied);
+        setHeaders(exchange.getResponse().getHeaders(), applied.headers());
+    }
+
+    /**
+     * Sets caching headers on a response, adding to its Vary header rather than replacing it, since the other filters
+     * (e.g. CORS) vary the response on headers of their own.
+     * @param responseHeaders The headers of the response.
+     * @param headers The caching headers, see {@link CacheControlPolicy#headers()}.
+     */
+    static void setHeaders(HttpHeaders responseHeaders, Map<String, String> headers) {
+        headers.forEach((name, value) -> {
+            if (!name.equals(HttpHeaders.VARY)) {
+                responseHeaders.set(name, value);
+            } else if (!responseHeaders.getVary().contains(value)) {
+                responseHeaders.add(name, value);
+            }
+        });
+    }
+}
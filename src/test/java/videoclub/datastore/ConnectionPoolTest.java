@@ -0,0 +1,164 @@
+package videoclub.datastore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+    private ConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool pool(int minSize, int maxSize, Duration acquireTimeout, int statementCacheSize)
+            throws SQLException {
+        pool = new ConnectionPool("test", () -> DriverManager.getConnection("jdbc:sqlite::memory:"), minSize, maxSize,
+                acquireTimeout, statementCacheSize);
+        return pool;
+    }
+
+    @Test
+    void rejectsInconsistentSizeLimits() {
+        assertThrows(IllegalArgumentException.class, () -> pool(2, 1, Duration.ofSeconds(1), 0));
+        assertThrows(IllegalArgumentException.class, () -> pool(0, 0, Duration.ofSeconds(1), 0));
+    }
+
+    @Test
+    void opensTheMinimumNumberOfConnectionsUpFront() throws SQLException {
+        ConnectionPool.Statistics statistics = pool(2, 4, Duration.ofSeconds(1), 0).statistics();
+
+        assertEquals(2, statistics.getOpen());
+        assertEquals(2, statistics.getIdle());
+        assertEquals(0, statistics.getBorrowed());
+    }
+
+    @Test
+    void handsBackTheConnectionOfAClosedLease() throws SQLException {
+        ConnectionPool pool = pool(0, 1, Duration.ofSeconds(1), 0);
+
+        Connection first;
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            first = lease.connection();
+            assertEquals(1, pool.statistics().getBorrowed());
+        }
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            assertSame(first, lease.connection());
+        }
+
+        ConnectionPool.Statistics statistics = pool.statistics();
+        assertEquals(1, statistics.getOpen());
+        assertEquals(1, statistics.getIdle());
+        assertEquals(2, statistics.getAcquisitions());
+    }
+
+    @Test
+    void closingALeaseTwiceHandsItBackOnce() throws SQLException {
+        ConnectionPool pool = pool(0, 2, Duration.ofSeconds(1), 0);
+
+        ConnectionPool.Lease lease = pool.acquire();
+        lease.close();
+        lease.close();
+
+        assertEquals(1, pool.statistics().getIdle());
+        try (ConnectionPool.Lease first = pool.acquire(); ConnectionPool.Lease second = pool.acquire()) {
+            assertNotSame(first.connection(), second.connection());
+        }
+    }
+
+    @Test
+    void timesOutWhenEveryConnectionIsBorrowed() throws SQLException {
+        ConnectionPool pool = pool(0, 1, Duration.ofMillis(50), 0);
+
+        try (ConnectionPool.Lease ignored = pool.acquire()) {
+            assertThrows(SQLTimeoutException.class, pool::acquire);
+        }
+
+        ConnectionPool.Statistics statistics = pool.statistics();
+        assertEquals(1, statistics.getOpen());
+        assertEquals(1, statistics.getSaturatedAcquisitions());
+        assertEquals(1, statistics.getTimeouts());
+        assertEquals(0, statistics.getWaiting());
+    }
+
+    @Test
+    void aWaitingCallerGetsTheConnectionHandedBack() throws Exception {
+        ConnectionPool pool = pool(0, 1, Duration.ofSeconds(10), 0);
+
+        ConnectionPool.Lease lease = pool.acquire();
+        Connection borrowed = lease.connection();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try (ConnectionPool.Lease next = pool.acquire()) {
+                return next.connection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (pool.statistics().getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        lease.close();
+
+        assertSame(borrowed, waiter.get(10, TimeUnit.SECONDS));
+        assertEquals(0, pool.statistics().getTimeouts());
+    }
+
+    @Test
+    void discardsAConnectionClosedWhileBorrowed() throws SQLException {
+        ConnectionPool pool = pool(0, 1, Duration.ofSeconds(1), 0);
+
+        Connection closed;
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            closed = lease.connection();
+            closed.close();
+        }
+        assertEquals(0, pool.statistics().getOpen());
+
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            assertNotSame(closed, lease.connection());
+            assertTrue(lease.connection().isValid(1));
+        }
+    }
+
+    @Test
+    void reusesTheStatementsCompiledOnAConnection() throws SQLException {
+        ConnectionPool pool = pool(0, 1, Duration.ofSeconds(1), 1);
+
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            PreparedStatement statement = lease.prepare("select 1");
+            assertSame(statement, lease.prepare("select 1"));
+
+            // The cache holds a single statement, so compiling another one closes the first.
+            lease.prepare("select 2");
+            assertTrue(statement.isClosed());
+            assertNotSame(statement, lease.prepare("select 1"));
+        }
+    }
+
+    @Test
+    void refusesLeasesOnceClosed() throws SQLException {
+        ConnectionPool pool = pool(1, 1, Duration.ofSeconds(1), 0);
+
+        pool.close();
+
+        assertEquals(0, pool.statistics().getOpen());
+        assertThrows(SQLException.class, pool::acquire);
+    }
+}
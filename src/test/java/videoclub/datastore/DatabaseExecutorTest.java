@@ -0,0 +1,102 @@
+package videoclub.datastore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseExecutorTest {
+    private final ExecutorService requests = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "request"));
+    private final DatabaseExecutor executor = new DatabaseExecutor(1, 1, requests);
+    private final CountDownLatch chained = new CountDownLatch(1); // Holds the calls until something is chained to them.
+
+    @AfterEach
+    void close() {
+        executor.close();
+        requests.shutdownNow();
+    }
+
+    private static String currentThread() {
+        return Thread.currentThread().getName();
+    }
+
+    private void awaitChained() {
+        try {
+            chained.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void runsTheCallOnTheDataStoreButWhatIsChainedToItElsewhere() throws Exception {
+        CompletableFuture<String> call = executor.submit(() -> {
+            awaitChained();
+            return currentThread();
+        });
+        CompletableFuture<String> dependent = call.thenApply(ignored -> currentThread());
+        chained.countDown();
+
+        // Waiting on the call itself may run its pending dependents on the waiting thread, so the dependent goes first.
+        assertEquals("request", dependent.get(10, TimeUnit.SECONDS));
+        assertTrue(call.get(10, TimeUnit.SECONDS).startsWith("datastore-"));
+    }
+
+    @Test
+    void failsWithTheExceptionOfTheCallElsewhereToo() throws Exception {
+        CompletableFuture<String> call = executor.submit(() -> {
+            awaitChained();
+            throw new SQLException("no such table: Movie");
+        });
+        CompletableFuture<String> dependent = call.handle((value, failure) -> currentThread());
+        chained.countDown();
+
+        assertEquals("request", dependent.get(10, TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> call.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(SQLException.class, failure.getCause());
+    }
+
+    @Test
+    void rejectsTheCallsThatFindTheQueueFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocking = executor.submit(() -> {
+            running.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        running.await(10, TimeUnit.SECONDS);
+        CompletableFuture<Integer> queued = executor.submit(() -> 1);
+
+        CompletableFuture<Integer> rejected = executor.submit(() -> 2);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        assertEquals(1, executor.statistics().getRejectedCalls());
+        release.countDown();
+        assertTrue(blocking.get(10, TimeUnit.SECONDS));
+        assertEquals(1, queued.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void completesTheResultsEvenOnceTheCompletionExecutorIsShutDown() throws Exception {
+        requests.shutdown();
+
+        assertEquals(1, executor.submit(() -> 1).get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,148 @@
+package videoclub.datastore;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EntityCacheTest {
+    private final EntityCaches caches = new EntityCaches(2, Duration.ofMinutes(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private EntityCache.Loader<String> loaderOf(String value) {
+        return () -> {
+            loads.incrementAndGet();
+            return value;
+        };
+    }
+
+    @Test
+    void loadsAValueOnceUntilItsTableIsWritten() throws SQLException {
+        EntityCache<Integer, String> titles = caches.create("titles", "MovieTitle");
+
+        assertEquals("Heat", titles.get(1, loaderOf("Heat")));
+        assertEquals("Heat", titles.get(1, loaderOf("Heat")));
+        assertEquals(1, loads.get());
+
+        caches.invalidate("MovieTitle");
+        assertEquals("Heat (1995)", titles.get(1, loaderOf("Heat (1995)")));
+        assertEquals(2, loads.get());
+
+        EntityCache.Statistics statistics = titles.statistics();
+        assertEquals(1, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+        assertEquals(1, statistics.getInvalidations());
+    }
+
+    @Test
+    void isEmptiedOnlyByWritesOfItsOwnTables() throws SQLException {
+        EntityCache<Integer, String> titles = caches.create("titles", "MovieTitle", "inCategory");
+        EntityCache<Integer, String> customers = caches.create("customers", "Customer");
+        titles.get(1, loaderOf("Heat"));
+        customers.get(1, loaderOf("Jane"));
+
+        caches.invalidate("inCategory");
+
+        assertEquals(0, titles.statistics().getSize());
+        assertEquals(1, customers.statistics().getSize());
+    }
+
+    @Test
+    void doesNotCacheALoadThatOverlappedAWrite() throws SQLException {
+        EntityCache<Integer, String> titles = caches.create("titles", "MovieTitle");
+
+        String loaded = titles.get(1, () -> {
+            // The title is written while its old value is being read.
+            caches.invalidate("MovieTitle");
+            return "Heat";
+        });
+
+        assertEquals("Heat", loaded);
+        assertEquals(0, titles.statistics().getSize());
+        assertEquals("Heat (1995)", titles.get(1, loaderOf("Heat (1995)")));
+    }
+
+    @Test
+    void loadsOnlyTheMissingIdsOfABatch() throws SQLException {
+        EntityCache<Integer, String> titles = caches.create("titles", "MovieTitle");
+        titles.get(1, loaderOf("Heat"));
+        List<Integer> requested = new ArrayList<>();
+
+        Map<Integer, String> values = titles.getAll(List.of(1, 2), ids -> {
+            requested.addAll(ids);
+            Map<Integer, String> found = new HashMap<>();
+            ids.forEach(id -> found.put(id, "Title " + id));
+            return found;
+        });
+
+        assertEquals(List.of(2), requested);
+        assertEquals(Map.of(1, "Heat", 2, "Title 2"), values);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedValue() throws SQLException {
+        EntityCache<Integer, String> titles = caches.create("titles", "MovieTitle");
+        titles.get(1, loaderOf("Heat"));
+        titles.get(2, loaderOf("Alien"));
+        titles.get(1, loaderOf("Heat"));
+
+        titles.get(3, loaderOf("Fargo"));
+        loads.set(0);
+
+        titles.get(1, loaderOf("Heat"));
+        assertEquals(0, loads.get());
+        titles.get(2, loaderOf("Alien"));
+        assertEquals(1, loads.get());
+        assertEquals(2, titles.statistics().getEvictions());
+    }
+
+    @Test
+    void dropsTheValuesThatOutliveTheirTimeToLive() throws SQLException {
+        EntityCache<Integer, String> titles = new EntityCaches(2, Duration.ZERO).create("titles", "MovieTitle");
+
+        titles.get(1, loaderOf("Heat"));
+        titles.get(1, loaderOf("Heat"));
+
+        assertEquals(2, loads.get());
+        assertEquals(1, titles.statistics().getExpirations());
+    }
+
+    @Test
+    void keepsNothingWhenDisabled() throws SQLException {
+        EntityCache<Integer, String> titles = EntityCaches.disabled().create("titles", "MovieTitle");
+
+        titles.get(1, loaderOf("Heat"));
+        titles.get(1, loaderOf("Heat"));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, titles.statistics().getSize());
+    }
+
+    @Test
+    void tellsTheWriteListenersEveryTableWritten() {
+        List<String> written = new ArrayList<>();
+        caches.addWriteListener(written::add);
+
+        caches.invalidate("RentTransaction");
+        caches.invalidate("MovieCopy");
+
+        assertEquals(List.of("RentTransaction", "MovieCopy"), written);
+    }
+
+    @Test
+    void returnsNullWithoutCachingAMissingValue() throws SQLException {
+        EntityCache<Integer, String> titles = caches.create("titles", "MovieTitle");
+
+        assertNull(titles.get(1, loaderOf(null)));
+        assertNull(titles.get(1, loaderOf(null)));
+        assertEquals(2, loads.get());
+    }
+}
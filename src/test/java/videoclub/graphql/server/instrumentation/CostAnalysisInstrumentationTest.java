@@ -0,0 +1,137 @@
+package videoclub.graphql.server.instrumentation;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import graphql.kickstart.tools.relay.RelayConnectionFactory;
+import graphql.language.Definition;
+import graphql.language.Document;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Estimates the cost of operations against the schema of the application, with its default budget and list size.
+ * The fields resolve to nothing, since only the estimate is looked at.
+ */
+class CostAnalysisInstrumentationTest {
+    private static final long MAX_COST = 50000;
+    private static final int DEFAULT_LIST_SIZE = 10;
+    private static final String SCHEMA_FILES = "classpath*:graphql/**/*.graphqls";
+    private static final String CONNECTION_DIRECTIVE = "directive @connection(for: String!) on FIELD_DEFINITION";
+
+    private static GraphQL graphQL;
+
+    @BeforeAll
+    static void buildSchema() throws IOException {
+        // The connection types of the fields with a @connection directive are generated as graphql-java-tools does.
+        List<Definition<?>> definitions = definitionsOf(CONNECTION_DIRECTIVE);
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(SCHEMA_FILES)) {
+            try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+                definitions.addAll(definitionsOf(FileCopyUtils.copyToString(reader)));
+            }
+        }
+        definitions.addAll(new RelayConnectionFactory().create(definitions));
+        Document.Builder document = Document.newDocument();
+        definitions.forEach(document::definition);
+        TypeDefinitionRegistry registry = new SchemaParser().buildRegistry(document.build());
+        GraphQLSchema schema = UnExecutableSchemaGenerator.makeUnExecutableSchema(registry);
+        graphQL = GraphQL.newGraphQL(schema)
+                .instrumentation(new CostAnalysisInstrumentation(MAX_COST, DEFAULT_LIST_SIZE))
+                .build();
+    }
+
+    private static List<Definition<?>> definitionsOf(String sdl) {
+        List<Definition<?>> definitions = new ArrayList<>();
+        for (Definition<?> definition : Parser.parse(sdl).getDefinitions()) {
+            definitions.add(definition);
+        }
+        return definitions;
+    }
+
+    private static ExecutionResult execute(String query, Map<String, Object> variables) {
+        return graphQL.execute(ExecutionInput.newExecutionInput().query(query).variables(variables).build());
+    }
+
+    private static long costOf(String query, Map<String, Object> variables) {
+        ExecutionResult result = execute(query, variables);
+        Map<?, ?> cost = (Map<?, ?>) result.getExtensions().get("cost");
+        return ((Number) cost.get("estimated")).longValue();
+    }
+
+    private static long costOf(String query) {
+        return costOf(query, Map.of());
+    }
+
+    private static boolean isRejected(String query) {
+        return execute(query, Map.of()).getErrors().stream()
+                .map(GraphQLError::getMessage)
+                .anyMatch(message -> message.startsWith("The operation costs"));
+    }
+
+    @Test
+    void theHistoriesOfTheCustomersFitTheDefaultBudget() {
+        assertEquals(21010, costOf("{ getCustomer { id rentTransactions { id movie { id } customer { id } } } }"));
+        assertEquals(33010, costOf("{ getCustomer { id rentTransactionsConnection(first: 50) { edges { node { id "
+                + "movie { movieTitle { title } } } } pageInfo { hasNextPage } } } }"));
+        assertFalse(isRejected("{ getCustomer { id rentTransactionsConnection { edges { node { id "
+                + "movie { id movieTitle { title directors { name } } } } } } } }"));
+    }
+
+    @Test
+    void aListLookedUpByIdHoldsASingleEntity() {
+        String history = "{ rentTransactions { id movie { movieTitle { title directors { name } } } } }";
+
+        assertEquals(41, costOf("{ getCustomer(id: 1) " + history + " }"));
+        assertEquals(31010, costOf("{ getCustomer " + history + " }"));
+        assertEquals(2, costOf("{ getCategory(id: 1) { name moviesInCategory { title } } }"));
+    }
+
+    @Test
+    void aConnectionIsSizedByItsPage() {
+        String edges = "{ edges { node { title } } }";
+
+        assertEquals(16, costOf("{ getMoviesConnection(first: 5) " + edges + " }"));
+        assertEquals(31, costOf("{ getMoviesConnection " + edges + " }"));
+        assertEquals(61, costOf("{ getMoviesConnection(first: 50) " + edges + " }"));
+        assertEquals(61, costOf("query ($first: Int) { getMoviesConnection(first: $first) " + edges + " }",
+                Map.of("first", 50)));
+    }
+
+    @Test
+    void scalarsCostNothing() {
+        assertEquals(0, costOf("{ __typename }"));
+        assertEquals(1, costOf("{ getCategory { name } }"));
+    }
+
+    @Test
+    void rejectsTheCyclesOfTheCatalogBeforeExecutingThem() {
+        ExecutionResult result = execute("{ getActor { moviesPlayedIn { actors { moviesPlayedIn { title } } } } }",
+                Map.of());
+
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("The operation costs"));
+        assertNull(result.getData());
+    }
+}
@@ -0,0 +1,110 @@
+package videoclub.graphql.server.preparsed;
+
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreparsedDocumentCacheTest {
+    private static final String QUERY = "{ getCategory { name } }";
+
+    private final AtomicInteger parses = new AtomicInteger();
+    private final Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate = input -> {
+        parses.incrementAndGet();
+        return new PreparsedDocumentEntry(Parser.parse(input.getQuery()));
+    };
+
+    private static ExecutionInput request(String query, String hash) {
+        ExecutionInput.Builder input = ExecutionInput.newExecutionInput().query(query);
+        if (hash != null) {
+            input.extensions(Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash)));
+        }
+        return input.build();
+    }
+
+    private static String errorOf(PreparsedDocumentEntry entry) {
+        assertTrue(entry.hasErrors());
+        return entry.getErrors().get(0).getMessage();
+    }
+
+    @Test
+    void parsesAnOperationSentAgainOnlyOnce() {
+        PreparsedDocumentCache cache = new PreparsedDocumentCache(2, true);
+
+        PreparsedDocumentEntry first = cache.getDocument(request(QUERY, null), parseAndValidate);
+        PreparsedDocumentEntry second = cache.getDocument(request(QUERY, null), parseAndValidate);
+
+        assertSame(first, second);
+        assertEquals(1, parses.get());
+        assertEquals(1L, cache.statistics().get("hits"));
+    }
+
+    @Test
+    void anOperationSentWithItsTextCanBeSentByItsHashAlone() {
+        PreparsedDocumentCache cache = new PreparsedDocumentCache(2, true);
+        String hash = PreparsedDocumentCache.hashOf(QUERY);
+
+        assertEquals("PersistedQueryNotFound", errorOf(cache.getDocument(request("", hash), parseAndValidate)));
+
+        PreparsedDocumentEntry registered = cache.getDocument(request(QUERY, hash), parseAndValidate);
+        assertFalse(registered.hasErrors());
+        assertSame(registered, cache.getDocument(request("", hash.toUpperCase()), parseAndValidate));
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    void rejectsTheTextOfAnOperationThatDoesNotMatchItsHash() {
+        PreparsedDocumentCache cache = new PreparsedDocumentCache(2, true);
+        String hash = PreparsedDocumentCache.hashOf("{ getCustomer { id } }");
+
+        assertEquals("PersistedQueryIdInvalid", errorOf(cache.getDocument(request(QUERY, hash), parseAndValidate)));
+        assertEquals("PersistedQueryNotFound", errorOf(cache.getDocument(request("", hash), parseAndValidate)));
+        assertEquals(0, parses.get());
+    }
+
+    @Test
+    void ignoresTheHashesWhenPersistedQueriesAreDisabled() {
+        PreparsedDocumentCache cache = new PreparsedDocumentCache(2, false);
+        String hash = PreparsedDocumentCache.hashOf("{ getCustomer { id } }");
+
+        assertFalse(cache.getDocument(request(QUERY, hash), parseAndValidate).hasErrors());
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    void doesNotCacheInvalidOperations() {
+        PreparsedDocumentCache cache = new PreparsedDocumentCache(2, true);
+        Function<ExecutionInput, PreparsedDocumentEntry> invalid = input -> {
+            parses.incrementAndGet();
+            return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError().message("Invalid").build());
+        };
+
+        cache.getDocument(request(QUERY, null), invalid);
+        cache.getDocument(request(QUERY, null), invalid);
+
+        assertEquals(2, parses.get());
+        assertEquals(0, cache.statistics().get("size"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedDocument() {
+        PreparsedDocumentCache cache = new PreparsedDocumentCache(1, true);
+
+        cache.getDocument(request(QUERY, null), parseAndValidate);
+        cache.getDocument(request("{ getCustomer { id } }", null), parseAndValidate);
+        cache.getDocument(request(QUERY, null), parseAndValidate);
+
+        assertEquals(3, parses.get());
+        assertEquals(2L, cache.statistics().get("evictions"));
+    }
+}
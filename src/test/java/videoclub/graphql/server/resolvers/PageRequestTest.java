@@ -0,0 +1,93 @@
+package videoclub.graphql.server.resolvers;
+
+import graphql.relay.Connection;
+import graphql.relay.Edge;
+import graphql.relay.PageInfo;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageRequestTest {
+
+    private static Connection<Integer> page(PageRequest request, Integer... rows) {
+        return request.connection(rows, Integer::intValue);
+    }
+
+    @Test
+    void theEndCursorOfAPageStartsTheNextOne() {
+        Connection<Integer> first = page(PageRequest.of("Movie", 2, null), 1, 2, 3);
+        PageInfo pageInfo = first.getPageInfo();
+        assertTrue(pageInfo.isHasNextPage());
+        assertEquals(first.getEdges().get(0).getCursor(), pageInfo.getStartCursor());
+
+        PageRequest next = PageRequest.of("Movie", 2, pageInfo.getEndCursor().getValue());
+        assertEquals(2, next.getAfterId());
+    }
+
+    @Test
+    void readsOneRowMoreThanThePageToTellWhetherThereIsANextPage() {
+        PageRequest request = PageRequest.of("Movie", 2, null);
+        assertEquals(3, request.getLimit());
+
+        Connection<Integer> last = page(request, 5, 6);
+        assertEquals(2, last.getEdges().size());
+        assertFalse(last.getPageInfo().isHasNextPage());
+        assertFalse(last.getPageInfo().isHasPreviousPage());
+    }
+
+    @Test
+    void keepsOnlyTheRowsOfThePage() {
+        Connection<Integer> page = page(PageRequest.of("Movie", 2, null), 1, 2, 3);
+
+        assertEquals("1,2", page.getEdges().stream().map(Edge::getNode).map(String::valueOf)
+                .collect(Collectors.joining(",")));
+    }
+
+    @Test
+    void anEmptyPageHasNoCursors() {
+        Connection<Integer> page = page(PageRequest.of("Movie", 2, null));
+
+        assertTrue(page.getEdges().isEmpty());
+        assertNull(page.getPageInfo().getStartCursor());
+        assertNull(page.getPageInfo().getEndCursor());
+    }
+
+    @Test
+    void pagesAreOfTheDefaultSizeUnlessFirstIsGiven() {
+        PageRequest request = PageRequest.of("Movie", null, null);
+
+        assertEquals(PageRequest.DEFAULT_PAGE_SIZE + 1, request.getLimit());
+        assertNull(request.getAfterId());
+    }
+
+    @Test
+    void rejectsPagesLargerThanTheMaximumOrNegative() {
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.of("Movie", PageRequest.MAX_PAGE_SIZE + 1, null));
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.of("Movie", -1, null));
+        assertEquals(PageRequest.MAX_PAGE_SIZE + 1, PageRequest.of("Movie", PageRequest.MAX_PAGE_SIZE, null).getLimit());
+    }
+
+    @Test
+    void rejectsTheCursorsOfAnotherConnection() {
+        String customerCursor = page(PageRequest.of("Customer", 1, null), 7).getPageInfo().getEndCursor().getValue();
+
+        assertEquals(7, PageRequest.of("Customer", 1, customerCursor).getAfterId());
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.of("Movie", 1, customerCursor));
+    }
+
+    @Test
+    void rejectsCursorsThatAreNotOursAtAll() {
+        String notAnId = Base64.getEncoder().encodeToString("Movie:x".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.of("Movie", 1, "not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.of("Movie", 1, notAnId));
+    }
+}
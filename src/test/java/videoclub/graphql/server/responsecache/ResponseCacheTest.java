@@ -0,0 +1,154 @@
+package videoclub.graphql.server.responsecache;
+
+import org.junit.jupiter.api.Test;
+import videoclub.graphql.server.preparsed.PreparsedDocumentCache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+    private static final Map<String, String> HEADERS = Map.of("Cache-Control", "max-age=300, public");
+
+    private final ResponseCache cache = new ResponseCache(2, 1024, Duration.ofMinutes(1));
+
+    private static byte[] bytesOf(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private ResponseCache.Entry store(String key, String body, String... tables) {
+        cache.admit(key, Set.of(tables), HEADERS, cache.generation());
+        return cache.put(key, bytesOf(body), CONTENT_TYPE);
+    }
+
+    @Test
+    void storesOnlyTheResponsesOfAdmittedResults() {
+        assertNull(cache.put("categories", bytesOf("{}"), CONTENT_TYPE));
+        assertNull(cache.get("categories"));
+
+        ResponseCache.Entry stored = store("categories", "{\"data\":{}}", "Category");
+        ResponseCache.Entry found = cache.get("categories");
+
+        assertNotNull(stored);
+        assertEquals(stored.getETag(), found.getETag());
+        assertArrayEquals(bytesOf("{\"data\":{}}"), found.getBody());
+        assertEquals(CONTENT_TYPE, found.getContentType());
+        assertEquals(HEADERS, found.getHeaders());
+    }
+
+    @Test
+    void aWriteEvictsOnlyTheResponsesReadFromItsTable() {
+        store("categories", "{}", "Category", "inCategory");
+        store("customers", "{}", "Customer");
+
+        cache.invalidate("inCategory");
+
+        assertNull(cache.get("categories"));
+        assertNotNull(cache.get("customers"));
+        assertEquals(1L, cache.statistics().get("invalidations"));
+    }
+
+    @Test
+    void doesNotCacheTheResultOfAQueryThatOverlappedAWrite() {
+        long generation = cache.generation();
+        cache.invalidate("Customer");
+
+        cache.admit("categories", Set.of("Category"), HEADERS, generation);
+
+        assertNull(cache.put("categories", bytesOf("{}"), CONTENT_TYPE));
+    }
+
+    @Test
+    void aWriteDropsTheResultsAdmittedButNotYetStored() {
+        cache.admit("categories", Set.of("Category"), HEADERS, cache.generation());
+
+        cache.invalidate("Customer");
+
+        assertNull(cache.put("categories", bytesOf("{}"), CONTENT_TYPE));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedResponse() {
+        store("a", "{}", "Category");
+        store("b", "{}", "Category");
+        cache.get("a");
+
+        store("c", "{}", "Category");
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1L, cache.statistics().get("evictions"));
+    }
+
+    @Test
+    void doesNotCacheResponsesLargerThanTheLimit() {
+        assertNull(store("large", "x".repeat(1025), "Category"));
+        assertNull(cache.get("large"));
+    }
+
+    @Test
+    void theETagIsTheSameForTheSameBody() {
+        ResponseCache.Entry first = store("a", "{\"data\":1}", "Category");
+        ResponseCache.Entry second = store("b", "{\"data\":1}", "Category");
+        ResponseCache.Entry other = store("c", "{\"data\":2}", "Category");
+
+        assertEquals(first.getETag(), second.getETag());
+        assertNotEquals(first.getETag(), other.getETag());
+        assertTrue(first.getETag().startsWith("\"") && first.getETag().endsWith("\""));
+    }
+
+    @Test
+    void matchesTheIfNoneMatchHeadersOfAClientThatHasTheResponse() {
+        ResponseCache.Entry entry = store("a", "{}", "Category");
+        String eTag = entry.getETag();
+
+        assertTrue(entry.matches(eTag));
+        assertTrue(entry.matches("W/" + eTag));
+        assertTrue(entry.matches("\"other\", " + eTag));
+        assertTrue(entry.matches("*"));
+        assertFalse(entry.matches("\"other\""));
+        assertFalse(entry.matches(null));
+    }
+
+    @Test
+    void theKeyOfARequestDoesNotDependOnHowItsVariablesAreWritten() {
+        String query = "query ($id: Int) { getCategory(id: $id) { name } }";
+        String key = ResponseCache.keyOf(query, null, Map.of("id", 1, "unused", "x"), null);
+
+        assertEquals(key, ResponseCache.keyOf(bytesOf(
+                "{\"variables\": {\"unused\": \"x\", \"id\": 1}, \"query\": \"" + query + "\"}")));
+        assertEquals(key, ResponseCache.keyOfParameters(query, null, "{\"unused\":\"x\",\"id\":1}", null));
+        assertNotEquals(key, ResponseCache.keyOf(query, null, Map.of("id", 2), null));
+        assertNotEquals(key, ResponseCache.keyOf(query, "Named", Map.of("id", 1, "unused", "x"), null));
+    }
+
+    @Test
+    void aPersistedQueryIsKeyedByItsHashUnlessItsTextDisagrees() {
+        String query = "{ getCategory { name } }";
+        String hash = PreparsedDocumentCache.hashOf(query);
+        Map<String, Object> persisted = Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash));
+        Map<String, Object> mismatched = Map.of("persistedQuery",
+                Map.of("version", 1, "sha256Hash", "0".repeat(64)));
+
+        assertNotNull(ResponseCache.keyOf(null, null, null, persisted));
+        assertEquals(ResponseCache.keyOf(query, null, null, null), ResponseCache.keyOf(query, null, null, persisted));
+        assertNull(ResponseCache.keyOf(query, null, null, mismatched));
+    }
+
+    @Test
+    void batchesAndMalformedBodiesAreNotCached() {
+        assertNull(ResponseCache.keyOf(bytesOf("[{\"query\": \"{ getCategory { name } }\"}]")));
+        assertNull(ResponseCache.keyOf(bytesOf("{\"query\": ")));
+        assertNull(ResponseCache.keyOf(bytesOf("{}")));
+    }
+}